@@ -16,7 +16,6 @@
  *****************************************************************************/
 package cern.c2mon.client.core.cache;
 
-import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 
@@ -38,17 +37,17 @@ interface CacheController {
    * @return The current active cache reference, which is either the 
    *         live cache or the history cache.
    */
-  Map<Long, TagController> getActiveCache();
+  TagControllerCache getActiveCache();
   
   /**
    * @return The live cache reference
    */
-  Map<Long, TagController> getLiveCache();
+  TagControllerCache getLiveCache();
   
   /**
    * @return The history cache reference
    */
-  Map<Long, TagController> getHistoryCache();
+  TagControllerCache getHistoryCache();
   
   /**
    * @return <code>true</code>, if the history mode of the cache is enabled 
@@ -17,8 +17,6 @@
 package cern.c2mon.client.core.cache;
 
 import java.util.Collection;
-import java.util.Hashtable;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
@@ -39,7 +37,7 @@ class CacheControllerImpl implements CacheController {
   /**
    * Pointer to the actual used cache instance (live or history)
    */
-  private Map<Long, TagController> activeCache = null;
+  private TagControllerCache activeCache = null;
 
   /** Thread synchronization lock for avoiding a cache mode switch */
   private final Object historyModeLock = new Object();
@@ -48,13 +46,13 @@ class CacheControllerImpl implements CacheController {
    * <code>Map</code> containing all subscribed data tags which are updated via the
    * <code>JmsProxy</code>
    */
-  private final Map<Long, TagController> liveCache = new Hashtable<>(1500);
+  private final TagControllerCache liveCache = new TagControllerCache(1500);
 
   /**
    * <code>Map</code> containing all subscribed data tags which are updated via the
    * <code>HistoryManager</code>
    */
-  private final Map<Long, TagController> historyCache = new Hashtable<>(1500);
+  private final TagControllerCache historyCache = new TagControllerCache(1500);
 
   /**
    * Flag to remember whether the cache is in history mode or not
@@ -72,17 +70,17 @@ class CacheControllerImpl implements CacheController {
   }
 
   @Override
-  public Map<Long, TagController> getActiveCache() {
+  public TagControllerCache getActiveCache() {
     return activeCache;
   }
 
   @Override
-  public Map<Long, TagController> getHistoryCache() {
+  public TagControllerCache getHistoryCache() {
     return historyCache;
   }
 
   @Override
-  public Map<Long, TagController> getLiveCache() {
+  public TagControllerCache getLiveCache() {
     return liveCache;
   }
 
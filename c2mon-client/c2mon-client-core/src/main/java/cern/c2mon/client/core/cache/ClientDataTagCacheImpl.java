@@ -111,11 +111,9 @@ public class ClientDataTagCacheImpl implements ClientDataTagCache {
   public Tag getByName(final String tagName) {
     cacheReadLock.lock();
     try {
-      Collection<TagController> values = controller.getActiveCache().values();
-      for (TagController cdt : values) {
-        if (cdt.getTagImpl().getName().equalsIgnoreCase(tagName)) {
-          return cdt.getTagImpl();
-        }
+      TagController cdt = controller.getActiveCache().getByName(tagName);
+      if (cdt != null) {
+        return cdt.getTagImpl();
       }
     } finally {
       cacheReadLock.unlock();
@@ -148,10 +146,8 @@ public class ClientDataTagCacheImpl implements ClientDataTagCache {
 
     cacheReadLock.lock();
     try {
-      for (TagController cdt : controller.getActiveCache().values()) {
-        if (cdt.getTagImpl().getEquipmentIds().contains(equipmentId)) {
-          list.add(cdt.getTagImpl());
-        }
+      for (TagController cdt : controller.getActiveCache().getByEquipment(equipmentId)) {
+        list.add(cdt.getTagImpl());
       }
     } finally {
       cacheReadLock.unlock();
@@ -202,10 +198,8 @@ public class ClientDataTagCacheImpl implements ClientDataTagCache {
 
     cacheReadLock.lock();
     try {
-      for (TagController cdt : controller.getActiveCache().values()) {
-        if (cdt.getTagImpl().getProcessIds().contains(processId)) {
-          list.add(cdt.getTagImpl());
-        }
+      for (TagController cdt : controller.getActiveCache().getByProcess(processId)) {
+        list.add(cdt.getTagImpl());
       }
     } finally {
       cacheReadLock.unlock();
@@ -265,12 +259,11 @@ public class ClientDataTagCacheImpl implements ClientDataTagCache {
 
     cacheReadLock.lock();
     try {
-      Collection<TagController> values = controller.getActiveCache().values();
-      for (TagController cdt : values) {
-        for (String tagName : tagNames) {
-          if (cdt.getTagImpl().getName().equalsIgnoreCase(tagName)) {
-            resultMap.put(tagName, cdt.getTagImpl());
-          }
+      TagControllerCache activeCache = controller.getActiveCache();
+      for (String tagName : tagNames) {
+        TagController cdt = activeCache.getByName(tagName);
+        if (cdt != null) {
+          resultMap.put(tagName, cdt.getTagImpl());
         }
       }
     } finally {
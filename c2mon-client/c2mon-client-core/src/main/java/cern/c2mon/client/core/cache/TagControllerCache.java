@@ -0,0 +1,247 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.client.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cern.c2mon.client.core.tag.TagController;
+import cern.c2mon.client.core.tag.TagImpl;
+
+/**
+ * <code>Map</code> of the cached <code>TagController</code>s by tag id, which
+ * maintains secondary indexes on the case-insensitive tag name, the equipment
+ * ids and the process ids of the tags. The indexes are updated whenever a
+ * controller is put into or removed from the map, and after every
+ * configuration update of a contained controller.
+ * <p>
+ * The controllers must only be added and removed through <code>put</code>,
+ * <code>remove</code> and <code>clear</code>; the views returned by
+ * <code>keySet()</code>, <code>values()</code> and <code>entrySet()</code>
+ * must not be modified.
+ */
+public class TagControllerCache extends Hashtable<Long, TagController> {
+
+  private static final long serialVersionUID = -6113787606104255476L;
+
+  /** Tag ids by lower case tag name */
+  private final transient Map<String, Set<Long>> nameIndex = new ConcurrentHashMap<>();
+
+  /** Tag ids by equipment id */
+  private final transient Map<Long, Set<Long>> equipmentIndex = new ConcurrentHashMap<>();
+
+  /** Tag ids by process id */
+  private final transient Map<Long, Set<Long>> processIndex = new ConcurrentHashMap<>();
+
+  /** The keys under which every tag is currently indexed, guarded by this map */
+  private final transient Map<Long, IndexKeys> indexedKeys = new HashMap<>();
+
+  /**
+   * @param initialCapacity the initial capacity of the map
+   */
+  public TagControllerCache(final int initialCapacity) {
+    super(initialCapacity);
+  }
+
+  @Override
+  public synchronized TagController put(final Long tagId, final TagController tagController) {
+    TagController previous = super.put(tagId, tagController);
+    if (previous != null && previous != tagController) {
+      previous.setConfigurationListener(null);
+    }
+    tagController.setConfigurationListener(this::reindex);
+    index(tagId, tagController);
+    return previous;
+  }
+
+  @Override
+  public synchronized TagController remove(final Object tagId) {
+    TagController removed = super.remove(tagId);
+    if (removed != null) {
+      removed.setConfigurationListener(null);
+      unindex((Long) tagId);
+    }
+    return removed;
+  }
+
+  @Override
+  public synchronized void clear() {
+    for (TagController tagController : super.values()) {
+      tagController.setConfigurationListener(null);
+    }
+    super.clear();
+    indexedKeys.clear();
+    nameIndex.clear();
+    equipmentIndex.clear();
+    processIndex.clear();
+  }
+
+  /**
+   * Updates the indexes after a configuration update of the given controller,
+   * if it is (still) part of this map.
+   *
+   * @param tagController the updated controller
+   */
+  synchronized void reindex(final TagController tagController) {
+    Long tagId = tagController.getTagImpl().getId();
+    if (super.get(tagId) == tagController) {
+      index(tagId, tagController);
+    }
+  }
+
+  /**
+   * @param tagName the tag name, case insensitive
+   * @return a controller of a tag with the given name, or <code>null</code>
+   */
+  public TagController getByName(final String tagName) {
+    for (TagController tagController : getAll(nameIndex.get(toNameKey(tagName)))) {
+      if (tagController.getTagImpl().getName().equalsIgnoreCase(tagName)) {
+        return tagController;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param equipmentId the equipment id
+   * @return the controllers of all tags attached to the equipment
+   */
+  public Collection<TagController> getByEquipment(final Long equipmentId) {
+    return getAll(equipmentIndex.get(equipmentId));
+  }
+
+  /**
+   * @param processId the process id
+   * @return the controllers of all tags attached to the process
+   */
+  public Collection<TagController> getByProcess(final Long processId) {
+    return getAll(processIndex.get(processId));
+  }
+
+  private Collection<TagController> getAll(final Set<Long> tagIds) {
+    if (tagIds == null) {
+      return Collections.emptyList();
+    }
+    Collection<TagController> tagControllers = new ArrayList<>(tagIds.size());
+    for (Long tagId : tagIds) {
+      TagController tagController = super.get(tagId);
+      if (tagController != null) {
+        tagControllers.add(tagController);
+      }
+    }
+    return tagControllers;
+  }
+
+  private void index(final Long tagId, final TagController tagController) {
+    IndexKeys newKeys = new IndexKeys(tagController);
+    IndexKeys oldKeys = indexedKeys.put(tagId, newKeys);
+    if (oldKeys == null) {
+      oldKeys = IndexKeys.NONE;
+    }
+
+    if (!newKeys.name.equals(oldKeys.name)) {
+      removeFromIndex(nameIndex, oldKeys.name, tagId);
+      addToIndex(nameIndex, newKeys.name, tagId);
+    }
+    updateIndex(equipmentIndex, oldKeys.equipmentIds, newKeys.equipmentIds, tagId);
+    updateIndex(processIndex, oldKeys.processIds, newKeys.processIds, tagId);
+  }
+
+  private void unindex(final Long tagId) {
+    IndexKeys oldKeys = indexedKeys.remove(tagId);
+    if (oldKeys != null) {
+      removeFromIndex(nameIndex, oldKeys.name, tagId);
+      updateIndex(equipmentIndex, oldKeys.equipmentIds, Collections.emptySet(), tagId);
+      updateIndex(processIndex, oldKeys.processIds, Collections.emptySet(), tagId);
+    }
+  }
+
+  private static void updateIndex(final Map<Long, Set<Long>> index, final Set<Long> oldKeys, final Set<Long> newKeys,
+                                  final Long tagId) {
+    for (Long key : oldKeys) {
+      if (!newKeys.contains(key)) {
+        removeFromIndex(index, key, tagId);
+      }
+    }
+    for (Long key : newKeys) {
+      if (!oldKeys.contains(key)) {
+        addToIndex(index, key, tagId);
+      }
+    }
+  }
+
+  private static <K> void addToIndex(final Map<K, Set<Long>> index, final K key, final Long tagId) {
+    index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(tagId);
+  }
+
+  private static <K> void removeFromIndex(final Map<K, Set<Long>> index, final K key, final Long tagId) {
+    if (key == null) {
+      return;
+    }
+    Set<Long> tagIds = index.get(key);
+    if (tagIds != null) {
+      tagIds.remove(tagId);
+      if (tagIds.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private static String toNameKey(final String tagName) {
+    return tagName == null ? "" : tagName.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * The name, equipment ids and process ids of a tag at the time it was indexed.
+   */
+  private static final class IndexKeys {
+
+    private static final IndexKeys NONE = new IndexKeys();
+
+    private final String name;
+
+    private final Set<Long> equipmentIds;
+
+    private final Set<Long> processIds;
+
+    private IndexKeys() {
+      this.name = null;
+      this.equipmentIds = Collections.emptySet();
+      this.processIds = Collections.emptySet();
+    }
+
+    private IndexKeys(final TagController tagController) {
+      TagImpl tagImpl = tagController.getTagImpl();
+      tagController.getUpdateTagLock().readLock().lock();
+      try {
+        this.name = toNameKey(tagImpl.getName());
+        this.equipmentIds = new HashSet<>(tagImpl.getEquipmentIds());
+        this.processIds = new HashSet<>(tagImpl.getProcessIds());
+      } finally {
+        tagController.getUpdateTagLock().readLock().unlock();
+      }
+    }
+  }
+}
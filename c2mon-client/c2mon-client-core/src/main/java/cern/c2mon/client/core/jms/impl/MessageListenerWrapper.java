@@ -16,6 +16,9 @@
  *****************************************************************************/
 package cern.c2mon.client.core.jms.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -25,6 +28,7 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.TextMessage;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.extern.slf4j.Slf4j;
 
 import cern.c2mon.client.core.listener.TagUpdateListener;
@@ -40,6 +44,9 @@ import cern.c2mon.shared.client.tag.TransferTagValueImpl;
  * wrapper listens on a the given topic and notifies {@link TagUpdateListener}s when an update is received for the
  * corresponding Tag. Notice only one TagUpdateListener will be registered for a given id (the latest one added). In
  * other words, this wrapper also functions as a filter on the topic, with undesired messages being filtered out.
+ * <p>
+ * A message either contains a single TransferTagValue, or a JSON array of TransferTagValues if the server
+ * publishes batched tag updates.
  *
  * @author Mark Brightwell
  */
@@ -106,6 +113,34 @@ class MessageListenerWrapper extends AbstractQueuedWrapper<TagValueUpdate> {
       return TransferTagSerializer.fromJson(((TextMessage) message).getText(), TransferTagValueImpl.class);
     }
 
+    @Override
+    protected Collection<TagValueUpdate> convertMessages(Message message) throws JMSException {
+      String text = ((TextMessage) message).getText();
+      if (!isBatch(text)) {
+        return Collections.singletonList(TransferTagSerializer.fromJson(text, TransferTagValueImpl.class));
+      }
+      Collection<TransferTagValueImpl> batch =
+          TransferTagSerializer.fromCollectionJson(text, new TypeReference<Collection<TransferTagValueImpl>>() { });
+      if (batch == null) {
+        return Collections.emptyList();
+      }
+      log.trace("received batch of {} TagValueUpdate events", batch.size());
+      return new ArrayList<>(batch);
+    }
+
+    /**
+     * @return true if the message text is a JSON array of tag updates
+     */
+    static boolean isBatch(final String text) {
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (!Character.isWhitespace(c)) {
+          return c == '[';
+        }
+      }
+      return false;
+    }
+
     @Override
     protected synchronized void notifyListeners(TagValueUpdate tagValueUpdate) {
       if (listeners.containsKey(tagValueUpdate.getId())) {
@@ -20,8 +20,11 @@ package cern.c2mon.client.core.tag;
 import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import cern.c2mon.client.common.listener.BaseTagListener;
@@ -66,6 +69,14 @@ public class TagController implements TagUpdateListener, SupervisionListener {
    */
   private Map<String, Object> metadata = new HashMap<>();
 
+  /**
+   * Notified after every successful configuration update, used by the client
+   * cache to keep its name, equipment and process indexes up to date.
+   */
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private volatile Consumer<TagController> configurationListener;
+
   public TagController() {
     this.tagImpl = new TagImpl();
   }
@@ -360,6 +371,11 @@ public class TagController implements TagUpdateListener, SupervisionListener {
       updateTagLock.writeLock().unlock();
     }
 
+    Consumer<TagController> listener = configurationListener;
+    if (valid && listener != null) {
+      listener.accept(this);
+    }
+
     if (clone != null) {
       notifyListeners(clone);
     }
@@ -0,0 +1,126 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.client.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.client.core.tag.TagController;
+import cern.c2mon.shared.client.tag.TagMode;
+import cern.c2mon.shared.client.tag.TransferTagImpl;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+import cern.c2mon.shared.rule.RuleFormatException;
+
+/**
+ * Unit test of the name, equipment and process indexes of the {@link TagControllerCache}.
+ */
+public class TagControllerCacheTest {
+
+  private TagControllerCache cache;
+
+  private long serverTime = System.currentTimeMillis();
+
+  @Before
+  public void setUp() {
+    cache = new TagControllerCache(16);
+  }
+
+  @Test
+  public void testLookups() throws RuleFormatException {
+    TagController tag1 = createTagController(1L, "Tag.One", 10L, 100L);
+    TagController tag2 = createTagController(2L, "Tag.Two", 10L, 200L);
+    cache.put(1L, tag1);
+    cache.put(2L, tag2);
+
+    assertSame(tag1, cache.getByName("tag.one"));
+    assertSame(tag2, cache.getByName("TAG.TWO"));
+    assertNull(cache.getByName("Tag.Three"));
+    assertEquals(2, cache.getByProcess(10L).size());
+    assertEquals(Collections.singletonList(tag2), cache.getByEquipment(200L));
+    assertTrue(cache.getByEquipment(300L).isEmpty());
+
+    cache.remove(1L);
+    assertNull(cache.getByName("Tag.One"));
+    assertEquals(Collections.singletonList(tag2), cache.getByProcess(10L));
+    assertTrue(cache.getByEquipment(100L).isEmpty());
+
+    cache.clear();
+    assertNull(cache.getByName("Tag.Two"));
+    assertTrue(cache.getByProcess(10L).isEmpty());
+  }
+
+  @Test
+  public void testReindexOnConfigurationUpdate() throws RuleFormatException {
+    TagController tag = createTagController(1L, "Tag.One", 10L, 100L);
+    cache.put(1L, tag);
+
+    tag.update(createTransferTag(1L, "Tag.Renamed", 20L, 300L));
+
+    assertNull(cache.getByName("Tag.One"));
+    assertSame(tag, cache.getByName("tag.renamed"));
+    assertTrue(cache.getByProcess(10L).isEmpty());
+    assertEquals(Collections.singletonList(tag), cache.getByProcess(20L));
+    assertTrue(cache.getByEquipment(100L).isEmpty());
+    assertEquals(Collections.singletonList(tag), cache.getByEquipment(300L));
+  }
+
+  @Test
+  public void testReplacedControllerIsNoLongerIndexed() throws RuleFormatException {
+    TagController tag = createTagController(1L, "Tag.One", 10L, 100L);
+    cache.put(1L, tag);
+    TagController unknownTag = new TagController(1L, true);
+    cache.put(1L, unknownTag);
+
+    assertNull(cache.getByName("Tag.One"));
+    assertTrue(cache.getByEquipment(100L).isEmpty());
+
+    // updates of the replaced controller do not change the indexes
+    tag.update(createTransferTag(1L, "Tag.Renamed", 20L, 300L));
+    assertNull(cache.getByName("Tag.Renamed"));
+    assertTrue(cache.getByProcess(20L).isEmpty());
+  }
+
+  private TagController createTagController(final Long tagId, final String name, final Long processId,
+                                            final Long equipmentId) throws RuleFormatException {
+    TagController tagController = new TagController(tagId);
+    tagController.update(createTransferTag(tagId, name, processId, equipmentId));
+    return tagController;
+  }
+
+  private TransferTagImpl createTransferTag(final Long tagId, final String name, final Long processId,
+                                            final Long equipmentId) {
+    DataTagQualityImpl tagQuality = new DataTagQualityImpl();
+    tagQuality.validate();
+    serverTime += 1000L;
+    TransferTagImpl tagUpdate = new TransferTagImpl(tagId, 1.234f, "test value desc", tagQuality, TagMode.TEST,
+        new Timestamp(serverTime - 10000L), new Timestamp(serverTime - 5000L), new Timestamp(serverTime),
+        "Test description", name, "My.jms.topic");
+    tagUpdate.setValueClassName(Float.class.getName());
+    tagUpdate.addProcessIds(Arrays.asList(processId));
+    tagUpdate.addEquipmentIds(Arrays.asList(equipmentId));
+    return tagUpdate;
+  }
+}
@@ -0,0 +1,110 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.client.core.jms.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.client.core.listener.TagUpdateListener;
+import cern.c2mon.shared.client.serializer.TransferTagSerializer;
+import cern.c2mon.shared.client.tag.TagMode;
+import cern.c2mon.shared.client.tag.TagValueUpdate;
+import cern.c2mon.shared.client.tag.TransferTagValueImpl;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+
+/**
+ * Unit test of the conversion of single and batched tag update messages
+ * by the {@link MessageListenerWrapper}.
+ */
+public class MessageListenerWrapperTest {
+
+  private ExecutorService executorService;
+
+  private MessageListenerWrapper wrapper;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newSingleThreadExecutor();
+    wrapper = new MessageListenerWrapper(1L, EasyMock.createNiceMock(TagUpdateListener.class), 10,
+        EasyMock.createNiceMock(SlowConsumerListener.class), executorService);
+  }
+
+  @After
+  public void tearDown() {
+    wrapper.stop();
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testConvertSingleUpdate() throws JMSException {
+    Collection<TagValueUpdate> updates = wrapper.convertMessages(createMessage(TransferTagSerializer.toJson(createTagValue(1L, 10L))));
+    assertEquals(1, updates.size());
+    assertEquals(Long.valueOf(1L), updates.iterator().next().getId());
+  }
+
+  @Test
+  public void testConvertBatch() throws JMSException {
+    String json = TransferTagSerializer.toCollectionJson(Arrays.asList(createTagValue(1L, 10L), createTagValue(2L, 20L)));
+    Collection<TagValueUpdate> updates = wrapper.convertMessages(createMessage(json));
+
+    assertEquals(2, updates.size());
+    Iterator<TagValueUpdate> iterator = updates.iterator();
+    TagValueUpdate first = iterator.next();
+    assertEquals(Long.valueOf(1L), first.getId());
+    assertEquals(10L, first.getValue());
+    assertEquals(Long.valueOf(2L), iterator.next().getId());
+  }
+
+  @Test
+  public void testIsBatch() {
+    assertTrue(MessageListenerWrapper.isBatch("[{\"id\":1}]"));
+    assertTrue(MessageListenerWrapper.isBatch(" \n[]"));
+    assertFalse(MessageListenerWrapper.isBatch("{\"id\":1}"));
+    assertFalse(MessageListenerWrapper.isBatch(""));
+  }
+
+  private static TextMessage createMessage(final String text) throws JMSException {
+    TextMessage message = EasyMock.createMock(TextMessage.class);
+    EasyMock.expect(message.getText()).andReturn(text).anyTimes();
+    EasyMock.replay(message);
+    return message;
+  }
+
+  private static TransferTagValueImpl createTagValue(final Long tagId, final Long value) {
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    TransferTagValueImpl tagValue = new TransferTagValueImpl(tagId, value, "value description", new DataTagQualityImpl(),
+        TagMode.TEST, timestamp, timestamp, timestamp, "description");
+    tagValue.setValueClassName(Long.class.getName());
+    return tagValue;
+  }
+}
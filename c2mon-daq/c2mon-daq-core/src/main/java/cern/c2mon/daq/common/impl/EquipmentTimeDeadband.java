@@ -18,14 +18,16 @@ package cern.c2mon.daq.common.impl;
 
 import static java.lang.String.format;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
 
 import lombok.extern.slf4j.Slf4j;
 
 import cern.c2mon.daq.common.IDynamicTimeDeadbandFilterer;
 import cern.c2mon.daq.common.messaging.IProcessMessageSender;
+import cern.c2mon.daq.common.timer.TagTimerWheel;
 import cern.c2mon.daq.tools.DataTagValueFilter;
 import cern.c2mon.shared.common.datatag.SourceDataTag;
 import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
@@ -57,9 +59,9 @@ class EquipmentTimeDeadband {
   private IProcessMessageSender processMessageSender;
 
   /**
-   * This is the time deadband scheduler timer where all schedulers are scheduled on.
+   * This is the timer wheel where all pending time deadband flushes are scheduled on.
    */
-  private static Timer timeDeadbandTimer = new Timer("Time deadband timer", true);
+  private final TagTimerWheel timeDeadbandWheel = TagTimerWheel.getInstance();
 
   /**
    * The dynamic time dead band filterer for recording the current source data tag
@@ -97,7 +99,7 @@ class EquipmentTimeDeadband {
     if (currentTag.getAddress().isTimeDeadbandEnabled() ) {
       log.debug("createSDTtimeDeadbandScheduler - creating time-deadband scheduler for tag #{}", currentTag.getId());
       this.sdtTimeDeadbandSchedulers.put(currentTag.getId(), new SDTTimeDeadbandScheduler(currentTag, this.processMessageSender,
-      this.equipmentSenderFilterModule, timeDeadbandTimer, this.dataTagValueFilter, this.dynamicTimeDeadbandFilterer));
+      this.equipmentSenderFilterModule, timeDeadbandWheel, this.dataTagValueFilter, this.dynamicTimeDeadbandFilterer));
     }
   }
 
@@ -237,9 +239,21 @@ class EquipmentTimeDeadband {
   public void sendDelayedTimeDeadbandValues() {
     log.trace("sendDelayedTimeDeadbandValues - Sending all time deadband delayed values to the server");
 
+    List<SourceDataTagValue> delayedValues = new ArrayList<>();
     for (SDTTimeDeadbandScheduler tagScheduler : this.sdtTimeDeadbandSchedulers.values()) {
       if (tagScheduler.isScheduledForSending()) {
-        tagScheduler.run();
+        SourceDataTagValue value = tagScheduler.flush();
+        if (value != null) {
+          delayedValues.add(value);
+        }
+      }
+    }
+
+    if (!delayedValues.isEmpty()) {
+      try {
+        this.processMessageSender.addValues(delayedValues);
+      } catch (InterruptedException e) {
+        log.error("{} time deadband delayed values could not be sent and are lost!", delayedValues.size());
       }
     }
   }
@@ -16,13 +16,16 @@
  *****************************************************************************/
 package cern.c2mon.daq.common.impl;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import lombok.extern.slf4j.Slf4j;
 
 import cern.c2mon.daq.common.IDynamicTimeDeadbandFilterer;
 import cern.c2mon.daq.common.messaging.IProcessMessageSender;
+import cern.c2mon.daq.common.timer.TagTimerWheel;
 import cern.c2mon.daq.tools.DataTagValueFilter;
 import cern.c2mon.shared.common.datatag.SourceDataTag;
 import cern.c2mon.shared.common.datatag.SourceDataTagValue;
@@ -33,9 +36,49 @@ import cern.c2mon.shared.common.type.TypeConverter;
 /**
  * The SourceDataTagTimeDeadbandScheduler class models threads responsible for
  * handling source time deadband filtering. It will work with the Static TimeDeadband
+ * <p>
+ * A flush is only scheduled on the shared {@link TagTimerWheel} while a value
+ * is pending, at the earliest one time deadband after the previous flush. All
+ * flushes expiring within the same tick are queued as one batch.
  */
 @Slf4j
-public class SDTTimeDeadbandScheduler extends TimerTask {
+public class SDTTimeDeadbandScheduler implements Runnable {
+
+  /**
+   * A flush scheduled on the timer wheel, tagged with its sequence number
+   */
+  private static final class ScheduledFlush {
+    private final SDTTimeDeadbandScheduler scheduler;
+    private final long sequence;
+
+    private ScheduledFlush(final SDTTimeDeadbandScheduler scheduler, final long sequence) {
+      this.scheduler = scheduler;
+      this.sequence = sequence;
+    }
+  }
+
+  /**
+   * Flushes all schedulers which expired within the same tick and queues the
+   * resulting values in one go at their process message sender, which must
+   * not send them on the timer wheel thread.
+   */
+  private static final TagTimerWheel.ExpiryHandler<ScheduledFlush> FLUSH_HANDLER = flushes -> {
+    Map<IProcessMessageSender, List<SourceDataTagValue>> batches = new IdentityHashMap<>();
+    for (ScheduledFlush flush : flushes) {
+      SourceDataTagValue value = flush.scheduler.flushExpired(flush.sequence);
+      if (value != null) {
+        batches.computeIfAbsent(flush.scheduler.processMessageSender, sender -> new ArrayList<>()).add(value);
+      }
+    }
+    for (Map.Entry<IProcessMessageSender, List<SourceDataTagValue>> batch : batches.entrySet()) {
+      try {
+        batch.getKey().addValues(batch.getValue());
+      } catch (InterruptedException e) {
+        log.error("Interrupted while queuing {} time deadband values - the values are lost.", batch.getValue().size());
+        Thread.currentThread().interrupt();
+      }
+    }
+  };
 
   /**
    * The process message sender takes the messages actually send to the server.
@@ -68,9 +111,30 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
   private DataTagValueFilter dataTagValueFilter;
 
   /**
-   * The timer to schedule this task on
+   * The timer wheel to schedule the flushes on
+   */
+  private final TagTimerWheel timerWheel;
+
+  /**
+   * The pending flush, or <code>null</code> if none is scheduled
+   */
+  private TagTimerWheel.Timeout<ScheduledFlush> pendingFlush;
+
+  /**
+   * Sequence number of the last scheduled flush. An expired flush with
+   * another sequence number has been replaced or cancelled in the meantime.
    */
-  private Timer timeDeadbandTimer;
+  private long flushSequence = 0L;
+
+  /**
+   * True while the scheduler is started and may schedule flushes on the timer wheel
+   */
+  private boolean started = false;
+
+  /**
+   * Time of the last flush in ms
+   */
+  private long lastFlushTime = 0L;
 
   /**
    * The dynamic time dead band filterer for recording the current source data tag
@@ -93,14 +157,14 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
    * @param sourceDataTag               The source data tag controlled by this object.
    * @param processMessageSender        Takes the messages sent to the server
    * @param equipmentSenderValid        Used to send messages to the server.
-   * @param timeDeadbandTimer           The timer to schedule this task on.
+   * @param timerWheel                  The timer wheel to schedule the flushes on.
    * @param valueChecker                Value checker object to avoid repeated values.
    * @param dynamicTimeDeadbandFilterer The dynamic time dead band filterer for recording the current source data tag
    */
   public SDTTimeDeadbandScheduler(final SourceDataTag sourceDataTag,
                                   final IProcessMessageSender processMessageSender,
                                   final EquipmentSenderFilterModule equipmentSenderFilterModule,
-                                  final Timer timeDeadbandTimer,
+                                  final TagTimerWheel timerWheel,
                                   final DataTagValueFilter dataTagValueFilter,
                                   final IDynamicTimeDeadbandFilterer dynamicTimeDeadbandFilterer) {
     this.dataTagValueFilter = dataTagValueFilter;
@@ -108,7 +172,7 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
     this.equipmentSenderFilterModule = equipmentSenderFilterModule;
     this.dynamicTimeDeadbandFilterer = dynamicTimeDeadbandFilterer;
 
-    this.timeDeadbandTimer = timeDeadbandTimer;
+    this.timerWheel = timerWheel;
 
     log.debug("creating time-deadband scheduler for tag : " + sourceDataTag.getId());
 
@@ -116,14 +180,31 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
   }
 
   /**
-   * Starts the timer task with the scheduled fixed rate defined for the given {@link SourceDataTag}
+   * Allows the scheduler to schedule flushes for the given {@link SourceDataTag}
+   * on the timer wheel. If a value is already pending, it is flushed with the next tick.
    */
   public void start() {
-    // create timers
-    if (sourceDataTag.getAddress().isTimeDeadbandEnabled()) {
-      log.debug("\tscheduler[{}] : setting scheduling interval to : {} miliseconds", this.sourceDataTag.getId(), this.sourceDataTag.getAddress().getTimeDeadband());
-      this.timeDeadbandTimer.scheduleAtFixedRate(this, 0, this.sourceDataTag.getAddress().getTimeDeadband());
-      log.debug("\tscheduler[{}] : setting scheduled", this.sourceDataTag.getId());
+    synchronized (this.sourceDataTag) {
+      if (sourceDataTag.getAddress().isTimeDeadbandEnabled()) {
+        log.debug("\tscheduler[{}] : setting time deadband to : {} miliseconds", this.sourceDataTag.getId(), this.sourceDataTag.getAddress().getTimeDeadband());
+        this.started = true;
+        scheduleFlush();
+      }
+    }
+  }
+
+  /**
+   * Cancels the pending flush, if any. No further flushes are scheduled
+   * until the scheduler is started again.
+   *
+   * @return <code>true</code>, if a flush was pending
+   */
+  public boolean cancel() {
+    synchronized (this.sourceDataTag) {
+      this.started = false;
+      boolean wasPending = this.pendingFlush != null && this.pendingFlush.cancel();
+      this.pendingFlush = null;
+      return wasPending;
     }
   }
 
@@ -146,78 +227,145 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
    * of the source data tag
    */
   public void scheduleValueForSending() {
-    this.sendValue = true;
+    synchronized (this.sourceDataTag) {
+      this.sendValue = true;
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Schedules a flush one time deadband after the previous one, if a value is
+   * pending and no flush is scheduled yet. Must be called while holding the
+   * lock on the source data tag.
+   */
+  private void scheduleFlush() {
+    if (started && sendValue && pendingFlush == null) {
+      long delay = lastFlushTime + this.sourceDataTag.getAddress().getTimeDeadband() - System.currentTimeMillis();
+      this.pendingFlush = this.timerWheel.schedule(new ScheduledFlush(this, ++flushSequence), delay, FLUSH_HANDLER);
+    }
   }
 
   /**
-   * The run method called from the timer.
+   * Sends the pending value immediately, if any.
    */
   @Override
   public void run() {
-    log.debug("scheduler[{}] : entering run()..", this.sourceDataTag.getId());
+    SourceDataTagValue value = flush();
+    if (value != null) {
+      try {
+        this.processMessageSender.addValue(value);
+      } catch (InterruptedException e) {
+        log.error("\tscheduler[{}] : interrupted while sending value - the value is lost.", this.sourceDataTag.getId());
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Cancels the scheduled flush, if any, and applies the filters on the pending value.
+   *
+   * @return the value to send to the server, or <code>null</code> if there is nothing to send
+   */
+  SourceDataTagValue flush() {
+    synchronized (this.sourceDataTag) {
+      if (this.pendingFlush != null) {
+        this.pendingFlush.cancel();
+        this.pendingFlush = null;
+      }
+      return filterPendingValue();
+    }
+  }
+
+  /**
+   * Called by the timer wheel for an expired flush. The flush is ignored, if it
+   * is no longer the current one, i.e. if it has been replaced or cancelled
+   * after it expired but before this method got the lock.
+   *
+   * @param sequence the sequence number of the expired flush
+   * @return the value to send to the server, or <code>null</code> if there is nothing to send
+   */
+  SourceDataTagValue flushExpired(final long sequence) {
+    synchronized (this.sourceDataTag) {
+      if (this.pendingFlush == null || sequence != this.flushSequence) {
+        log.debug("\tscheduler[#{}] : ignoring stale flush #{}", this.sourceDataTag.getId(), sequence);
+        return null;
+      }
+      this.pendingFlush = null;
+      return filterPendingValue();
+    }
+  }
+
+  /**
+   * Applies the filters on the pending value, if any. Must be called while
+   * holding the lock on the source data tag.
+   *
+   * @return the value to send to the server, or <code>null</code> if there is nothing to send
+   */
+  private SourceDataTagValue filterPendingValue() {
+    log.debug("scheduler[{}] : entering flush()..", this.sourceDataTag.getId());
+    SourceDataTagValue valueToSend = null;
 
     try {
-      synchronized (this.sourceDataTag) {
-        if (isScheduledForSending()) {
+      if (isScheduledForSending()) {
+        this.lastFlushTime = System.currentTimeMillis();
 
-          SourceDataTagValue currentSDValue = this.sourceDataTag.getCurrentValue();
+        SourceDataTagValue currentSDValue = this.sourceDataTag.getCurrentValue();
 
-          FilterType filterType;
-          // The first time the lastSentSDTagValue is empty
-          if (this.lastSourceDataTag == null) {
-            filterType = FilterType.NO_FILTERING;
-            log.debug("\tscheduler[{}] : first time running scheduler", this.sourceDataTag.getId() );
-          } else {
-            // Check the current Source Data tag against the last one sent since
-            // they have never been compared
+        FilterType filterType;
+        // The first time the lastSentSDTagValue is empty
+        if (this.lastSourceDataTag == null) {
+          filterType = FilterType.NO_FILTERING;
+          log.debug("\tscheduler[{}] : first time running scheduler", this.sourceDataTag.getId() );
+        } else {
+          // Check the current Source Data tag against the last one sent since
+          // they have never been compared
 
-            // Cast the value to the proper type before sending it
-            Object newValueCasted = TypeConverter.cast(currentSDValue.getValue(), this.lastSourceDataTag.getDataType());
+          // Cast the value to the proper type before sending it
+          Object newValueCasted = TypeConverter.cast(currentSDValue.getValue(), this.lastSourceDataTag.getDataType());
 
-            ValueUpdate update = new ValueUpdate(newValueCasted, currentSDValue.getValueDescription(), currentSDValue.getTimestamp().getTime());
-            filterType = this.dataTagValueFilter.isCandidateForFiltering(this.lastSourceDataTag, update, currentSDValue.getQuality());
+          ValueUpdate update = new ValueUpdate(newValueCasted, currentSDValue.getValueDescription(), currentSDValue.getTimestamp().getTime());
+          filterType = this.dataTagValueFilter.isCandidateForFiltering(this.lastSourceDataTag, update, currentSDValue.getQuality());
 
-            log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : Filter type: " + filterType);
-          }
+          log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : Filter type: " + filterType);
+        }
 
-          // The new value is not filtered out
-          if (filterType == FilterType.NO_FILTERING) {
-            // Clone the last value sent to the server
-            this.lastSourceDataTag = this.sourceDataTag.clone();
+        // The new value is not filtered out
+        if (filterType == FilterType.NO_FILTERING) {
+          // Clone the last value sent to the server
+          this.lastSourceDataTag = this.sourceDataTag.clone();
 
-            currentSDValue.setValueDescription("Time-deadband filtering enabled. " + currentSDValue.getValueDescription());
-            // Add the value sent
-            this.processMessageSender.addValue(currentSDValue);
+          currentSDValue.setValueDescription("Time-deadband filtering enabled. " + currentSDValue.getValueDescription());
+          valueToSend = currentSDValue;
 
-            log.debug("\tscheduler[{}] : sending value: {}", this.sourceDataTag.getId(), currentSDValue.getValue());
-          } else {
-            // The new value is filtered out
-            ValueUpdate update = new ValueUpdate(currentSDValue.getValue(), currentSDValue.getValueDescription(), currentSDValue.getTimestamp().getTime());
+          log.debug("\tscheduler[{}] : sending value: {}", this.sourceDataTag.getId(), currentSDValue.getValue());
+        } else {
+          // The new value is filtered out
+          ValueUpdate update = new ValueUpdate(currentSDValue.getValue(), currentSDValue.getValueDescription(), currentSDValue.getTimestamp().getTime());
 
-            // Send to filter module (Dynamic or Static information added)
-            if (this.dynamicTimeDeadbandFilterer.isDynamicTimeDeadband(this.sourceDataTag)) {
-              log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : value filtered with Dynamic TimeDeadband : "
-                    + currentSDValue.getValue());
+          // Send to filter module (Dynamic or Static information added)
+          if (this.dynamicTimeDeadbandFilterer.isDynamicTimeDeadband(this.sourceDataTag)) {
+            log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : value filtered with Dynamic TimeDeadband : "
+                  + currentSDValue.getValue());
 
-              this.equipmentSenderFilterModule.sendToFilterModuleByDynamicTimedeadbandFilterer(this.sourceDataTag, update, filterType.getNumber());
-            } else {
-              log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : value filtered with Static TimeDeadband: "
-                    + currentSDValue.getValue());
+            this.equipmentSenderFilterModule.sendToFilterModuleByDynamicTimedeadbandFilterer(this.sourceDataTag, update, filterType.getNumber());
+          } else {
+            log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : value filtered with Static TimeDeadband: "
+                  + currentSDValue.getValue());
 
-              this.equipmentSenderFilterModule.sendToFilterModule(this.sourceDataTag, update, filterType.getNumber());
-            }
+            this.equipmentSenderFilterModule.sendToFilterModule(this.sourceDataTag, update, filterType.getNumber());
           }
-
-          // Reset the sendValue variable
-          this.sendValue = false;
-        } else {
-          log.debug("\tscheduler[#{}] : no new value to be sent", this.sourceDataTag.getId());
         }
-      } // synchronized
+
+        // Reset the sendValue variable
+        this.sendValue = false;
+      } else {
+        log.debug("\tscheduler[#{}] : no new value to be sent", this.sourceDataTag.getId());
+      }
     } catch (Exception exception) {
       log.error("Critical error in scheduler for tag #{}", this.sourceDataTag.getId(), exception);
     }
-    log.debug("scheduler[#{}] : leaving run()", this.sourceDataTag.getId());
+    log.debug("scheduler[#{}] : leaving flush()", this.sourceDataTag.getId());
+    return valueToSend;
   }
 
 }
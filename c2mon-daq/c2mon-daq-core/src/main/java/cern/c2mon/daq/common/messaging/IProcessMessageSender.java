@@ -16,6 +16,8 @@
  *****************************************************************************/
 package cern.c2mon.daq.common.messaging;
 
+import java.util.Collection;
+
 import cern.c2mon.shared.common.datatag.SourceDataTagValue;
 import cern.c2mon.shared.util.buffer.SynchroBufferQueue;
 
@@ -41,6 +43,23 @@ public interface IProcessMessageSender {
      */
     void addValue(SourceDataTagValue dataTagValue) throws InterruptedException;
 
+    /**
+     * Adds a batch of values at once, e.g. all time deadband flushes which
+     * expired within the same timer tick. Implementations must not send them
+     * on the calling thread, but queue them for sending in the given order.
+     * By default, the values are passed one by one to
+     * {@link #addValue(SourceDataTagValue)}.
+     *
+     * @param dataTagValues the SourceDataTagValue objects
+     * @exception InterruptedException Thrown in case the {@link SynchroBufferQueue}
+     *            is interrupted while waiting for the put to return
+     */
+    default void addValues(Collection<SourceDataTagValue> dataTagValues) throws InterruptedException {
+      for (SourceDataTagValue dataTagValue : dataTagValues) {
+        addValue(dataTagValue);
+      }
+    }
+
     /**
      * Sends a communication fault tag message.
      * @param tagId The tag ID to use.
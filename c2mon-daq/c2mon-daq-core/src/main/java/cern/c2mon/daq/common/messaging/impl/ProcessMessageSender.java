@@ -17,7 +17,15 @@
 package cern.c2mon.daq.common.messaging.impl;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.JMSException;
 
@@ -36,6 +44,7 @@ import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
 import cern.c2mon.shared.common.datatag.SourceDataTagValue;
 import cern.c2mon.shared.common.datatag.util.JmsMessagePriority;
 import cern.c2mon.shared.common.process.ProcessConfiguration;
+import cern.c2mon.shared.util.buffer.SynchroBufferQueue;
 
 /**
  * The ProcessMessageSender class is responsible for sending JMS messages from
@@ -61,6 +70,12 @@ public class ProcessMessageSender implements IProcessMessageSender {
   
   private SynchroBufferFactory synchroBufferFactory;
 
+  /**
+   * Sends the highest priority values passed to {@link #addValues(Collection)},
+   * so that the calling thread never waits for the JMS senders
+   */
+  private ExecutorService highestPrioritySender;
+
   /**
    * The collection of JMS senders (each responsible for sending updates to a
    * specific broker). Injected in Spring XML configuration file.
@@ -85,6 +100,11 @@ public class ProcessMessageSender implements IProcessMessageSender {
   public void init() {
     aliveTimer = new AliveTimer(this);
     synchroBufferFactory = new SynchroBufferFactory(daqProperties, this);
+    highestPrioritySender = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "HIGHEST-MSG-SENDER");
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   /**
@@ -164,6 +184,42 @@ public class ProcessMessageSender implements IProcessMessageSender {
     }
   }
 
+  /**
+   * The values are put in order into the {@link SynchroBufferQueue} of their
+   * Quality-of-Service settings, exactly like {@link #addValue(SourceDataTagValue)}
+   * does, so they keep their order with the values already waiting there.
+   * Values with the highest priority are handed to a dedicated sender thread.
+   * Nothing is sent on the calling thread, which may e.g. be the timer wheel
+   * thread flushing the time deadband schedulers.
+   */
+  @Override
+  public final void addValues(final Collection<SourceDataTagValue> dataTagValues) throws InterruptedException {
+    Map<QosSettings, List<SourceDataTagValue>> frames = new LinkedHashMap<>();
+    List<SourceDataTagValue> highestPriorityValues = new ArrayList<>();
+    for (SourceDataTagValue dataTagValue : dataTagValues) {
+      if (dataTagValue.getPriority() == JmsMessagePriority.PRIORITY_HIGHEST.getPriority()) {
+        highestPriorityValues.add(dataTagValue);
+      } else {
+        frames.computeIfAbsent(QosSettingsFactory.extractQosSettings(dataTagValue), settings -> new ArrayList<>()).add(dataTagValue);
+      }
+    }
+
+    for (Map.Entry<QosSettings, List<SourceDataTagValue>> frame : frames.entrySet()) {
+      SynchroBufferQueue<SourceDataTagValue> buffer = synchroBufferFactory.getSynchroBuffer(frame.getKey());
+      for (SourceDataTagValue dataTagValue : frame.getValue()) {
+        buffer.put(dataTagValue);
+      }
+    }
+
+    if (!highestPriorityValues.isEmpty()) {
+      try {
+        highestPrioritySender.execute(() -> highestPriorityValues.forEach(this::distributeValue));
+      } catch (RejectedExecutionException e) {
+        log.warn("Sender already shut down - {} highest priority values are lost.", highestPriorityValues.size());
+      }
+    }
+  }
+
   /**
    * Connects to all the registered brokers (individual JMSSenders should
    * implement this on separate threads if the connection is unessential).
@@ -217,6 +273,15 @@ public class ProcessMessageSender implements IProcessMessageSender {
    * Shuts down all JmsSenders.
    */
   public void shutdown() {
+    if (highestPrioritySender != null) {
+      highestPrioritySender.shutdown();
+      try {
+        highestPrioritySender.awaitTermination(daqProperties.getJms().getMaxMessageDelayPriorityHigh(), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        log.warn("Interrupted while waiting for the highest priority values to be sent.");
+        Thread.currentThread().interrupt();
+      }
+    }
     jmsSenders.stream().forEach(JmsSender::shutdown);
   }
 }
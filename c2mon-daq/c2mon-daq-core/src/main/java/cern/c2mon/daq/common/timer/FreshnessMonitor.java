@@ -1,10 +1,10 @@
 package cern.c2mon.daq.common.timer;
 
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +17,15 @@ import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
 import cern.c2mon.shared.common.datatag.util.SourceDataTagQualityCode;
 
 /**
+ * Invalidates tags as {@link SourceDataTagQualityCode#STALE}, if they are not
+ * updated within their freshness interval.
+ * <p>
+ * A reset only moves the deadline of the tag. The timeout on the
+ * {@link TagTimerWheel} is rescheduled lazily when it fires before the
+ * current deadline, so that frequently updated tags cause almost no timer
+ * operations. All tags expiring within the same tick are invalidated in one
+ * batch.
+ *
  * @author Franz Ritter
  */
 @Component
@@ -24,9 +33,10 @@ import cern.c2mon.shared.common.datatag.util.SourceDataTagQualityCode;
 public class FreshnessMonitor {
 
   private final DaqProperties properties;
-  private final Map<Long, Runnable> freshnessTasks = new HashMap<>();
+  private final Map<Long, FreshnessTask> freshnessTasks = new ConcurrentHashMap<>();
   private IEquipmentMessageSender equipmentMessageSender;
-  private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(2);
+  private final TagTimerWheel timerWheel = TagTimerWheel.getInstance();
+  private final TagTimerWheel.ExpiryHandler<FreshnessTask> expiryHandler = this::expired;
 
   @Autowired
   public FreshnessMonitor(DaqProperties properties) {
@@ -45,20 +55,11 @@ public class FreshnessMonitor {
 
       log.trace("Checking freshness for tag {}", sourceDataTag.getName());
       Long tagId = sourceDataTag.getId();
-      Runnable task;
-
-      if (freshnessTasks.containsKey(tagId)) {
-        task = freshnessTasks.get(tagId);
-        timer.remove(task);
-        timer.purge();
-
-      } else {
-        task = new FreshnessTask(tagId);
-        freshnessTasks.put(tagId, task);
-      }
+      FreshnessTask task = freshnessTasks.computeIfAbsent(tagId, FreshnessTask::new);
 
       Double freshnessTolerance = properties.getFreshnessTolerance();
-      timer.schedule(task, (long) (sourceDataTag.getAddress().getFreshnessInterval() * freshnessTolerance), TimeUnit.SECONDS);
+      long delay = (long) (sourceDataTag.getAddress().getFreshnessInterval() * freshnessTolerance) * 1000L;
+      task.reset(System.currentTimeMillis() + delay);
     }
   }
 
@@ -67,27 +68,77 @@ public class FreshnessMonitor {
         && sourceDataTag.getAddress().getFreshnessInterval() != null
         && sourceDataTag.getAddress().getFreshnessInterval() != 0L) {
 
-      Long tagId = sourceDataTag.getId();
-      if (freshnessTasks.containsKey(tagId)) {
+      FreshnessTask task = freshnessTasks.remove(sourceDataTag.getId());
+      if (task != null) {
         log.trace("Removing freshness check for tag {}", sourceDataTag.getName());
-        timer.remove(freshnessTasks.get(tagId));
-        freshnessTasks.remove(tagId);
+        task.cancel();
+      }
+    }
+  }
+
+  /**
+   * Called by the timer wheel with all tasks which timed out within the same tick.
+   */
+  private void expired(List<FreshnessTask> tasks) {
+    long now = System.currentTimeMillis();
+    List<Long> staleTags = new ArrayList<>(tasks.size());
+    for (FreshnessTask task : tasks) {
+      if (task.expire(now)) {
+        staleTags.add(task.id);
+      }
+    }
+
+    if (!staleTags.isEmpty()) {
+      log.debug("Invalidating {} tags as stale", staleTags.size());
+      for (Long tagId : staleTags) {
+        SourceDataTagQuality tagQuality = new SourceDataTagQuality(SourceDataTagQualityCode.STALE);
+        equipmentMessageSender.update(tagId, tagQuality);
       }
     }
   }
 
-  class FreshnessTask implements Runnable {
+  class FreshnessTask {
 
-    private Long id;
+    private final Long id;
 
-    public FreshnessTask(Long id) {
+    /** Time in ms at which the tag becomes stale */
+    private long deadline;
+
+    private TagTimerWheel.Timeout<FreshnessTask> timeout;
+
+    FreshnessTask(Long id) {
       this.id = id;
     }
 
-    @Override
-    public void run() {
-      SourceDataTagQuality tagQuality = new SourceDataTagQuality(SourceDataTagQualityCode.STALE);
-      equipmentMessageSender.update(id, tagQuality);
+    synchronized void reset(long newDeadline) {
+      this.deadline = newDeadline;
+      // An existing timeout is rescheduled on expiry, if the deadline moved in the meantime
+      if (timeout == null) {
+        timeout = timerWheel.schedule(this, newDeadline - System.currentTimeMillis(), expiryHandler);
+      }
+    }
+
+    synchronized void cancel() {
+      if (timeout != null) {
+        timeout.cancel();
+        timeout = null;
+      }
+    }
+
+    /**
+     * @return true if the deadline has been reached, otherwise the task is rescheduled for the remaining time
+     */
+    synchronized boolean expire(long now) {
+      if (timeout == null) {
+        // cancelled in the meantime
+        return false;
+      }
+      if (deadline > now + timerWheel.getTickDuration()) {
+        timeout = timerWheel.schedule(this, deadline - now, expiryHandler);
+        return false;
+      }
+      timeout = null;
+      return true;
     }
   }
 
@@ -0,0 +1,358 @@
+/******************************************************************************
+ * Copyright (C) 2010-2020 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.common.timer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Hashed-wheel timer shared by the DAQ core for all per-tag timeouts, like
+ * time-deadband flushes and freshness expiries.
+ * <p>
+ * Instead of one timer task per tag, timeouts are kept in a fixed number of
+ * buckets which are visited by a single thread, one bucket per tick. Scheduling
+ * and cancelling a timeout are constant time operations. All timeouts which
+ * expire within the same tick are handed to their {@link ExpiryHandler} as
+ * one batch, so that the handler can send them in a single message frame.
+ * <p>
+ * The accuracy of the timer is bound by the tick duration.
+ *
+ * @see #getInstance()
+ */
+@Slf4j
+@ManagedResource(objectName = "cern.c2mon.daq:name=tagTimerWheel", description = "Timer wheel for time-deadband and freshness timeouts")
+public class TagTimerWheel {
+
+  /** Default tick duration of the shared instance in milliseconds */
+  static final long DEFAULT_TICK_DURATION = 10L;
+
+  /** Default number of buckets of the shared instance (~5s per wheel rotation) */
+  static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+  private static final TagTimerWheel INSTANCE = new TagTimerWheel("Tag timer wheel", DEFAULT_TICK_DURATION, DEFAULT_TICKS_PER_WHEEL);
+
+  /**
+   * Called by the timer thread with all items of a given handler which
+   * expired within the same tick.
+   *
+   * @param <T> the type of scheduled items
+   */
+  @FunctionalInterface
+  public interface ExpiryHandler<T> {
+
+    /**
+     * @param items the expired items, in the order in which they were scheduled
+     */
+    void expired(List<T> items);
+  }
+
+  /**
+   * Handle on a scheduled item, which can be used to cancel it.
+   */
+  public static final class Timeout<T> {
+
+    private final T item;
+
+    private final ExpiryHandler<T> handler;
+
+    /** Deadline in nanoseconds, relative to the start time of the wheel */
+    private final long deadline;
+
+    private volatile boolean cancelled = false;
+
+    private volatile boolean expired = false;
+
+    private Timeout(final T item, final ExpiryHandler<T> handler, final long deadline) {
+      this.item = item;
+      this.handler = handler;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the timeout. Has no effect, if it has already expired.
+     *
+     * @return <code>true</code>, if the timeout was still pending
+     */
+    public boolean cancel() {
+      if (expired || cancelled) {
+        return false;
+      }
+      cancelled = true;
+      return true;
+    }
+
+    /**
+     * @return <code>true</code>, if the timeout was neither cancelled nor did it expire yet
+     */
+    public boolean isPending() {
+      return !cancelled && !expired;
+    }
+  }
+
+  private final String name;
+
+  private final long tickDuration;
+
+  private final int mask;
+
+  /** Only accessed by the worker thread */
+  private final List<Timeout<?>>[] wheel;
+
+  /** Timeouts scheduled since the last tick, transferred into the wheel by the worker thread */
+  private final Queue<Timeout<?>> newTimeouts = new ConcurrentLinkedQueue<>();
+
+  private final long startTime = System.nanoTime();
+
+  private Thread workerThread;
+
+  private volatile boolean running = false;
+
+  /** For management only */
+  private final AtomicLong scheduledTimeouts = new AtomicLong(0);
+  private final AtomicLong expiredTimeouts = new AtomicLong(0);
+  private volatile long ticks = 0;
+  private volatile long lastTickLag = 0;
+  private volatile long maxTickLag = 0;
+  private volatile long totalExpiryLag = 0;
+  private volatile long maxExpiryLag = 0;
+  private volatile int wheelSize = 0;
+
+  /**
+   * Creates a new timer wheel. The timer thread is started with the first
+   * scheduled timeout.
+   *
+   * @param name the name of the timer thread
+   * @param tickDuration duration of one tick in milliseconds
+   * @param ticksPerWheel number of buckets, rounded up to the next power of two
+   */
+  @SuppressWarnings("unchecked")
+  public TagTimerWheel(final String name, final long tickDuration, final int ticksPerWheel) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+    }
+    if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+      throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30: " + ticksPerWheel);
+    }
+    int size = 1;
+    while (size < ticksPerWheel) {
+      size <<= 1;
+    }
+
+    this.name = name;
+    this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+    this.mask = size - 1;
+    this.wheel = new List[size];
+    for (int i = 0; i < size; i++) {
+      this.wheel[i] = new ArrayList<>();
+    }
+  }
+
+  /**
+   * @return the timer wheel shared by all equipment units of this DAQ
+   */
+  public static TagTimerWheel getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Schedules the given item to be handed to the handler after the given delay.
+   *
+   * @param item the item to schedule
+   * @param delay the delay in milliseconds. Values lower than one tick expire with the next tick.
+   * @param handler called with the expired item
+   * @return the handle to cancel the timeout
+   */
+  public <T> Timeout<T> schedule(final T item, final long delay, final ExpiryHandler<T> handler) {
+    startIfNeeded();
+    long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delay));
+    Timeout<T> timeout = new Timeout<>(item, handler, deadline);
+    newTimeouts.add(timeout);
+    scheduledTimeouts.incrementAndGet();
+    return timeout;
+  }
+
+  private synchronized void startIfNeeded() {
+    if (!running) {
+      running = true;
+      workerThread = new Thread(this::runWorker, name);
+      workerThread.setDaemon(true);
+      workerThread.start();
+    }
+  }
+
+  /**
+   * Stops the timer thread. Pending timeouts will not expire until the next
+   * one is scheduled.
+   */
+  public synchronized void stop() {
+    running = false;
+    if (workerThread != null) {
+      workerThread.interrupt();
+      workerThread = null;
+    }
+  }
+
+  private void runWorker() {
+    long tick = (System.nanoTime() - startTime) / tickDuration;
+    while (running) {
+      long tickDeadline = (tick + 1) * tickDuration;
+      if (!waitFor(tickDeadline)) {
+        break;
+      }
+
+      long tickLag = System.nanoTime() - startTime - tickDeadline;
+      lastTickLag = tickLag;
+      if (tickLag > maxTickLag) {
+        maxTickLag = tickLag;
+      }
+
+      transferNewTimeouts(tick);
+      expire(tick);
+      ticks = tick;
+      tick++;
+    }
+    log.debug("Timer thread {} stopped", name);
+  }
+
+  /**
+   * Sleeps until the given deadline has been reached.
+   *
+   * @return <code>false</code>, if the worker got interrupted
+   */
+  private boolean waitFor(final long deadline) {
+    long sleepTime;
+    while ((sleepTime = deadline - (System.nanoTime() - startTime)) > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(sleepTime);
+      } catch (InterruptedException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void transferNewTimeouts(final long currentTick) {
+    Timeout<?> timeout;
+    while ((timeout = newTimeouts.poll()) != null) {
+      if (timeout.cancelled) {
+        continue;
+      }
+      long expiryTick = Math.max(timeout.deadline / tickDuration, currentTick);
+      wheel[(int) (expiryTick & mask)].add(timeout);
+      wheelSize++;
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void expire(final long currentTick) {
+    List<Timeout<?>> bucket = wheel[(int) (currentTick & mask)];
+    if (bucket.isEmpty()) {
+      return;
+    }
+
+    long now = System.nanoTime() - startTime;
+    long tickEnd = (currentTick + 1) * tickDuration;
+    Map<ExpiryHandler, List<Object>> batches = new IdentityHashMap<>();
+    Iterator<Timeout<?>> iterator = bucket.iterator();
+    while (iterator.hasNext()) {
+      Timeout<?> timeout = iterator.next();
+      if (timeout.cancelled) {
+        iterator.remove();
+        wheelSize--;
+      } else if (timeout.deadline < tickEnd) {
+        iterator.remove();
+        wheelSize--;
+        timeout.expired = true;
+        batches.computeIfAbsent(timeout.handler, h -> new ArrayList<>()).add(timeout.item);
+        recordExpiryLag(Math.max(0L, now - timeout.deadline));
+      }
+    }
+
+    for (Map.Entry<ExpiryHandler, List<Object>> batch : batches.entrySet()) {
+      try {
+        batch.getKey().expired(batch.getValue());
+      } catch (Exception e) {
+        log.error("Unexpected exception caught while handling {} expired timeouts", batch.getValue().size(), e);
+      }
+    }
+  }
+
+  private void recordExpiryLag(final long lag) {
+    expiredTimeouts.incrementAndGet();
+    totalExpiryLag += lag;
+    if (lag > maxExpiryLag) {
+      maxExpiryLag = lag;
+    }
+  }
+
+  @ManagedAttribute(description = "Tick duration in milliseconds")
+  public long getTickDuration() {
+    return TimeUnit.NANOSECONDS.toMillis(tickDuration);
+  }
+
+  @ManagedAttribute(description = "Number of timeouts scheduled since startup")
+  public long getScheduledTimeouts() {
+    return scheduledTimeouts.get();
+  }
+
+  @ManagedAttribute(description = "Number of timeouts expired since startup")
+  public long getExpiredTimeouts() {
+    return expiredTimeouts.get();
+  }
+
+  @ManagedAttribute(description = "Number of timeouts currently held in the wheel")
+  public int getPendingTimeouts() {
+    return wheelSize + newTimeouts.size();
+  }
+
+  @ManagedAttribute(description = "Number of ticks processed since startup")
+  public long getTicks() {
+    return ticks;
+  }
+
+  @ManagedAttribute(description = "Delay in microseconds of the last tick behind its schedule")
+  public long getLastTickLag() {
+    return TimeUnit.NANOSECONDS.toMicros(lastTickLag);
+  }
+
+  @ManagedAttribute(description = "Maximum delay in microseconds of a tick behind its schedule")
+  public long getMaxTickLag() {
+    return TimeUnit.NANOSECONDS.toMicros(maxTickLag);
+  }
+
+  @ManagedAttribute(description = "Average delay in microseconds between the deadline of a timeout and its expiry")
+  public long getAverageExpiryLag() {
+    long expired = expiredTimeouts.get();
+    return expired == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalExpiryLag / expired);
+  }
+
+  @ManagedAttribute(description = "Maximum delay in microseconds between the deadline of a timeout and its expiry")
+  public long getMaxExpiryLag() {
+    return TimeUnit.NANOSECONDS.toMicros(maxExpiryLag);
+  }
+}
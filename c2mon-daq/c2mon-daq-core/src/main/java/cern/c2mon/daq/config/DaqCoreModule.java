@@ -21,6 +21,8 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.*;
 
+import cern.c2mon.daq.common.timer.TagTimerWheel;
+
 /**
  * This configuration class is responsible for importing an externalised
  * properties file specified by c2mon.daq.properties (if it exists)
@@ -48,4 +50,13 @@ public class DaqCoreModule {
   public InitializingBean showJmsMode(DaqProperties properties) {
     return () -> log.info("The following JMS mode is active: {}", properties.getJms().getMode());
   }
+
+  /**
+   * Exposes the timer wheel shared by the time deadband and freshness
+   * monitoring for management.
+   */
+  @Bean
+  public TagTimerWheel tagTimerWheel() {
+    return TagTimerWheel.getInstance();
+  }
 }
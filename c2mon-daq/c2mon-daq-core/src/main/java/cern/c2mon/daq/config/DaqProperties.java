@@ -130,6 +130,14 @@ public class DaqProperties {
      * @see DataTagAddress#PRIORITY_LOW
      */
     private long maxMessageDelayPriorityLow = 1000L;
+
+    /**
+     * If enabled, tag updates are sent to the server in the compact binary
+     * format instead of JSON. Requires a server version supporting it.
+     * <p>
+     * Default is false
+     */
+    private boolean binaryUpdates = false;
   }
 
   /**
@@ -17,9 +17,9 @@
 package cern.c2mon.daq.common.impl;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.Timer;
 
 import cern.c2mon.daq.common.timer.FreshnessMonitor;
+import cern.c2mon.daq.common.timer.TagTimerWheel;
 import cern.c2mon.daq.config.DaqProperties;
 
 import org.easymock.EasyMock;
@@ -39,8 +39,8 @@ import cern.c2mon.shared.common.filter.FilteredDataTagValue;
 import cern.c2mon.shared.common.process.EquipmentConfiguration;
 import cern.c2mon.shared.common.process.ProcessConfiguration;
 
-//import static org.junit.Assert.*;
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
 
 /**
  * @author vilches
@@ -141,7 +141,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
     //        EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TagTimerWheel.getInstance(), this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -183,7 +183,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
     //        EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TagTimerWheel.getInstance(), this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -232,7 +232,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
 //     EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TagTimerWheel.getInstance(), this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -279,7 +279,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
 //     EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TagTimerWheel.getInstance(), this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -288,7 +288,7 @@ public class SDTTimeDeadbandSchedulerTest {
     // FlushAndReset
     this.scheduler.flushAndCancel();
     // Start the new task
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TagTimerWheel.getInstance(), this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     // Repeated value (should pass cause it was flush and reset)
@@ -300,6 +300,54 @@ public class SDTTimeDeadbandSchedulerTest {
     if (this.exception != null) throw new Exception(this.exception);
   }
 
+  /**
+   * A flush which expired after it was replaced by a newer one must be ignored
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testStaleExpiredFlushIsIgnored() throws Exception {
+    this.tag.getAddress().setTimeDeadband(60000);
+    this.tag.update(new ValueUpdate(true, "test", System.currentTimeMillis()));
+
+    // The first two values are sent directly
+    this.processMessageSenderMock.addValue(isA(SourceDataTagValue.class));
+    expectLastCall().times(2);
+
+    replay(this.processMessageSenderMock, this.filterMessageSenderMock, this.dynamicTimeDeadbandFiltererMock);
+
+    this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TagTimerWheel.getInstance(),
+        new DataTagValueFilter(), this.dynamicTimeDeadbandFiltererMock);
+    // The first value is sent right away, so that the next flush is due one time deadband later
+    this.scheduler.scheduleValueForSending();
+    this.scheduler.run();
+    this.scheduler.start();
+
+    // Schedules flush #1, which is then replaced by a direct flush
+    this.tag.update(new ValueUpdate(false, "test", System.currentTimeMillis()));
+    this.scheduler.scheduleValueForSending();
+    this.scheduler.run();
+
+    // Schedules flush #2
+    this.tag.update(new ValueUpdate(true, "test", System.currentTimeMillis()));
+    this.scheduler.scheduleValueForSending();
+
+    // Flush #1 expiring late must neither send nor unschedule the new value
+    assertNull(this.scheduler.flushExpired(1L));
+    assertTrue(this.scheduler.isScheduledForSending());
+
+    SourceDataTagValue value = this.scheduler.flushExpired(2L);
+    assertNotNull(value);
+    assertEquals(true, value.getValue());
+    assertFalse(this.scheduler.isScheduledForSending());
+    assertFalse(this.scheduler.cancel());
+
+    verify(this.processMessageSenderMock, this.filterMessageSenderMock);
+
+    if (this.exception != null) throw new Exception(this.exception);
+  }
+
   /**
    * @param id
    * @param name
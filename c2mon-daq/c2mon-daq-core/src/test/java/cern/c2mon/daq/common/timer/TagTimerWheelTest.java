@@ -0,0 +1,93 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.common.timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagTimerWheelTest {
+
+  private TagTimerWheel timerWheel;
+
+  @Before
+  public void setUp() {
+    timerWheel = new TagTimerWheel("Test timer wheel", 5L, 8);
+  }
+
+  @After
+  public void tearDown() {
+    timerWheel.stop();
+  }
+
+  @Test
+  public void testTimeoutsOfSameTickExpireAsOneBatch() throws InterruptedException {
+    List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch latch = new CountDownLatch(100);
+    TagTimerWheel.ExpiryHandler<Long> handler = items -> {
+      batches.add(items);
+      items.forEach(item -> latch.countDown());
+    };
+
+    for (long i = 0; i < 100; i++) {
+      timerWheel.schedule(i, 20L, handler);
+    }
+
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    // all deadlines fall into the same tick, or into two if scheduling crossed a tick boundary
+    assertTrue(batches.size() <= 2);
+    assertEquals(Long.valueOf(0L), batches.get(0).get(0));
+  }
+
+  @Test
+  public void testTimeoutExpiresAfterDelay() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    long start = System.currentTimeMillis();
+    // longer than one wheel rotation (8 * 5ms)
+    timerWheel.schedule(1L, 100L, items -> latch.countDown());
+
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    assertTrue(System.currentTimeMillis() - start >= 100L);
+    assertEquals(1, timerWheel.getExpiredTimeouts());
+    assertEquals(0, timerWheel.getPendingTimeouts());
+  }
+
+  @Test
+  public void testCancelledTimeoutDoesNotExpire() throws InterruptedException {
+    CountDownLatch cancelledLatch = new CountDownLatch(1);
+    CountDownLatch latch = new CountDownLatch(1);
+    TagTimerWheel.Timeout<Long> timeout = timerWheel.schedule(1L, 20L, items -> cancelledLatch.countDown());
+    timerWheel.schedule(2L, 50L, items -> latch.countDown());
+
+    assertTrue(timeout.cancel());
+    assertFalse(timeout.isPending());
+
+    assertTrue(latch.await(1, TimeUnit.SECONDS));
+    assertEquals(1, cancelledLatch.getCount());
+    assertEquals(1, timerWheel.getExpiredTimeouts());
+  }
+}
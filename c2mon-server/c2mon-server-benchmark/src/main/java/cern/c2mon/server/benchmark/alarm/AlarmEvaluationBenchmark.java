@@ -0,0 +1,106 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.alarm;
+
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.benchmark.config.BenchmarkCacheContext;
+import cern.c2mon.server.cache.AlarmFacade;
+import cern.c2mon.server.cache.DataTagCache;
+import cern.c2mon.server.common.alarm.Alarm;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+/**
+ * Measures the alarm evaluation of <code>AlarmFacadeImpl</code> on an
+ * in-memory cache with one alarm per tag.
+ *
+ * <p>{@link #evaluateAlarm()} re-evaluates an alarm against the current tag
+ * value in the cache, as done after reconfigurations.
+ * {@link #updateAlarm()} evaluates it against a new tag value which
+ * toggles the alarm state with the given <code>toggleRatio</code>, as done
+ * for every tag update. The tag copies it updates are taken once during the
+ * setup, so that the cache copy is not part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlarmEvaluationBenchmark {
+
+  @Param({"1000", "100000"})
+  private int alarmCount;
+
+  @Param({"0.0", "0.5"})
+  private double toggleRatio;
+
+  private BenchmarkCacheContext context;
+
+  private AlarmFacade alarmFacade;
+
+  private DataTagCacheObject[] tags;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkCacheContext.start();
+    context.createDataTags(alarmCount);
+    context.createAlarms(alarmCount);
+    alarmFacade = context.getBean(AlarmFacade.class);
+    DataTagCache dataTagCache = context.getBean(DataTagCache.class);
+    tags = new DataTagCacheObject[alarmCount];
+    for (int i = 0; i < alarmCount; i++) {
+      tags[i] = (DataTagCacheObject) dataTagCache.getCopy(BenchmarkCacheContext.FIRST_TAG_ID + i);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void evaluateAlarm() {
+    int index = ThreadLocalRandom.current().nextInt(alarmCount);
+    alarmFacade.evaluateAlarm(BenchmarkCacheContext.FIRST_ALARM_ID + index);
+  }
+
+  @Benchmark
+  public Alarm updateAlarm() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int index = random.nextInt(alarmCount);
+    DataTagCacheObject tag = tags[index];
+    tag.setValue(random.nextDouble() < toggleRatio ? 1000f : 0f);
+    tag.setCacheTimestamp(new Timestamp(System.currentTimeMillis()));
+    return alarmFacade.update(BenchmarkCacheContext.FIRST_ALARM_ID + index, tag);
+  }
+}
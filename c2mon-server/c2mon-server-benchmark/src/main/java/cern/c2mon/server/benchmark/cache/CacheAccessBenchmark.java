@@ -0,0 +1,96 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.cache;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.benchmark.config.BenchmarkCacheContext;
+import cern.c2mon.server.cache.DataTagCache;
+import cern.c2mon.server.cache.common.CopyStrategy;
+import cern.c2mon.server.common.datatag.DataTag;
+
+/**
+ * Measures <code>AbstractCache.getCopy()</code> on the data tag cache,
+ * including the Ehcache lookup and read locking, with the given
+ * {@link CopyStrategy}. See {@link CacheCopyBenchmark} for the copy alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheAccessBenchmark {
+
+  @Param({"1000", "100000"})
+  private int tagCount;
+
+  @Param({"SERIALIZATION", "CLONE"})
+  private CopyStrategy strategy;
+
+  private BenchmarkCacheContext context;
+
+  private DataTagCache dataTagCache;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkCacheContext.start(Collections.<String, Object>singletonMap("c2mon.server.cache.defaultCopyStrategy", strategy.name()));
+    context.createDataTags(tagCount);
+    dataTagCache = context.getBean(DataTagCache.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public DataTag getCopy() {
+    return dataTagCache.getCopy(nextTagId());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public DataTag getCopyContended() {
+    return dataTagCache.getCopy(nextTagId());
+  }
+
+  @Benchmark
+  public DataTag get() {
+    return dataTagCache.get(nextTagId());
+  }
+
+  private long nextTagId() {
+    return BenchmarkCacheContext.FIRST_TAG_ID + ThreadLocalRandom.current().nextInt(tagCount);
+  }
+}
@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.cache;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.cache.common.CopyStrategy;
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+import cern.c2mon.shared.client.alarm.condition.ValueAlarmCondition;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.DataTagConstants;
+
+/**
+ * Compares the {@link CopyStrategy} implementations used by
+ * <code>AbstractCache.getCopy()</code> on the most frequently copied
+ * cache objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCopyBenchmark {
+
+  @Param({"SERIALIZATION", "CLONE"})
+  private CopyStrategy strategy;
+
+  private DataTagCacheObject dataTag;
+
+  private RuleTagCacheObject ruleTag;
+
+  private AlarmCacheObject alarm;
+
+  @Setup
+  public void setUp() {
+    dataTag = new DataTagCacheObject(100000L, "benchmark/datatag", "Float", DataTagConstants.MODE_OPERATIONAL);
+    dataTag.setDescription("benchmark data tag");
+    dataTag.setUnit("m/s");
+    dataTag.setValue(1000f);
+    dataTag.setValueDescription("benchmark value description");
+    dataTag.setEquipmentId(100L);
+    dataTag.setProcessId(50L);
+    dataTag.setMinValue(0f);
+    dataTag.setMaxValue(2000f);
+    dataTag.setAddress(new DataTagAddress());
+    dataTag.setCacheTimestamp(new Timestamp(System.currentTimeMillis()));
+    dataTag.setDaqTimestamp(new Timestamp(System.currentTimeMillis()));
+    dataTag.setSourceTimestamp(new Timestamp(System.currentTimeMillis()));
+    dataTag.getAlarmIds().add(1L);
+    dataTag.getRuleIds().add(130L);
+    dataTag.getMetadata().addMetadata("responsible", "benchmark");
+
+    ruleTag = new RuleTagCacheObject(130L, "benchmark/ruletag", "Integer", DataTagConstants.MODE_OPERATIONAL,
+        "(#100000 > 500)|(#100001 = true)[2],true[3]");
+    ruleTag.setValue(3);
+    ruleTag.setCacheTimestamp(new Timestamp(System.currentTimeMillis()));
+
+    alarm = new AlarmCacheObject(1L);
+    alarm.setDataTagId(100000L);
+    alarm.setFaultFamily("FF");
+    alarm.setFaultMember("FM");
+    alarm.setFaultCode(1);
+    alarm.setCondition(new ValueAlarmCondition(Boolean.TRUE));
+    alarm.setInfo("benchmark");
+  }
+
+  @Benchmark
+  public DataTagCacheObject copyDataTag() {
+    return strategy.copy(dataTag);
+  }
+
+  @Benchmark
+  public RuleTagCacheObject copyRuleTag() {
+    return strategy.copy(ruleTag);
+  }
+
+  @Benchmark
+  public AlarmCacheObject copyAlarm() {
+    return strategy.copy(alarm);
+  }
+}
@@ -0,0 +1,156 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.cache;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
+
+/**
+ * Compares the memory used by the qualities of a cache of
+ * <code>tagCount</code> tags, of which <code>validRatio</code> are valid,
+ * between the bitmask based {@link DataTagQualityImpl} and the map based
+ * representation it replaced ({@link MapQuality}).
+ *
+ * <p>Run with the GC profiler, e.g.
+ * <pre>
+ * java -jar target/benchmarks.jar DataTagQualityFootprintBenchmark -prof gc
+ * </pre>
+ * <code>gc.alloc.rate.norm</code> of {@link #create()} divided by
+ * <code>tagCount</code> is the number of bytes per tag quality, that of
+ * {@link #copy()} the number of bytes allocated when copying them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class DataTagQualityFootprintBenchmark {
+
+  private static final String DESCRIPTION = "Equipment is down";
+
+  @Param({"1000000"})
+  private int tagCount;
+
+  @Param({"1.0", "0.9"})
+  private double validRatio;
+
+  @Param({"BITMASK", "MAP"})
+  private String representation;
+
+  private Object[] qualities;
+
+  @Setup
+  public void setUp() {
+    qualities = create();
+  }
+
+  /**
+   * Creates the qualities as on cache loading: uninitialised, then either
+   * validated or invalidated.
+   */
+  @Benchmark
+  public Object[] create() {
+    Object[] created = new Object[tagCount];
+    int nbValid = (int) (tagCount * validRatio);
+    boolean bitmask = "BITMASK".equals(representation);
+    for (int i = 0; i < tagCount; i++) {
+      if (bitmask) {
+        DataTagQualityImpl quality = new DataTagQualityImpl();
+        if (i < nbValid) {
+          quality.validate();
+        } else {
+          quality.setInvalidStatus(TagQualityStatus.EQUIPMENT_DOWN, DESCRIPTION);
+        }
+        created[i] = quality;
+      } else {
+        MapQuality quality = new MapQuality();
+        if (i < nbValid) {
+          quality.validate();
+        } else {
+          quality.setInvalidStatus(TagQualityStatus.EQUIPMENT_DOWN, DESCRIPTION);
+        }
+        created[i] = quality;
+      }
+    }
+    return created;
+  }
+
+  /**
+   * Copies all qualities, as done by the clone copy strategy.
+   */
+  @Benchmark
+  public Object[] copy() throws CloneNotSupportedException {
+    Object[] copies = new Object[qualities.length];
+    for (int i = 0; i < qualities.length; i++) {
+      Object quality = qualities[i];
+      if (quality instanceof DataTagQualityImpl) {
+        copies[i] = ((DataTagQualityImpl) quality).clone();
+      } else {
+        copies[i] = ((MapQuality) quality).clone();
+      }
+    }
+    return copies;
+  }
+
+  /**
+   * The state of the previous quality implementation: a map of the set
+   * states and their descriptions, empty for valid tags.
+   */
+  static final class MapQuality implements Serializable, Cloneable {
+
+    private ConcurrentHashMap<TagQualityStatus, String> invalidQualityStates = new ConcurrentHashMap<>();
+
+    private boolean isValid;
+
+    MapQuality() {
+      setInvalidStatus(TagQualityStatus.UNINITIALISED, "");
+    }
+
+    void validate() {
+      invalidQualityStates.clear();
+    }
+
+    void setInvalidStatus(TagQualityStatus status, String description) {
+      validate();
+      invalidQualityStates.put(status, description);
+    }
+
+    @Override
+    public MapQuality clone() throws CloneNotSupportedException {
+      MapQuality clone = (MapQuality) super.clone();
+      clone.invalidQualityStates = new ConcurrentHashMap<>(invalidQualityStates);
+      return clone;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.cache;
+
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.benchmark.config.BenchmarkCacheContext;
+import cern.c2mon.server.cache.DataTagFacade;
+import cern.c2mon.server.common.thread.Event;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+
+/**
+ * Measures the throughput of <code>DataTagFacade.updateFromSource()</code>,
+ * i.e. the cache update applied for every incoming DAQ value, on an
+ * in-memory cache holding <code>tagCount</code> tags.
+ *
+ * <p><code>valueChangeRatio</code> is the share of updates carrying a new
+ * value; the others repeat the current value and are filtered out.
+ * Contention is measured by {@link #updateFromSourceContended()}, or by
+ * running with more threads (<code>-t</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataTagUpdateBenchmark {
+
+  @Param({"1000", "100000"})
+  private int tagCount;
+
+  @Param({"1.0", "0.1"})
+  private double valueChangeRatio;
+
+  private BenchmarkCacheContext context;
+
+  private DataTagFacade dataTagFacade;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkCacheContext.start();
+    context.createDataTags(tagCount);
+    dataTagFacade = context.getBean(DataTagFacade.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Event<Boolean> updateFromSource() {
+    return update();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Event<Boolean> updateFromSourceContended() {
+    return update();
+  }
+
+  private Event<Boolean> update() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long tagId = BenchmarkCacheContext.FIRST_TAG_ID + random.nextInt(tagCount);
+    float value = random.nextDouble() < valueChangeRatio ? random.nextFloat() * 1000f : 0f;
+
+    SourceDataTagValue sourceValue = new SourceDataTagValue(tagId, "benchmark/datatag", false);
+    sourceValue.setValue(value);
+    long now = System.currentTimeMillis();
+    sourceValue.setTimestamp(new Timestamp(now));
+    sourceValue.setDaqTimestamp(new Timestamp(now));
+    return dataTagFacade.updateFromSource(tagId, sourceValue);
+  }
+}
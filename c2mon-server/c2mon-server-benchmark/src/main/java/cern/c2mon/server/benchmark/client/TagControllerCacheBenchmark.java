@@ -0,0 +1,124 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.client;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.client.core.cache.TagControllerCache;
+import cern.c2mon.client.core.tag.TagController;
+import cern.c2mon.shared.client.tag.TagMode;
+import cern.c2mon.shared.client.tag.TransferTagImpl;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+import cern.c2mon.shared.rule.RuleFormatException;
+
+/**
+ * Compares the name and equipment lookups in the client tag cache using the
+ * indexes of {@link TagControllerCache} with a scan of all cached tags, as
+ * done before the indexes were introduced. The tags are spread over 10
+ * processes of 100 equipments each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagControllerCacheBenchmark {
+
+  private static final int EQUIPMENT_COUNT = 1000;
+
+  @Param({"10000", "100000"})
+  private int tagCount;
+
+  private TagControllerCache cache;
+
+  @Setup
+  public void setUp() throws RuleFormatException {
+    cache = new TagControllerCache(tagCount);
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    for (long tagId = 0; tagId < tagCount; tagId++) {
+      long equipmentId = tagId % EQUIPMENT_COUNT;
+      TransferTagImpl tagUpdate = new TransferTagImpl(tagId, 1.0f, "benchmark value", new DataTagQualityImpl(),
+          TagMode.OPERATIONAL, now, now, now, "benchmark data tag", "benchmark/datatag/" + tagId, "c2mon.client.tag.default");
+      tagUpdate.setValueClassName(Float.class.getName());
+      tagUpdate.addProcessIds(Arrays.asList(equipmentId / 100));
+      tagUpdate.addEquipmentIds(Arrays.asList(equipmentId));
+
+      TagController tagController = new TagController(tagId);
+      tagController.update(tagUpdate);
+      cache.put(tagId, tagController);
+    }
+  }
+
+  @Benchmark
+  public TagController getByNameIndexed() {
+    return cache.getByName(randomTagName());
+  }
+
+  @Benchmark
+  public TagController getByNameScan() {
+    String tagName = randomTagName();
+    for (TagController tagController : cache.values()) {
+      if (tagController.getTagImpl().getName().equalsIgnoreCase(tagName)) {
+        return tagController;
+      }
+    }
+    return null;
+  }
+
+  @Benchmark
+  public Collection<TagController> getByEquipmentIndexed() {
+    return cache.getByEquipment(randomEquipmentId());
+  }
+
+  @Benchmark
+  public Collection<TagController> getByEquipmentScan() {
+    Long equipmentId = randomEquipmentId();
+    Collection<TagController> result = new ArrayList<>();
+    for (TagController tagController : cache.values()) {
+      if (tagController.getTagImpl().getEquipmentIds().contains(equipmentId)) {
+        result.add(tagController);
+      }
+    }
+    return result;
+  }
+
+  private String randomTagName() {
+    return "BENCHMARK/DATATAG/" + ThreadLocalRandom.current().nextInt(tagCount);
+  }
+
+  private Long randomEquipmentId() {
+    return (long) ThreadLocalRandom.current().nextInt(EQUIPMENT_COUNT);
+  }
+}
@@ -0,0 +1,95 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.client;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.shared.client.alarm.AlarmValueImpl;
+import cern.c2mon.shared.client.serializer.TransferTagSerializer;
+import cern.c2mon.shared.client.tag.TagMode;
+import cern.c2mon.shared.client.tag.TransferTagImpl;
+import cern.c2mon.shared.client.tag.TransferTagValueImpl;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+
+/**
+ * Measures the JSON serialization of the tag updates published to the
+ * clients with {@link TransferTagSerializer}, for value updates and for
+ * full tag objects with the given number of alarms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferTagSerializerBenchmark {
+
+  @Param({"0", "5"})
+  private int alarmCount;
+
+  private TransferTagValueImpl tagValue;
+
+  private TransferTagImpl tag;
+
+  private String tagJson;
+
+  @Setup
+  public void setUp() {
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    tagValue = new TransferTagValueImpl(1000000L, 123.4f, "benchmark value", new DataTagQualityImpl(), TagMode.OPERATIONAL,
+        now, now, now, "benchmark data tag");
+    tag = new TransferTagImpl(1000000L, 123.4f, "benchmark value", new DataTagQualityImpl(), TagMode.OPERATIONAL,
+        now, now, now, "benchmark data tag", "benchmark/datatag", "c2mon.client.tag.default");
+    tag.addProcessIds(Arrays.asList(50L));
+    tag.addEquipmentIds(Arrays.asList(100L));
+    for (int i = 0; i < alarmCount; i++) {
+      AlarmValueImpl alarm = new AlarmValueImpl(2000000L + i, i, "MEMBER", "BENCHMARK", "benchmark alarm", 1000000L, now, now, i % 2 == 0);
+      tagValue.addAlarmValue(alarm);
+      tag.addAlarmValue(alarm);
+    }
+    tagJson = TransferTagSerializer.toJson(tag);
+  }
+
+  @Benchmark
+  public String tagValueToJson() {
+    return TransferTagSerializer.toJson(tagValue);
+  }
+
+  @Benchmark
+  public String tagToJson() {
+    return TransferTagSerializer.toJson(tag);
+  }
+
+  @Benchmark
+  public TransferTagImpl tagFromJson() {
+    return TransferTagSerializer.fromJson(tagJson, TransferTagImpl.class);
+  }
+}
@@ -0,0 +1,151 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.config;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import cern.c2mon.server.cache.AlarmCache;
+import cern.c2mon.server.cache.DataTagCache;
+import cern.c2mon.server.cache.config.CacheModule;
+import cern.c2mon.server.cache.dbaccess.config.CacheDbAccessModule;
+import cern.c2mon.server.cache.loading.config.CacheLoadingModule;
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.server.common.config.CommonModule;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.shared.client.alarm.condition.RangeAlarmCondition;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.DataTagConstants;
+
+/**
+ * Server cache context shared by the benchmarks: the cache modules running
+ * on in-memory Ehcache and an embedded in-memory HSQL database, without any
+ * configuration loaded from the database. The benchmarks fill the caches
+ * with generated objects instead.
+ */
+public final class BenchmarkCacheContext implements AutoCloseable {
+
+  /**
+   * Id of the first generated data tag.
+   */
+  public static final long FIRST_TAG_ID = 1_000_000L;
+
+  /**
+   * Id of the first generated alarm.
+   */
+  public static final long FIRST_ALARM_ID = 2_000_000L;
+
+  private static final AtomicInteger CONTEXT_COUNTER = new AtomicInteger();
+
+  private final AnnotationConfigApplicationContext context;
+
+  private BenchmarkCacheContext(final AnnotationConfigApplicationContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Starts the cache modules.
+   *
+   * @param properties server properties overriding the defaults, e.g. cache copy strategy
+   * @return the started context, to be closed at the end of the benchmark
+   */
+  public static BenchmarkCacheContext start(final Map<String, Object> properties) {
+    Map<String, Object> benchmarkProperties = new HashMap<>();
+    benchmarkProperties.put("c2mon.server.cache.mode", "single-nonpersistent");
+    // new database for every context, as the schema is created on start-up
+    benchmarkProperties.put("c2mon.server.jdbc.url",
+        "jdbc:hsqldb:mem:c2mon-benchmark-" + CONTEXT_COUNTER.incrementAndGet() + ";sql.syntax_ora=true");
+    benchmarkProperties.putAll(properties);
+
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", benchmarkProperties));
+    context.register(CommonModule.class, CacheModule.class, CacheDbAccessModule.class, CacheLoadingModule.class);
+    context.refresh();
+    return new BenchmarkCacheContext(context);
+  }
+
+  /**
+   * Starts the cache modules with the default properties.
+   */
+  public static BenchmarkCacheContext start() {
+    return start(new HashMap<>());
+  }
+
+  public <T> T getBean(final Class<T> beanClass) {
+    return context.getBean(beanClass);
+  }
+
+  /**
+   * Puts Float data tags with ids starting at {@link #FIRST_TAG_ID} in the data tag cache.
+   *
+   * @param count the number of tags to create
+   */
+  public void createDataTags(final int count) {
+    DataTagCache dataTagCache = getBean(DataTagCache.class);
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    for (int i = 0; i < count; i++) {
+      long id = FIRST_TAG_ID + i;
+      DataTagCacheObject dataTag = new DataTagCacheObject(id, "benchmark/datatag/" + i, "Float", DataTagConstants.MODE_OPERATIONAL);
+      dataTag.setDescription("benchmark data tag " + i);
+      dataTag.setUnit("m/s");
+      dataTag.setEquipmentId(100L);
+      dataTag.setProcessId(50L);
+      dataTag.setAddress(new DataTagAddress());
+      dataTag.setValue(0f);
+      dataTag.setCacheTimestamp(now);
+      dataTag.setSourceTimestamp(now);
+      dataTag.setDaqTimestamp(now);
+      dataTag.getMetadata().addMetadata("responsible", "benchmark");
+      dataTagCache.putQuiet(dataTag);
+    }
+  }
+
+  /**
+   * Puts one alarm per generated data tag in the alarm cache, with ids
+   * starting at {@link #FIRST_ALARM_ID}. The alarms are active for values
+   * above 500. Must be called after {@link #createDataTags(int)}.
+   *
+   * @param count the number of alarms to create
+   */
+  public void createAlarms(final int count) {
+    DataTagCache dataTagCache = getBean(DataTagCache.class);
+    AlarmCache alarmCache = getBean(AlarmCache.class);
+    for (int i = 0; i < count; i++) {
+      long tagId = FIRST_TAG_ID + i;
+      AlarmCacheObject alarm = new AlarmCacheObject(FIRST_ALARM_ID + i);
+      alarm.setDataTagId(tagId);
+      alarm.setFaultFamily("BENCHMARK");
+      alarm.setFaultMember("MEMBER" + i);
+      alarm.setFaultCode(1);
+      alarm.setCondition(new RangeAlarmCondition<>(500f, Float.MAX_VALUE));
+      alarmCache.putQuiet(alarm);
+
+      DataTagCacheObject dataTag = (DataTagCacheObject) dataTagCache.get(tagId);
+      dataTag.getAlarmIds().add(alarm.getId());
+    }
+  }
+
+  @Override
+  public void close() {
+    context.close();
+  }
+}
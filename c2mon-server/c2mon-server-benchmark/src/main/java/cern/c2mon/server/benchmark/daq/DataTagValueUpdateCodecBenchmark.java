@@ -0,0 +1,175 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.daq;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+import cern.c2mon.shared.common.datatag.util.SourceDataTagQualityCode;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateBinaryCodec;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateConverter;
+
+/**
+ * Compares the JSON and binary encodings of {@link DataTagValueUpdate}
+ * messages, as sent by the DAQ and decoded by the server. Besides the
+ * encode/decode throughput, the encoded message size is reported as
+ * secondary result (<code>messageBytes</code>). {@link #fromMessage()}
+ * measures the decoding of a JMS message by the server side
+ * {@link DataTagValueUpdateConverter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataTagValueUpdateCodecBenchmark {
+
+  @Param({"JSON", "BINARY"})
+  private String format;
+
+  /**
+   * Number of values in one update frame.
+   */
+  @Param({"1", "100", "1000"})
+  private int frameSize;
+
+  private ObjectMapper mapper;
+
+  private DataTagValueUpdateBinaryCodec codec;
+
+  private DataTagValueUpdate update;
+
+  private byte[] encoded;
+
+  private DataTagValueUpdateConverter converter;
+
+  private Message message;
+
+  /**
+   * Reports the size of the encoded frame.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class MessageSize {
+    public long messageBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      messageBytes = 0;
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    mapper = new ObjectMapper();
+    mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    mapper.enable(DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY);
+    codec = new DataTagValueUpdateBinaryCodec(mapper);
+
+    update = new DataTagValueUpdate(1000L, 123456789L);
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < frameSize; i++) {
+      SourceDataTagValue value = new SourceDataTagValue(100000L + i, "BENCHMARK.DEVICE.PROPERTY." + i, false);
+      value.setTimestamp(new Timestamp(now + i));
+      value.setPriority(2);
+      value.setTimeToLive(3600000L);
+      switch (i % 4) {
+        case 0:
+          value.setValue(i * 1.5d);
+          break;
+        case 1:
+          value.setValue(i % 3 == 0);
+          break;
+        case 2:
+          value.setValue(i);
+          break;
+        default:
+          value.setValue("STATE_" + (i % 10));
+          value.setQuality(new SourceDataTagQuality(SourceDataTagQualityCode.OUT_OF_BOUNDS, "out of bounds"));
+      }
+      update.addValue(value);
+    }
+    encoded = doEncode();
+
+    converter = new DataTagValueUpdateConverter();
+    try {
+      if ("BINARY".equals(format)) {
+        ActiveMQBytesMessage bytesMessage = new ActiveMQBytesMessage();
+        bytesMessage.writeBytes(encoded);
+        bytesMessage.reset();
+        message = bytesMessage;
+      } else {
+        ActiveMQTextMessage textMessage = new ActiveMQTextMessage();
+        textMessage.setText(new String(encoded, "UTF-8"));
+        message = textMessage;
+      }
+    } catch (JMSException e) {
+      throw new IOException("Unable to create benchmark message", e);
+    }
+  }
+
+  private byte[] doEncode() throws IOException {
+    return "BINARY".equals(format) ? codec.encode(update) : mapper.writeValueAsBytes(update);
+  }
+
+  @Benchmark
+  public byte[] encode(MessageSize size) throws IOException {
+    byte[] bytes = doEncode();
+    size.messageBytes += bytes.length;
+    return bytes;
+  }
+
+  @Benchmark
+  public DataTagValueUpdate decode() throws IOException {
+    return "BINARY".equals(format) ? codec.decode(encoded) : mapper.readValue(encoded, DataTagValueUpdate.class);
+  }
+
+  @Benchmark
+  public Object fromMessage() throws JMSException {
+    if (message instanceof ActiveMQBytesMessage) {
+      // rewinds the message body
+      ((ActiveMQBytesMessage) message).reset();
+    }
+    return converter.fromMessage(message);
+  }
+}
@@ -0,0 +1,206 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.elasticsearch;
+
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.benchmark.config.BenchmarkCacheContext;
+import cern.c2mon.server.cache.EquipmentCache;
+import cern.c2mon.server.cache.ProcessCache;
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.cache.tag.TagHierarchy;
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.equipment.EquipmentCacheObject;
+import cern.c2mon.server.common.metadata.Metadata;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.elasticsearch.alarm.AlarmValueDocumentConverter;
+import cern.c2mon.server.elasticsearch.alarm.AlarmValueDocumentWriter;
+import cern.c2mon.server.elasticsearch.tag.TagDocumentConverter;
+import cern.c2mon.server.elasticsearch.tag.TagDocumentWriter;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.DataTagConstants;
+
+/**
+ * Compares the serialization of tag and alarm documents to their JSON
+ * source: converted to a map and serialized with Jackson data binding, as
+ * by the converters, or streamed by the document writers. The tags have the
+ * given number of metadata entries. The process and equipment names are
+ * resolved by the {@link TagHierarchyIndex}, as when indexing. The lookup
+ * of the names by concurrent threads is measured on its own, from the index
+ * and directly from the process and equipment caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentSerializationBenchmark {
+
+  private static final int DOCUMENTS = 1024;
+
+  @Param({"1", "10"})
+  private int metadataEntries;
+
+  private BenchmarkCacheContext context;
+
+  private ProcessCache processCache;
+
+  private EquipmentCache equipmentCache;
+
+  private TagHierarchyIndex tagHierarchyIndex;
+
+  private TagDocumentConverter tagConverter;
+
+  private TagDocumentWriter tagWriter;
+
+  private AlarmValueDocumentConverter alarmConverter;
+
+  private AlarmValueDocumentWriter alarmWriter;
+
+  private DataTagCacheObject[] tags;
+
+  private AlarmCacheObject[] alarms;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkCacheContext.start();
+    processCache = context.getBean(ProcessCache.class);
+    equipmentCache = context.getBean(EquipmentCache.class);
+    tagHierarchyIndex = context.getBean(TagHierarchyIndex.class);
+
+    ProcessCacheObject process = new ProcessCacheObject(50L);
+    process.setName("P_BENCHMARK");
+    processCache.putQuiet(process);
+    EquipmentCacheObject equipment = new EquipmentCacheObject(100L);
+    equipment.setName("E_BENCHMARK");
+    equipmentCache.putQuiet(equipment);
+
+    tagConverter = new TagDocumentConverter(tagHierarchyIndex);
+    tagWriter = new TagDocumentWriter(tagHierarchyIndex);
+    alarmConverter = new AlarmValueDocumentConverter();
+    alarmWriter = new AlarmValueDocumentWriter();
+
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    tags = new DataTagCacheObject[DOCUMENTS];
+    alarms = new AlarmCacheObject[DOCUMENTS];
+    for (int i = 0; i < DOCUMENTS; i++) {
+      DataTagCacheObject tag = new DataTagCacheObject(BenchmarkCacheContext.FIRST_TAG_ID + i, "benchmark/datatag/" + i, "Float",
+          DataTagConstants.MODE_OPERATIONAL);
+      tag.setDescription("benchmark data tag " + i);
+      tag.setUnit("m/s");
+      tag.setEquipmentId(100L);
+      tag.setProcessId(50L);
+      tag.setAddress(new DataTagAddress());
+      tag.setValue(i * 0.5f);
+      tag.setValueDescription("benchmark value");
+      tag.setCacheTimestamp(now);
+      tag.setSourceTimestamp(now);
+      tag.setDaqTimestamp(now);
+      tag.setLogged(true);
+      for (int j = 0; j < metadataEntries; j++) {
+        tag.getMetadata().addMetadata("key" + j, "value" + j);
+      }
+      tags[i] = tag;
+
+      AlarmCacheObject alarm = new AlarmCacheObject(BenchmarkCacheContext.FIRST_ALARM_ID + i);
+      alarm.setDataTagId(tag.getId());
+      alarm.setFaultFamily("BENCHMARK");
+      alarm.setFaultMember("MEMBER" + i);
+      alarm.setFaultCode(1);
+      alarm.setInfo("benchmark alarm");
+      alarm.setTimestamp(now);
+      alarm.setSourceTimestamp(now);
+      Metadata metadata = new Metadata();
+      for (int j = 0; j < metadataEntries; j++) {
+        metadata.addMetadata("key" + j, "value" + j);
+      }
+      alarm.setMetadata(metadata);
+      alarms[i] = alarm;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public byte[] tagMap() {
+    return tagConverter.convert(nextTag()).get().getSource();
+  }
+
+  @Benchmark
+  public byte[] tagStreaming() {
+    return tagWriter.write(nextTag());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public byte[] tagStreamingContended() {
+    return tagWriter.write(nextTag());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String hierarchyCacheLookup() {
+    DataTagCacheObject tag = nextTag();
+    return processCache.get(tag.getProcessId()).getName() + equipmentCache.get(tag.getEquipmentId()).getName();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String hierarchyIndexLookup() {
+    TagHierarchy hierarchy = tagHierarchyIndex.get(nextTag());
+    return hierarchy.getProcessName() + hierarchy.getEquipmentName();
+  }
+
+  @Benchmark
+  public String alarmMap() {
+    return alarmConverter.convert(nextAlarm()).toString();
+  }
+
+  @Benchmark
+  public byte[] alarmStreaming() {
+    return alarmWriter.write(nextAlarm());
+  }
+
+  private DataTagCacheObject nextTag() {
+    return tags[ThreadLocalRandom.current().nextInt(DOCUMENTS)];
+  }
+
+  private AlarmCacheObject nextAlarm() {
+    return alarms[ThreadLocalRandom.current().nextInt(DOCUMENTS)];
+  }
+}
@@ -0,0 +1,127 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.elasticsearch;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.elasticsearch.IndexManager;
+import cern.c2mon.server.elasticsearch.IndexNameManager;
+import cern.c2mon.server.elasticsearch.client.ElasticsearchClientStub;
+import cern.c2mon.server.elasticsearch.config.ElasticsearchProperties;
+import cern.c2mon.server.elasticsearch.domain.IndexMetadata;
+import cern.c2mon.server.elasticsearch.tag.TagDocument;
+
+/**
+ * Measures the per-document overhead of routing a tag document to its time
+ * series index: the index name of its timestamp and the index existence
+ * check, as done by the <code>TagDocumentIndexer</code>. The documents have
+ * either current timestamps (<code>live</code>) or timestamps spread over
+ * the last 90 days (<code>backfill</code>), as when the fallback is replayed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexRoutingBenchmark {
+
+  private static final int DOCUMENTS = 1 << 16;
+
+  @Param({"live", "backfill"})
+  private String timestamps;
+
+  @Param({"D", "W", "M"})
+  private String indexType;
+
+  private TagDocument[] documents;
+
+  private IndexNameManager indexNameManager;
+
+  private IndexManager indexManager;
+
+  @Setup
+  public void setUp() {
+    ElasticsearchProperties properties = new ElasticsearchProperties();
+    properties.setIndexType(indexType);
+    indexNameManager = new IndexNameManager(properties);
+    indexManager = new IndexManager(new ExistingIndexClient());
+
+    Random random = new Random(42);
+    long now = System.currentTimeMillis();
+    long range = "live".equals(timestamps) ? TimeUnit.SECONDS.toMillis(10) : TimeUnit.DAYS.toMillis(90);
+    documents = new TagDocument[DOCUMENTS];
+    for (int i = 0; i < DOCUMENTS; i++) {
+      TagDocument document = new TagDocument();
+      document.put("id", (long) i);
+      document.put("timestamp", now - (long) (random.nextDouble() * range));
+      documents[i] = document;
+    }
+  }
+
+  @Benchmark
+  public String indexName() {
+    return indexNameManager.indexFor(nextDocument());
+  }
+
+  @Benchmark
+  public boolean route() {
+    String index = indexNameManager.indexFor(nextDocument());
+    return indexManager.exists(IndexMetadata.builder().name(index).build());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public boolean routeContended() {
+    return route();
+  }
+
+  private TagDocument nextDocument() {
+    return documents[ThreadLocalRandom.current().nextInt(DOCUMENTS)];
+  }
+
+  /**
+   * Client for which every index exists, without connection to Elasticsearch.
+   */
+  private static final class ExistingIndexClient extends ElasticsearchClientStub {
+
+    @Override
+    public boolean isIndexExisting(IndexMetadata indexMetadata) {
+      return true;
+    }
+
+    @Override
+    public void waitForYellowStatus() {
+      // nothing to wait for
+    }
+  }
+}
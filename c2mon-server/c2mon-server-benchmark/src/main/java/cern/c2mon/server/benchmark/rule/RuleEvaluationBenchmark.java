@@ -0,0 +1,129 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.RuleEvaluationException;
+import cern.c2mon.shared.rule.RuleExpression;
+import cern.c2mon.shared.rule.RuleFormatException;
+import cern.c2mon.shared.rule.parser.RuleCompiler;
+
+/**
+ * Compares the evaluation of rule expressions compiled by the
+ * {@link RuleCompiler} with the interpretation of their token arrays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleEvaluationBenchmark {
+
+  @Param({"true", "false"})
+  private boolean compiled;
+
+  @Param({
+      "(#100000 > 500) | (#100001 = true)",
+      "((#100000 + #100002) * 2 > 1000) & !(#100001) & (#100003 != \"OFF\")",
+      "(#100000 > 500)|(#100001 = true)[2],true[3]"
+  })
+  private String rule;
+
+  private RuleExpression expression;
+
+  private Map<Long, RuleInputValue> inputs;
+
+  private Map<Long, RuleInputValue> invalidInputs;
+
+  @Setup
+  public void setUp() throws RuleFormatException {
+    RuleCompiler.setEnabled(compiled);
+    expression = RuleExpression.createExpression(rule);
+
+    inputs = new HashMap<>();
+    inputs.put(100000L, new Input(100000L, 1000f, true));
+    inputs.put(100001L, new Input(100001L, Boolean.FALSE, true));
+    inputs.put(100002L, new Input(100002L, 12, true));
+    inputs.put(100003L, new Input(100003L, "ON", true));
+
+    invalidInputs = new HashMap<>(inputs);
+    invalidInputs.put(100001L, new Input(100001L, Boolean.FALSE, false));
+  }
+
+  @TearDown
+  public void tearDown() {
+    RuleCompiler.setEnabled(true);
+  }
+
+  @Benchmark
+  public Object evaluate() throws RuleEvaluationException {
+    return expression.evaluate(inputs);
+  }
+
+  @Benchmark
+  public Object evaluateWithInvalidInput() {
+    return expression.forceEvaluate(invalidInputs);
+  }
+
+  private static final class Input implements RuleInputValue {
+
+    private final Long id;
+
+    private final Object value;
+
+    private final boolean valid;
+
+    Input(final Long id, final Object value, final boolean valid) {
+      this.id = id;
+      this.value = value;
+      this.valid = valid;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public Object getValue() {
+      return value;
+    }
+
+    @Override
+    public boolean isValid() {
+      return valid;
+    }
+  }
+}
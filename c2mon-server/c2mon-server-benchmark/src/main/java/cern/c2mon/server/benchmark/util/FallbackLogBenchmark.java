@@ -0,0 +1,156 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.pmanager.IFallback;
+import cern.c2mon.pmanager.fallback.FallbackLog;
+import cern.c2mon.pmanager.fallback.manager.FallbackObjectContainer;
+
+/**
+ * Measures the write and replay throughput of the {@link FallbackLog} used
+ * by the persistence manager while the DB is unavailable, in batches of
+ * <code>batchSize</code> records of the size of a logged tag.
+ * The replay reads back and commits a batch, as the recovery thread does,
+ * from a log filled before every iteration. The log is consumed after every
+ * iteration, so that the written records do not fill the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FallbackLogBenchmark {
+
+  private static final String RECORD = "100142\tCP.MEY.TEST13:TEST_STATE\tfalse\tBoolean\t2009-01-15 10:06:34.562\t0\tnull"
+      + "\t0\tI\t2009-01-15 10:08:10.8\tThe value of the tag was received from the DAQ";
+
+  /** Number of records written before every replay iteration */
+  private static final int REPLAY_RECORDS = 1_000_000;
+
+  @Param({"1", "100", "1000"})
+  private int batchSize;
+
+  private Path directory;
+
+  private FallbackLog fallbackLog;
+
+  private List<IFallback> batch;
+
+  private final IFallback parser = new Record(RECORD);
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("c2mon-fallback-benchmark");
+    fallbackLog = new FallbackLog(directory.resolve("benchmarkFallback.log").toString(), 64L * 1024 * 1024);
+    batch = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      batch.add(new Record(RECORD));
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void fill() throws Exception {
+    while (fallbackLog.getPendingRecords() < REPLAY_RECORDS) {
+      fallbackLog.append(batch);
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void consume() throws Exception {
+    FallbackObjectContainer container;
+    while ((container = fallbackLog.read(REPLAY_RECORDS / 10, parser)).getReadLines() > 0) {
+      fallbackLog.commit(container.getReadLines());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    fallbackLog.close();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public void write() throws Exception {
+    fallbackLog.append(batch);
+  }
+
+  @Benchmark
+  public int replay() throws Exception {
+    FallbackObjectContainer container = fallbackLog.read(batchSize, parser);
+    if (container.getReadLines() == 0) {
+      fallbackLog.append(batch);
+      return 0;
+    }
+    fallbackLog.commit(container.getReadLines());
+    return container.getReadLines();
+  }
+
+  /**
+   * A logged record, as the fallback implementations of the history.
+   */
+  private static final class Record implements IFallback {
+
+    private final String line;
+
+    private Record(final String line) {
+      this.line = line;
+    }
+
+    @Override
+    public IFallback getObject(final String line) {
+      return new Record(line);
+    }
+
+    @Override
+    public String getId() {
+      return line.substring(0, line.indexOf('\t'));
+    }
+
+    @Override
+    public String toString() {
+      return line;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.shared.util.buffer.SynchroBuffer;
+
+/**
+ * Measures the push throughput of the {@link SynchroBuffer} used to batch
+ * the cache persistence and logging, with a window of 100 to 500 ms.
+ * The pushed ids are taken from <code>distinctIds</code>
+ * values, so that the duplicate policies have duplicates to handle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SynchroBufferBenchmark {
+
+  @Param({"1", "2", "3"})
+  private int duplicatePolicy;
+
+  @Param({"1000", "100000"})
+  private int distinctIds;
+
+  private SynchroBuffer<Long> buffer;
+
+  /**
+   * Consumes the pulled objects, as the listener would.
+   */
+  private final AtomicLong pulledObjects = new AtomicLong();
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    buffer = new SynchroBuffer<>(100, 500, 100, duplicatePolicy);
+    buffer.setSynchroBufferListener(event -> pulledObjects.addAndGet(event.getPulled().size()));
+    buffer.enable();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    // waits for the remaining objects to be pulled
+    buffer.close();
+  }
+
+  @Benchmark
+  public void push() {
+    buffer.push((long) ThreadLocalRandom.current().nextInt(distinctIds));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void pushContended() {
+    buffer.push((long) ThreadLocalRandom.current().nextInt(distinctIds));
+  }
+}
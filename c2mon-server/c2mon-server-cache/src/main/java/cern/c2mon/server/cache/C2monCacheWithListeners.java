@@ -17,6 +17,7 @@
 package cern.c2mon.server.cache;
 
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.cache.listener.BufferedListenerSettings;
 import cern.c2mon.shared.common.Cacheable;
 import cern.c2mon.shared.daq.lifecycle.Lifecycle;
 
@@ -74,6 +75,18 @@ public interface C2monCacheWithListeners<K, T extends Cacheable> extends C2monCa
    *  registered C2monCacheListener is ready; the stop should be called at the start of the listener shutdown 
    */
   Lifecycle registerKeyBufferedListener(C2monBufferedCacheListener<Long> bufferedTimCacheListener, int frequency);
+
+  /**
+   * Register to receive the Ids of cache objects that have been updated, with
+   * a bounded or coalescing buffer.
+   * @param bufferedTimCacheListener the listener that should be notified
+   * @param frequency the frequency (in ms) at which the buffer should be emptied
+   * @param settings the bounds of the buffer of this listener
+   * @return a Lifecycle object to start and stop the listener thread; the start should be called once the
+   *  registered C2monCacheListener is ready; the stop should be called at the start of the listener shutdown
+   */
+  Lifecycle registerKeyBufferedListener(C2monBufferedCacheListener<Long> bufferedTimCacheListener, int frequency,
+                                        BufferedListenerSettings settings);
   
   /**
    * Registers a listener to be notified of updates on multiple threads.
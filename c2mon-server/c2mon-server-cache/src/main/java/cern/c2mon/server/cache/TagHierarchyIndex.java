@@ -0,0 +1,91 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache;
+
+import cern.c2mon.server.cache.tag.TagHierarchy;
+import cern.c2mon.server.common.tag.Tag;
+
+/**
+ * Read-optimised index of the process, equipment and sub-equipment of the
+ * tags, with their names, for consumers resolving them for every tag update
+ * (e.g. the history documents).
+ *
+ * <p>The hierarchy of a tag is resolved from the process, equipment and
+ * sub-equipment caches on its first lookup and then served without accessing
+ * the caches, until it is invalidated by the configuration handlers.
+ */
+public interface TagHierarchyIndex {
+
+  /**
+   * Returns the hierarchy of the given tag, resolved from the parent ids of
+   * the given tag object if not indexed.
+   *
+   * @param tag the tag
+   * @return the hierarchy of the tag, never null
+   */
+  TagHierarchy get(Tag tag);
+
+  /**
+   * Returns the hierarchy of the tag with the given id, resolved from the
+   * tag in the cache if not indexed.
+   *
+   * @param tagId the id of a data, control or rule tag
+   * @return the hierarchy of the tag, never null
+   * @throws cern.c2mon.server.cache.exception.CacheElementNotFoundException
+   *         if the tag is neither indexed nor in any tag cache
+   */
+  TagHierarchy get(Long tagId);
+
+  /**
+   * Must be called after the configuration of a tag changed or the tag
+   * was removed.
+   *
+   * @param tagId the id of the tag
+   */
+  void invalidateTag(Long tagId);
+
+  /**
+   * Must be called after a process was reconfigured or removed.
+   *
+   * @param processId the id of the process
+   */
+  void invalidateProcess(Long processId);
+
+  /**
+   * Must be called after an equipment was reconfigured or removed.
+   *
+   * @param equipmentId the id of the equipment
+   */
+  void invalidateEquipment(Long equipmentId);
+
+  /**
+   * Must be called after a sub-equipment was reconfigured or removed.
+   *
+   * @param subEquipmentId the id of the sub-equipment
+   */
+  void invalidateSubEquipment(Long subEquipmentId);
+
+  /**
+   * Removes all tags from the index.
+   */
+  void clear();
+
+  /**
+   * @return the number of indexed tags
+   */
+  int size();
+}
@@ -20,15 +20,15 @@ import java.util.Collection;
 import java.util.Timer;
 import java.util.TimerTask;
 
-import javax.annotation.PostConstruct;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 
 import lombok.extern.slf4j.Slf4j;
 
-import cern.c2mon.server.cache.*;
+import cern.c2mon.server.cache.AlarmCache;
+import cern.c2mon.server.cache.AlarmFacade;
+import cern.c2mon.server.cache.TagFacadeGateway;
 import cern.c2mon.server.cache.alarm.AlarmAggregatorListener;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.alarm.AlarmCacheObject;
@@ -38,63 +38,64 @@ import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.shared.client.alarm.AlarmQuery;
 
 /**
- * Timer that regularly checks all the active alive timers monitoring the
- * connections to the DAQs, Equipment and SubEquipment.
+ * Resets the oscillation flag of the alarms which stopped oscillating.
+ *
+ * <p>
+ * The {@link OscillationUpdater} schedules the expiry of the oscillation flag
+ * in the {@link OscillationExpiryQueue} on every state change of an
+ * oscillating alarm, which is the time of the last change plus the
+ * configured <code>timeOscillationAlive</code>. This checker waits for the
+ * next expiry, so that only the alarms whose flag has expired are retrieved
+ * from the cache, instead of copying all oscillating alarms periodically.
+ *
+ * <p>
+ * At start up, the alarms already oscillating in the cache are scheduled
+ * for a check after an initial delay (this gives time for incoming alarms to
+ * be processed).
  *
  * <p>
- * Notice that an alive timer is considered expired when alive-interval +
- * alive-interval/3 milliseconds have expired since the last alive message
- * arrived, where alive-interval is specific to the AliveTimer object (see
- * <code>hasExpired</code> in {@link AliveTimerFacade}).
+ * Alarms flagged as oscillating by another server of the cluster are not
+ * scheduled by the local {@link OscillationUpdater}. The oscillating alarms
+ * of the cache are therefore scanned once a minute, and those missing from
+ * the expiry queue are scheduled for a check.
  */
 @Service
 @Slf4j
-public class OscillationUpdateChecker extends TimerTask implements SmartLifecycle {
+public class OscillationUpdateChecker implements SmartLifecycle {
 
   /**
-   * Cluster cache key to ensure that a server does not try to access
-   * LAST_CHECK_INITIALISATION_KEY during instantiation if it already exists.
+   * The time the server waits before checking the alarms found oscillating
+   * at start up.
    */
-  private static final String LAST_CHECK_INITIALISATION_KEY = OscillationUpdateChecker.class.getName() + ".lastCheckInitialisationKey";
+  protected static final long INITIAL_SCAN_DELAY = 120000L;
 
   /**
-   * Cluster cache key for retrieving the time of last check of the alarm oscillations.
-   * Across server cluster it assures that the alive check only takes place on a
-   * single server.
-   */
-  protected static final String LAST_CHECK_LONG = OscillationUpdateChecker.class.getName() + ".lastAliveTimerCheck";
-
-  /**
-   * How often the timer checks whether the oscillation timer have expired.
+   * How often the oscillating alarms of the cache are scanned for alarms
+   * missing from the expiry queue.
    */
   protected static final long SCAN_INTERVAL = 60000L;
 
-  /**
-   * The time the server waits before doing first checks at start up (this gives
-   * time for incoming alarms to be processed).
-   */
-  private static final long INITIAL_SCAN_DELAY = 120000L;
-
   /**
    * Lifecycle flag.
    */
   private volatile boolean running = false;
 
+  private Thread checkerThread;
+
   private Timer timer;
 
   private final AlarmCache alarmCache;
 
   private final OscillationUpdater oscillationUpdater;
 
-  /** Reference to the clusterCache to share values across the cluster nodes */
-  private final ClusterCache clusterCache;
+  private final OscillationExpiryQueue expiryQueue;
 
   private final AlarmCacheUpdater alarmCacheUpdater;
 
   private final TagFacadeGateway tagFacadeGateway;
 
   protected final AlarmQuery alarmCacheQuery = AlarmQuery.builder().oscillating(true).build();
-  
+
   private final AlarmFacade alarmFacade;
 
   /**
@@ -102,65 +103,55 @@ public class OscillationUpdateChecker extends TimerTask implements SmartLifecycl
    *
    * @param alarmCache
    *          the alarm cache to retrieve and update alarm cache objects.
-   * @param clusterCache
-   *          the cluster cache to synchronize checks.
    * @param oscillationUpdater
    *          the instance that check oscillation statuses.
+   * @param expiryQueue
+   *          the queue of the oscillation flag expiries.
    * @param alarmCacheUpdater
    *          the alarm cache updater.
-   * @param tagFacadeGateway 
+   * @param tagFacadeGateway
    *          Required to get the Tag instance for a given Tag id
-   * @param alarmFacade 
+   * @param alarmFacade
    *          Required to notify {@link AlarmAggregatorListener} on alarm oscillation reset
    */
   @Autowired
-  public OscillationUpdateChecker(final AlarmCache alarmCache, 
-                                  final ClusterCache clusterCache, 
-                                  final OscillationUpdater oscillationUpdater, 
-                                  final AlarmCacheUpdater alarmCacheUpdater, 
+  public OscillationUpdateChecker(final AlarmCache alarmCache,
+                                  final OscillationUpdater oscillationUpdater,
+                                  final OscillationExpiryQueue expiryQueue,
+                                  final AlarmCacheUpdater alarmCacheUpdater,
                                   final TagFacadeGateway tagFacadeGateway,
                                   final AlarmFacade alarmFacade) {
-    super();
     this.alarmCache = alarmCache;
-    this.clusterCache = clusterCache;
     this.oscillationUpdater = oscillationUpdater;
+    this.expiryQueue = expiryQueue;
     this.alarmCacheUpdater = alarmCacheUpdater;
     this.tagFacadeGateway = tagFacadeGateway;
     this.alarmFacade = alarmFacade;
   }
 
-
   /**
-   * Initializes the clustered values
-   */
-  @PostConstruct
-  public void init() {
-    log.trace("Initialising Alarm oscillation checker ...");
-    clusterCache.acquireWriteLockOnKey(LAST_CHECK_INITIALISATION_KEY);
-    try {
-      if (!clusterCache.hasKey(LAST_CHECK_INITIALISATION_KEY)) {
-        clusterCache.put(LAST_CHECK_INITIALISATION_KEY, true);
-        clusterCache.put(LAST_CHECK_LONG, Long.valueOf(0L));
-      }
-    } finally {
-      clusterCache.releaseWriteLockOnKey(LAST_CHECK_INITIALISATION_KEY);
-    }
-    log.trace("Initialisation complete.");
-  }
-
-  /**
-   * Starts the timer. Alive timers will be checked from then on.
+   * Schedules the alarms currently oscillating, starts the checker thread and
+   * the periodic scan of the oscillating alarms.
    */
   @Override
   public synchronized void start() {
     log.info("Starting the C2MON Alarm oscillation timer mechanism.");
-    timer = new Timer("AlarmOscillationChecker");
-    timer.schedule(this, INITIAL_SCAN_DELAY, SCAN_INTERVAL);
+    scheduleOscillatingAlarms(System.currentTimeMillis() + INITIAL_SCAN_DELAY);
     running = true;
+    checkerThread = new Thread(this::checkExpiries, "AlarmOscillationChecker");
+    checkerThread.setDaemon(true);
+    checkerThread.start();
+    timer = new Timer("AlarmOscillationScanner", true);
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        scheduleOscillatingAlarms(System.currentTimeMillis());
+      }
+    }, INITIAL_SCAN_DELAY, SCAN_INTERVAL);
   }
 
   /**
-   * Stops the timer mechanism. No more checks are made on the alive timers.
+   * Stops the checker thread. No more checks are made on the oscillating alarms.
    *
    * <p>
    * Can be restarted using the start method.
@@ -168,42 +159,70 @@ public class OscillationUpdateChecker extends TimerTask implements SmartLifecycl
   @Override
   public synchronized void stop() {
     log.info("Stopping the C2MON Alarm oscillation timer mechanism.");
-    timer.cancel();
     running = false;
+    checkerThread.interrupt();
+    timer.cancel();
   }
 
   /**
-   * Run method of the AliveTimerManager thread.
+   * Schedules a check of the alarms flagged as oscillating in the cache but
+   * missing from the expiry queue (e.g. flagged by another server). The
+   * alarms already in the queue keep their expiry.
+   *
+   * @param checkTime the time of the check
+   * @return the number of scheduled alarms
    */
-  @Override
-  public void run() {
-    clusterCache.acquireWriteLockOnKey(LAST_CHECK_LONG);
+  int scheduleOscillatingAlarms(final long checkTime) {
+    int scheduled = 0;
     try {
-      Long lastCheck = (Long) clusterCache.getCopy(LAST_CHECK_LONG);
-      if (System.currentTimeMillis() - lastCheck.longValue() < SCAN_INTERVAL - 500L) {
-        log.debug("Skipping alarm oscillation check as already performed.");
+      Collection<Long> oscillatingAlarmIds = alarmCache.findAlarm(alarmCacheQuery);
+      if (oscillatingAlarmIds.isEmpty()) {
+        log.debug("Currently no oscillating alarms");
       } else {
-        log.debug("checking alarm oscillation timers ... ");
-        try {
-          Collection<Long> oscillatingAlarmIds = alarmCache.findAlarm(alarmCacheQuery);
-          if (oscillatingAlarmIds.isEmpty()) {
-            log.debug("Currently no oscillating alarms");
-          } else {
-            log.info("Currently {} oscillating alarms", oscillatingAlarmIds.size());
-            oscillatingAlarmIds.stream().forEach(this::updateAlarmOscillationFlag);
+        log.info("Currently {} oscillating alarms", oscillatingAlarmIds.size());
+        for (Long alarmId : oscillatingAlarmIds) {
+          if (expiryQueue.getDeadline(alarmId) == null) {
+            expiryQueue.schedule(alarmId, checkTime);
+            scheduled++;
           }
-        } catch (Exception e) {
-          log.error("Unexpected exception when checking the Alarm oscillation timers", e);
         }
+      }
+    } catch (Exception e) {
+      log.error("Unexpected exception when retrieving the oscillating alarms", e);
+    }
+    if (scheduled > 0) {
+      log.debug("Scheduled {} oscillating alarms missing from the expiry queue", scheduled);
+    }
+    return scheduled;
+  }
 
-        lastCheck = Long.valueOf(System.currentTimeMillis());
-        clusterCache.put(LAST_CHECK_LONG, lastCheck);
+  private void checkExpiries() {
+    while (running) {
+      try {
+        updateAlarmOscillationFlag(expiryQueue.take());
+      } catch (InterruptedException e) {
+        log.debug("Alarm oscillation checker interrupted");
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        log.error("Unexpected exception when checking the Alarm oscillation timers", e);
+      }
+    }
+  }
 
-        log.debug("finished checking alarm oscillation timers");
-      } // end of else block
-    } finally {
-      clusterCache.releaseWriteLockOnKey(LAST_CHECK_LONG);
+  /**
+   * Checks all alarms whose oscillation flag has expired at the given time.
+   *
+   * @param now the current time in milliseconds
+   * @return the number of checked alarms
+   */
+  int checkExpiries(final long now) {
+    int checked = 0;
+    for (Long alarmId = expiryQueue.poll(now); alarmId != null; alarmId = expiryQueue.poll(now)) {
+      updateAlarmOscillationFlag(alarmId);
+      checked++;
     }
+    return checked;
   }
 
   private void updateAlarmOscillationFlag(Long alarmId) {
@@ -211,7 +230,9 @@ public class OscillationUpdateChecker extends TimerTask implements SmartLifecycl
       log.trace("Checking oscillation expiry for alarm #{}", alarmId);
       AlarmCacheObject alarmCopy = (AlarmCacheObject) alarmCache.getCopy(alarmId);
 
-      if (!oscillationUpdater.checkOscillAlive(alarmCopy)) {
+      if (!alarmCopy.isOscillating()) {
+          log.trace(" -> Alarm #{} is not oscillating anymore", alarmId);
+      } else if (!oscillationUpdater.checkOscillAlive(alarmCopy)) {
           log.trace(" -> ! Alarm #{} is not oscillating anymore, resetting oscillation flag", alarmId);
           Tag tag = tagFacadeGateway.getTag(alarmCopy.getDataTagId());
           if(tag != null) {
@@ -222,9 +243,10 @@ public class OscillationUpdateChecker extends TimerTask implements SmartLifecycl
           }
       } else {
           log.trace(" -> (!) Alarm #{} is still oscillating - no change", alarmId);
+          expiryQueue.schedule(alarmId, oscillationUpdater.getOscillationExpiry(alarmCopy));
       }
     } catch (CacheElementNotFoundException e) {
-      log.error("Failed to locate corresponding tag in cache for alarm #{}. This should never happen!", alarmId);
+      log.warn("Failed to locate alarm #{} or its tag in cache, the alarm may have been removed", alarmId);
     }
   }
 
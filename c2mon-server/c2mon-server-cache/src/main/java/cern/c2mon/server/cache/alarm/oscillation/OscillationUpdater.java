@@ -17,7 +17,6 @@
 package cern.c2mon.server.cache.alarm.oscillation;
 
 import java.sql.Timestamp;
-import java.util.LinkedList;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -27,6 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import cern.c2mon.server.cache.alarm.config.OscillationProperties;
 import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.server.common.alarm.TimestampRingBuffer;
 
 /**
  * Contains the logic for evaluating, if an alarm is oscillating
@@ -40,9 +40,16 @@ public final class OscillationUpdater {
 
     private final OscillationProperties oscillationProperties;
 
+    private final OscillationExpiryQueue expiryQueue;
+
+    /**
+     * @param oscillationProperties the oscillation thresholds
+     * @param expiryQueue the queue in which the expiry of the oscillation flag is scheduled
+     */
     @Autowired
-    public OscillationUpdater(OscillationProperties oscillationProperties) {
+    public OscillationUpdater(OscillationProperties oscillationProperties, OscillationExpiryQueue expiryQueue) {
       this.oscillationProperties = oscillationProperties;
+      this.expiryQueue = expiryQueue;
     }
 
     /**
@@ -52,24 +59,36 @@ public final class OscillationUpdater {
      * @return true, if the alarm shall still keep its oscillation flag
      */
     public boolean checkOscillAlive(AlarmCacheObject alarmCacheObject) {
-      long alarmTs = alarmCacheObject.getSourceTimestamp().getTime();
-      if (!alarmCacheObject.getFifoSourceTimestamps().isEmpty()) {
-        alarmTs = alarmCacheObject.getFifoSourceTimestamps().getLast();
-      }
+      long expiryTime = getOscillationExpiry(alarmCacheObject);
 
       long systemTime = System.currentTimeMillis();
       if (log.isTraceEnabled()) {
-          log.trace(" -> checkOscillAlive(): Alarm #{} diff: {} systime : {} alarmts : {}",
-                  alarmCacheObject.getId(), (systemTime - alarmTs), new Timestamp(systemTime),
+          log.trace(" -> checkOscillAlive(): Alarm #{} remaining: {} systime : {} alarmts : {}",
+                  alarmCacheObject.getId(), (expiryTime - systemTime), new Timestamp(systemTime),
                   alarmCacheObject.getTimestamp().toString());
       }
-      return (systemTime - alarmTs) < (oscillationProperties.getTimeOscillationAlive() * 1000);
+      return systemTime < expiryTime;
+    }
+
+    /**
+     * @param alarmCacheObject The current alarm object of the cache
+     * @return the time in milliseconds at which the alarm loses its oscillation flag,
+     *         unless it changes state again
+     * @see #checkOscillAlive(AlarmCacheObject)
+     */
+    public long getOscillationExpiry(AlarmCacheObject alarmCacheObject) {
+      long alarmTs = alarmCacheObject.getSourceTimestamp().getTime();
+      TimestampRingBuffer timestamps = alarmCacheObject.getFifoSourceTimestamps();
+      if (timestamps != null && !timestamps.isEmpty()) {
+        alarmTs = timestamps.getLast();
+      }
+      return alarmTs + oscillationProperties.getTimeOscillationAlive() * 1000L;
     }
 
     /**
      * Increases the oscillation counter and evaluates if the alarm is oscillating or not.
      * @param alarmCacheObject an updated alarm cache object with the new state
-     * @param tag The latest tag event
+     * @param sourceTimestamp The source timestamp of the latest tag event
      */
     public void updateOscillationStatus(AlarmCacheObject alarmCacheObject, long sourceTimestamp) {
 
@@ -79,23 +98,29 @@ public final class OscillationUpdater {
         log.debug("Setting oscillation flag == true for alarm #{}", alarmCacheObject.getId());
         alarmCacheObject.setOscillating(true);
       }
+
+      if (alarmCacheObject.isOscillating()) {
+        expiryQueue.schedule(alarmCacheObject.getId(), getOscillationExpiry(alarmCacheObject));
+      }
     }
 
     /**
-     * Adds the current source timestamp to the oscillation FIFO list for comparison and makes sure that the list
-     * of n previous source timestamps is never bigger than the configured OSC numbers.
+     * Adds the current source timestamp to the oscillation FIFO buffer for comparison. The buffer keeps the
+     * configured OSC numbers of previous source timestamps plus the current one, and is resized if the
+     * configuration has changed.
      *
      * @param alarmCacheObject the alarm to treat
      */
     private void updateOscTimestampList(AlarmCacheObject alarmCacheObject, long sourceTimestamp) {
-      if (alarmCacheObject.getFifoSourceTimestamps() == null) {
-        alarmCacheObject.setFifoSourceTimestamps(new LinkedList<>());
-      }
-
-      while (alarmCacheObject.getFifoSourceTimestamps().size() > oscillationProperties.getOscNumbers()) {
-        alarmCacheObject.getFifoSourceTimestamps().removeFirst();
+      int capacity = oscillationProperties.getOscNumbers() + 1;
+      TimestampRingBuffer timestamps = alarmCacheObject.getFifoSourceTimestamps();
+      if (timestamps == null) {
+        timestamps = new TimestampRingBuffer(capacity);
+      } else {
+        timestamps = timestamps.withCapacity(capacity);
       }
-      alarmCacheObject.getFifoSourceTimestamps().add(sourceTimestamp);
+      timestamps.add(sourceTimestamp);
+      alarmCacheObject.setFifoSourceTimestamps(timestamps);
     }
 
     /**
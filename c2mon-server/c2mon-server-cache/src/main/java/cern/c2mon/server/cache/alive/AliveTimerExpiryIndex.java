@@ -0,0 +1,63 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.alive;
+
+import org.springframework.stereotype.Component;
+
+import cern.c2mon.server.common.alive.AliveTimer;
+import cern.c2mon.server.common.util.DeadlineQueue;
+
+/**
+ * Index of the times at which the active alive timers expire, keyed by
+ * alive timer id. Maintained by the {@link AliveTimerFacadeImpl} on every
+ * start, update and stop of an alive timer, so that only the expired timers
+ * need to be checked.
+ *
+ * <p>The deadline of a timer is the first millisecond at which
+ * {@link AliveTimerFacadeImpl#hasExpired(Long)} returns <code>true</code>.
+ * As the index is local to the server and the alive interval can be
+ * reconfigured, the alive timer must be checked against the cache when its
+ * deadline has passed.
+ */
+@Component
+public class AliveTimerExpiryIndex extends DeadlineQueue<Long> {
+
+  /**
+   * @param aliveTimer the alive timer
+   * @return the last time in milliseconds at which the alive timer is not
+   *         expired, i.e. the last update plus the alive interval and a
+   *         tolerance of a third of the interval
+   */
+  public static long getExpiryTime(final AliveTimer aliveTimer) {
+    int aliveInterval = aliveTimer.getAliveInterval();
+    return aliveTimer.getLastUpdate() + aliveInterval + aliveInterval / 3;
+  }
+
+  /**
+   * Schedules the expiry of an active alive timer, or removes it from the
+   * index if inactive.
+   *
+   * @param aliveTimer the alive timer
+   */
+  public void update(final AliveTimer aliveTimer) {
+    if (aliveTimer.isActive()) {
+      schedule(aliveTimer.getId(), getExpiryTime(aliveTimer) + 1);
+    } else {
+      remove(aliveTimer.getId());
+    }
+  }
+}
@@ -42,10 +42,13 @@ public class AliveTimerFacadeImpl implements AliveTimerFacade {
   private static final String CANNOT_LOCATE_THE_ALIVE_TIMER_IN_THE_CACHE_ID_IS = "Cannot locate the AliveTimer in the cache (Id is ";
 private AliveTimerCache aliveTimerCache;
 
+  private final AliveTimerExpiryIndex expiryIndex;
+
   @Autowired
-  public AliveTimerFacadeImpl(AliveTimerCache aliveTimerCache) {
+  public AliveTimerFacadeImpl(AliveTimerCache aliveTimerCache, AliveTimerExpiryIndex expiryIndex) {
     super();
     this.aliveTimerCache = aliveTimerCache;
+    this.expiryIndex = expiryIndex;
   }
 
   @Override
@@ -60,6 +63,7 @@ private AliveTimerCache aliveTimerCache;
       AliveTimer aliveTimer = aliveTimerCache.get(aliveId);
       update(aliveTimer);
       aliveTimerCache.put(aliveId, aliveTimer);
+      expiryIndex.update(aliveTimer);
     } catch (CacheElementNotFoundException cacheEx) {
       log.error(CANNOT_LOCATE_THE_ALIVE_TIMER_IN_THE_CACHE_ID_IS + aliveId + ") - unable to update it.", cacheEx);
     } catch (Exception e) {
@@ -98,6 +102,7 @@ private AliveTimerCache aliveTimerCache;
       AliveTimer aliveTimer = aliveTimerCache.get(id);
       start(aliveTimer);
       aliveTimerCache.put(id, aliveTimer);
+      expiryIndex.update(aliveTimer);
     } catch (CacheElementNotFoundException cacheEx) {
       log.error(CANNOT_LOCATE_THE_ALIVE_TIMER_IN_THE_CACHE_ID_IS + id + ") - unable to start it.");
     } catch (Exception e) {
@@ -132,6 +137,7 @@ private AliveTimerCache aliveTimerCache;
       AliveTimer aliveTimer = aliveTimerCache.get(id);
       stop(aliveTimer);
       aliveTimerCache.put(id, aliveTimer);
+      expiryIndex.update(aliveTimer);
     } catch (CacheElementNotFoundException cacheEx) {
       log.error(CANNOT_LOCATE_THE_ALIVE_TIMER_IN_THE_CACHE_ID_IS + id + ") - unable to stop it.");
     } catch (Exception e) {
@@ -168,7 +174,7 @@ private AliveTimerCache aliveTimerCache;
     aliveTimerCache.acquireReadLockOnKey(aliveTimerId);
     try {
         AliveTimer aliveTimer = aliveTimerCache.get(aliveTimerId);
-        return (System.currentTimeMillis() - aliveTimer.getLastUpdate() > aliveTimer.getAliveInterval() + aliveTimer.getAliveInterval() / 3);
+        return System.currentTimeMillis() > AliveTimerExpiryIndex.getExpiryTime(aliveTimer);
     } finally {
       aliveTimerCache.releaseReadLockOnKey(aliveTimerId);
     }
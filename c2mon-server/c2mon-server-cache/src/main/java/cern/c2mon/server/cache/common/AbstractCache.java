@@ -16,10 +16,6 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.common;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingDeque;
@@ -40,9 +36,11 @@ import cern.c2mon.server.cache.C2monCacheListener;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.cache.listener.BufferedKeyCacheListener;
+import cern.c2mon.server.cache.listener.BufferedListenerSettings;
 import cern.c2mon.server.cache.listener.CacheListener;
 import cern.c2mon.server.cache.listener.DefaultBufferedCacheListener;
 import cern.c2mon.server.cache.listener.MultiThreadedCacheListener;
+import cern.c2mon.server.cache.listener.ShardedCacheListener;
 import cern.c2mon.server.cache.loading.SimpleCacheLoaderDAO;
 import cern.c2mon.server.common.config.C2monCacheName;
 import cern.c2mon.shared.common.Cacheable;
@@ -103,6 +101,11 @@ private final CacheProperties properties;
    */
   private RegisteredEventListeners registeredEventListeners; //only for monitoring
 
+  /**
+   * Strategy used for creating copies in getCopy(), resolved lazily from the properties.
+   */
+  private volatile CopyStrategy copyStrategy;
+
   public AbstractCache(final ClusterCache clusterCache,
                        final Ehcache cache,
                        final CacheLoader cacheLoader,
@@ -176,9 +179,13 @@ private final CacheProperties properties;
       getClusterCache().releaseWriteLockOnKey(getCacheInitializedKey());
     }
 
+    log.info("Using " + getCopyStrategy() + " copy strategy for cache " + getCacheName());
+
     if (loadCache) {
       log.info("Preloading cache from DB: " + getCacheName());
+      long start = System.currentTimeMillis();
       getC2monCacheLoader().preload();
+      log.info("Preloaded {} objects into cache {} in {} ms", cache.getSize(), getCacheName(), System.currentTimeMillis() - start);
     } else {
       log.info("No preloading necessary: " + getCacheName());
     }
@@ -186,40 +193,28 @@ private final CacheProperties properties;
 
   /**
    * Find an object in the cache given the object id and create a deep copy.
-   * The copy is relealized through serialization and NOT by cloning.
+   * By default the copy is realized through serialization and NOT by cloning,
+   * unless another {@link CopyStrategy} is configured for this cache.
    *
    * @param id the unique id of the cache object (should not be NULL)
    * @return Copy to the {@link Cacheable} object
    * @throws CacheElementNotFoundException if the element if not found in the cache
    * @throws IllegalArgumentException if the cache is accessed with a null key
-   * @throws UnsupportedOperationException If something goes wrong whilst creating a deep clone
-   *         through serialization
+   * @throws UnsupportedOperationException If something goes wrong whilst creating a deep copy
    */
-  @SuppressWarnings("unchecked")
   public final T getCopy(final K id) {
     if (id != null) {
-        cache.acquireReadLockOnKey(id);
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos);) {
-            T reference = get(id);
-    
-            oos.writeObject(reference);
-    
-            ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            return (T) ois.readObject();
-        } catch (CacheElementNotFoundException cenfe) {
-            throw cenfe;
-        } catch (Exception ex) {
-            log.error(
-                    "Unable to get a serialized copy of the cache element as serialization is not supported for this object.",
-                    ex);
-            throw new UnsupportedOperationException(
-                    "The getCopy() method is not supported for this cache element since the cache object is not entirely serializable. Please revisit your object.",
-                    ex);
-        } finally {
-            cache.releaseReadLockOnKey(id);
-        }
+      cache.acquireReadLockOnKey(id);
+      try {
+        return getCopyStrategy().copy(get(id));
+      } catch (UnsupportedOperationException ex) {
+        log.error("Unable to get a copy of the cache element with id " + id + " using the " + getCopyStrategy() + " strategy.", ex);
+        throw new UnsupportedOperationException(
+                "The getCopy() method is not supported for this cache element. Please revisit your object.",
+                ex);
+      } finally {
+        cache.releaseReadLockOnKey(id);
+      }
     }
     else {
       log.error("getCopy() - Trying to access cache with a NULL key - throwing an exception!");
@@ -228,6 +223,29 @@ private final CacheProperties properties;
     }
   }
 
+  /**
+   * Returns the strategy used by {@link #getCopy(Object)}, as configured
+   * for this cache in the {@link CacheProperties}.
+   *
+   * @return the copy strategy of this cache, never null
+   */
+  public CopyStrategy getCopyStrategy() {
+    if (copyStrategy == null) {
+      CopyStrategy strategy = null;
+      if (properties != null) {
+        C2monCacheName cacheName = getCacheName();
+        if (cacheName != null && properties.getCopyStrategies() != null) {
+          strategy = properties.getCopyStrategies().get(cacheName.name().toLowerCase());
+        }
+        if (strategy == null) {
+          strategy = properties.getDefaultCopyStrategy();
+        }
+      }
+      copyStrategy = strategy != null ? strategy : CopyStrategy.SERIALIZATION;
+    }
+    return copyStrategy;
+  }
+
   /**
    * Puts an object in the cache, without notifying the cache listeners.
    * Wraps the call to the underlying Ehcache.
@@ -300,6 +318,13 @@ private final CacheProperties properties;
   }
 
   public Lifecycle registerThreadedListener(C2monCacheListener<? super T> cacheListener, int queueCapacity, int threadPoolSize) {
+    if (properties != null && properties.getThreadedListener().isOrdered()) {
+      CacheProperties.ThreadedListener settings = properties.getThreadedListener();
+      ShardedCacheListener<? super T> shardedCacheListener = new ShardedCacheListener<>(cacheListener,
+          Math.min(queueCapacity, settings.getShardQueueCapacity()), threadPoolSize, settings.isCoalesce());
+      cacheListeners.add(shardedCacheListener);
+      return shardedCacheListener;
+    }
     MultiThreadedCacheListener<? super T> threadedCacheListener = new MultiThreadedCacheListener<>(cacheListener, queueCapacity, threadPoolSize);
     cacheListeners.add(threadedCacheListener);
     return threadedCacheListener;
@@ -317,6 +342,14 @@ private final CacheProperties properties;
     return bufferedKeyCacheListener;
   }
 
+  public Lifecycle registerKeyBufferedListener(final C2monBufferedCacheListener<Long> bufferedCacheListener, int frequency,
+                                               final BufferedListenerSettings settings) {
+    BufferedKeyCacheListener<T> bufferedKeyCacheListener = new BufferedKeyCacheListener<T>(bufferedCacheListener, frequency,
+        settings.getCapacity(), settings.getOverflowPolicy(), settings.isLatestValuePerKey());
+    cacheListeners.add(bufferedKeyCacheListener);
+    return bufferedKeyCacheListener;
+  }
+
 
   //***************************
   // GETTERS AND SETTERS
@@ -0,0 +1,88 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Strategies available to {@link AbstractCache#getCopy(Object)} for creating
+ * a deep copy of a cache object. The strategy can be selected per cache with
+ * the <code>c2mon.server.cache.copyStrategies.&lt;cacheName&gt;</code> property.
+ *
+ * <p>All strategies are always called within a read lock on the cache key.
+ */
+public enum CopyStrategy {
+
+  /**
+   * Writes the object through an {@link ObjectOutputStream} and reads it
+   * back. Slow, but it does not rely on the {@link Cacheable#clone()}
+   * implementation of the cache object being complete.
+   */
+  SERIALIZATION {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Cacheable> T copy(final T original) {
+      try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+           ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+        oos.writeObject(original);
+        oos.flush();
+
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+          return (T) ois.readObject();
+        }
+      } catch (IOException | ClassNotFoundException e) {
+        throw new UnsupportedOperationException(
+            "The cache object is not entirely serializable. Please revisit your object.", e);
+      }
+    }
+  },
+
+  /**
+   * Uses the field-by-field {@link Cacheable#clone()} implementation of the
+   * cache object, which is also used for notifying the cache listeners. Several
+   * times faster than {@link #SERIALIZATION} and without the intermediate byte
+   * arrays, but only as deep as the clone implementation of the object.
+   */
+  CLONE {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Cacheable> T copy(final T original) {
+      try {
+        return (T) original.clone();
+      } catch (CloneNotSupportedException e) {
+        throw new UnsupportedOperationException(
+            "The cache object does not support cloning. Please revisit your object.", e);
+      }
+    }
+  };
+
+  /**
+   * Creates a deep copy of the given cache object.
+   *
+   * @param original the object to copy (not null)
+   * @param <T> the cache object type
+   * @return a copy no longer residing in the cache
+   * @throws UnsupportedOperationException if the object cannot be copied with this strategy
+   */
+  public abstract <T extends Cacheable> T copy(T original);
+}
@@ -1,8 +1,13 @@
 package cern.c2mon.server.cache.config;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import cern.c2mon.server.cache.common.CopyStrategy;
+
 /**
  * @author Justin Lewis Salmon
  */
@@ -40,6 +45,72 @@ public class CacheProperties {
    */
   private int bufferedListenerPullFrequency = 5000;
 
+  /**
+   * Strategy used by getCopy() on all caches for which no specific strategy
+   * is configured in {@link #copyStrategies}
+   */
+  private CopyStrategy defaultCopyStrategy = CopyStrategy.SERIALIZATION;
+
+  /**
+   * Overrides the copy strategy of individual caches. The key is the
+   * lower-case cache name (e.g. datatag, ruletag, alarm, process), the value
+   * either SERIALIZATION or CLONE
+   */
+  private Map<String, CopyStrategy> copyStrategies = new HashMap<>();
+
+  /**
+   * Settings of the listeners notified on several threads
+   */
+  private final ThreadedListener threadedListener = new ThreadedListener();
+
+  @Data
+  public static class ThreadedListener {
+
+    /**
+     * If true, threaded cache listeners dispatch the updates of a cache
+     * object always to the same thread, so that listeners receive them in
+     * the order of the cache updates. Otherwise a single queue is shared by
+     * all listener threads
+     */
+    private boolean ordered = false;
+
+    /**
+     * Maximum number of pending notifications per listener thread when
+     * ordered, after which the notifying thread waits
+     */
+    private int shardQueueCapacity = 100000;
+
+    /**
+     * If true and ordered, a pending update of a cache object is replaced
+     * by a newer update of the same object instead of being notified twice
+     */
+    private boolean coalesce = false;
+  }
+
+  /**
+   * Settings of the name index of the data, rule and control tag caches
+   */
+  private final TagNameIndex tagNameIndex = new TagNameIndex();
+
+  @Data
+  public static class TagNameIndex {
+
+    /**
+     * If true, tag names and wildcard expressions are resolved with an index
+     * maintained by the tag caches instead of an Ehcache search. The index
+     * is never used in "multi" mode, as it only sees the changes done by the
+     * local server
+     */
+    private boolean enabled = true;
+
+    /**
+     * If true, expressions with a leading wildcard (e.g. *TEMP*) are
+     * resolved with a trigram index, which needs additional memory per tag.
+     * Otherwise such expressions are matched against all indexed names
+     */
+    private boolean trigrams = true;
+  }
+
   private int timeRange = 60;
   private int oscNumbers = 6;
 }
@@ -2,7 +2,9 @@ package cern.c2mon.server.cache.config;
 
 import cern.c2mon.server.cache.loading.common.BatchCacheLoader;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
+import cern.c2mon.server.cache.loading.common.CacheSnapshotStore;
 import cern.c2mon.server.cache.loading.common.EhcacheLoaderImpl;
+import cern.c2mon.server.cache.loading.common.SnapshotCacheLoader;
 import cern.c2mon.server.cache.loading.DataTagLoaderDAO;
 import cern.c2mon.server.cache.loading.config.CacheLoadingProperties;
 import net.sf.ehcache.CacheManager;
@@ -20,6 +22,12 @@ public class DataTagCacheConfig {
   @Autowired
   private CacheLoadingProperties properties;
 
+  @Autowired
+  private CacheProperties cacheProperties;
+
+  @Autowired
+  private CacheSnapshotStore cacheSnapshotStore;
+
   @Bean
   public EhCacheFactoryBean dataTagEhcache(CacheManager cacheManager) {
     EhCacheFactoryBean factory = new EhCacheFactoryBean();
@@ -36,6 +44,9 @@ public class DataTagCacheConfig {
   @Bean
   public C2monCacheLoader dataTagCacheLoader(Ehcache dataTagEhcache, DataTagLoaderDAO dataTagLoaderDAO) {
     Integer batchSize = properties.getBatchSize();
+    if (properties.getSnapshot().isEnabled() && !cacheProperties.getMode().equalsIgnoreCase("multi")) {
+      return new SnapshotCacheLoader<>(dataTagEhcache, dataTagLoaderDAO, batchSize, "DataTagCacheLoader-", cacheSnapshotStore, properties.getSnapshot());
+    }
     return new BatchCacheLoader<>(dataTagEhcache, dataTagLoaderDAO, batchSize, "DataTagCacheLoader-");
   }
 }
@@ -2,7 +2,9 @@ package cern.c2mon.server.cache.config;
 
 import cern.c2mon.server.cache.loading.common.BatchCacheLoader;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
+import cern.c2mon.server.cache.loading.common.CacheSnapshotStore;
 import cern.c2mon.server.cache.loading.common.EhcacheLoaderImpl;
+import cern.c2mon.server.cache.loading.common.SnapshotCacheLoader;
 import cern.c2mon.server.cache.loading.RuleTagLoaderDAO;
 import cern.c2mon.server.cache.loading.config.CacheLoadingProperties;
 import net.sf.ehcache.CacheManager;
@@ -20,6 +22,12 @@ public class RuleTagCacheConfig {
   @Autowired
   private CacheLoadingProperties properties;
 
+  @Autowired
+  private CacheProperties cacheProperties;
+
+  @Autowired
+  private CacheSnapshotStore cacheSnapshotStore;
+
   @Bean
   public EhCacheFactoryBean ruleTagEhcache(CacheManager cacheManager) {
     EhCacheFactoryBean factory = new EhCacheFactoryBean();
@@ -36,6 +44,9 @@ public class RuleTagCacheConfig {
   @Bean
   public C2monCacheLoader ruleTagCacheLoader(Ehcache ruleTagEhcache, RuleTagLoaderDAO ruleTagLoaderDAO) {
     Integer batchSize = properties.getBatchSize();
+    if (properties.getSnapshot().isEnabled() && !cacheProperties.getMode().equalsIgnoreCase("multi")) {
+      return new SnapshotCacheLoader<>(ruleTagEhcache, ruleTagLoaderDAO, batchSize, "RuleTagCacheLoader-", cacheSnapshotStore, properties.getSnapshot());
+    }
     return new BatchCacheLoader<>(ruleTagEhcache, ruleTagLoaderDAO, batchSize, "RuleTagCacheLoader-");
   }
 }
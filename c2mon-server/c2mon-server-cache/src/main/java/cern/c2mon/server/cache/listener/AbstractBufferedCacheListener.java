@@ -18,7 +18,7 @@ package cern.c2mon.server.cache.listener;
 
 import java.util.Collection;
 import java.util.LinkedList;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +32,10 @@ import cern.c2mon.shared.daq.lifecycle.Lifecycle;
  * Abstract listener implementation that batches the notifications before
  * calling the BufferedListener
  *
+ * <p>By default the notifications are kept in unbounded queues. A capacity,
+ * an {@link BufferOverflowPolicy} and a latest-value-per-key mode can be set
+ * to keep the memory use bounded during update bursts.
+ *
  * @author Mark Brightwell
  * @param <T> the type of cache object received
  * @param <S> the type of object passed to the listener
@@ -55,8 +59,8 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
   /**
    * Queues keeping the keys for supported methods.
    */
-  private final LinkedBlockingQueue<S> onUpdateQueue = new LinkedBlockingQueue<>();
-  private final LinkedBlockingQueue<S> statusConfirmationQueue = new LinkedBlockingQueue<>();
+  private final NotificationBuffer<S> onUpdateQueue;
+  private final NotificationBuffer<S> statusConfirmationQueue;
 
   /**
    * Wrapped listener.
@@ -78,6 +82,24 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
   public AbstractBufferedCacheListener(C2monBufferedCacheListener<S> bufferedCacheListener, int frequency) {
     this.bufferedCacheListener = bufferedCacheListener;
     this.frequency = frequency;
+    this.onUpdateQueue = new NotificationBuffer<>();
+    this.statusConfirmationQueue = new NotificationBuffer<>();
+    enabled = false;
+  }
+
+  /**
+   * @param bufferedCacheListener listener expecting collections of cache objects
+   * @param frequency the frequency (in ms) at which the buffer should be emptied
+   * @param capacity the maximum number of pending notifications per method, or 0 for no limit
+   * @param overflowPolicy what to do with new notifications once the capacity is reached
+   * @param latestValuePerKey if true, only the latest pending notification of every cache object is kept
+   */
+  public AbstractBufferedCacheListener(C2monBufferedCacheListener<S> bufferedCacheListener, int frequency,
+                                       int capacity, BufferOverflowPolicy overflowPolicy, boolean latestValuePerKey) {
+    this.bufferedCacheListener = bufferedCacheListener;
+    this.frequency = frequency;
+    this.onUpdateQueue = new NotificationBuffer<>(capacity, overflowPolicy, latestValuePerKey);
+    this.statusConfirmationQueue = new NotificationBuffer<>(capacity, overflowPolicy, latestValuePerKey);
     enabled = false;
   }
 
@@ -87,7 +109,7 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
   public void confirmStatus(T cacheable) {
     if (enabled) {
       try {
-        statusConfirmationQueue.put(getDerivedObject(cacheable));
+        statusConfirmationQueue.put(cacheable.getId(), getDerivedObject(cacheable));
       } catch (InterruptedException e) {
         log.error("Interrupted while waiting to insert into queue", e);
       }
@@ -102,7 +124,7 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
   public void notifyElementUpdated(T cacheable) {
     if (enabled) {
       try {
-        onUpdateQueue.put(getDerivedObject(cacheable));
+        onUpdateQueue.put(cacheable.getId(), getDerivedObject(cacheable));
       } catch (InterruptedException e) {
         log.error("Interrupted while waiting to insert key into queue", e);
       }
@@ -164,6 +186,46 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
     }
   }
 
+  /**
+   * For management purposes.
+   * @return the number of pending notifications
+   */
+  public int getQueueSize() {
+    return onUpdateQueue.size() + statusConfirmationQueue.size();
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of notifications discarded because the buffer was full
+   */
+  public long getDroppedCount() {
+    return onUpdateQueue.getDroppedCount() + statusConfirmationQueue.getDroppedCount();
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of notifications replaced by a newer one of the same cache object
+   */
+  public long getCoalescedCount() {
+    return onUpdateQueue.getCoalescedCount() + statusConfirmationQueue.getCoalescedCount();
+  }
+
+  /**
+   * For management purposes.
+   * @return the time (in ms) the oldest update of the last drain had been waiting
+   */
+  public long getLastDrainLatency() {
+    return TimeUnit.NANOSECONDS.toMillis(onUpdateQueue.getLastDrainLatencyNanos());
+  }
+
+  /**
+   * For management purposes.
+   * @return the maximum time (in ms) an update has been waiting before being drained
+   */
+  public long getMaxDrainLatency() {
+    return TimeUnit.NANOSECONDS.toMillis(onUpdateQueue.getMaxDrainLatencyNanos());
+  }
+
   private synchronized void flush() {
     if (!onUpdateQueue.isEmpty()) {
       LinkedList<S> updateKeys = new LinkedList<>();
@@ -38,6 +38,20 @@ public class BufferedKeyCacheListener<T extends Cacheable> extends AbstractBuffe
     super(bufferedKeyTimCacheListener, frequency);
   }
 
+  /**
+   * Constructor of a listener with a bounded buffer.
+   *
+   * @param bufferedKeyTimCacheListener the listener to register
+   * @param frequency the frequency (in ms) at which the buffer should be emptied
+   * @param capacity the maximum number of pending notifications, or 0 for no limit
+   * @param overflowPolicy what to do with new notifications once the capacity is reached
+   * @param latestValuePerKey if true, only the latest pending notification of every cache object is kept
+   */
+  public BufferedKeyCacheListener(final C2monBufferedCacheListener<Long> bufferedKeyTimCacheListener, int frequency,
+                                  int capacity, BufferOverflowPolicy overflowPolicy, boolean latestValuePerKey) {
+    super(bufferedKeyTimCacheListener, frequency, capacity, overflowPolicy, latestValuePerKey);
+  }
+
   /**
    * Returns the key of the cache object.
    */
@@ -0,0 +1,46 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import lombok.Data;
+
+/**
+ * Bounds of the buffer of a buffered cache listener, set per registration.
+ * The defaults keep an unbounded buffer passing on every notification, as
+ * required by listeners that must not lose intermediate values (e.g. history
+ * logging).
+ */
+@Data
+public class BufferedListenerSettings {
+
+  /**
+   * Maximum number of pending notifications, or 0 for an unbounded buffer
+   */
+  private int capacity = 0;
+
+  /**
+   * What to do with new notifications once the capacity is reached:
+   * BLOCK, DROP_OLDEST or COALESCE_BY_KEY
+   */
+  private BufferOverflowPolicy overflowPolicy = BufferOverflowPolicy.BLOCK;
+
+  /**
+   * If true, only the latest pending notification of every cache object is
+   * passed to the listener
+   */
+  private boolean latestValuePerKey = false;
+}
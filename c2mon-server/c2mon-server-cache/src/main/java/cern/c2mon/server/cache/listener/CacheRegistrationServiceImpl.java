@@ -42,7 +42,8 @@ import cern.c2mon.shared.util.threadhandler.ThreadHandler;
  * <p>Internally, registration on a single thread uses the
  * {@link ThreadHandler} implementation while registrations
  * on several threads use the {@link MultiThreadedCacheListener}
- * and the Java concurrency library.
+ * and the Java concurrency library, or the {@link ShardedCacheListener}
+ * if the notifications of a cache object must stay in order.
  *
  * @author Mark Brightwell
  *
@@ -110,6 +111,13 @@ public class CacheRegistrationServiceImpl implements CacheRegistrationService {
     if (threads == 1) {
       return registerToAllTags(tagCacheListener);
     } else {
+      if (properties.getThreadedListener().isOrdered()) {
+        CacheProperties.ThreadedListener settings = properties.getThreadedListener();
+        ShardedCacheListener<Tag> shardedCacheListener = new ShardedCacheListener<>(tagCacheListener,
+            settings.getShardQueueCapacity(), threads, settings.isCoalesce());
+        registerListenerToTags(shardedCacheListener);
+        return shardedCacheListener;
+      }
       MultiThreadedCacheListener<Tag> threadedCacheListener = new MultiThreadedCacheListener<Tag>(tagCacheListener, QUEUE_SIZE_DEFAULT, threads);
       registerListenerToTags(threadedCacheListener);
       return threadedCacheListener;
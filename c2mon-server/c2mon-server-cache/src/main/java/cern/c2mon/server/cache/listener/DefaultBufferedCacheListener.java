@@ -38,6 +38,20 @@ public class DefaultBufferedCacheListener<T extends Cacheable> extends AbstractB
     super(bufferedCacheListener, frequency);
   }
 
+  /**
+   * Constructor of a listener with a bounded buffer.
+   *
+   * @param bufferedCacheListener listener expecting collections of cache objects
+   * @param frequency the frequency (in ms) at which the buffer should be emptied
+   * @param capacity the maximum number of pending notifications, or 0 for no limit
+   * @param overflowPolicy what to do with new notifications once the capacity is reached
+   * @param latestValuePerKey if true, only the latest pending notification of every cache object is kept
+   */
+  public DefaultBufferedCacheListener(final C2monBufferedCacheListener<T> bufferedCacheListener, int frequency,
+                                      int capacity, BufferOverflowPolicy overflowPolicy, boolean latestValuePerKey) {
+    super(bufferedCacheListener, frequency, capacity, overflowPolicy, latestValuePerKey);
+  }
+
   /**
    * Returns the cache object itself.
    */
@@ -0,0 +1,233 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer of the pending notifications of a buffered cache listener, keyed
+ * by cache object id.
+ *
+ * <p>The buffer is unbounded unless a capacity is set, in which case the
+ * {@link BufferOverflowPolicy} decides what happens to new notifications
+ * once it is full. In latest-value-per-key mode, a notification replaces
+ * the pending notification of the same object (keeping its position), so
+ * the buffer never holds more than one entry per object.
+ *
+ * @param <S> the type of object passed to the listener
+ */
+final class NotificationBuffer<S> {
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notFull = lock.newCondition();
+
+  private final int capacity;
+
+  private final BufferOverflowPolicy overflowPolicy;
+
+  private final boolean latestValuePerKey;
+
+  private final ArrayDeque<Entry<S>> queue = new ArrayDeque<>();
+
+  /**
+   * Latest pending entry of every key; only maintained if entries can be replaced.
+   */
+  private final Map<Long, Entry<S>> pendingByKey;
+
+  /** For management only */
+  private long droppedCount = 0;
+  private long coalescedCount = 0;
+  private long lastDrainLatencyNanos = 0;
+  private long maxDrainLatencyNanos = 0;
+
+  /**
+   * Creates an unbounded buffer keeping every notification.
+   */
+  NotificationBuffer() {
+    this(0, BufferOverflowPolicy.BLOCK, false);
+  }
+
+  /**
+   * @param capacity the maximum number of pending entries, or 0 for no limit
+   * @param overflowPolicy what to do with new notifications once the buffer is full
+   * @param latestValuePerKey if true, only the latest notification of every object is kept
+   */
+  NotificationBuffer(final int capacity, final BufferOverflowPolicy overflowPolicy, final boolean latestValuePerKey) {
+    this.capacity = capacity > 0 ? capacity : Integer.MAX_VALUE;
+    this.overflowPolicy = overflowPolicy != null ? overflowPolicy : BufferOverflowPolicy.BLOCK;
+    this.latestValuePerKey = latestValuePerKey;
+    boolean indexed = latestValuePerKey || (capacity > 0 && this.overflowPolicy == BufferOverflowPolicy.COALESCE_BY_KEY);
+    this.pendingByKey = indexed ? new HashMap<>() : null;
+  }
+
+  /**
+   * Adds a notification, applying the overflow policy if the buffer is full.
+   *
+   * @param key the id of the notified cache object
+   * @param value the object to pass to the listener
+   * @throws InterruptedException if interrupted while waiting for space
+   */
+  void put(final Long key, final S value) throws InterruptedException {
+    lock.lock();
+    try {
+      if (latestValuePerKey && replacePending(key, value)) {
+        return;
+      }
+      while (queue.size() >= capacity) {
+        if (overflowPolicy == BufferOverflowPolicy.DROP_OLDEST) {
+          unindex(queue.pollFirst());
+          droppedCount++;
+        } else if (overflowPolicy == BufferOverflowPolicy.COALESCE_BY_KEY && replacePending(key, value)) {
+          return;
+        } else {
+          notFull.await();
+          if (latestValuePerKey && replacePending(key, value)) {
+            return;
+          }
+        }
+      }
+      Entry<S> entry = new Entry<>(key, value);
+      queue.addLast(entry);
+      if (pendingByKey != null && key != null) {
+        pendingByKey.put(key, entry);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return true if a pending entry of the key was found and its value replaced
+   */
+  private boolean replacePending(final Long key, final S value) {
+    Entry<S> pending = key != null ? pendingByKey.get(key) : null;
+    if (pending != null) {
+      pending.value = value;
+      coalescedCount++;
+      return true;
+    }
+    return false;
+  }
+
+  private void unindex(final Entry<S> entry) {
+    if (pendingByKey != null && entry != null && entry.key != null && pendingByKey.get(entry.key) == entry) {
+      pendingByKey.remove(entry.key);
+    }
+  }
+
+  /**
+   * Moves up to max pending values to the given collection, oldest first.
+   *
+   * @return the number of values drained
+   */
+  int drainTo(final Collection<S> values, final int max) {
+    lock.lock();
+    try {
+      if (queue.isEmpty()) {
+        return 0;
+      }
+      long latency = System.nanoTime() - queue.peekFirst().enqueuedNanos;
+      lastDrainLatencyNanos = latency;
+      if (latency > maxDrainLatencyNanos) {
+        maxDrainLatencyNanos = latency;
+      }
+      int drained = 0;
+      while (drained < max && !queue.isEmpty()) {
+        Entry<S> entry = queue.pollFirst();
+        unindex(entry);
+        values.add(entry.value);
+        drained++;
+      }
+      notFull.signalAll();
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  boolean isEmpty() {
+    return size() == 0;
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long getDroppedCount() {
+    lock.lock();
+    try {
+      return droppedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long getCoalescedCount() {
+    lock.lock();
+    try {
+      return coalescedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long getLastDrainLatencyNanos() {
+    lock.lock();
+    try {
+      return lastDrainLatencyNanos;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long getMaxDrainLatencyNanos() {
+    lock.lock();
+    try {
+      return maxDrainLatencyNanos;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * A pending notification; the value is replaced when coalescing.
+   */
+  private static final class Entry<S> {
+
+    private final Long key;
+
+    private S value;
+
+    private final long enqueuedNanos = System.nanoTime();
+
+    private Entry(final Long key, final S value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,447 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.server.cache.C2monCacheListener;
+import cern.c2mon.shared.common.Cacheable;
+import cern.c2mon.shared.daq.lifecycle.Lifecycle;
+
+/**
+ * Cache listener implementation calling the wrapped {@link C2monCacheListener}
+ * on several threads, while preserving the order of the notifications for
+ * every cache object.
+ *
+ * <p>Unlike the {@link MultiThreadedCacheListener}, which shares a single
+ * queue between all threads, every thread serves its own bounded queue
+ * (shard). The notifications of a cache object are always put on the shard
+ * of its id, so two updates of the same object are never passed to the
+ * listener concurrently or out of order. If the shard queue is full, the
+ * notifying thread waits.
+ *
+ * <p>If coalescing is enabled, an update of an object that is still waiting
+ * in its shard is replaced by the newer update, so that the listener is only
+ * notified of the latest state. Status confirmations are never coalesced.
+ *
+ * <p>The queue size and notification lag of every shard are available for
+ * management.
+ *
+ * @param <T> type of cache object expected by listener
+ */
+@Slf4j
+public class ShardedCacheListener<T extends Cacheable> implements C2monCacheListener<T>, Lifecycle {
+
+  /**
+   * The number of milliseconds a thread waits between checking for shutdown requests.
+   */
+  private static final int THREAD_SHUTDOWN_CHECK_INTERVAL = 2000;
+
+  /**
+   * Used for remembering which method to call.
+   */
+  private enum SupportedMethods { ON_UPDATE, STATUS_CONFIRMATION }
+
+  /**
+   * The wrapped listener.
+   */
+  private final C2monCacheListener<T> c2monCacheListener;
+
+  /**
+   * One queue and thread per shard.
+   */
+  private final Shard[] shards;
+
+  /**
+   * Replace pending updates of the same object.
+   */
+  private final boolean coalesce;
+
+  /**
+   * Shutdown request made.
+   */
+  private volatile boolean shutdownRequestMade = false;
+
+  /**
+   * The listener can only be started and stopped once.
+   */
+  private volatile boolean running = false;
+
+  /**
+   * Constructor.
+   * @param cacheListener the listener wrapped by this class
+   * @param shardQueueCapacity the maximum number of pending notifications per thread
+   * @param threadPoolSize the number of threads (and shards) on which the listener is called
+   * @param coalesce if true, pending updates are replaced by newer updates of the same object
+   */
+  @SuppressWarnings("unchecked")
+  public ShardedCacheListener(final C2monCacheListener<T> cacheListener, final int shardQueueCapacity,
+                              final int threadPoolSize, final boolean coalesce) {
+    super();
+    this.c2monCacheListener = cacheListener;
+    this.coalesce = coalesce;
+    int nbShards = Math.max(1, threadPoolSize);
+    shards = (Shard[]) new ShardedCacheListener.Shard[nbShards];
+    String threadPrefix = "ShardedCacheListener-" + cacheListener.getClass().getSimpleName() + "-";
+    for (int i = 0; i < nbShards; i++) {
+      shards[i] = new Shard(Math.max(1, shardQueueCapacity));
+      Thread thread = new Thread(shards[i], threadPrefix + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  @Override
+  public void notifyElementUpdated(final T cacheable) {
+    submit(cacheable, SupportedMethods.ON_UPDATE);
+  }
+
+  @Override
+  public void confirmStatus(final T cacheable) {
+    submit(cacheable, SupportedMethods.STATUS_CONFIRMATION);
+  }
+
+  private void submit(final T cacheable, final SupportedMethods method) {
+    if (shutdownRequestMade) {
+      log.warn("Attempt at notifying of element update after shutdown started "
+          + "- should not happen and indicates incorrect shutdown sequence!");
+      return;
+    }
+    Long key = cacheable.getId();
+    try {
+      shards[shardOf(key, shards.length)].put(key, cacheable, method);
+    } catch (InterruptedException interEx) {
+      log.error("InterruptedException caught while waiting for ShardedCacheListener queue to free space: ", interEx);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return the shard index of the given cache key
+   */
+  static int shardOf(final Long key, final int nbShards) {
+    if (key == null) {
+      return 0;
+    }
+    long h = key.longValue() * 0x9E3779B97F4A7C15L;
+    return (int) ((h >>> 32) % nbShards);
+  }
+
+  /**
+   * Is running until a shutdown request is made.
+   */
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Can only be started once at server start-up.
+   */
+  @Override
+  public void start() {
+    running = true;
+  }
+
+  /**
+   * Waits for all pending notifications to be passed to the listener, then
+   * stops the threads. Will have no effect if called a second time.
+   */
+  @Override
+  public synchronized void stop() {
+    if (running) {
+      log.debug("Shutting down sharded cache listener.");
+      running = false;
+      shutdownRequestMade = true;
+      for (Shard shard : shards) {
+        shard.awaitTermination();
+      }
+    }
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of shards, i.e. of listener threads
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * For management purposes.
+   * @return the total number of pending notifications
+   */
+  public int getTaskQueueSize() {
+    int size = 0;
+    for (Shard shard : shards) {
+      size += shard.size();
+    }
+    return size;
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of pending notifications of every shard
+   */
+  public int[] getShardQueueSizes() {
+    int[] sizes = new int[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      sizes[i] = shards[i].size();
+    }
+    return sizes;
+  }
+
+  /**
+   * For management purposes.
+   * @return the time (in ms) the last notification of every shard waited before being passed to the listener
+   */
+  public long[] getShardLastLags() {
+    long[] lags = new long[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      lags[i] = TimeUnit.NANOSECONDS.toMillis(shards[i].lastLagNanos);
+    }
+    return lags;
+  }
+
+  /**
+   * For management purposes.
+   * @return the maximum time (in ms) a notification of every shard waited before being passed to the listener
+   */
+  public long[] getShardMaxLags() {
+    long[] lags = new long[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      lags[i] = TimeUnit.NANOSECONDS.toMillis(shards[i].maxLagNanos);
+    }
+    return lags;
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of notifications passed to the listener
+   */
+  public long getNotifiedCount() {
+    long count = 0;
+    for (Shard shard : shards) {
+      count += shard.notified;
+    }
+    return count;
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of updates replaced by a newer update before being notified
+   */
+  public long getCoalescedCount() {
+    long count = 0;
+    for (Shard shard : shards) {
+      count += shard.coalesced;
+    }
+    return count;
+  }
+
+  /**
+   * A pending notification. The object of a pending update may be replaced
+   * by a newer one when coalescing.
+   */
+  private final class Notification {
+
+    private final Long key;
+
+    private final SupportedMethods method;
+
+    private T cacheable;
+
+    /**
+     * Time of the first enqueue, used for measuring the lag.
+     */
+    private final long enqueuedNanos = System.nanoTime();
+
+    private Notification(final Long key, final T cacheable, final SupportedMethods method) {
+      this.key = key;
+      this.cacheable = cacheable;
+      this.method = method;
+    }
+  }
+
+  /**
+   * A bounded queue served by a single thread.
+   */
+  private final class Shard implements Runnable {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Condition stopped = lock.newCondition();
+
+    private final int capacity;
+
+    private final ArrayDeque<Notification> queue = new ArrayDeque<>();
+
+    /**
+     * The pending updates that can still be replaced, by key; only used when coalescing.
+     */
+    private final Map<Long, Notification> pendingUpdates = coalesce ? new HashMap<>() : null;
+
+    private volatile boolean terminated = false;
+
+    /** For management only */
+    private volatile long notified = 0;
+    private volatile long coalesced = 0;
+    private volatile long lastLagNanos = 0;
+    private volatile long maxLagNanos = 0;
+
+    private Shard(final int capacity) {
+      this.capacity = capacity;
+    }
+
+    private void put(final Long key, final T cacheable, final SupportedMethods method) throws InterruptedException {
+      lock.lock();
+      try {
+        if (pendingUpdates != null && key != null) {
+          if (method == SupportedMethods.ON_UPDATE) {
+            Notification pending = pendingUpdates.get(key);
+            if (pending != null) {
+              pending.cacheable = cacheable;
+              coalesced++;
+              return;
+            }
+          } else {
+            // later updates must not overtake this confirmation
+            pendingUpdates.remove(key);
+          }
+        }
+        while (queue.size() >= capacity) {
+          notFull.await();
+        }
+        Notification notification = new Notification(key, cacheable, method);
+        queue.addLast(notification);
+        if (pendingUpdates != null && key != null && method == SupportedMethods.ON_UPDATE) {
+          pendingUpdates.put(key, notification);
+        }
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * @return the next notification, or null if none arrived within the shutdown check interval
+     */
+    private Notification poll(final long timeoutMillis) throws InterruptedException {
+      lock.lock();
+      try {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (queue.isEmpty()) {
+          if (nanos <= 0) {
+            return null;
+          }
+          nanos = notEmpty.awaitNanos(nanos);
+        }
+        Notification notification = queue.pollFirst();
+        if (pendingUpdates != null && notification.key != null && pendingUpdates.get(notification.key) == notification) {
+          pendingUpdates.remove(notification.key);
+        }
+        notFull.signal();
+        return notification;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private int size() {
+      lock.lock();
+      try {
+        return queue.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Runs from start up to shutdown and passes the notifications of this shard to the listener.
+     */
+    @Override
+    public void run() {
+      try {
+        while (!shutdownRequestMade || size() > 0) {
+          try {
+            Notification notification = poll(shutdownRequestMade ? 0 : THREAD_SHUTDOWN_CHECK_INTERVAL);
+            if (notification != null) {
+              callCorrectMethod(notification);
+            }
+          } catch (InterruptedException e) {
+            log.warn("Cache Listener thread interrupted in ShardedCacheListener.", e);
+          }
+        }
+      } finally {
+        lock.lock();
+        try {
+          terminated = true;
+          stopped.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    private void callCorrectMethod(final Notification notification) {
+      long lag = System.nanoTime() - notification.enqueuedNanos;
+      lastLagNanos = lag;
+      if (lag > maxLagNanos) {
+        maxLagNanos = lag;
+      }
+      try {
+        if (notification.method == SupportedMethods.ON_UPDATE) {
+          c2monCacheListener.notifyElementUpdated(notification.cacheable);
+        } else {
+          c2monCacheListener.confirmStatus(notification.cacheable);
+        }
+      } catch (Exception e) {
+        log.error("Exception caught when notifying listener: the update could not be processed.", e);
+      }
+      notified++;
+    }
+
+    /**
+     * Wakes up the shard thread and waits until it has passed all pending notifications.
+     */
+    private void awaitTermination() {
+      lock.lock();
+      try {
+        notEmpty.signalAll();
+        while (!terminated) {
+          stopped.await();
+        }
+      } catch (InterruptedException ex) {
+        log.error("Interrupted while waiting for shutdown to complete", ex);
+        Thread.currentThread().interrupt();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
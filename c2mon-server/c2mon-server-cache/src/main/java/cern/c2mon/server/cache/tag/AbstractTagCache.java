@@ -30,6 +30,7 @@ import cern.c2mon.server.cache.C2monCacheWithSupervision;
 import cern.c2mon.server.cache.CacheSupervisionListener;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.common.AbstractCache;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import cern.c2mon.server.cache.loading.SimpleCacheLoaderDAO;
 import cern.c2mon.server.common.tag.AbstractTagCacheObject;
@@ -65,6 +66,16 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
   private final List<CacheSupervisionListener< ? super T>> listenersWithSupervision;
   private final ReentrantReadWriteLock listenerLock;
 
+  /**
+   * Index of the tag names, or null if the Ehcache search is used.
+   */
+  private final TagNameIndex nameIndex;
+
+  /**
+   * Set once the index contains all tags loaded in the cache.
+   */
+  private volatile boolean nameIndexLoaded = false;
+
   /**
    * Constructor.
    */
@@ -77,6 +88,63 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
     super(clusterCache, ehcache, cacheLoader, c2monCacheLoader, cacheLoaderDAO, properties);
     listenersWithSupervision = new ArrayList<>();
     listenerLock = new ReentrantReadWriteLock();
+    if (properties != null && properties.getTagNameIndex().isEnabled() && !properties.getMode().equalsIgnoreCase("multi")) {
+      nameIndex = new TagNameIndex(properties.getTagNameIndex().isTrigrams());
+    } else {
+      nameIndex = null;
+    }
+  }
+
+  /**
+   * Runs the common cache initialization and indexes the names of all tags
+   * present in the cache afterwards.
+   */
+  @Override
+  protected void commonInit() {
+    super.commonInit();
+    if (nameIndex != null) {
+      for (Long key : getKeys()) {
+        try {
+          nameIndex.put(key, get(key).getName());
+        } catch (CacheElementNotFoundException e) {
+          log.debug("Tag " + key + " removed from cache " + getCacheName() + " while indexing the tag names");
+        }
+      }
+      nameIndexLoaded = true;
+      log.info("Indexed the names of " + nameIndex.size() + " tags of cache " + getCacheName());
+    }
+  }
+
+  @Override
+  public void put(final Long key, final T value) {
+    super.put(key, value);
+    if (nameIndex != null) {
+      nameIndex.put(key, value.getName());
+    }
+  }
+
+  @Override
+  public void putQuiet(final T value) {
+    super.putQuiet(value);
+    if (nameIndex != null) {
+      nameIndex.put(value.getId(), value.getName());
+    }
+  }
+
+  @Override
+  public boolean remove(final Long id) {
+    boolean removed = super.remove(id);
+    if (nameIndex != null) {
+      nameIndex.remove(id);
+    }
+    return removed;
+  }
+
+  /**
+   * @return true if names are resolved with the {@link TagNameIndex}
+   */
+  private boolean useNameIndex() {
+    return nameIndex != null && nameIndexLoaded;
   }
 
 
@@ -131,6 +199,10 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
       name = name.replace("?", "\\?");
     }
 
+    if (useNameIndex()) {
+      return !nameIndex.find(name, 1).isEmpty();
+    }
+
     Results results = null;
 
     try {
@@ -186,8 +258,9 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
    * A regular expression matcher. '?' and '*' may be used.
    * The search is always case insensitive.
    * <p>
-   * WARN: Expressions starting with a leading wildcard character are
-   * potentially very expensive (ie. full scan) for indexed caches
+   * Unless disabled, the expression is resolved with the {@link TagNameIndex}
+   * of the cache. Otherwise, expressions starting with a leading wildcard
+   * character are potentially very expensive (ie. full scan).
    *
    * @param regex The regular expression including '?' and '*'
    * @param maxResults the maximum amount of results that shall be returned
@@ -216,6 +289,15 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
         }
       }
     }
+    else if (useNameIndex()) {
+      for (Long key : nameIndex.find(regex, maxResults)) {
+        try {
+          resultList.add(get(key));
+        } catch (CacheElementNotFoundException e) {
+          log.debug(String.format("findByNameWildcard() - Tag %d matching \"%s\" was removed from cache %s", key, regex, getCacheName()));
+        }
+      }
+    }
     else {
       try {
         Ehcache ehcache = getCache();
@@ -0,0 +1,63 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.tag;
+
+import lombok.Getter;
+
+/**
+ * The process, equipment and sub-equipment of a tag, with their names, as
+ * resolved by the {@link cern.c2mon.server.cache.TagHierarchyIndex}. Any of
+ * them is null if the tag has no such parent, a name is null if the parent
+ * was not found in its cache.
+ */
+@Getter
+public final class TagHierarchy {
+
+  /** Hierarchy of tags without any parent */
+  static final TagHierarchy NONE = new TagHierarchy(null, null, null, null, null, null);
+
+  private final Long processId;
+
+  private final String processName;
+
+  private final Long equipmentId;
+
+  private final String equipmentName;
+
+  private final Long subEquipmentId;
+
+  private final String subEquipmentName;
+
+  TagHierarchy(final Long processId, final String processName, final Long equipmentId, final String equipmentName,
+               final Long subEquipmentId, final String subEquipmentName) {
+    this.processId = processId;
+    this.processName = processName;
+    this.equipmentId = equipmentId;
+    this.equipmentName = equipmentName;
+    this.subEquipmentId = subEquipmentId;
+    this.subEquipmentName = subEquipmentName;
+  }
+
+  /**
+   * @return whether all parents of the tag were found in their caches
+   */
+  boolean isResolved() {
+    return (processId == null || processName != null)
+        && (equipmentId == null || equipmentName != null)
+        && (subEquipmentId == null || subEquipmentName != null);
+  }
+}
@@ -0,0 +1,197 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.tag;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import cern.c2mon.server.cache.EquipmentCache;
+import cern.c2mon.server.cache.ProcessCache;
+import cern.c2mon.server.cache.SubEquipmentCache;
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.cache.TagLocationService;
+import cern.c2mon.server.cache.config.CacheProperties;
+import cern.c2mon.server.common.tag.Tag;
+
+/**
+ * Spring bean implementation of the {@link TagHierarchyIndex}.
+ *
+ * <p>The hierarchies are kept in a concurrent map by tag id, so that indexed
+ * tags are looked up without locking. As processes, equipment and
+ * sub-equipment are only reconfigured occasionally, their invalidation does
+ * not look for the tags below them but increments a generation: entries
+ * resolved in a previous generation are resolved again on their next lookup.
+ * Hierarchies with a parent missing from its cache are not indexed, so that
+ * they are resolved again once the parent is loaded.
+ *
+ * <p>Only the configuration changes applied on the local server invalidate
+ * the index. In "multi" cache mode the hierarchies are therefore resolved on
+ * every lookup and never indexed.
+ */
+@Slf4j
+@Service
+public class TagHierarchyIndexImpl implements TagHierarchyIndex {
+
+  private final TagLocationService tagLocationService;
+
+  private final ProcessCache processCache;
+
+  private final EquipmentCache equipmentCache;
+
+  private final SubEquipmentCache subEquipmentCache;
+
+  /**
+   * False if the resolved hierarchies must not be indexed
+   */
+  private final boolean enabled;
+
+  private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+  /** Incremented by every invalidation of a process, equipment or sub-equipment */
+  private final AtomicLong generation = new AtomicLong();
+
+  /** Incremented by every invalidation of a tag */
+  private final AtomicLong tagInvalidations = new AtomicLong();
+
+  @Autowired
+  public TagHierarchyIndexImpl(final TagLocationService tagLocationService, final ProcessCache processCache,
+                               final EquipmentCache equipmentCache, final SubEquipmentCache subEquipmentCache,
+                               final CacheProperties cacheProperties) {
+    this.tagLocationService = tagLocationService;
+    this.processCache = processCache;
+    this.equipmentCache = equipmentCache;
+    this.subEquipmentCache = subEquipmentCache;
+    this.enabled = !cacheProperties.getMode().equalsIgnoreCase("multi");
+    if (!enabled) {
+      log.info("Tag hierarchy index disabled - the tag parents are resolved on every lookup");
+    }
+  }
+
+  @Override
+  public TagHierarchy get(final Tag tag) {
+    TagHierarchy hierarchy = getIndexed(tag.getId());
+    return hierarchy != null ? hierarchy : index(tag);
+  }
+
+  @Override
+  public TagHierarchy get(final Long tagId) {
+    TagHierarchy hierarchy = getIndexed(tagId);
+    return hierarchy != null ? hierarchy : index(tagLocationService.get(tagId));
+  }
+
+  private TagHierarchy getIndexed(final Long tagId) {
+    Entry entry = entries.get(tagId);
+    return entry != null && entry.generation == generation.get() ? entry.hierarchy : null;
+  }
+
+  private TagHierarchy index(final Tag tag) {
+    // read before resolving, so that any invalidation during the resolution
+    // leaves the new entry stale or removes it
+    long currentGeneration = generation.get();
+    long currentTagInvalidations = tagInvalidations.get();
+
+    TagHierarchy hierarchy = resolve(tag);
+    if (enabled && hierarchy.isResolved()) {
+      Entry entry = new Entry(hierarchy, currentGeneration);
+      entries.put(tag.getId(), entry);
+      if (tagInvalidations.get() != currentTagInvalidations) {
+        entries.remove(tag.getId(), entry);
+      }
+    }
+    return hierarchy;
+  }
+
+  private TagHierarchy resolve(final Tag tag) {
+    Long processId = first(tag.getProcessIds());
+    Long equipmentId = first(tag.getEquipmentIds());
+    Long subEquipmentId = first(tag.getSubEquipmentIds());
+    if (processId == null && equipmentId == null && subEquipmentId == null) {
+      return TagHierarchy.NONE;
+    }
+    return new TagHierarchy(
+        processId, processId == null ? null : getName(tag, "Process", () -> processCache.get(processId).getName()),
+        equipmentId, equipmentId == null ? null : getName(tag, "Equipment", () -> equipmentCache.get(equipmentId).getName()),
+        subEquipmentId, subEquipmentId == null ? null : getName(tag, "SubEquipment", () -> subEquipmentCache.get(subEquipmentId).getName()));
+  }
+
+  private static Long first(final Set<Long> ids) {
+    return ids == null || ids.isEmpty() ? null : ids.iterator().next();
+  }
+
+  private static String getName(final Tag tag, final String parent, final Supplier<String> name) {
+    try {
+      return name.get();
+    } catch (Exception e) {
+      log.warn("Could not get {} name for tag #{} ({}) from cache. Reason: {}", parent, tag.getId(), tag.getName(), e.getMessage());
+      return null;
+    }
+  }
+
+  @Override
+  public void invalidateTag(final Long tagId) {
+    tagInvalidations.incrementAndGet();
+    entries.remove(tagId);
+  }
+
+  @Override
+  public void invalidateProcess(final Long processId) {
+    generation.incrementAndGet();
+  }
+
+  @Override
+  public void invalidateEquipment(final Long equipmentId) {
+    generation.incrementAndGet();
+  }
+
+  @Override
+  public void invalidateSubEquipment(final Long subEquipmentId) {
+    generation.incrementAndGet();
+  }
+
+  @Override
+  public void clear() {
+    generation.incrementAndGet();
+    entries.clear();
+  }
+
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Indexed hierarchy, valid as long as its generation is current.
+   */
+  private static final class Entry {
+
+    private final TagHierarchy hierarchy;
+
+    private final long generation;
+
+    private Entry(final TagHierarchy hierarchy, final long generation) {
+      this.hierarchy = hierarchy;
+      this.generation = generation;
+    }
+  }
+}
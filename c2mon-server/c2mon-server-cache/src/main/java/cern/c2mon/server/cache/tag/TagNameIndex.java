@@ -0,0 +1,305 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.tag;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Case insensitive index of tag names, used for resolving the wildcard
+ * expressions of {@link AbstractTagCache#findByNameWildcard(String)} without
+ * scanning the whole cache.
+ *
+ * <p>The names are kept in a sorted map, which resolves exact names and
+ * expressions with a literal prefix (e.g. <code>CP.MEAS.*</code>) by a range
+ * lookup. If enabled, a trigram index (all sequences of three characters of
+ * the names) resolves expressions with a leading wildcard or a short prefix
+ * (e.g. <code>*TEMPERATURE*</code>) by intersecting the tags containing the
+ * trigrams of the literal parts of the expression. All candidates are
+ * finally matched against the complete expression.
+ *
+ * <p>The expressions follow the syntax of the Ehcache <code>ilike</code>
+ * criteria: '*' matches any sequence of characters, '?' exactly one
+ * character and '\' escapes the following character.
+ */
+public class TagNameIndex {
+
+  /** Length of the n-grams of the trigram index */
+  private static final int GRAM_LENGTH = 3;
+
+  /** Tag ids by lower case name, sorted by name */
+  private final NavigableMap<String, Set<Long>> idsByName = new ConcurrentSkipListMap<>();
+
+  /** The lower case name under which every tag is indexed */
+  private final Map<Long, String> namesById = new ConcurrentHashMap<>();
+
+  /** Tag ids by trigram of their lower case name, or null if disabled */
+  private final Map<String, Set<Long>> idsByTrigram;
+
+  /**
+   * @param trigrams whether expressions with a leading wildcard should be
+   *                 resolved with a trigram index, at the cost of additional
+   *                 memory per tag
+   */
+  public TagNameIndex(final boolean trigrams) {
+    this.idsByTrigram = trigrams ? new ConcurrentHashMap<>() : null;
+  }
+
+  /**
+   * Indexes the tag under the given name, replacing its previous name. As
+   * this is called on every cache put, an unchanged name returns without
+   * locking the index.
+   *
+   * @param tagId the tag id
+   * @param tagName the current name of the tag, or null for removing the tag
+   */
+  public void put(final Long tagId, final String tagName) {
+    if (tagName == null) {
+      remove(tagId);
+      return;
+    }
+    String name = tagName.toLowerCase(Locale.ROOT);
+    if (!name.equals(namesById.get(tagId))) {
+      index(tagId, name);
+    }
+  }
+
+  private synchronized void index(final Long tagId, final String name) {
+    String previous = namesById.put(tagId, name);
+    if (name.equals(previous)) {
+      return;
+    }
+    if (previous != null) {
+      unindex(tagId, previous);
+    }
+    idsByName.computeIfAbsent(name, k -> ConcurrentHashMap.newKeySet()).add(tagId);
+    if (idsByTrigram != null) {
+      for (String trigram : trigrams(name)) {
+        idsByTrigram.computeIfAbsent(trigram, k -> ConcurrentHashMap.newKeySet()).add(tagId);
+      }
+    }
+  }
+
+  /**
+   * @param tagId the id of the tag to remove from the index
+   */
+  public synchronized void remove(final Long tagId) {
+    String previous = namesById.remove(tagId);
+    if (previous != null) {
+      unindex(tagId, previous);
+    }
+  }
+
+  /**
+   * Removes all tags from the index.
+   */
+  public synchronized void clear() {
+    idsByName.clear();
+    namesById.clear();
+    if (idsByTrigram != null) {
+      idsByTrigram.clear();
+    }
+  }
+
+  /**
+   * @return the number of indexed tags
+   */
+  public int size() {
+    return namesById.size();
+  }
+
+  /**
+   * Returns the ids of the tags whose name matches the given expression,
+   * ignoring case.
+   *
+   * @param expression the name expression, including '?' and '*' wildcards
+   * @param maxResults the maximum number of returned ids
+   * @return the matching tag ids, at most <code>maxResults</code>
+   */
+  public List<Long> find(final String expression, final int maxResults) {
+    NameExpression parsed = new NameExpression(expression.toLowerCase(Locale.ROOT));
+    List<Long> result = new ArrayList<>();
+
+    if (!parsed.hasWildcards) {
+      Set<Long> tagIds = idsByName.get(parsed.prefix);
+      if (tagIds != null) {
+        addAll(result, tagIds, maxResults);
+      }
+      return result;
+    }
+
+    Set<String> trigrams = idsByTrigram == null ? Collections.emptySet() : parsed.trigrams();
+    if (parsed.prefix.length() >= GRAM_LENGTH || trigrams.isEmpty()) {
+      Map<String, Set<Long>> candidates = parsed.prefix.isEmpty()
+          ? idsByName : idsByName.subMap(parsed.prefix, true, parsed.prefix + Character.MAX_VALUE, true);
+      for (Map.Entry<String, Set<Long>> entry : candidates.entrySet()) {
+        if (result.size() >= maxResults) {
+          break;
+        }
+        if (parsed.matches(entry.getKey())) {
+          addAll(result, entry.getValue(), maxResults);
+        }
+      }
+    } else {
+      for (Long tagId : intersect(trigrams)) {
+        if (result.size() >= maxResults) {
+          break;
+        }
+        String name = namesById.get(tagId);
+        if (name != null && parsed.matches(name)) {
+          result.add(tagId);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the ids of the tags containing all given trigrams
+   */
+  private Collection<Long> intersect(final Set<String> trigrams) {
+    List<Set<Long>> postings = new ArrayList<>(trigrams.size());
+    for (String trigram : trigrams) {
+      Set<Long> tagIds = idsByTrigram.get(trigram);
+      if (tagIds == null) {
+        return Collections.emptyList();
+      }
+      postings.add(tagIds);
+    }
+    postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+    Collection<Long> result = new ArrayList<>();
+    for (Long tagId : postings.get(0)) {
+      boolean inAll = true;
+      for (int i = 1; i < postings.size() && inAll; i++) {
+        inAll = postings.get(i).contains(tagId);
+      }
+      if (inAll) {
+        result.add(tagId);
+      }
+    }
+    return result;
+  }
+
+  private void unindex(final Long tagId, final String name) {
+    removeFromIndex(idsByName, name, tagId);
+    if (idsByTrigram != null) {
+      for (String trigram : trigrams(name)) {
+        removeFromIndex(idsByTrigram, trigram, tagId);
+      }
+    }
+  }
+
+  private static void removeFromIndex(final Map<String, Set<Long>> index, final String key, final Long tagId) {
+    Set<Long> tagIds = index.get(key);
+    if (tagIds != null) {
+      tagIds.remove(tagId);
+      if (tagIds.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private static void addAll(final List<Long> result, final Set<Long> tagIds, final int maxResults) {
+    for (Long tagId : tagIds) {
+      if (result.size() >= maxResults) {
+        return;
+      }
+      result.add(tagId);
+    }
+  }
+
+  private static Set<String> trigrams(final String literal) {
+    Set<String> trigrams = new HashSet<>();
+    for (int i = 0; i + GRAM_LENGTH <= literal.length(); i++) {
+      trigrams.add(literal.substring(i, i + GRAM_LENGTH));
+    }
+    return trigrams;
+  }
+
+  /**
+   * A parsed lower case name expression.
+   */
+  private static final class NameExpression {
+
+    /** The literal characters before the first wildcard */
+    private final String prefix;
+
+    /** The literal parts of the expression between the wildcards */
+    private final List<String> literals = new ArrayList<>();
+
+    private final boolean hasWildcards;
+
+    private final Pattern pattern;
+
+    private NameExpression(final String expression) {
+      StringBuilder regex = new StringBuilder();
+      StringBuilder literal = new StringBuilder();
+      String literalPrefix = null;
+
+      for (int i = 0; i < expression.length(); i++) {
+        char c = expression.charAt(i);
+        if (c == '*' || c == '?') {
+          if (literalPrefix == null) {
+            literalPrefix = literal.toString();
+          }
+          addLiteral(regex, literal);
+          regex.append(c == '*' ? ".*" : ".");
+        } else {
+          if (c == '\\' && i + 1 < expression.length()) {
+            c = expression.charAt(++i);
+          }
+          literal.append(c);
+        }
+      }
+      this.hasWildcards = literalPrefix != null;
+      this.prefix = hasWildcards ? literalPrefix : literal.toString();
+      addLiteral(regex, literal);
+      this.pattern = hasWildcards ? Pattern.compile(regex.toString(), Pattern.DOTALL) : null;
+    }
+
+    private void addLiteral(final StringBuilder regex, final StringBuilder literal) {
+      if (literal.length() > 0) {
+        literals.add(literal.toString());
+        regex.append(Pattern.quote(literal.toString()));
+        literal.setLength(0);
+      }
+    }
+
+    private Set<String> trigrams() {
+      Set<String> result = new HashSet<>();
+      for (String literal : literals) {
+        result.addAll(TagNameIndex.trigrams(literal));
+      }
+      return result;
+    }
+
+    private boolean matches(final String name) {
+      return pattern.matcher(name).matches();
+    }
+  }
+}
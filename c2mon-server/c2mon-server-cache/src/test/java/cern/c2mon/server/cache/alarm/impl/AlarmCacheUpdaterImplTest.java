@@ -30,6 +30,7 @@ import org.junit.Test;
 
 import cern.c2mon.server.cache.AlarmCache;
 import cern.c2mon.server.cache.alarm.config.OscillationProperties;
+import cern.c2mon.server.cache.alarm.oscillation.OscillationExpiryQueue;
 import cern.c2mon.server.cache.alarm.oscillation.OscillationUpdater;
 import cern.c2mon.server.common.alarm.AlarmCacheObject;
 import cern.c2mon.server.common.datatag.DataTagCacheObject;
@@ -53,7 +54,7 @@ public class AlarmCacheUpdaterImplTest {
     oscillationProperties = new OscillationProperties();
     oscillationProperties.setOscNumbers(3);
     oscillationProperties.setTimeRange(50);
-    oscUpdater = new OscillationUpdater(oscillationProperties);
+    oscUpdater = new OscillationUpdater(oscillationProperties, new OscillationExpiryQueue());
     alarmCacheUpdaterImpl = new AlarmCacheUpdaterImpl(alarmCache, oscUpdater);
 
     alarmCacheObject = new AlarmCacheObject();
@@ -96,7 +97,7 @@ public class AlarmCacheUpdaterImplTest {
     assertFalse(alarmCacheObject.isOscillating());
     assertEquals(tag.getTimestamp(), alarmCacheObject.getSourceTimestamp());
     assertNotEquals(oldAlarmTime, alarmCacheObject.getTimestamp());
-    assertEquals(Long.valueOf(tag.getTimestamp().getTime()), alarmCacheObject.getFifoSourceTimestamps().getFirst());
+    assertEquals(tag.getTimestamp().getTime(), alarmCacheObject.getFifoSourceTimestamps().getFirst());
   }
 
   /**
@@ -241,7 +242,7 @@ public class AlarmCacheUpdaterImplTest {
     assertTrue(alarmCacheObject.isOscillating());
     assertNotEquals(tag.getTimestamp(), alarmCacheObject.getSourceTimestamp());
     assertEquals(oldAlarmTime, alarmCacheObject.getTimestamp());
-    assertEquals(Long.valueOf(tag.getTimestamp().getTime()), alarmCacheObject.getFifoSourceTimestamps().getFirst());
+    assertEquals(tag.getTimestamp().getTime(), alarmCacheObject.getFifoSourceTimestamps().getFirst());
   }
 
   private void testCommitAlarmStateChangeWithOscillationDetect(short mode) {
@@ -270,6 +271,6 @@ public class AlarmCacheUpdaterImplTest {
     assertTrue(alarmCacheObject.isOscillating());
     assertEquals(tag.getTimestamp(), alarmCacheObject.getSourceTimestamp());
     assertNotEquals(oldAlarmTime, alarmCacheObject.getTimestamp());
-    assertEquals(Long.valueOf(tag.getTimestamp().getTime()), alarmCacheObject.getFifoSourceTimestamps().getLast());
+    assertEquals(tag.getTimestamp().getTime(), alarmCacheObject.getFifoSourceTimestamps().getLast());
   }
 }
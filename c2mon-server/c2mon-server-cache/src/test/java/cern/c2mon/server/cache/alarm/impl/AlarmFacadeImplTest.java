@@ -29,6 +29,7 @@ import org.junit.Test;
 import cern.c2mon.server.cache.AlarmCache;
 import cern.c2mon.server.cache.TagLocationService;
 import cern.c2mon.server.cache.alarm.config.OscillationProperties;
+import cern.c2mon.server.cache.alarm.oscillation.OscillationExpiryQueue;
 import cern.c2mon.server.cache.alarm.oscillation.OscillationUpdater;
 import cern.c2mon.server.common.alarm.AlarmCacheObject;
 import cern.c2mon.server.common.datatag.DataTagCacheObject;
@@ -59,7 +60,7 @@ public class AlarmFacadeImplTest {
   public void setup() {
     alarmCache = EasyMock.createNiceMock(AlarmCache.class);
     tagLocationService = EasyMock.createStrictMock(TagLocationService.class);
-    OscillationUpdater oscillationUpdater = new OscillationUpdater(new OscillationProperties());
+    OscillationUpdater oscillationUpdater = new OscillationUpdater(new OscillationProperties(), new OscillationExpiryQueue());
     alarmCacheUpdater = new AlarmCacheUpdaterImpl(alarmCache, oscillationUpdater);
     notifier = EasyMock.createNiceMock(AlarmAggregatorNotifier.class);
     alarmFacadeImpl = new AlarmFacadeImpl(alarmCache, tagLocationService, alarmCacheUpdater, notifier);
@@ -19,6 +19,7 @@ package cern.c2mon.server.cache.alarm.oscillation;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.Timestamp;
@@ -31,7 +32,6 @@ import org.junit.Test;
 
 import cern.c2mon.server.cache.AlarmCache;
 import cern.c2mon.server.cache.AlarmFacade;
-import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.TagFacadeGateway;
 import cern.c2mon.server.cache.alarm.config.OscillationProperties;
 import cern.c2mon.server.cache.alarm.impl.AlarmCacheUpdaterImpl;
@@ -44,8 +44,9 @@ import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
 
 public class OscillationUpdateCheckerTest {
 
-  private ClusterCache clusterCache;
   private OscillationUpdateChecker oscillationUpdateChecker;
+  private OscillationExpiryQueue expiryQueue;
+  private OscillationUpdater oscillationUpdater;
   private AlarmCacheObject alarm;
   private DataTagCacheObject tag;
   private AlarmCache alarmCache;
@@ -55,13 +56,13 @@ public class OscillationUpdateCheckerTest {
   @Before
   public void setup() {
     alarmCache = EasyMock.createStrictMock(AlarmCache.class);
-    clusterCache = EasyMock.createNiceMock(ClusterCache.class);
     tagFacadeGateway = EasyMock.createStrictMock(TagFacadeGateway.class);
     oscillationProperties = new OscillationProperties();
-    OscillationUpdater oscillationUpdater = new OscillationUpdater(oscillationProperties);
+    expiryQueue = new OscillationExpiryQueue();
+    oscillationUpdater = new OscillationUpdater(oscillationProperties, expiryQueue);
     AlarmCacheUpdater alarmCacheUpdater = new AlarmCacheUpdaterImpl(alarmCache, oscillationUpdater);
     AlarmFacade alarmFacade = EasyMock.createNiceMock(AlarmFacade.class);
-    oscillationUpdateChecker = new OscillationUpdateChecker(alarmCache, clusterCache, oscillationUpdater, alarmCacheUpdater, tagFacadeGateway, alarmFacade);
+    oscillationUpdateChecker = new OscillationUpdateChecker(alarmCache, oscillationUpdater, expiryQueue, alarmCacheUpdater, tagFacadeGateway, alarmFacade);
 
     tag = new DataTagCacheObject();
     tag.setId(987L);
@@ -93,9 +94,12 @@ public class OscillationUpdateCheckerTest {
     assertEquals("", alarm.getInfo());
     assertNotEquals(tag.getTimestamp(), alarm.getSourceTimestamp());
 
-    recordMockCallsForNoOscillatingAlarm();
-    oscillationUpdateChecker.run();
-    EasyMock.verify(clusterCache, alarmCache);
+    EasyMock.expect(alarmCache.findAlarm(oscillationUpdateChecker.alarmCacheQuery)).andReturn(new ArrayList<Long>());
+    EasyMock.replay(alarmCache, tagFacadeGateway);
+    long now = System.currentTimeMillis();
+    oscillationUpdateChecker.scheduleOscillatingAlarms(now);
+    assertEquals(0, oscillationUpdateChecker.checkExpiries(now));
+    EasyMock.verify(alarmCache, tagFacadeGateway);
 
     assertFalse(alarm.isOscillating());
     assertTrue(alarm.isInternalActive());
@@ -114,7 +118,7 @@ public class OscillationUpdateCheckerTest {
     assertNotEquals(tag.getTimestamp(), alarm.getSourceTimestamp());
 
     recordMockCallsForOscillatingAlarm();
-    oscillationUpdateChecker.run();
+    checkOscillatingAlarms();
     checkResult(false);
   }
 
@@ -134,24 +138,27 @@ public class OscillationUpdateCheckerTest {
     assertNotEquals(tag.getTimestamp(), alarm.getSourceTimestamp());
 
     // record mocks
-    EasyMock.reset(clusterCache, alarmCache, tagFacadeGateway);
-    clusterCache.acquireWriteLockOnKey(OscillationUpdateChecker.LAST_CHECK_LONG);
-    EasyMock.expect(clusterCache.getCopy(OscillationUpdateChecker.LAST_CHECK_LONG))
-        .andReturn(Long.valueOf(OscillationUpdateChecker.SCAN_INTERVAL - 1000L));
     EasyMock.expect(alarmCache.findAlarm(oscillationUpdateChecker.alarmCacheQuery)).andReturn(Arrays.asList(alarm.getId()));
     EasyMock.expect(alarmCache.getCopy(alarm.getId())).andReturn(alarm);
-    EasyMock.replay(clusterCache, alarmCache, tagFacadeGateway);
+    EasyMock.replay(alarmCache, tagFacadeGateway);
 
     // start test
-    oscillationUpdateChecker.run();
+    checkOscillatingAlarms();
 
     // Verify result
-    EasyMock.verify(clusterCache, alarmCache, tagFacadeGateway);
+    EasyMock.verify(alarmCache, tagFacadeGateway);
     assertTrue(alarm.isOscillating());
     assertTrue(alarm.isInternalActive()); // remains unchanged as the evaluation does not take place
     assertEquals(true, alarm.isActive());
     assertEquals("[OSC]", alarm.getInfo());
     assertNotEquals(tag.getTimestamp(), alarm.getSourceTimestamp());
+
+    // the alarm is checked again once its oscillation expires
+    long expiry = oscillationUpdater.getOscillationExpiry(alarm);
+    assertEquals(currentTime - 10000 + oscillationProperties.getTimeOscillationAlive() * 1000L, expiry);
+    assertEquals(1, expiryQueue.size());
+    assertNull(expiryQueue.poll(expiry - 1));
+    assertEquals(alarm.getId(), expiryQueue.poll(expiry));
   }
 
   /**
@@ -168,7 +175,7 @@ public class OscillationUpdateCheckerTest {
     assertNotEquals(tag.getTimestamp(), alarm.getSourceTimestamp());
 
     recordMockCallsForOscillatingAlarm();
-    oscillationUpdateChecker.run();
+    checkOscillatingAlarms();
     checkResult(true);
   }
 
@@ -184,7 +191,7 @@ public class OscillationUpdateCheckerTest {
     assertNotEquals(tag.getTimestamp(), alarm.getSourceTimestamp());
 
     recordMockCallsForOscillatingAlarm();
-    oscillationUpdateChecker.run();
+    checkOscillatingAlarms();
     checkResult(false);
   }
 
@@ -204,29 +211,86 @@ public class OscillationUpdateCheckerTest {
     assertNotEquals(tag.getTimestamp(), alarm.getSourceTimestamp());
 
     recordMockCallsForOscillatingAlarm();
-    oscillationUpdateChecker.run();
+    checkOscillatingAlarms();
     checkResult(true);
   }
 
-  private void recordMockCallsForOscillatingAlarm() {
-    EasyMock.reset(clusterCache, alarmCache, tagFacadeGateway);
-    clusterCache.acquireWriteLockOnKey(OscillationUpdateChecker.LAST_CHECK_LONG);
-    EasyMock.expect(clusterCache.getCopy(OscillationUpdateChecker.LAST_CHECK_LONG))
-        .andReturn(Long.valueOf(OscillationUpdateChecker.SCAN_INTERVAL - 1000L));
-    EasyMock.expect(alarmCache.findAlarm(oscillationUpdateChecker.alarmCacheQuery)).andReturn(Arrays.asList(alarm.getId()));
+  /**
+   * The expiry is scheduled by the {@link OscillationUpdater} when the alarm starts oscillating,
+   * and postponed by every further state change.
+   */
+  @Test
+  public void testExpiryScheduledByOscillationUpdater() {
+    alarm.getFifoSourceTimestamps().clear();
+    long sourceTimestamp = System.currentTimeMillis() - 500000L;
+    for (int i = 0; i <= oscillationProperties.getOscNumbers(); i++) {
+      sourceTimestamp += 1000L;
+      assertEquals(0, expiryQueue.size());
+      oscillationUpdater.updateOscillationStatus(alarm, sourceTimestamp);
+    }
+    assertTrue(alarm.isOscillating());
+    assertEquals(1, expiryQueue.size());
+    long firstExpiry = oscillationUpdater.getOscillationExpiry(alarm);
+
+    sourceTimestamp += 1000L;
+    oscillationUpdater.updateOscillationStatus(alarm, sourceTimestamp);
+    assertEquals(1, expiryQueue.size());
+    assertNull(expiryQueue.poll(firstExpiry));
+
+    EasyMock.replay(alarmCache, tagFacadeGateway);
+    assertEquals(0, oscillationUpdateChecker.checkExpiries(firstExpiry));
+    EasyMock.verify(alarmCache, tagFacadeGateway);
+    assertEquals(alarm.getId(), expiryQueue.poll(firstExpiry + 1000L));
+  }
+
+  /**
+   * An alarm flagged as oscillating by another server is not in the local
+   * expiry queue until the periodic scan, which keeps the expiry of the
+   * alarms already scheduled.
+   */
+  @Test
+  public void testAlarmFlaggedOnAnotherServerIsScheduled() {
+    setOscillating(alarm);
+    long now = System.currentTimeMillis();
+    expiryQueue.schedule(456L, now + 5000L);
+
+    EasyMock.expect(alarmCache.findAlarm(oscillationUpdateChecker.alarmCacheQuery)).andReturn(Arrays.asList(alarm.getId(), 456L));
+    EasyMock.replay(alarmCache, tagFacadeGateway);
+    assertEquals(1, oscillationUpdateChecker.scheduleOscillatingAlarms(now));
+    EasyMock.verify(alarmCache, tagFacadeGateway);
+
+    assertEquals(2, expiryQueue.size());
+    assertEquals(Long.valueOf(now), expiryQueue.getDeadline(alarm.getId()));
+    assertEquals(Long.valueOf(now + 5000L), expiryQueue.getDeadline(456L));
+
+    EasyMock.reset(alarmCache, tagFacadeGateway);
     EasyMock.expect(alarmCache.getCopy(alarm.getId())).andReturn(alarm);
     alarmCache.put(alarm.getId(), alarm);
     EasyMock.expect(tagFacadeGateway.getTag(alarm.getDataTagId())).andReturn(tag);
-    EasyMock.replay(clusterCache, alarmCache, tagFacadeGateway);
+    EasyMock.replay(alarmCache, tagFacadeGateway);
+    assertEquals(1, oscillationUpdateChecker.checkExpiries(now));
+    EasyMock.verify(alarmCache, tagFacadeGateway);
+    assertFalse(alarm.isOscillating());
+    assertEquals(1, expiryQueue.size());
   }
 
-  private void recordMockCallsForNoOscillatingAlarm() {
-    EasyMock.reset(clusterCache, alarmCache, tagFacadeGateway);
-    clusterCache.acquireWriteLockOnKey(OscillationUpdateChecker.LAST_CHECK_LONG);
-    EasyMock.expect(clusterCache.getCopy(OscillationUpdateChecker.LAST_CHECK_LONG))
-        .andReturn(Long.valueOf(OscillationUpdateChecker.SCAN_INTERVAL - 1000L));
-    EasyMock.expect(alarmCache.findAlarm(oscillationUpdateChecker.alarmCacheQuery)).andReturn(new ArrayList<Long>());
-    EasyMock.replay(clusterCache, alarmCache, tagFacadeGateway);
+  /**
+   * Simulates the start up: the oscillating alarms of the cache are
+   * scheduled and checked once due.
+   */
+  private void checkOscillatingAlarms() {
+    long now = System.currentTimeMillis();
+    oscillationUpdateChecker.scheduleOscillatingAlarms(now);
+    assertEquals(1, oscillationUpdateChecker.checkExpiries(now));
+  }
+
+  private void recordMockCallsForOscillatingAlarm() {
+    EasyMock.reset(alarmCache, tagFacadeGateway);
+    EasyMock.expect(alarmCache.findAlarm(oscillationUpdateChecker.alarmCacheQuery)).andReturn(Arrays.asList(alarm.getId()));
+    EasyMock.expect(alarmCache.getCopy(alarm.getId())).andReturn(alarm);
+    alarmCache.put(alarm.getId(), alarm);
+    EasyMock.expect(tagFacadeGateway.getTag(alarm.getDataTagId())).andReturn(tag);
+    EasyMock.replay(alarmCache, tagFacadeGateway);
   }
 
   private void setOscillating(AlarmCacheObject alarm) {
@@ -237,11 +301,12 @@ public class OscillationUpdateCheckerTest {
   }
 
   private void checkResult(boolean expectedAlarmStatus) {
-    EasyMock.verify(clusterCache, alarmCache, tagFacadeGateway);
+    EasyMock.verify(alarmCache, tagFacadeGateway);
 
     assertFalse(alarm.isOscillating());
     assertEquals(expectedAlarmStatus, alarm.isActive());
     assertEquals("", alarm.getInfo());
     assertEquals(tag.getTimestamp(), alarm.getSourceTimestamp());
+    assertEquals(0, expiryQueue.size());
   }
 }
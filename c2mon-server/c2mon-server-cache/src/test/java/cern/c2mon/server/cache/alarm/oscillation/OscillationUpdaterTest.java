@@ -58,7 +58,7 @@ public class OscillationUpdaterTest {
     oscillationProperties.setOscNumbers(3);
     oscillationProperties.setTimeRange(50);
 
-    oscUpdater = new OscillationUpdater(oscillationProperties);
+    oscUpdater = new OscillationUpdater(oscillationProperties, new OscillationExpiryQueue());
     dataTagCacheObject = new DataTagCacheObject();
 
 
@@ -0,0 +1,86 @@
+package cern.c2mon.server.cache.common;
+
+import org.junit.Test;
+
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+import cern.c2mon.server.test.CacheObjectComparison;
+import cern.c2mon.server.test.CacheObjectCreation;
+import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class CopyStrategyTest {
+
+  @Test
+  public void testDataTagCopiesAreEqual() {
+    DataTagCacheObject dataTag = CacheObjectCreation.createTestDataTag();
+    dataTag.getMetadata().addMetadata("key", "value");
+
+    for (CopyStrategy strategy : CopyStrategy.values()) {
+      DataTagCacheObject copy = strategy.copy(dataTag);
+      assertNotSame(dataTag, copy);
+      CacheObjectComparison.equals(dataTag, copy);
+      assertEquals(dataTag.getMetadata().getMetadata(), copy.getMetadata().getMetadata());
+    }
+  }
+
+  @Test
+  public void testDataTagCopiesAreIndependent() {
+    DataTagCacheObject dataTag = CacheObjectCreation.createTestDataTag();
+
+    for (CopyStrategy strategy : CopyStrategy.values()) {
+      DataTagCacheObject copy = strategy.copy(dataTag);
+      copy.getMetadata().addMetadata("copyOnly", strategy.name());
+      copy.getAlarmIds().add(-1L);
+      copy.getDataTagQuality().setInvalidStatus(TagQualityStatus.INACCESSIBLE);
+
+      assertFalse(dataTag.getMetadata().getMetadata().containsKey("copyOnly"));
+      assertFalse(dataTag.getAlarmIds().contains(-1L));
+      assertTrue(dataTag.getDataTagQuality().isValid());
+    }
+  }
+
+  @Test
+  public void testAlarmCopiesAreIndependent() {
+    AlarmCacheObject alarm = CacheObjectCreation.createTestAlarm1();
+    alarm.getFifoSourceTimestamps().add(1L);
+
+    for (CopyStrategy strategy : CopyStrategy.values()) {
+      AlarmCacheObject copy = strategy.copy(alarm);
+      CacheObjectComparison.equals(alarm, copy);
+      copy.getFifoSourceTimestamps().add(2L);
+      assertEquals(1, alarm.getFifoSourceTimestamps().size());
+    }
+  }
+
+  @Test
+  public void testRuleTagCopiesAreEqual() {
+    RuleTagCacheObject ruleTag = CacheObjectCreation.createTestRuleTag();
+
+    for (CopyStrategy strategy : CopyStrategy.values()) {
+      RuleTagCacheObject copy = strategy.copy(ruleTag);
+      CacheObjectComparison.equalsTag(ruleTag, copy);
+      assertEquals(ruleTag.getRuleText(), copy.getRuleText());
+      assertEquals(ruleTag.getRuleInputTagIds(), copy.getRuleInputTagIds());
+    }
+  }
+
+  @Test
+  public void testProcessCopiesAreIndependent() {
+    ProcessCacheObject process = CacheObjectCreation.createTestProcess1();
+
+    for (CopyStrategy strategy : CopyStrategy.values()) {
+      ProcessCacheObject copy = (ProcessCacheObject) strategy.copy(process);
+      assertEquals(process.getName(), copy.getName());
+      assertEquals(process.getEquipmentIds(), copy.getEquipmentIds());
+      copy.getEquipmentIds().add(-1L);
+      assertFalse(process.getEquipmentIds().contains(-1L));
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the NotificationBuffer used by the buffered cache listeners.
+ */
+public class NotificationBufferTest {
+
+  @Test
+  public void testUnboundedBufferKeepsAllNotifications() throws InterruptedException {
+    NotificationBuffer<String> buffer = new NotificationBuffer<>();
+    buffer.put(1L, "a");
+    buffer.put(1L, "b");
+    buffer.put(2L, "c");
+
+    assertEquals(Arrays.asList("a", "b", "c"), drain(buffer, 100));
+    assertEquals(0, buffer.getCoalescedCount());
+    assertEquals(0, buffer.getDroppedCount());
+  }
+
+  @Test
+  public void testLatestValuePerKeyKeepsPosition() throws InterruptedException {
+    NotificationBuffer<String> buffer = new NotificationBuffer<>(0, BufferOverflowPolicy.BLOCK, true);
+    buffer.put(1L, "a");
+    buffer.put(2L, "b");
+    buffer.put(1L, "c");
+
+    assertEquals(2, buffer.size());
+    assertEquals(Arrays.asList("c", "b"), drain(buffer, 100));
+    assertEquals(1, buffer.getCoalescedCount());
+
+    // once drained, the key is notified again
+    buffer.put(1L, "d");
+    assertEquals(Arrays.asList("d"), drain(buffer, 100));
+  }
+
+  @Test
+  public void testDropOldest() throws InterruptedException {
+    NotificationBuffer<String> buffer = new NotificationBuffer<>(2, BufferOverflowPolicy.DROP_OLDEST, false);
+    buffer.put(1L, "a");
+    buffer.put(2L, "b");
+    buffer.put(3L, "c");
+    buffer.put(4L, "d");
+
+    assertEquals(Arrays.asList("c", "d"), drain(buffer, 100));
+    assertEquals(2, buffer.getDroppedCount());
+  }
+
+  @Test
+  public void testCoalesceByKeyOnlyWhenFull() throws InterruptedException {
+    NotificationBuffer<String> buffer = new NotificationBuffer<>(2, BufferOverflowPolicy.COALESCE_BY_KEY, false);
+    buffer.put(1L, "a");
+    buffer.put(1L, "b");
+    buffer.put(1L, "c");
+
+    assertEquals(Arrays.asList("a", "c"), drain(buffer, 100));
+    assertEquals(1, buffer.getCoalescedCount());
+    assertEquals(0, buffer.getDroppedCount());
+  }
+
+  @Test
+  public void testBlockUntilDrained() throws InterruptedException {
+    final NotificationBuffer<String> buffer = new NotificationBuffer<>(1, BufferOverflowPolicy.BLOCK, false);
+    buffer.put(1L, "a");
+
+    final CountDownLatch added = new CountDownLatch(1);
+    Thread producer = new Thread(() -> {
+      try {
+        buffer.put(2L, "b");
+        added.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+
+    assertFalse(added.await(200, TimeUnit.MILLISECONDS));
+    assertEquals(Arrays.asList("a"), drain(buffer, 100));
+    assertTrue(added.await(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("b"), drain(buffer, 100));
+    assertEquals(0, buffer.getDroppedCount());
+  }
+
+  @Test
+  public void testDrainIsLimited() throws InterruptedException {
+    NotificationBuffer<String> buffer = new NotificationBuffer<>();
+    for (long i = 0; i < 10; i++) {
+      buffer.put(i, "v" + i);
+    }
+
+    assertEquals(4, drain(buffer, 4).size());
+    assertEquals(6, buffer.size());
+    assertTrue(buffer.getMaxDrainLatencyNanos() >= buffer.getLastDrainLatencyNanos());
+  }
+
+  private static List<String> drain(final NotificationBuffer<String> buffer, final int max) {
+    List<String> values = new ArrayList<>();
+    buffer.drainTo(values, max);
+    return values;
+  }
+}
@@ -0,0 +1,174 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.C2monCacheListener;
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the ShardedCacheListener class (so no Spring context).
+ */
+public class ShardedCacheListenerTest {
+
+  private ShardedCacheListener<DataTag> shardedListener;
+
+  @After
+  public void shutdown() {
+    if (shardedListener != null) {
+      shardedListener.stop();
+    }
+  }
+
+  @Test
+  public void testUpdatesAreNotifiedInOrderPerObject() throws InterruptedException {
+    RecordingListener listener = new RecordingListener();
+    shardedListener = new ShardedCacheListener<>(listener, 100, 4, false);
+    shardedListener.start();
+
+    final int nbTags = 20;
+    final int nbUpdates = 500;
+    Thread[] producers = new Thread[4];
+    for (int p = 0; p < producers.length; p++) {
+      final int firstTag = p * nbTags / producers.length;
+      final int lastTag = (p + 1) * nbTags / producers.length;
+      producers[p] = new Thread(() -> {
+        for (int i = 0; i < nbUpdates; i++) {
+          for (long id = firstTag; id < lastTag; id++) {
+            shardedListener.notifyElementUpdated(createTag(id, i));
+          }
+        }
+      });
+      producers[p].start();
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    shardedListener.stop();
+
+    assertEquals(nbTags, listener.updates.size());
+    for (List<Integer> values : listener.updates.values()) {
+      assertEquals(nbUpdates, values.size());
+      for (int i = 0; i < nbUpdates; i++) {
+        assertEquals(Integer.valueOf(i), values.get(i));
+      }
+    }
+    assertEquals(nbTags * nbUpdates, shardedListener.getNotifiedCount());
+    assertEquals(0, shardedListener.getTaskQueueSize());
+  }
+
+  @Test
+  public void testPendingUpdatesAreCoalesced() throws InterruptedException {
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingListener listener = new RecordingListener() {
+      @Override
+      public void notifyElementUpdated(final DataTag cacheable) {
+        if (cacheable.getId() == 0L) {
+          blocked.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        super.notifyElementUpdated(cacheable);
+      }
+    };
+    shardedListener = new ShardedCacheListener<>(listener, 100, 1, true);
+    shardedListener.start();
+
+    // keep the single shard busy while the updates of tag 1 are queued
+    shardedListener.notifyElementUpdated(createTag(0L, 0));
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    shardedListener.notifyElementUpdated(createTag(1L, 1));
+    shardedListener.notifyElementUpdated(createTag(1L, 2));
+    shardedListener.confirmStatus(createTag(1L, 3));
+    shardedListener.notifyElementUpdated(createTag(1L, 4));
+    shardedListener.notifyElementUpdated(createTag(1L, 5));
+    assertEquals(3, shardedListener.getTaskQueueSize());
+    release.countDown();
+    shardedListener.stop();
+
+    assertEquals(Collections.singletonList(0), listener.updates.get(0L));
+    assertEquals(Arrays.asList(2, 5), listener.updates.get(1L));
+    assertEquals(Collections.singletonList(3), listener.confirmations.get(1L));
+    assertEquals(2, shardedListener.getCoalescedCount());
+  }
+
+  @Test
+  public void testShardOfIsStable() {
+    for (long id = 0; id < 1000; id++) {
+      int shard = ShardedCacheListener.shardOf(id, 7);
+      assertTrue(shard >= 0 && shard < 7);
+      assertEquals(shard, ShardedCacheListener.shardOf(Long.valueOf(id), 7));
+    }
+    assertEquals(0, ShardedCacheListener.shardOf(null, 7));
+  }
+
+  /**
+   * Is allowed but logs a warning
+   */
+  @Test
+  public void testShutdown() {
+    shardedListener = new ShardedCacheListener<>(new RecordingListener(), 10, 2, false);
+    shardedListener.start();
+    shardedListener.stop();
+    shardedListener.notifyElementUpdated(createTag(1L, 1));
+    assertEquals(0, shardedListener.getTaskQueueSize());
+  }
+
+  private static DataTag createTag(final Long id, final Integer value) {
+    DataTagCacheObject tag = new DataTagCacheObject(id);
+    tag.setValue(value);
+    return tag;
+  }
+
+  private static class RecordingListener implements C2monCacheListener<DataTag> {
+
+    private final Map<Long, List<Integer>> updates = new ConcurrentHashMap<>();
+
+    private final Map<Long, List<Integer>> confirmations = new ConcurrentHashMap<>();
+
+    @Override
+    public void notifyElementUpdated(final DataTag cacheable) {
+      updates.computeIfAbsent(cacheable.getId(), id -> Collections.synchronizedList(new ArrayList<>()))
+          .add((Integer) cacheable.getValue());
+    }
+
+    @Override
+    public void confirmStatus(final DataTag cacheable) {
+      confirmations.computeIfAbsent(cacheable.getId(), id -> Collections.synchronizedList(new ArrayList<>()))
+          .add((Integer) cacheable.getValue());
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.tag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.easymock.EasyMock;
+import org.easymock.IMocksControl;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.EquipmentCache;
+import cern.c2mon.server.cache.ProcessCache;
+import cern.c2mon.server.cache.SubEquipmentCache;
+import cern.c2mon.server.cache.TagLocationService;
+import cern.c2mon.server.cache.config.CacheProperties;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.equipment.EquipmentCacheObject;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+import cern.c2mon.server.common.subequipment.SubEquipmentCacheObject;
+
+/**
+ * Unit test of the {@link TagHierarchyIndexImpl}, checking that the caches
+ * are only accessed for tags not indexed or invalidated.
+ */
+public class TagHierarchyIndexImplTest {
+
+  private TagHierarchyIndexImpl index;
+
+  private IMocksControl control;
+
+  //mocks
+  private TagLocationService tagLocationService;
+  private ProcessCache processCache;
+  private EquipmentCache equipmentCache;
+  private SubEquipmentCache subEquipmentCache;
+
+  private DataTagCacheObject tag;
+
+  @Before
+  public void setUp() {
+    control = EasyMock.createControl();
+    tagLocationService = control.createMock(TagLocationService.class);
+    processCache = control.createMock(ProcessCache.class);
+    equipmentCache = control.createMock(EquipmentCache.class);
+    subEquipmentCache = control.createMock(SubEquipmentCache.class);
+    index = new TagHierarchyIndexImpl(tagLocationService, processCache, equipmentCache, subEquipmentCache, new CacheProperties());
+
+    tag = new DataTagCacheObject(1L, "TAG", "Float", (short) 0);
+    tag.setProcessId(10L);
+    tag.setEquipmentId(20L);
+  }
+
+  private void expectParents(final int times) {
+    EasyMock.expect(processCache.get(10L)).andReturn(new ProcessCacheObject(10L, "P_TEST", 11L, 100, 100)).times(times);
+    EasyMock.expect(equipmentCache.get(20L)).andReturn(new EquipmentCacheObject(20L, "E_TEST", "handler", 21L)).times(times);
+  }
+
+  @Test
+  public void testGetResolvesOnce() {
+    expectParents(1);
+    control.replay();
+
+    TagHierarchy hierarchy = index.get(tag);
+    assertEquals(Long.valueOf(10L), hierarchy.getProcessId());
+    assertEquals("P_TEST", hierarchy.getProcessName());
+    assertEquals(Long.valueOf(20L), hierarchy.getEquipmentId());
+    assertEquals("E_TEST", hierarchy.getEquipmentName());
+    assertNull(hierarchy.getSubEquipmentId());
+    assertNull(hierarchy.getSubEquipmentName());
+
+    assertSame(hierarchy, index.get(tag));
+    assertSame(hierarchy, index.get(1L));
+    assertEquals(1, index.size());
+    control.verify();
+  }
+
+  @Test
+  public void testGetByIdResolvesFromTagCache() {
+    EasyMock.expect(tagLocationService.get(1L)).andReturn(tag);
+    expectParents(1);
+    control.replay();
+
+    assertEquals("P_TEST", index.get(1L).getProcessName());
+    assertEquals("P_TEST", index.get(1L).getProcessName());
+    control.verify();
+  }
+
+  @Test
+  public void testInvalidateTag() {
+    expectParents(1);
+    SubEquipmentCacheObject subEquipment = new SubEquipmentCacheObject(30L);
+    subEquipment.setName("SE_TEST");
+    EasyMock.expect(subEquipmentCache.get(30L)).andReturn(subEquipment);
+    control.replay();
+
+    index.get(tag);
+    tag.setSubEquipmentId(30L);
+    index.invalidateTag(1L);
+    assertEquals(0, index.size());
+    assertEquals("SE_TEST", index.get(tag).getSubEquipmentName());
+    control.verify();
+  }
+
+  @Test
+  public void testInvalidateRuleWithChangedInputs() {
+    expectParents(1);
+    EasyMock.expect(processCache.get(12L)).andReturn(new ProcessCacheObject(12L, "P_NEW", 13L, 100, 100));
+    EasyMock.expect(equipmentCache.get(22L)).andReturn(new EquipmentCacheObject(22L, "E_NEW", "handler", 23L));
+    control.replay();
+
+    RuleTagCacheObject rule = new RuleTagCacheObject(3L);
+    rule.setProcessIds(Collections.singleton(10L));
+    rule.setEquipmentIds(Collections.singleton(20L));
+    assertEquals("E_TEST", index.get(rule).getEquipmentName());
+
+    //the parent ids are recomputed from the new rule inputs
+    rule.setProcessIds(Collections.singleton(12L));
+    rule.setEquipmentIds(Collections.singleton(22L));
+    index.invalidateTag(3L);
+    TagHierarchy hierarchy = index.get(rule);
+    assertEquals("P_NEW", hierarchy.getProcessName());
+    assertEquals(Long.valueOf(22L), hierarchy.getEquipmentId());
+    assertEquals("E_NEW", hierarchy.getEquipmentName());
+    assertSame(hierarchy, index.get(rule));
+    control.verify();
+  }
+
+  @Test
+  public void testInvalidateParents() {
+    expectParents(4);
+    control.replay();
+
+    TagHierarchy hierarchy = index.get(tag);
+    index.invalidateProcess(10L);
+    TagHierarchy reloaded = index.get(tag);
+    assertEquals(hierarchy.getProcessName(), reloaded.getProcessName());
+    index.invalidateEquipment(20L);
+    index.get(tag);
+    index.invalidateSubEquipment(30L);
+    index.get(tag);
+    index.get(tag);
+    control.verify();
+  }
+
+  @Test
+  public void testMissingParentIsNotIndexed() {
+    EasyMock.expect(processCache.get(10L)).andThrow(new CacheElementNotFoundException("not found"));
+    EasyMock.expect(equipmentCache.get(20L)).andReturn(new EquipmentCacheObject(20L, "E_TEST", "handler", 21L));
+    expectParents(1);
+    control.replay();
+
+    TagHierarchy hierarchy = index.get(tag);
+    assertNull(hierarchy.getProcessName());
+    assertEquals("E_TEST", hierarchy.getEquipmentName());
+    assertEquals(0, index.size());
+
+    assertEquals("P_TEST", index.get(tag).getProcessName());
+    assertEquals(1, index.size());
+    control.verify();
+  }
+
+  @Test
+  public void testMultiModeIsNotIndexed() {
+    CacheProperties cacheProperties = new CacheProperties();
+    cacheProperties.setMode("multi");
+    index = new TagHierarchyIndexImpl(tagLocationService, processCache, equipmentCache, subEquipmentCache, cacheProperties);
+    expectParents(1);
+    EasyMock.expect(processCache.get(10L)).andReturn(new ProcessCacheObject(10L, "P_TEST", 11L, 100, 100));
+    EquipmentCacheObject renamed = new EquipmentCacheObject(20L, "E_RENAMED", "handler", 21L);
+    EasyMock.expect(equipmentCache.get(20L)).andReturn(renamed);
+    control.replay();
+
+    assertEquals("E_TEST", index.get(tag).getEquipmentName());
+    assertEquals(0, index.size());
+    // renamed on another server, without invalidation on this one
+    assertEquals("E_RENAMED", index.get(tag).getEquipmentName());
+    assertEquals(0, index.size());
+    control.verify();
+  }
+
+  @Test
+  public void testTagWithoutParents() {
+    control.replay();
+    TagHierarchy hierarchy = index.get(new DataTagCacheObject(2L, "RULE", "Float", (short) 0));
+    assertNull(hierarchy.getProcessId());
+    assertNull(hierarchy.getEquipmentId());
+    assertNull(hierarchy.getSubEquipmentId());
+    control.verify();
+  }
+}
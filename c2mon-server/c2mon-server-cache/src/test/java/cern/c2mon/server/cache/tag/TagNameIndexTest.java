@@ -0,0 +1,105 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.tag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of the {@link TagNameIndex}, with and without trigram index.
+ */
+public class TagNameIndexTest {
+
+  private TagNameIndex index;
+
+  private TagNameIndex indexWithoutTrigrams;
+
+  @Before
+  public void setUp() {
+    index = new TagNameIndex(true);
+    indexWithoutTrigrams = new TagNameIndex(false);
+    for (TagNameIndex tagNameIndex : Arrays.asList(index, indexWithoutTrigrams)) {
+      tagNameIndex.put(1L, "CP.MEAS.TEMPERATURE");
+      tagNameIndex.put(2L, "CP.MEAS.PRESSURE");
+      tagNameIndex.put(3L, "CP.ALARM.TEMPERATURE.HIGH");
+      tagNameIndex.put(4L, "Test*Tag");
+    }
+  }
+
+  @Test
+  public void testExactName() {
+    for (TagNameIndex tagNameIndex : Arrays.asList(index, indexWithoutTrigrams)) {
+      assertEquals(ids(1L), find(tagNameIndex, "cp.meas.temperature"));
+      assertEquals(ids(4L), find(tagNameIndex, "TEST\\*TAG"));
+      assertTrue(find(tagNameIndex, "CP.MEAS").isEmpty());
+    }
+  }
+
+  @Test
+  public void testWildcards() {
+    for (TagNameIndex tagNameIndex : Arrays.asList(index, indexWithoutTrigrams)) {
+      assertEquals(ids(1L, 2L), find(tagNameIndex, "CP.MEAS.*"));
+      assertEquals(ids(1L, 3L), find(tagNameIndex, "*temperature*"));
+      assertEquals(ids(1L), find(tagNameIndex, "*.TEMPERATURE"));
+      assertEquals(ids(3L), find(tagNameIndex, "CP.*.HIGH"));
+      assertEquals(ids(1L, 2L), find(tagNameIndex, "C?.MEAS.*RE"));
+      assertEquals(ids(1L, 2L, 3L, 4L), find(tagNameIndex, "*"));
+      assertEquals(ids(4L), find(tagNameIndex, "*t\\*t*"));
+      assertTrue(find(tagNameIndex, "*VOLTAGE*").isEmpty());
+    }
+  }
+
+  @Test
+  public void testMaxResults() {
+    assertEquals(1, index.find("*TEMPERATURE*", 1).size());
+    assertEquals(2, index.find("CP.*", 2).size());
+  }
+
+  @Test
+  public void testRenameAndRemove() {
+    index.put(1L, "CP.MEAS.HUMIDITY");
+    assertTrue(find(index, "CP.MEAS.TEMPERATURE").isEmpty());
+    assertEquals(ids(3L), find(index, "*TEMPERATURE*"));
+    assertEquals(ids(1L), find(index, "*HUMID*"));
+
+    index.remove(1L);
+    assertTrue(find(index, "*HUMID*").isEmpty());
+    assertEquals(ids(2L), find(index, "CP.MEAS.*"));
+    assertEquals(3, index.size());
+
+    index.clear();
+    assertEquals(0, index.size());
+    assertTrue(find(index, "*").isEmpty());
+  }
+
+  private static Set<Long> find(final TagNameIndex tagNameIndex, final String expression) {
+    return new HashSet<>(tagNameIndex.find(expression, Integer.MAX_VALUE));
+  }
+
+  private static Set<Long> ids(final Long... ids) {
+    Collection<Long> list = Arrays.asList(ids);
+    return new HashSet<>(list);
+  }
+}
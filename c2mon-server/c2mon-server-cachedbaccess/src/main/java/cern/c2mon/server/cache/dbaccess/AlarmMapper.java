@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.dbaccess;
 
+import cern.c2mon.server.cache.dbaccess.structure.AlarmPersistenceRow;
 import cern.c2mon.server.common.alarm.Alarm;
 import cern.c2mon.server.common.alarm.AlarmCacheObject;
 
@@ -25,7 +26,8 @@ import cern.c2mon.server.common.alarm.AlarmCacheObject;
  *
  */
 public interface AlarmMapper extends PersistenceMapper<Alarm>, LoaderMapper<Alarm>, 
-                                                BatchLoaderMapper<Alarm>, ConfigurableMapper<Alarm> {
+                                                BatchLoaderMapper<Alarm>, ConfigurableMapper<Alarm>,
+                                                BatchPersistenceMapper<AlarmPersistenceRow> {
 
   /**
    * Inserts the alarm into the database.
@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.dbaccess;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
@@ -36,4 +37,21 @@ public interface BatchLoaderMapper<T extends Cacheable> extends SimpleLoaderMapp
    * @return the list of records
    */
   List<T> getRowBatch(DBBatch dbBatch);
+
+  /**
+   * Return the records whose value was persisted at or after the given time,
+   * used for updating a cache loaded from a snapshot
+   *
+   * @param since the earliest server timestamp to return
+   * @return the list of records
+   */
+  List<T> getChangedSince(Timestamp since);
+
+  /**
+   * Return the sum of the ids of the records, used for detecting records
+   * replaced since a snapshot was written
+   *
+   * @return the sum of the ids, or null if there are no records
+   */
+  Long getIdSum();
 }
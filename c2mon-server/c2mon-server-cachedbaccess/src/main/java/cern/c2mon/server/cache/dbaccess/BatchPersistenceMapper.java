@@ -0,0 +1,37 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.dbaccess;
+
+/**
+ * Interface implemented by mappers that can persist the runtime values of
+ * cache objects from a compact row, as used by the JDBC-batched cache
+ * persistence. The statement is meant to be executed repeatedly in a
+ * session opened with {@link org.apache.ibatis.session.ExecutorType#BATCH}.
+ *
+ * @param <R> the row type, see {@link cern.c2mon.server.cache.dbaccess.structure.TagPersistenceRow}
+ *            and {@link cern.c2mon.server.cache.dbaccess.structure.AlarmPersistenceRow}
+ */
+public interface BatchPersistenceMapper<R> {
+
+  /**
+   * Updates the runtime value columns of a cache object (same columns as
+   * {@link PersistenceMapper#updateCacheable(cern.c2mon.shared.common.Cacheable)}).
+   *
+   * @param row the values to persist
+   */
+  void updatePersistenceRow(R row);
+}
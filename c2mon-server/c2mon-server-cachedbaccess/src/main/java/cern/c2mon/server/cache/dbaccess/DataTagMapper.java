@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.dbaccess;
 
+import cern.c2mon.server.cache.dbaccess.structure.TagPersistenceRow;
 import cern.c2mon.server.common.datatag.DataTag;
 import cern.c2mon.server.common.datatag.DataTagCacheObject;
 
@@ -27,7 +28,8 @@ import cern.c2mon.server.common.datatag.DataTagCacheObject;
  *
  */
 public interface DataTagMapper extends PersistenceMapper<DataTag>, LoaderMapper<DataTag>, 
-                                            BatchLoaderMapper<DataTag>, ConfigurableMapper<DataTag> {
+                                            BatchLoaderMapper<DataTag>, ConfigurableMapper<DataTag>,
+                                            BatchPersistenceMapper<TagPersistenceRow> {
   
   void insertDataTag(DataTag dataTag);
   
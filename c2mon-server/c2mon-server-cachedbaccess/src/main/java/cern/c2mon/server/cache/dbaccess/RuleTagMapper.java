@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.dbaccess;
 
+import cern.c2mon.server.cache.dbaccess.structure.TagPersistenceRow;
 import cern.c2mon.server.common.rule.RuleTag;
 import cern.c2mon.server.common.rule.RuleTagCacheObject;
 
@@ -27,7 +28,8 @@ import cern.c2mon.server.common.rule.RuleTagCacheObject;
  *
  */
 public interface RuleTagMapper extends PersistenceMapper<RuleTag>, LoaderMapper<RuleTag>, 
-                                            BatchLoaderMapper<RuleTag>, ConfigurableMapper<RuleTag> {
+                                            BatchLoaderMapper<RuleTag>, ConfigurableMapper<RuleTag>,
+                                            BatchPersistenceMapper<TagPersistenceRow> {
  
   void insertRuleTag(RuleTagCacheObject ruleTagCacheObject);
   
@@ -0,0 +1,61 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.dbaccess.structure;
+
+import java.sql.Timestamp;
+
+import lombok.Data;
+
+import cern.c2mon.server.common.alarm.Alarm;
+
+/**
+ * The columns of an alarm that change with incoming updates, read from
+ * the cache object for the batched cache persistence.
+ */
+@Data
+public class AlarmPersistenceRow {
+
+  private Long id;
+
+  private boolean active;
+
+  private Timestamp timestamp;
+
+  private Timestamp sourceTimestamp;
+
+  private String info;
+
+  private boolean oscillating;
+
+  /**
+   * Reads the persisted fields of an alarm. The caller is expected to hold
+   * the read lock on the alarm.
+   *
+   * @param alarm an alarm from the cache
+   * @return a new row
+   */
+  public static AlarmPersistenceRow of(final Alarm alarm) {
+    AlarmPersistenceRow row = new AlarmPersistenceRow();
+    row.id = alarm.getId();
+    row.active = alarm.isActive();
+    row.timestamp = alarm.getTimestamp();
+    row.sourceTimestamp = alarm.getSourceTimestamp();
+    row.info = alarm.getInfo();
+    row.oscillating = alarm.isOscillating();
+    return row;
+  }
+}
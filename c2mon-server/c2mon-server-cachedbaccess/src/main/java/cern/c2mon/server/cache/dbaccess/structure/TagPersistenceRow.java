@@ -0,0 +1,82 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.dbaccess.structure;
+
+import java.sql.Timestamp;
+
+import lombok.Data;
+
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.shared.common.datatag.DataTagQuality;
+
+/**
+ * The columns of a data or rule tag that change with incoming updates,
+ * read from the cache object for the batched cache persistence.
+ *
+ * <p>Only the quality is copied, all other fields are immutable values
+ * that are replaced (and not modified) on an update of the cache object.
+ */
+@Data
+public class TagPersistenceRow {
+
+  private Long id;
+
+  private Object value;
+
+  private String valueDescription;
+
+  /** Only set for data tags */
+  private Timestamp sourceTimestamp;
+
+  /** Only set for data tags */
+  private Timestamp daqTimestamp;
+
+  private Timestamp cacheTimestamp;
+
+  private DataTagQuality dataTagQuality;
+
+  private boolean simulated;
+
+  /**
+   * Reads the persisted fields of a tag. The caller is expected to hold
+   * the read lock on the tag.
+   *
+   * @param tag a data or rule tag from the cache
+   * @return a new row
+   */
+  public static TagPersistenceRow of(final Tag tag) {
+    TagPersistenceRow row = new TagPersistenceRow();
+    row.id = tag.getId();
+    row.value = tag.getValue();
+    row.valueDescription = tag.getValueDescription();
+    row.cacheTimestamp = tag.getCacheTimestamp();
+    row.simulated = tag.isSimulated();
+    if (tag.getDataTagQuality() != null) {
+      try {
+        row.dataTagQuality = tag.getDataTagQuality().clone();
+      } catch (CloneNotSupportedException e) {
+        throw new IllegalStateException("Unable to copy the quality of tag " + tag.getId(), e);
+      }
+    }
+    if (tag instanceof DataTag) {
+      row.sourceTimestamp = ((DataTag) tag).getSourceTimestamp();
+      row.daqTimestamp = ((DataTag) tag).getDaqTimestamp();
+    }
+    return row;
+  }
+}
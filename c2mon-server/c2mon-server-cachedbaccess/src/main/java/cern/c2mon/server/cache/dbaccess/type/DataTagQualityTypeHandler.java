@@ -62,6 +62,11 @@ public class DataTagQualityTypeHandler implements TypeHandler {
    * Gson object for Json serialization/deserialization.
    */
   private static ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * Json representation of a valid quality (no invalid states).
+   */
+  private static final String VALID_QUALITY_JSON = "{}";
   static {
     mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     mapper.enable(DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY);
@@ -117,7 +122,9 @@ public class DataTagQualityTypeHandler implements TypeHandler {
   @Override
   public void setParameter(final PreparedStatement ps, final int parameterIndex,
                             final Object dataTagQuality, final JdbcType jdbcType) throws SQLException {
-    if (dataTagQuality != null) {
+    if (dataTagQuality != null && ((DataTagQuality) dataTagQuality).isValid()) {
+      ps.setString(parameterIndex, VALID_QUALITY_JSON);
+    } else if (dataTagQuality != null) {
       try {
         ps.setString(parameterIndex, mapper.writeValueAsString(((DataTagQuality) dataTagQuality).getInvalidQualityStates()));
 
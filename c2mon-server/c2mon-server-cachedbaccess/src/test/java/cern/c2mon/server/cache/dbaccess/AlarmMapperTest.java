@@ -22,6 +22,7 @@ import javax.annotation.Resource;
 
 import org.junit.Test;
 
+import cern.c2mon.server.cache.dbaccess.structure.AlarmPersistenceRow;
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
 import cern.c2mon.server.common.alarm.AlarmCacheObject;
 import cern.c2mon.server.test.CacheObjectComparison;
@@ -102,6 +103,23 @@ public class AlarmMapperTest extends AbstractMapperTest {
     CacheObjectComparison.equals(alarmOriginal, alarmRetrieved);
   }
 
+  @Test
+  public void testUpdatePersistenceRow() {
+    AlarmCacheObject alarmOriginal = (AlarmCacheObject) alarmMapper.getItem(350000L);
+    alarmOriginal.setActive(true);
+    alarmOriginal.setInternalActive(true);
+    alarmOriginal.setOscillating(true);
+    alarmOriginal.setTimestamp(new Timestamp(System.currentTimeMillis()));
+    alarmOriginal.setSourceTimestamp(new Timestamp(System.currentTimeMillis()));
+    alarmOriginal.setInfo("updated info");
+
+    alarmMapper.updatePersistenceRow(AlarmPersistenceRow.of(alarmOriginal));
+
+    AlarmCacheObject alarmRetrieved = (AlarmCacheObject) alarmMapper.getItem(alarmOriginal.getId());
+    CacheObjectComparison.equals(alarmOriginal, alarmRetrieved);
+    assertTrue(alarmRetrieved.isOscillating());
+  }
+
   @Test
   public void testIsInDB() {
     assertTrue(alarmMapper.isInDb(350000L));
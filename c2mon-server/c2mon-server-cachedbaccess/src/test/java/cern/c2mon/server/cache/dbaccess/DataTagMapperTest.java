@@ -30,6 +30,7 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
+import cern.c2mon.server.cache.dbaccess.structure.TagPersistenceRow;
 import cern.c2mon.server.common.datatag.DataTag;
 import cern.c2mon.server.common.datatag.DataTagCacheObject;
 import cern.c2mon.server.common.metadata.Metadata;
@@ -218,6 +219,39 @@ public class DataTagMapperTest extends AbstractMapperTest {
     dataTagMapper.deleteDataTag(cacheObject.getId());
   }
 
+  @Test
+  public void testUpdatePersistenceRow() {
+    DataTagCacheObject cacheObject = new DataTagCacheObject();
+    cacheObject.setId(150000L); // must be non null in DB
+    cacheObject.setName("Junit_test_tag"); // non null
+    cacheObject.setMode(DataTagConstants.MODE_TEST); // non null
+    cacheObject.setDataType("Float"); // non null
+    cacheObject.setEquipmentId(150L); // need test equipment inserted
+
+    dataTagMapper.insertDataTag(cacheObject);
+
+    cacheObject.setValue(1.5f);
+    cacheObject.setValueDescription("test value description");
+    cacheObject.setSimulated(true);
+    cacheObject.setDataTagQuality(new DataTagQualityImpl(TagQualityStatus.VALUE_OUT_OF_BOUNDS, "out of bounds"));
+    cacheObject.setCacheTimestamp(new Timestamp(System.currentTimeMillis()));
+    cacheObject.setSourceTimestamp(new Timestamp(System.currentTimeMillis() - 10));
+    cacheObject.setDaqTimestamp(new Timestamp(System.currentTimeMillis() - 5));
+
+    dataTagMapper.updatePersistenceRow(TagPersistenceRow.of(cacheObject));
+
+    DataTagCacheObject retrievedObject = (DataTagCacheObject) dataTagMapper.getItem(150000L);
+    assertEquals(cacheObject.getValue(), retrievedObject.getValue());
+    assertEquals(cacheObject.getValueDescription(), retrievedObject.getValueDescription());
+    assertEquals(cacheObject.isSimulated(), retrievedObject.isSimulated());
+    assertEquals(cacheObject.getDataTagQuality(), retrievedObject.getDataTagQuality());
+    assertEquals(cacheObject.getCacheTimestamp(), retrievedObject.getCacheTimestamp());
+    assertEquals(cacheObject.getSourceTimestamp(), retrievedObject.getSourceTimestamp());
+    assertEquals(cacheObject.getDaqTimestamp(), retrievedObject.getDaqTimestamp());
+
+    dataTagMapper.deleteDataTag(cacheObject.getId());
+  }
+
   @Test
   public void testIsInDB() {
     assertTrue(dataTagMapper.isInDb(200000L));
@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.loading;
 
+import java.sql.Timestamp;
 import java.util.Map;
 
 import cern.c2mon.shared.common.Cacheable;
@@ -36,6 +37,13 @@ public interface BatchCacheLoaderDAO<T extends Cacheable> extends SimpleCacheLoa
    */
   Integer getMaxRow();
 
+  /**
+   * Returns the sum of the ids of the elements to be loaded, which together
+   * with {@link #getMaxRow()} detects rows replaced since a cache snapshot.
+   * @return the sum of the ids, 0 if no cache objects are defined
+   */
+  Long getIdSum();
+
   /**
    * Return a map of elements that need loading. All elements with row number between
    * the provided numbers are returned.
@@ -49,4 +57,13 @@ public interface BatchCacheLoaderDAO<T extends Cacheable> extends SimpleCacheLoa
    */
   Map<Object, T> getBatchAsMap(Long firstRow, Long lastRow);
 
+  /**
+   * Return a map of the elements whose value was persisted at or after the
+   * given time, with the same post-DB-access logic as {@link #getBatchAsMap}.
+   *
+   * @param since the earliest server timestamp to return
+   * @return a map of objects ready to load into the cache
+   */
+  Map<Object, T> getChangedSince(Timestamp since);
+
 }
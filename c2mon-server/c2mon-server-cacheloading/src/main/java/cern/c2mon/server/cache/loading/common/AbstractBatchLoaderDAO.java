@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.loading.common;
 
+import java.sql.Timestamp;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -67,6 +68,16 @@ public abstract class AbstractBatchLoaderDAO<T extends Cacheable> extends Abstra
     }
   }
 
+  @Override
+  public Long getIdSum() {
+    Long idSum = batchLoaderMapper.getIdSum();
+    if (idSum != null) {
+      return idSum;
+    } else {
+      return 0L;
+    }
+  }
+
   @Override
   public Map<Object, T> getBatchAsMap(Long firstRow, Long lastRow) {
     DBBatch dbBatch = new DBBatch(firstRow, lastRow);
@@ -83,4 +94,15 @@ public abstract class AbstractBatchLoaderDAO<T extends Cacheable> extends Abstra
     return returnMap;
   }
 
+  @Override
+  public Map<Object, T> getChangedSince(Timestamp since) {
+    Map<Object, T> returnMap = new ConcurrentHashMap<>();
+    for (T element : batchLoaderMapper.getChangedSince(since)) {
+      if (element != null) {
+        returnMap.put(element.getId(), doPostDbLoading(element));
+      }
+    }
+    return returnMap;
+  }
+
 }
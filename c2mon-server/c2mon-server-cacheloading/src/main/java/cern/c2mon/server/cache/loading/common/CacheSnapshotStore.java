@@ -0,0 +1,404 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Reads and writes snapshot files of the cache objects, one file per cache.
+ *
+ * <p>A snapshot file consists of:
+ * <ul>
+ * <li>a header with a magic number, the format version, the cache name, the
+ *     creation time and the number and id sum of the database rows at that
+ *     time
+ * <li>the serialized cache objects
+ * <li>a trailer with the number of objects and a CRC32 checksum of all
+ *     preceding bytes
+ * </ul>
+ * A snapshot is written to a temporary file, which replaces the previous
+ * snapshot once complete, so that a crash while writing leaves the previous
+ * snapshot in place. A snapshot started before {@link #deleteAll()} is
+ * discarded on commit, as is any snapshot committed between
+ * {@link #suspend()} and {@link #resume()}.
+ */
+@Slf4j
+public class CacheSnapshotStore {
+
+  private static final int MAGIC = 0x43324d53;
+
+  private static final int VERSION = 2;
+
+  private static final String SUFFIX = ".snapshot";
+
+  /** Length of the trailer: object count and checksum */
+  private static final int TRAILER_LENGTH = 4 + 8;
+
+  /**
+   * Number of objects after which the object stream is reset, so that it
+   * does not keep references to all written objects
+   */
+  private static final int RESET_INTERVAL = 1000;
+
+  private final Path directory;
+
+  /**
+   * Incremented by {@link #deleteAll()}, for discarding the snapshots written
+   * concurrently
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * Number of {@link #suspend()} calls not yet resumed, guarded by this
+   */
+  private int suspensions = 0;
+
+  /**
+   * @param directory the directory of the snapshot files, created if needed
+   */
+  public CacheSnapshotStore(final Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Opens a new snapshot of a cache. The snapshot replaces the current one
+   * on {@link SnapshotWriter#commit()}.
+   *
+   * @param cacheName the name of the cache
+   * @param createdAt the time at which the snapshot is started
+   * @param rowCount the number of database rows of the cache
+   * @param idSum the sum of the ids of the database rows of the cache
+   * @return the writer of the cache objects
+   * @throws IOException if the snapshot file cannot be created
+   */
+  public SnapshotWriter open(final String cacheName, final long createdAt, final int rowCount, final long idSum)
+      throws IOException {
+    Files.createDirectories(directory);
+    return new SnapshotWriter(cacheName, createdAt, rowCount, idSum);
+  }
+
+  /**
+   * Reads the header of the snapshot of a cache and verifies its checksum.
+   *
+   * @param cacheName the name of the cache
+   * @return the snapshot header, or null if there is no snapshot of the cache
+   * @throws IOException if the snapshot cannot be read or is corrupt
+   */
+  public Snapshot read(final String cacheName) throws IOException {
+    Path file = getFile(cacheName);
+    if (!Files.exists(file)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long dataLength = channel.size() - 8;
+      if (dataLength < TRAILER_LENGTH - 8) {
+        throw new IOException("Snapshot file " + file + " is truncated");
+      }
+      ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+      readFully(channel, trailer, dataLength - 4);
+      trailer.flip();
+      int objectCount = trailer.getInt();
+      long checksum = trailer.getLong();
+
+      if (checksum(channel, dataLength) != checksum) {
+        throw new IOException("Checksum mismatch in snapshot file " + file);
+      }
+
+      DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+          throw new IOException("Snapshot file " + file + " has an unknown format");
+        }
+        String name = in.readUTF();
+        if (!name.equals(cacheName)) {
+          throw new IOException("Snapshot file " + file + " contains cache " + name);
+        }
+        return new Snapshot(file, cacheName, in.readLong(), in.readInt(), in.readLong(), objectCount);
+      } finally {
+        in.close();
+      }
+    }
+  }
+
+  /**
+   * Reads the objects of a snapshot.
+   *
+   * @param snapshot the snapshot returned by {@link #read(String)}
+   * @param consumer receives every object of the snapshot
+   * @throws IOException if the snapshot cannot be read
+   * @throws ClassNotFoundException if a class of the snapshot is unknown
+   */
+  public void readObjects(final Snapshot snapshot, final Consumer<Cacheable> consumer) throws IOException, ClassNotFoundException {
+    try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshot.getFile()), 1 << 16)) {
+      DataInputStream in = new DataInputStream(file);
+      in.readInt();
+      in.readInt();
+      in.readUTF();
+      in.readLong();
+      in.readInt();
+      in.readLong();
+
+      ObjectInputStream objectIn = new ObjectInputStream(file);
+      for (int i = 0; i < snapshot.getObjectCount(); i++) {
+        consumer.accept((Cacheable) objectIn.readObject());
+      }
+    }
+  }
+
+  /**
+   * Deletes the snapshot of a cache.
+   *
+   * @param cacheName the name of the cache
+   */
+  public void delete(final String cacheName) {
+    try {
+      Files.deleteIfExists(getFile(cacheName));
+    } catch (IOException e) {
+      log.error("Unable to delete the snapshot of cache {}", cacheName, e);
+    }
+  }
+
+  /**
+   * Deletes the snapshots of all caches, for instance when the database is
+   * reconfigured.
+   */
+  public synchronized void deleteAll() {
+    generation.incrementAndGet();
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path file : files) {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      log.error("Unable to delete the cache snapshots in {}", directory, e);
+    }
+  }
+
+  /**
+   * Deletes the snapshots of all caches and rejects new snapshots until
+   * {@link #resume()} is called, for instance while a configuration is
+   * applied to the database and the caches.
+   */
+  public synchronized void suspend() {
+    suspensions++;
+    deleteAll();
+  }
+
+  /**
+   * Accepts new snapshots again after {@link #suspend()}. The snapshots
+   * started while suspended are discarded on commit, as they may contain a
+   * partly applied configuration.
+   */
+  public synchronized void resume() {
+    if (suspensions == 0) {
+      throw new IllegalStateException("Snapshots are not suspended");
+    }
+    deleteAll();
+    suspensions--;
+  }
+
+  private Path getFile(final String cacheName) {
+    return directory.resolve(cacheName + SUFFIX);
+  }
+
+  private static long checksum(final FileChannel channel, final long length) throws IOException {
+    CRC32 crc = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    long position = 0;
+    while (position < length) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), length - position));
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new IOException("Unexpected end of snapshot file");
+      }
+      buffer.flip();
+      crc.update(buffer);
+      position += read;
+    }
+    return crc.getValue();
+  }
+
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+    long offset = position;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, offset);
+      if (read < 0) {
+        throw new IOException("Unexpected end of snapshot file");
+      }
+      offset += read;
+    }
+  }
+
+  /**
+   * The header of a snapshot file.
+   */
+  @Getter
+  public static final class Snapshot {
+
+    private final Path file;
+
+    private final String cacheName;
+
+    /** Time at which the snapshot was started */
+    private final long createdAt;
+
+    /** Number of database rows of the cache when the snapshot was started */
+    private final int rowCount;
+
+    /** Sum of the ids of the database rows when the snapshot was started */
+    private final long idSum;
+
+    private final int objectCount;
+
+    private Snapshot(final Path file, final String cacheName, final long createdAt, final int rowCount,
+                     final long idSum, final int objectCount) {
+      this.file = file;
+      this.cacheName = cacheName;
+      this.createdAt = createdAt;
+      this.rowCount = rowCount;
+      this.idSum = idSum;
+      this.objectCount = objectCount;
+    }
+  }
+
+  /**
+   * Writes the objects of a new snapshot to a temporary file. Closing the
+   * writer without commit discards the new snapshot.
+   */
+  public final class SnapshotWriter implements Closeable {
+
+    private final Path file;
+
+    private final Path tempFile;
+
+    private final FileOutputStream fileOut;
+
+    private final CheckedOutputStream checkedOut;
+
+    private final DataOutputStream dataOut;
+
+    private final ObjectOutputStream objectOut;
+
+    private final long startGeneration = generation.get();
+
+    private int objectCount = 0;
+
+    private boolean closed = false;
+
+    private SnapshotWriter(final String cacheName, final long createdAt, final int rowCount, final long idSum)
+        throws IOException {
+      this.file = getFile(cacheName);
+      this.tempFile = directory.resolve(cacheName + SUFFIX + ".tmp");
+      this.fileOut = new FileOutputStream(tempFile.toFile());
+      this.checkedOut = new CheckedOutputStream(fileOut, new CRC32());
+      this.dataOut = new DataOutputStream(new BufferedOutputStream(checkedOut, 1 << 16));
+      dataOut.writeInt(MAGIC);
+      dataOut.writeInt(VERSION);
+      dataOut.writeUTF(cacheName);
+      dataOut.writeLong(createdAt);
+      dataOut.writeInt(rowCount);
+      dataOut.writeLong(idSum);
+      dataOut.flush();
+      this.objectOut = new ObjectOutputStream(dataOut);
+    }
+
+    /**
+     * @param object the cache object to add to the snapshot
+     * @throws IOException if the object cannot be written
+     */
+    public void write(final Cacheable object) throws IOException {
+      objectOut.writeObject(object);
+      objectCount++;
+      if (objectCount % RESET_INTERVAL == 0) {
+        objectOut.reset();
+      }
+    }
+
+    /**
+     * @return the number of objects written so far
+     */
+    public int getObjectCount() {
+      return objectCount;
+    }
+
+    /**
+     * Completes the snapshot and replaces the previous snapshot of the cache,
+     * unless all snapshots were deleted since the writer was opened or the
+     * snapshots are suspended.
+     *
+     * @return true if the snapshot was stored, false if it was discarded
+     * @throws IOException if the snapshot cannot be written
+     */
+    public boolean commit() throws IOException {
+      objectOut.flush();
+      dataOut.writeInt(objectCount);
+      dataOut.flush();
+      long checksum = checkedOut.getChecksum().getValue();
+      ByteBuffer trailer = ByteBuffer.allocate(8).putLong(checksum);
+      fileOut.write(trailer.array());
+      fileOut.getFD().sync();
+      closed = true;
+      fileOut.close();
+      synchronized (CacheSnapshotStore.this) {
+        if (suspensions > 0 || generation.get() != startGeneration) {
+          Files.deleteIfExists(tempFile);
+          return false;
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        fileOut.close();
+        Files.deleteIfExists(tempFile);
+      }
+    }
+  }
+}
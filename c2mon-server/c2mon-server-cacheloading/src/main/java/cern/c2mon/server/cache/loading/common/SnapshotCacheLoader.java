@@ -0,0 +1,210 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.Status;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import cern.c2mon.server.cache.loading.BatchCacheLoaderDAO;
+import cern.c2mon.server.cache.loading.config.CacheLoadingProperties;
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Cache loader that loads the cache from a snapshot file instead of the DB,
+ * and writes the snapshots periodically and on shutdown.
+ *
+ * <p>A snapshot is only loaded if it is not older than the configured maximum
+ * age and neither the number nor the id sum of the DB rows of the cache
+ * changed since it was written. The objects persisted since the snapshot was written are then
+ * reloaded from the DB. In all other cases, or if the snapshot cannot be
+ * read, the cache is loaded from the DB as by the {@link BatchCacheLoader}.
+ *
+ * <p>Configuration changes are not detectable from the DB rows, so the
+ * configuration loader deletes all snapshots and rejects new ones while
+ * applying a configuration, with {@link CacheSnapshotStore#suspend()}.
+ *
+ * @param <T> the cache object type
+ */
+@Slf4j
+public class SnapshotCacheLoader<T extends Cacheable> extends BatchCacheLoader<T> {
+
+  private final Ehcache cache;
+
+  private final BatchCacheLoaderDAO<T> batchCacheLoaderDAO;
+
+  private final CacheSnapshotStore snapshotStore;
+
+  private final CacheLoadingProperties.Snapshot settings;
+
+  /**
+   * Executor writing the periodic snapshots, null until the cache is loaded
+   */
+  private ScheduledExecutorService snapshotExecutor;
+
+  /**
+   * @param cache the cache to load
+   * @param cacheLoaderDAO the DAO for accessing the DB
+   * @param batchSize the number of object loaded in a single task from the DB
+   * @param threadNamePrefix the name of thread pool loading from the DB
+   * @param snapshotStore the store of the snapshot files
+   * @param settings the snapshot settings
+   */
+  public SnapshotCacheLoader(final Ehcache cache,
+                             final BatchCacheLoaderDAO<T> cacheLoaderDAO,
+                             final int batchSize,
+                             final String threadNamePrefix,
+                             final CacheSnapshotStore snapshotStore,
+                             final CacheLoadingProperties.Snapshot settings) {
+    super(cache, cacheLoaderDAO, batchSize, threadNamePrefix);
+    this.cache = cache;
+    this.batchCacheLoaderDAO = cacheLoaderDAO;
+    this.snapshotStore = snapshotStore;
+    this.settings = settings;
+  }
+
+  @Override
+  public void preload() {
+    long start = System.currentTimeMillis();
+    boolean loaded;
+    try {
+      loaded = loadSnapshot();
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      log.warn("Unable to load cache {} from its snapshot, loading it from the DB", cache.getName(), e);
+      cache.removeAll();
+      loaded = false;
+    }
+
+    if (!loaded) {
+      super.preload();
+      log.info("Loaded {} objects into cache {} from the DB in {} ms",
+          cache.getSize(), cache.getName(), System.currentTimeMillis() - start);
+    }
+    startSnapshots();
+  }
+
+  /**
+   * @return true if the cache was loaded from its snapshot
+   */
+  private boolean loadSnapshot() throws IOException, ClassNotFoundException {
+    long start = System.currentTimeMillis();
+    CacheSnapshotStore.Snapshot snapshot = snapshotStore.read(cache.getName());
+    if (snapshot == null) {
+      log.info("No snapshot found for cache {}", cache.getName());
+      return false;
+    }
+
+    long age = start - snapshot.getCreatedAt();
+    if (settings.getMaxAge() > 0 && age > TimeUnit.SECONDS.toMillis(settings.getMaxAge())) {
+      log.info("Snapshot of cache {} is {} s old, ignoring it", cache.getName(), TimeUnit.MILLISECONDS.toSeconds(age));
+      return false;
+    }
+    int rowCount = batchCacheLoaderDAO.getMaxRow();
+    if (snapshot.getRowCount() != rowCount) {
+      log.info("Snapshot of cache {} contains {} DB rows instead of {}, ignoring it",
+          cache.getName(), snapshot.getRowCount(), rowCount);
+      return false;
+    }
+    long idSum = batchCacheLoaderDAO.getIdSum();
+    if (snapshot.getIdSum() != idSum) {
+      log.info("Snapshot of cache {} contains other DB rows than the current ones, ignoring it", cache.getName());
+      return false;
+    }
+
+    snapshotStore.readObjects(snapshot, object -> cache.putQuiet(new Element(object.getId(), object)));
+    long snapshotTime = System.currentTimeMillis() - start;
+
+    Map<Object, T> changed = batchCacheLoaderDAO.getChangedSince(new Timestamp(snapshot.getCreatedAt()));
+    for (Map.Entry<Object, T> entry : changed.entrySet()) {
+      cache.putQuiet(new Element(entry.getKey(), entry.getValue()));
+    }
+
+    log.info("Loaded {} objects into cache {} from its snapshot in {} ms and {} changed objects from the DB in {} ms",
+        snapshot.getObjectCount(), cache.getName(), snapshotTime, changed.size(),
+        System.currentTimeMillis() - start - snapshotTime);
+    return true;
+  }
+
+  private synchronized void startSnapshots() {
+    if (snapshotExecutor == null) {
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("CacheSnapshot-" + cache.getName() + "-");
+      threadFactory.setDaemon(true);
+      snapshotExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      if (settings.getInterval() > 0) {
+        snapshotExecutor.scheduleWithFixedDelay(this::writeSnapshot, settings.getInterval(), settings.getInterval(),
+            TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  /**
+   * Writes a snapshot of the current content of the cache. Every object is
+   * serialized while holding its read lock.
+   */
+  public void writeSnapshot() {
+    if (!Status.STATUS_ALIVE.equals(cache.getStatus())) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    try (CacheSnapshotStore.SnapshotWriter writer =
+             snapshotStore.open(cache.getName(), start, batchCacheLoaderDAO.getMaxRow(), batchCacheLoaderDAO.getIdSum())) {
+      for (Object key : cache.getKeys()) {
+        cache.acquireReadLockOnKey(key);
+        try {
+          Element element = cache.getQuiet(key);
+          if (element != null) {
+            writer.write((Cacheable) element.getObjectValue());
+          }
+        } finally {
+          cache.releaseReadLockOnKey(key);
+        }
+      }
+      if (writer.commit()) {
+        log.info("Wrote snapshot of {} objects of cache {} in {} ms",
+            writer.getObjectCount(), cache.getName(), System.currentTimeMillis() - start);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.error("Unable to write the snapshot of cache {}", cache.getName(), e);
+    }
+  }
+
+  /**
+   * Stops the periodic snapshots and writes a final snapshot, if the cache
+   * was loaded by this loader. Called by Spring on shutdown.
+   */
+  public synchronized void shutdown() {
+    if (snapshotExecutor != null) {
+      snapshotExecutor.shutdown();
+      try {
+        snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      snapshotExecutor = null;
+      writeSnapshot();
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package cern.c2mon.server.cache.loading.config;
 
+import java.nio.file.Paths;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -7,6 +9,8 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import cern.c2mon.server.cache.loading.common.CacheSnapshotStore;
+
 /**
  * @author Justin Lewis Salmon
  */
@@ -27,4 +31,9 @@ public class CacheLoadingModule {
     executor.setQueueCapacity(properties.getQueueSize());
     return executor;
   }
+
+  @Bean
+  public CacheSnapshotStore cacheSnapshotStore() {
+    return new CacheSnapshotStore(Paths.get(properties.getSnapshot().getDirectory()));
+  }
 }
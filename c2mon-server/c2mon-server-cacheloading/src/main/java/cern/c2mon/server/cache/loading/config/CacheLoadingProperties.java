@@ -30,4 +30,38 @@ public class CacheLoadingProperties {
    * thrown at startup)
    */
   private int queueSize = 1000;
+
+  /**
+   * Snapshots of the data tag, rule tag and alarm caches, used instead of the
+   * database preload at startup
+   */
+  private final Snapshot snapshot = new Snapshot();
+
+  @Data
+  public static class Snapshot {
+
+    /**
+     * If true, the caches are written to snapshot files periodically and on
+     * shutdown, and loaded from these files at startup as long as they are
+     * consistent with the database. Ignored in "multi" cache mode
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory of the snapshot files
+     */
+    private String directory = "/tmp/c2mon-cache-snapshot";
+
+    /**
+     * Interval (in seconds) between two snapshots of a cache, or 0 for only
+     * writing snapshots on shutdown
+     */
+    private int interval = 3600;
+
+    /**
+     * Snapshots older than this age (in seconds) are not loaded, or 0 for no
+     * limit
+     */
+    private int maxAge = 86400;
+  }
 }
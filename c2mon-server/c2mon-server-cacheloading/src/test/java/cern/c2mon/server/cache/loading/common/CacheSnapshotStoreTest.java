@@ -0,0 +1,194 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.shared.common.Cacheable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CacheSnapshotStoreTest {
+
+  private Path directory;
+
+  private CacheSnapshotStore store;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("c2mon-snapshot-test");
+    store = new CacheSnapshotStore(directory);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    store.deleteAll();
+    Files.deleteIfExists(directory);
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    writeSnapshot("tagCache", 2500);
+
+    CacheSnapshotStore.Snapshot snapshot = store.read("tagCache");
+    assertEquals(1000L, snapshot.getCreatedAt());
+    assertEquals(2500, snapshot.getRowCount());
+    assertEquals(2500L * 2499 / 2, snapshot.getIdSum());
+    assertEquals(2500, snapshot.getObjectCount());
+
+    List<Cacheable> objects = new ArrayList<>();
+    store.readObjects(snapshot, objects::add);
+    assertEquals(2500, objects.size());
+    for (int i = 0; i < objects.size(); i++) {
+      TestObject object = (TestObject) objects.get(i);
+      assertEquals(Long.valueOf(i), object.getId());
+      assertEquals("tag" + i, object.name);
+    }
+  }
+
+  @Test
+  public void testMissingSnapshot() throws Exception {
+    assertNull(store.read("tagCache"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorruptSnapshotIsRejected() throws Exception {
+    writeSnapshot("tagCache", 10);
+    try (RandomAccessFile file = new RandomAccessFile(directory.resolve("tagCache.snapshot").toFile(), "rw")) {
+      file.seek(file.length() / 2);
+      int value = file.read();
+      file.seek(file.length() / 2);
+      file.write(value ^ 0xff);
+    }
+    store.read("tagCache");
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedSnapshotIsRejected() throws Exception {
+    writeSnapshot("tagCache", 10);
+    try (RandomAccessFile file = new RandomAccessFile(directory.resolve("tagCache.snapshot").toFile(), "rw")) {
+      file.setLength(file.length() - 20);
+    }
+    store.read("tagCache");
+  }
+
+  @Test
+  public void testUncommittedSnapshotIsDiscarded() throws Exception {
+    try (CacheSnapshotStore.SnapshotWriter writer = store.open("tagCache", 1000L, 1, 1L)) {
+      writer.write(new TestObject(1L, "tag1"));
+    }
+    assertNull(store.read("tagCache"));
+    assertFalse(Files.exists(directory.resolve("tagCache.snapshot.tmp")));
+  }
+
+  @Test
+  public void testDeleteAll() throws Exception {
+    writeSnapshot("tagCache", 10);
+    writeSnapshot("alarmCache", 10);
+
+    try (CacheSnapshotStore.SnapshotWriter writer = store.open("ruleCache", 1000L, 1, 1L)) {
+      writer.write(new TestObject(1L, "rule1"));
+      store.deleteAll();
+      assertFalse(writer.commit());
+    }
+
+    assertNull(store.read("tagCache"));
+    assertNull(store.read("alarmCache"));
+    assertNull(store.read("ruleCache"));
+
+    writeSnapshot("tagCache", 10);
+    assertTrue(store.read("tagCache") != null);
+  }
+
+  @Test
+  public void testSnapshotDuringConfigurationIsDiscarded() throws Exception {
+    writeSnapshot("tagCache", 10);
+
+    try (CacheSnapshotStore.SnapshotWriter before = store.open("alarmCache", 1000L, 1, 1L)) {
+      store.suspend();
+      assertNull(store.read("tagCache"));
+
+      try (CacheSnapshotStore.SnapshotWriter during = store.open("tagCache", 1000L, 1, 1L);
+           CacheSnapshotStore.SnapshotWriter overlapping = store.open("ruleCache", 1000L, 1, 1L)) {
+        during.write(new TestObject(1L, "tag1"));
+        assertFalse(during.commit());
+
+        overlapping.write(new TestObject(1L, "rule1"));
+        store.resume();
+        assertFalse(overlapping.commit());
+      }
+      assertFalse(before.commit());
+    }
+
+    assertNull(store.read("tagCache"));
+    assertNull(store.read("alarmCache"));
+    assertNull(store.read("ruleCache"));
+
+    writeSnapshot("tagCache", 10);
+    assertTrue(store.read("tagCache") != null);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testResumeWithoutSuspend() {
+    store.resume();
+  }
+
+  private void writeSnapshot(final String cacheName, final int size) throws IOException {
+    try (CacheSnapshotStore.SnapshotWriter writer = store.open(cacheName, 1000L, size, (long) size * (size - 1) / 2)) {
+      for (long i = 0; i < size; i++) {
+        writer.write(new TestObject(i, "tag" + i));
+      }
+      assertTrue(writer.commit());
+    }
+  }
+
+  private static class TestObject implements Cacheable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final String name;
+
+    TestObject(final Long id, final String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+      return super.clone();
+    }
+  }
+}
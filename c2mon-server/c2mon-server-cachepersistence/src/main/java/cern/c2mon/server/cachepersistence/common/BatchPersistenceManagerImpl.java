@@ -24,6 +24,7 @@ import org.apache.ibatis.exceptions.PersistenceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
 import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -115,6 +116,12 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
 
   private boolean started = false;
 
+  /** Statistics of the persistence cycles, for management only */
+  private volatile int lastCycleSize = 0;
+  private volatile long lastCycleDuration = 0;
+  private volatile long maxCycleDuration = 0;
+  private volatile long totalPersisted = 0;
+
   public BatchPersistenceManagerImpl(final CachePersistenceDAO<T> cachePersistenceDAO, final C2monCache<Long, T> cache,
                                      ClusterCache clusterCache, ThreadPoolTaskExecutor threadPoolTaskExecutor) {
     super();
@@ -142,6 +149,7 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
       }
 
       int size = localToBePersisted.size();
+      long cycleStart = System.nanoTime();
 
       LOGGER.debug("Persisting " + size + " cache object(s) to the database (" + cache.getClass() + ")");
 
@@ -170,6 +178,7 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
 
       int count = 0;
       int exceptionCount = 0;
+      int failedCount = 0;
       for (Future< ? > result : taskResults) {
         boolean exceptionCaught = false;
         count++;
@@ -191,6 +200,7 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
         } finally {
           if (exceptionCaught) {
             exceptionCount++;
+            failedCount += submittedSets.get(result).size();
             toBePersistedLock.writeLock().lock();
             try {
               toBePersisted.addAll(submittedSets.get(result));
@@ -205,11 +215,57 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
       } else {
         LOGGER.debug(exceptionCount + " out of " + count + " persistence batches failed and will be resubmitted.");
       }
+      recordCycle(size - failedCount, System.nanoTime() - cycleStart);
     } finally {
       clusterCache.releaseWriteLockOnKey(cachePersistenceLock);
     }
   }
 
+  /**
+   * Updates the statistics of the persistence cycles.
+   *
+   * @param persisted number of cache objects persisted during the cycle
+   * @param durationNanos duration of the cycle
+   */
+  private void recordCycle(final int persisted, final long durationNanos) {
+    long duration = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    lastCycleSize = persisted;
+    lastCycleDuration = duration;
+    if (duration > maxCycleDuration) {
+      maxCycleDuration = duration;
+    }
+    totalPersisted += persisted;
+    if (persisted > 0) {
+      LOGGER.debug("Persisted " + persisted + " cache object(s) in " + duration + " ms (" + getLastCycleRate() + " objects/s, "
+          + cache.getClass().getSimpleName() + ")");
+    }
+  }
+
+  @ManagedAttribute(description = "Number of cache objects persisted during the last persistence cycle")
+  public int getLastCycleSize() {
+    return lastCycleSize;
+  }
+
+  @ManagedAttribute(description = "Duration in ms of the last persistence cycle")
+  public long getLastCycleDuration() {
+    return lastCycleDuration;
+  }
+
+  @ManagedAttribute(description = "Maximum duration in ms of a persistence cycle")
+  public long getMaxCycleDuration() {
+    return maxCycleDuration;
+  }
+
+  @ManagedAttribute(description = "Number of cache objects persisted per second during the last persistence cycle")
+  public long getLastCycleRate() {
+    return lastCycleDuration == 0 ? lastCycleSize * 1000L : lastCycleSize * 1000L / lastCycleDuration;
+  }
+
+  @ManagedAttribute(description = "Total number of cache objects persisted")
+  public long getTotalPersisted() {
+    return totalPersisted;
+  }
+
   @Override
   public void addElementToPersist(Long key) {
     toBePersistedLock.writeLock().lock();
@@ -3,9 +3,11 @@ package cern.c2mon.server.cachepersistence.config;
 import cern.c2mon.server.cache.AlarmCache;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.dbaccess.AlarmMapper;
+import cern.c2mon.server.cache.dbaccess.structure.AlarmPersistenceRow;
 import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManager;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
+import cern.c2mon.server.cachepersistence.impl.BatchCachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.impl.CachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.listener.PersistenceSynchroListener;
 import cern.c2mon.server.common.alarm.Alarm;
@@ -29,6 +31,9 @@ public class AlarmPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<Alarm> alarmPersistenceDAO() {
+    if (properties.isJdbcBatch()) {
+      return new BatchCachePersistenceDAOImpl<>(alarmMapper, alarmCache, cacheSqlSessionFactory, AlarmMapper.class, AlarmPersistenceRow::of);
+    }
     return new CachePersistenceDAOImpl<>(alarmMapper, alarmCache);
   }
 
@@ -43,6 +48,7 @@ public class AlarmPersistenceConfig extends AbstractPersistenceConfig {
   @Bean
   public PersistenceSynchroListener alarmPersistenceSynchroListener() {
     Integer pullFrequency = cacheProperties.getBufferedListenerPullFrequency();
-    return new PersistenceSynchroListener(alarmCache, alarmPersistenceManager(), pullFrequency);
+    return new PersistenceSynchroListener(alarmCache, alarmPersistenceManager(), pullFrequency,
+        properties.getBufferedListener());
   }
 }
@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import cern.c2mon.server.cache.listener.BufferedListenerSettings;
+
 /**
  * @author Justin Lewis Salmon
  */
@@ -23,4 +25,16 @@ public class CachePersistenceProperties {
 
   /** Set the capacity for the ThreadPoolExecutor's BlockingQueue */
   private int queueCapacity = 1000;
+
+  /**
+   * Persist data tags, rule tags and alarms with JDBC batches of the updated
+   * columns, instead of one statement per copied cache object
+   */
+  private boolean jdbcBatch = false;
+
+  /**
+   * Bounds of the buffers of the cache persistence listeners, which receive
+   * the ids of the updated cache objects. Unbounded by default
+   */
+  private final BufferedListenerSettings bufferedListener = new BufferedListenerSettings();
 }
@@ -37,6 +37,7 @@ public class ControlTagPersistenceConfig extends AbstractPersistenceConfig {
   @Bean
   public PersistenceSynchroListener controlTagPersistenceSynchroListener() {
     Integer pullFrequency = cacheProperties.getBufferedListenerPullFrequency();
-    return new PersistenceSynchroListener(controlTagCache, controlTagPersistenceManager(), pullFrequency);
+    return new PersistenceSynchroListener(controlTagCache, controlTagPersistenceManager(), pullFrequency,
+        properties.getBufferedListener());
   }
 }
@@ -2,9 +2,11 @@ package cern.c2mon.server.cachepersistence.config;
 
 import cern.c2mon.server.cache.DataTagCache;
 import cern.c2mon.server.cache.dbaccess.DataTagMapper;
+import cern.c2mon.server.cache.dbaccess.structure.TagPersistenceRow;
 import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManager;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
+import cern.c2mon.server.cachepersistence.impl.BatchCachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.impl.CachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.listener.PersistenceSynchroListener;
 import cern.c2mon.server.common.datatag.DataTag;
@@ -26,6 +28,9 @@ public class DataTagPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<DataTag> dataTagPersistenceDAO() {
+    if (properties.isJdbcBatch()) {
+      return new BatchCachePersistenceDAOImpl<>(dataTagMapper, dataTagCache, cacheSqlSessionFactory, DataTagMapper.class, TagPersistenceRow::of);
+    }
     return new CachePersistenceDAOImpl<>(dataTagMapper, dataTagCache);
   }
 
@@ -40,6 +45,7 @@ public class DataTagPersistenceConfig extends AbstractPersistenceConfig {
   @Bean
   public PersistenceSynchroListener dataTagPersistenceSynchroListener() {
     Integer pullFrequency = cacheProperties.getBufferedListenerPullFrequency();
-    return new PersistenceSynchroListener(dataTagCache, dataTagPersistenceManager(), pullFrequency);
+    return new PersistenceSynchroListener(dataTagCache, dataTagPersistenceManager(), pullFrequency,
+        properties.getBufferedListener());
   }
 }
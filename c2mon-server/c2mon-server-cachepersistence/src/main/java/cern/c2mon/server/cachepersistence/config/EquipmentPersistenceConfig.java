@@ -40,6 +40,7 @@ public class EquipmentPersistenceConfig extends AbstractPersistenceConfig {
   @Bean
   public PersistenceSynchroListener equipmentPersistenceSynchroListener() {
     Integer pullFrequency = cacheProperties.getBufferedListenerPullFrequency();
-    return new PersistenceSynchroListener(equipmentCache, equipmentPersistenceManager(), pullFrequency);
+    return new PersistenceSynchroListener(equipmentCache, equipmentPersistenceManager(), pullFrequency,
+        properties.getBufferedListener());
   }
 }
@@ -40,6 +40,7 @@ public class ProcessPersistenceConfig extends AbstractPersistenceConfig {
   @Bean
   public PersistenceSynchroListener processPersistenceSynchroListener() {
     Integer pullFrequency = cacheProperties.getBufferedListenerPullFrequency();
-    return new PersistenceSynchroListener(processCache, processPersistenceManager(), pullFrequency);
+    return new PersistenceSynchroListener(processCache, processPersistenceManager(), pullFrequency,
+        properties.getBufferedListener());
   }
 }
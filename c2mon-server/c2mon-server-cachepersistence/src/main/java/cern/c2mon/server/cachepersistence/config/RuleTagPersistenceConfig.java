@@ -2,9 +2,11 @@ package cern.c2mon.server.cachepersistence.config;
 
 import cern.c2mon.server.cache.RuleTagCache;
 import cern.c2mon.server.cache.dbaccess.RuleTagMapper;
+import cern.c2mon.server.cache.dbaccess.structure.TagPersistenceRow;
 import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManager;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
+import cern.c2mon.server.cachepersistence.impl.BatchCachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.impl.CachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.listener.PersistenceSynchroListener;
 import cern.c2mon.server.common.rule.RuleTag;
@@ -26,6 +28,9 @@ public class RuleTagPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<RuleTag> ruleTagPersistenceDAO() {
+    if (properties.isJdbcBatch()) {
+      return new BatchCachePersistenceDAOImpl<>(ruleTagMapper, ruleTagCache, cacheSqlSessionFactory, RuleTagMapper.class, TagPersistenceRow::of);
+    }
     return new CachePersistenceDAOImpl<>(ruleTagMapper, ruleTagCache);
   }
 
@@ -37,6 +42,7 @@ public class RuleTagPersistenceConfig extends AbstractPersistenceConfig {
   @Bean
   public PersistenceSynchroListener ruleTagPersistenceSynchroListener() {
     Integer pullFrequency = cacheProperties.getBufferedListenerPullFrequency();
-    return new PersistenceSynchroListener(ruleTagCache, ruleTagPersistenceManager(), pullFrequency);
+    return new PersistenceSynchroListener(ruleTagCache, ruleTagPersistenceManager(), pullFrequency,
+        properties.getBufferedListener());
   }
 }
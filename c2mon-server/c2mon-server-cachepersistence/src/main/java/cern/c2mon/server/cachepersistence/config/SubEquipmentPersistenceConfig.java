@@ -40,6 +40,7 @@ public class SubEquipmentPersistenceConfig extends AbstractPersistenceConfig {
   @Bean
   public PersistenceSynchroListener subEquipmentPersistenceSynchroListener() {
     Integer pullFrequency = cacheProperties.getBufferedListenerPullFrequency();
-    return new PersistenceSynchroListener(subEquipmentCache, subEquipmentPersistenceManager(), pullFrequency);
+    return new PersistenceSynchroListener(subEquipmentCache, subEquipmentPersistenceManager(), pullFrequency,
+        properties.getBufferedListener());
   }
 }
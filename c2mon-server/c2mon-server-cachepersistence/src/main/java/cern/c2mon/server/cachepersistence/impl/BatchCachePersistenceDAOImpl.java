@@ -0,0 +1,152 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cachepersistence.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.transaction.annotation.Transactional;
+
+import cern.c2mon.server.cache.C2monCache;
+import cern.c2mon.server.cache.dbaccess.BatchPersistenceMapper;
+import cern.c2mon.server.cache.dbaccess.PersistenceMapper;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
+import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * {@link CachePersistenceDAO} persisting a batch of cache objects with a
+ * single JDBC batch.
+ *
+ * <p>Instead of taking a deep copy of every cache object, only the persisted
+ * fields are read into a compact row while holding the read lock on the
+ * object. All rows are then written in one transaction with a MyBatis
+ * session using {@link ExecutorType#BATCH}.
+ *
+ * @param <T> the cache object type
+ * @param <R> the row type written by the mapper
+ */
+@Slf4j
+public class BatchCachePersistenceDAOImpl<T extends Cacheable, R> implements CachePersistenceDAO<T> {
+
+  /**
+   * Mapper for persisting single cache updates.
+   */
+  private final PersistenceMapper<T> persistenceMapper;
+
+  /**
+   * The cache that is being persisted.
+   */
+  private final C2monCache<Long, T> cache;
+
+  /**
+   * The factory used to open batch sessions.
+   */
+  private final SqlSessionFactory sqlSessionFactory;
+
+  /**
+   * The mapper class used for creating the batch mapper from the session.
+   */
+  private final Class<? extends BatchPersistenceMapper<R>> mapperInterface;
+
+  /**
+   * Reads the persisted fields of a cache object into a row.
+   */
+  private final Function<T, R> rowFactory;
+
+  /**
+   * @param persistenceMapper the mapper bean for this cache
+   * @param cache the cache that is being persisted
+   * @param sqlSessionFactory the factory of the cache database sessions
+   * @param mapperInterface the mapper interface, implementing the batch statement
+   * @param rowFactory creates the row to persist from a cache object
+   */
+  public BatchCachePersistenceDAOImpl(final PersistenceMapper<T> persistenceMapper, final C2monCache<Long, T> cache,
+                                      final SqlSessionFactory sqlSessionFactory,
+                                      final Class<? extends BatchPersistenceMapper<R>> mapperInterface,
+                                      final Function<T, R> rowFactory) {
+    this.persistenceMapper = persistenceMapper;
+    this.cache = cache;
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.mapperInterface = mapperInterface;
+    this.rowFactory = rowFactory;
+  }
+
+  @Transactional("cacheTransactionManager")
+  @Override
+  public void updateCacheable(final T cacheable) {
+    persistenceMapper.updateCacheable(cacheable);
+  }
+
+  /**
+   * Used to persist a batch of cache objects in a single transaction.
+   * An object that is not found in the cache will not be persisted and skipped.
+   * @param keyList keys of the elements that need persisting
+   */
+  @Override
+  public void persistBatch(final List<Long> keyList) {
+    List<R> rows = new ArrayList<>(keyList.size());
+    for (Long key : keyList) {
+      R row = readRow(key);
+      if (row != null) {
+        rows.add(row);
+      }
+    }
+    if (rows.isEmpty()) {
+      return;
+    }
+
+    SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false);
+    try {
+      BatchPersistenceMapper<R> batchMapper = session.getMapper(mapperInterface);
+      for (R row : rows) {
+        batchMapper.updatePersistenceRow(row);
+      }
+      session.commit();
+    } finally {
+      // rolls back the statements if the commit was not reached
+      session.close();
+    }
+  }
+
+  /**
+   * @return the row of the given cache object, or null if it is not
+   *         in the cache or should not be persisted
+   */
+  private R readRow(final Long key) {
+    cache.acquireReadLockOnKey(key);
+    try {
+      T cacheObject = cache.get(key);
+      //do not persist unconfigured tags
+      if (!(cacheObject instanceof Tag) || !((Tag) cacheObject).isInUnconfigured()) {
+        return rowFactory.apply(cacheObject);
+      }
+    } catch (CacheElementNotFoundException ex) {
+      log.warn("Cache element with id {} could not be persisted as not found in cache " +
+          "(may have been removed in the meantime by a re-configuration). Cache is {}", key, cache.getClass().getSimpleName(), ex);
+    } finally {
+      cache.releaseReadLockOnKey(key);
+    }
+    return null;
+  }
+}
@@ -27,6 +27,8 @@ import org.springframework.context.SmartLifecycle;
 
 import cern.c2mon.server.cache.C2monBufferedCacheListener;
 import cern.c2mon.server.cache.C2monCacheWithListeners;
+import cern.c2mon.server.cache.listener.BufferOverflowPolicy;
+import cern.c2mon.server.cache.listener.BufferedListenerSettings;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManager;
 import cern.c2mon.server.common.config.ServerConstants;
 import cern.c2mon.shared.common.Cacheable;
@@ -72,6 +74,11 @@ public class PersistenceSynchroListener implements C2monBufferedCacheListener<Lo
   private volatile boolean running = false;
 
   private int bufferedListenerPullFrequency;
+
+  /**
+   * Bounds of the buffer of the updated keys.
+   */
+  private BufferedListenerSettings bufferedListenerSettings;
   
   /**
    * The constructor that should be used to instantiate a new
@@ -81,13 +88,17 @@ public class PersistenceSynchroListener implements C2monBufferedCacheListener<Lo
    * @param timCache the cache the listener should listen to
    * @param batchPersistenceManager the DAO object that contains the logic
    *                  for persisting the cache elements
+   * @param bufferedListenerPullFrequency the frequency (in ms) at which the updated keys are persisted
+   * @param bufferedListenerSettings the bounds of the buffer of the updated keys
    */
   public PersistenceSynchroListener(final C2monCacheWithListeners<Long, ? extends Cacheable> timCache,
                                     final BatchPersistenceManager batchPersistenceManager,
-                                    final int bufferedListenerPullFrequency) {
+                                    final int bufferedListenerPullFrequency,
+                                    final BufferedListenerSettings bufferedListenerSettings) {
     this.timCache = timCache;
     this.persistenceManager = batchPersistenceManager;
     this.bufferedListenerPullFrequency = bufferedListenerPullFrequency;
+    this.bufferedListenerSettings = bufferedListenerSettings;
   }
   
   /**
@@ -96,7 +107,11 @@ public class PersistenceSynchroListener implements C2monBufferedCacheListener<Lo
    */
   @PostConstruct
   public void init() {   
-    listenerContainer = timCache.registerKeyBufferedListener(this, bufferedListenerPullFrequency);
+    if (bufferedListenerSettings.getCapacity() > 0 && bufferedListenerSettings.getOverflowPolicy() == BufferOverflowPolicy.DROP_OLDEST) {
+      LOGGER.warn("Cache persistence of " + timCache.getClass().getSimpleName()
+          + " drops the oldest updated keys once its buffer is full: these updates will not be persisted");
+    }
+    listenerContainer = timCache.registerKeyBufferedListener(this, bufferedListenerPullFrequency, bufferedListenerSettings);
   }
 
   @Override
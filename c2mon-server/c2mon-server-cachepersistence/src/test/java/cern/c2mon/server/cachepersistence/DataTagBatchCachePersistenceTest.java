@@ -0,0 +1,106 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cachepersistence;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import cern.c2mon.server.cache.config.CacheModule;
+import cern.c2mon.server.cache.datatag.DataTagCacheImpl;
+import cern.c2mon.server.cache.dbaccess.DataTagMapper;
+import cern.c2mon.server.cache.dbaccess.config.CacheDbAccessModule;
+import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
+import cern.c2mon.server.cachepersistence.config.CachePersistenceModule;
+import cern.c2mon.server.cachepersistence.impl.BatchCachePersistenceDAOImpl;
+import cern.c2mon.server.common.config.CommonModule;
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.test.DatabasePopulationRule;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration test of the JDBC-batched cache persistence.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {
+    CommonModule.class,
+    CacheModule.class,
+    CacheDbAccessModule.class,
+    CachePersistenceModule.class,
+    DatabasePopulationRule.class
+})
+@TestPropertySource(properties = "c2mon.server.cachepersistence.jdbcBatch=true")
+public class DataTagBatchCachePersistenceTest {
+
+  @Rule
+  @Autowired
+  public DatabasePopulationRule databasePopulationRule;
+
+  @Autowired
+  private DataTagCacheImpl dataTagCache;
+
+  @Autowired
+  private DataTagMapper dataTagMapper;
+
+  @Autowired
+  private CachePersistenceDAO<DataTag> dataTagPersistenceDAO;
+
+  @Autowired
+  private BatchPersistenceManagerImpl dataTagPersistenceManager;
+
+  private DataTagCacheObject originalObject;
+
+  @Before
+  public void setUpData() throws IOException {
+    originalObject = (DataTagCacheObject) dataTagMapper.getItem(200000L);
+  }
+
+  @Test
+  public void testBatchPersistence() {
+    assertTrue(dataTagPersistenceDAO instanceof BatchCachePersistenceDAOImpl);
+    dataTagCache.put(originalObject.getId(), originalObject);
+
+    DataTagCacheObject cacheObject = (DataTagCacheObject) dataTagCache.get(originalObject.getId());
+    cacheObject.setValue(0);
+    cacheObject.setValueDescription("batch persisted");
+    cacheObject.setDataTagQuality(new DataTagQualityImpl(TagQualityStatus.INACCESSIBLE, "inaccessible"));
+
+    dataTagPersistenceManager.persistAllCacheToDatabase();
+
+    DataTagCacheObject objectInDB = (DataTagCacheObject) dataTagMapper.getItem(originalObject.getId());
+    assertNotNull(objectInDB);
+    assertEquals(0, objectInDB.getValue());
+    assertEquals("batch persisted", objectInDB.getValueDescription());
+    assertEquals(cacheObject.getDataTagQuality(), objectInDB.getDataTagQuality());
+    assertTrue(dataTagPersistenceManager.getLastCycleSize() > 0);
+
+    dataTagCache.remove(originalObject.getId());
+  }
+}
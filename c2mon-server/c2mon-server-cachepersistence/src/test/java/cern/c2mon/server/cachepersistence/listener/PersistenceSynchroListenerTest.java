@@ -0,0 +1,52 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cachepersistence.listener;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.DataTagCache;
+import cern.c2mon.server.cache.listener.BufferOverflowPolicy;
+import cern.c2mon.server.cache.listener.BufferedListenerSettings;
+import cern.c2mon.server.cachepersistence.common.BatchPersistenceManager;
+import cern.c2mon.shared.daq.lifecycle.Lifecycle;
+
+/**
+ * Checks that the cache persistence listener registers with its own buffer
+ * settings.
+ */
+public class PersistenceSynchroListenerTest {
+
+  @Test
+  public void testRegistersWithBufferSettings() {
+    DataTagCache dataTagCache = EasyMock.createMock(DataTagCache.class);
+    BatchPersistenceManager persistenceManager = EasyMock.createMock(BatchPersistenceManager.class);
+    Lifecycle listenerContainer = EasyMock.createMock(Lifecycle.class);
+    BufferedListenerSettings settings = new BufferedListenerSettings();
+    settings.setCapacity(1000);
+    settings.setOverflowPolicy(BufferOverflowPolicy.COALESCE_BY_KEY);
+    settings.setLatestValuePerKey(true);
+
+    PersistenceSynchroListener listener = new PersistenceSynchroListener(dataTagCache, persistenceManager, 100, settings);
+    EasyMock.expect(dataTagCache.registerKeyBufferedListener(listener, 100, settings)).andReturn(listenerContainer);
+    EasyMock.replay(dataTagCache, persistenceManager, listenerContainer);
+
+    listener.init();
+
+    EasyMock.verify(dataTagCache, persistenceManager, listenerContainer);
+  }
+}
@@ -20,6 +20,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Data;
 
+import cern.c2mon.server.client.publish.TopicRouting;
 import cern.c2mon.shared.client.config.ClientJmsProperties;
 
 /**
@@ -42,6 +43,20 @@ public class ClientProperties {
      * process ID will be appended.
      */
     private String tagTopicPrefix = "c2mon.client.tag";
+
+    /**
+     * Distribution of the tags of a process over the client topics: one topic
+     * per process (PROCESS, default), one per equipment and sub-equipment
+     * (EQUIPMENT) or a fixed number of topics per process (HASH). Clients only
+     * receive the updates of the topics of their subscribed tags.
+     */
+    private TopicRouting tagTopicRouting = TopicRouting.PROCESS;
+
+    /**
+     * Number of topics per process with the HASH routing. Each topic subscribed
+     * by a client uses a separate JMS session on the client side.
+     */
+    private int tagTopicBuckets = 8;
     
     /**
      * Set the time-to-live in seconds for all client messages that are distributed via JMS topics
@@ -54,5 +69,19 @@ public class ClientProperties {
 
     /** Specify the maximum number of concurrent consumers to receive client requests */
     private int maxConsumers = 10;
+
+    /**
+     * Time window in milliseconds during which the tag updates of a topic are
+     * buffered and published as a single batch message, keeping only the latest
+     * value of every tag. Default is 0, which publishes every update as
+     * separate message. Batch messages require clients supporting them.
+     */
+    private int tagBatchWindow = 0;
+
+    /**
+     * Maximum number of tags in a batch message. A full batch is published
+     * before the end of the time window.
+     */
+    private int tagBatchMaxSize = 500;
   }
 }
@@ -16,7 +16,10 @@
  *****************************************************************************/
 package cern.c2mon.server.client.publish;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -30,6 +33,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jms.JmsException;
 import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.cache.AliveTimerFacade;
@@ -58,6 +62,11 @@ import cern.c2mon.shared.util.jms.JmsSender;
  * topics. The update information is transmitted as GSON message
  * with the <code>TransferTagValue</code> class.
  *
+ * If a tag batch window is configured, the updates are buffered per topic
+ * during this window and published as a JSON array of
+ * <code>TransferTagValue</code> objects, keeping only the latest update
+ * of every tag.
+ *
  * This class implements the <code>ConfigurationUpdateListener</code>
  * interface for sending configuration updates to the tag JMS destination
  * topics. The update information is transmitted as GSON message
@@ -103,6 +112,12 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
 
   private ClientProperties properties;
 
+  /** Buffers the tag updates per topic, null if batching is disabled */
+  private TopicBatchBuffer<TagWithAlarms> batchBuffer;
+
+  /** Publishes the batches at the end of the time window */
+  private ScheduledExecutorService batchExecutor;
+
   /**
    * Default Constructor
    * @param jmsSender Used for sending JMS messages and waiting for a response
@@ -136,6 +151,16 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
   @PostConstruct
   public void init() {
     log.info("init - Starting Tag publisher.");
+
+    ClientProperties.Jms jms = properties.getJms();
+    if (jms.getTagBatchWindow() > 0) {
+      log.info("init - Publishing tag updates in batches of at most {} tags every {} ms.", jms.getTagBatchMaxSize(), jms.getTagBatchWindow());
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("TagBatchPublisher-");
+      threadFactory.setDaemon(true);
+      batchExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      batchBuffer = new TopicBatchBuffer<>(jms.getTagBatchWindow(), jms.getTagBatchMaxSize(), this::publishBatch, batchExecutor);
+    }
+
     log.trace("init - Registering for Tag Updates.");
 
     this.alarmAggregatorRegistration.registerForTagUpdates(this);
@@ -155,6 +180,10 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
   @PreDestroy
   public void shutdown() {
     log.info("shutdown - Stopping tag publisher.");
+    if (batchBuffer != null) {
+      batchExecutor.shutdown();
+      batchBuffer.flushAll();
+    }
     republisher.stop();
   }
 
@@ -184,10 +213,40 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
 
   @Override
   public void publish(final TagWithAlarms tagWithAlarms) {
-    TransferTagValueImpl tagValue = TransferObjectFactory.createTransferTagValue(tagWithAlarms);
-    log.trace("publish - Publishing tag update to client: " + TransferTagSerializer.toJson(tagValue));
+    String topic = TopicProvider.topicFor(tagWithAlarms.getTag(), properties);
+    if (batchBuffer != null) {
+      batchBuffer.add(topic, tagWithAlarms.getTag().getId(), tagWithAlarms);
+      return;
+    }
+
+    String json = TransferTagSerializer.toJson(TransferObjectFactory.createTransferTagValue(tagWithAlarms));
+    log.trace("publish - Publishing tag update to client: {}", json);
+
+    jmsSender.sendToTopic(json, topic);
+  }
 
-    jmsSender.sendToTopic(TransferTagSerializer.toJson(tagValue), TopicProvider.topicFor(tagWithAlarms.getTag(), properties));
+  /**
+   * Sends a batch of tag updates as one message. If the publication fails,
+   * all updates of the batch are submitted for republication.
+   * @param topic the topic of the tags
+   * @param batch the latest update of every tag of the batch
+   */
+  private void publishBatch(final String topic, final List<TagWithAlarms> batch) {
+    List<TransferTagValueImpl> tagValues = new ArrayList<>(batch.size());
+    for (TagWithAlarms tagWithAlarms : batch) {
+      tagValues.add(TransferObjectFactory.createTransferTagValue(tagWithAlarms));
+    }
+    String json = TransferTagSerializer.toCollectionJson(tagValues);
+    log.trace("publishBatch - Publishing {} tag updates to client: {}", tagValues.size(), json);
+
+    try {
+      jmsSender.sendToTopic(json, topic);
+    } catch (JmsException e) {
+      log.error("publishBatch - Error publishing " + batch.size() + " tag updates to topic " + topic + " - submitting for republication", e);
+      for (TagWithAlarms tagWithAlarms : batch) {
+        republisher.publicationFailed(tagWithAlarms);
+      }
+    }
   }
 
   @Override
@@ -227,4 +286,57 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
   public int getSizeUnpublishedList() {
     return republisher.getSizeUnpublishedList();
   }
+
+  /**
+   * @return the number of batch messages published since the publisher start
+   */
+  @ManagedOperation(description = "Returns the number of tag update batches published since the application started")
+  public long getNumberPublishedBatches() {
+    return batchBuffer == null ? 0 : batchBuffer.getPublishedBatches();
+  }
+
+  /**
+   * @return the number of tag updates which were replaced by a later update
+   *         of the same tag before the publication of the batch
+   */
+  @ManagedOperation(description = "Returns the number of tag updates replaced by a newer update within the batch window")
+  public long getNumberCoalescedUpdates() {
+    return batchBuffer == null ? 0 : batchBuffer.getCoalescedUpdates();
+  }
+
+  @ManagedOperation(description = "Returns the number of tags of the last published batch")
+  public long getLastBatchSize() {
+    return batchBuffer == null ? 0 : batchBuffer.getLastBatchSize();
+  }
+
+  @ManagedOperation(description = "Returns the largest number of tags published in one batch")
+  public long getMaxBatchSize() {
+    return batchBuffer == null ? 0 : batchBuffer.getMaxBatchSize();
+  }
+
+  @ManagedOperation(description = "Returns the average number of tags per published batch")
+  public double getAverageBatchSize() {
+    return batchBuffer == null ? 0 : batchBuffer.getAverageBatchSize();
+  }
+
+  /**
+   * @return the time in milliseconds between the first update of the last
+   *         batch and the end of its publication
+   */
+  @ManagedOperation(description = "Returns the time in ms between the first buffered update and the publication of the last batch")
+  public long getLastPublishLatency() {
+    return batchBuffer == null ? 0 : batchBuffer.getLastLatency();
+  }
+
+  @ManagedOperation(description = "Returns the largest time in ms between the first buffered update and the publication of a batch")
+  public long getMaxPublishLatency() {
+    return batchBuffer == null ? 0 : batchBuffer.getMaxLatency();
+  }
+
+  @ManagedOperation(description = "Resets the largest batch size and publish latency")
+  public void resetBatchStatistics() {
+    if (batchBuffer != null) {
+      batchBuffer.resetStatistics();
+    }
+  }
 }
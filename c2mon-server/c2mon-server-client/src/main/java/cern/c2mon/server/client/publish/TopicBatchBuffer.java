@@ -0,0 +1,272 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.client.publish;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buffers updates per JMS topic during a short time window, keeping only the
+ * latest update of every tag, and passes each topic batch to a
+ * {@link BatchListener} once the window has elapsed or the batch is full.
+ *
+ * <p>The window starts with the first update buffered for a topic, so that
+ * no update is delayed by more than the window. Full batches are passed to
+ * the listener on the thread adding the last update, all other batches on
+ * the thread of the given executor. The batches of a topic are passed on
+ * one at a time, in the order in which they were taken from the buffer.
+ * Once the executor is shut down, the batches are passed on by the thread
+ * adding the first update instead.
+ *
+ * @param <T> the type of the buffered updates
+ */
+@Slf4j
+class TopicBatchBuffer<T> {
+
+  /**
+   * Receives the batches of updates.
+   *
+   * @param <T> the type of the buffered updates
+   */
+  interface BatchListener<T> {
+
+    /**
+     * @param topic the topic of all updates of the batch
+     * @param batch the updates, at most one per tag, never empty
+     */
+    void onBatch(String topic, List<T> batch);
+  }
+
+  private final long windowMillis;
+
+  private final int maxTagsPerBatch;
+
+  private final BatchListener<T> listener;
+
+  private final ScheduledExecutorService executor;
+
+  private final ConcurrentMap<String, TopicBatch> batches = new ConcurrentHashMap<>();
+
+  private final AtomicLong bufferedUpdates = new AtomicLong();
+
+  private final AtomicLong coalescedUpdates = new AtomicLong();
+
+  private final AtomicLong publishedBatches = new AtomicLong();
+
+  private final AtomicLong publishedUpdates = new AtomicLong();
+
+  private final AtomicLong lastBatchSize = new AtomicLong();
+
+  private final AtomicLong maxBatchSize = new AtomicLong();
+
+  private final AtomicLong lastLatency = new AtomicLong();
+
+  private final AtomicLong maxLatency = new AtomicLong();
+
+  /**
+   * @param windowMillis the time in milliseconds during which the updates of a topic are buffered
+   * @param maxTagsPerBatch the number of tags after which a batch is passed on without waiting for the window
+   * @param listener receives the batches
+   * @param executor used to schedule the end of the windows
+   */
+  TopicBatchBuffer(final long windowMillis, final int maxTagsPerBatch, final BatchListener<T> listener,
+                   final ScheduledExecutorService executor) {
+    this.windowMillis = windowMillis;
+    this.maxTagsPerBatch = Math.max(1, maxTagsPerBatch);
+    this.listener = listener;
+    this.executor = executor;
+  }
+
+  /**
+   * Buffers an update, replacing any update of the same tag which is still
+   * waiting in the batch of the topic.
+   *
+   * @param topic the destination topic
+   * @param tagId the id of the updated tag
+   * @param update the update
+   */
+  void add(final String topic, final Long tagId, final T update) {
+    TopicBatch batch = batches.computeIfAbsent(topic, TopicBatch::new);
+    boolean full;
+    boolean windowStarted = false;
+    synchronized (batch) {
+      if (batch.updates.isEmpty()) {
+        batch.firstUpdateTime = System.currentTimeMillis();
+        windowStarted = true;
+      }
+      if (batch.updates.put(tagId, update) != null) {
+        coalescedUpdates.incrementAndGet();
+      }
+      full = batch.updates.size() >= maxTagsPerBatch;
+    }
+    bufferedUpdates.incrementAndGet();
+
+    if (full) {
+      flush(batch);
+    } else if (windowStarted) {
+      try {
+        executor.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // shut down, the window would never end
+        flush(batch);
+      }
+    }
+  }
+
+  /**
+   * Passes all buffered updates to the listener, without waiting for the
+   * end of the windows.
+   */
+  void flushAll() {
+    for (TopicBatch batch : batches.values()) {
+      flush(batch);
+    }
+  }
+
+  /**
+   * Takes the updates from the buffer and passes them on, while holding the
+   * publication lock of the topic. Another batch of the same topic is
+   * therefore only taken once this one has been passed on.
+   */
+  private void flush(final TopicBatch batch) {
+    synchronized (batch.publicationLock) {
+      Batch<T> updates;
+      synchronized (batch) {
+        if (batch.updates.isEmpty()) {
+          // already passed on
+          return;
+        }
+        updates = batch.drain();
+      }
+      publish(batch.topic, updates);
+    }
+  }
+
+  private void publish(final String topic, final Batch<T> batch) {
+    try {
+      listener.onBatch(topic, batch.updates);
+    } catch (Exception e) {
+      log.error("Unexpected exception caught while publishing a batch of " + batch.updates.size() + " updates to topic " + topic, e);
+    }
+    long latency = System.currentTimeMillis() - batch.firstUpdateTime;
+    lastBatchSize.set(batch.updates.size());
+    maxBatchSize.accumulateAndGet(batch.updates.size(), Math::max);
+    lastLatency.set(latency);
+    maxLatency.accumulateAndGet(latency, Math::max);
+    publishedUpdates.addAndGet(batch.updates.size());
+    publishedBatches.incrementAndGet();
+  }
+
+  /**
+   * @return the number of updates passed to {@link #add}
+   */
+  long getBufferedUpdates() {
+    return bufferedUpdates.get();
+  }
+
+  /**
+   * @return the number of updates replaced by a later update of the same tag
+   */
+  long getCoalescedUpdates() {
+    return coalescedUpdates.get();
+  }
+
+  long getPublishedBatches() {
+    return publishedBatches.get();
+  }
+
+  long getLastBatchSize() {
+    return lastBatchSize.get();
+  }
+
+  long getMaxBatchSize() {
+    return maxBatchSize.get();
+  }
+
+  /**
+   * @return the average number of tags per batch
+   */
+  double getAverageBatchSize() {
+    long batchCount = publishedBatches.get();
+    return batchCount == 0 ? 0 : (double) publishedUpdates.get() / batchCount;
+  }
+
+  /**
+   * @return the time in milliseconds between the first update of the last
+   *         batch and the return of its publication
+   */
+  long getLastLatency() {
+    return lastLatency.get();
+  }
+
+  long getMaxLatency() {
+    return maxLatency.get();
+  }
+
+  void resetStatistics() {
+    maxBatchSize.set(0);
+    maxLatency.set(0);
+  }
+
+  /**
+   * The updates of a topic waiting for the end of the window.
+   */
+  private final class TopicBatch {
+
+    private final String topic;
+
+    /** Held while a batch of the topic is taken and passed on */
+    private final Object publicationLock = new Object();
+
+    /** Latest update per tag id, in the order of the first update of every tag */
+    private Map<Long, T> updates = new LinkedHashMap<>();
+
+    private long firstUpdateTime;
+
+    private TopicBatch(final String topic) {
+      this.topic = topic;
+    }
+
+    private Batch<T> drain() {
+      Batch<T> batch = new Batch<>(new ArrayList<>(updates.values()), firstUpdateTime);
+      updates = new LinkedHashMap<>();
+      return batch;
+    }
+  }
+
+  private static final class Batch<T> {
+
+    private final List<T> updates;
+
+    private final long firstUpdateTime;
+
+    private Batch(final List<T> updates, final long firstUpdateTime) {
+      this.updates = updates;
+      this.firstUpdateTime = firstUpdateTime;
+    }
+  }
+}
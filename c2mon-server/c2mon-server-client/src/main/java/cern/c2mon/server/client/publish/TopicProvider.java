@@ -7,19 +7,28 @@ import cern.c2mon.server.common.rule.RuleTag;
 import cern.c2mon.server.common.tag.Tag;
 
 /**
+ * Determines the client topic of a tag. Data tags and rules are published to
+ * a topic of their (lowest) process, possibly split further according to the
+ * configured {@link TopicRouting}.
+ *
  * @author Justin Lewis Salmon
  */
 public class TopicProvider {
 
   public static String topicFor(Tag tag, ClientProperties properties) {
-    String trunk = properties.getJms().getTagTopicPrefix();
+    ClientProperties.Jms jms = properties.getJms();
+    String trunk = jms.getTagTopicPrefix();
 
     if (tag instanceof ControlTag) {
-      return properties.getJms().getControlTagTopic();
-    } else if (tag instanceof RuleTag) {
-      return trunk + "." + ((RuleTag) tag).getLowestProcessId();
+      return jms.getControlTagTopic();
+    }
+
+    String processTopic;
+    if (tag instanceof RuleTag) {
+      processTopic = trunk + "." + ((RuleTag) tag).getLowestProcessId();
     } else {
-      return trunk + "." + ((DataTag) tag).getProcessId();
+      processTopic = trunk + "." + ((DataTag) tag).getProcessId();
     }
+    return jms.getTagTopicRouting().route(processTopic, tag, jms.getTagTopicBuckets());
   }
 }
@@ -0,0 +1,83 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.client.publish;
+
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.tag.Tag;
+
+/**
+ * Strategies used by the {@link TopicProvider} for distributing the tags of
+ * a process over several client topics, selected with the
+ * <code>c2mon.server.client.jms.tagTopicRouting</code> property.
+ *
+ * <p>The clients subscribe to the topic name transmitted with the tag
+ * configuration, so that a client only receives the updates of the topics
+ * of its subscribed tags. As the client opens one session per topic, the
+ * number of topics should nevertheless stay reasonable.
+ */
+public enum TopicRouting {
+
+  /**
+   * All tags of a process share the topic <code>&lt;prefix&gt;.&lt;processId&gt;</code>.
+   */
+  PROCESS {
+    @Override
+    String route(final String processTopic, final Tag tag, final int buckets) {
+      return processTopic;
+    }
+  },
+
+  /**
+   * Data tags are published to <code>&lt;prefix&gt;.&lt;processId&gt;.equipment.&lt;equipmentId&gt;</code>,
+   * respectively <code>&lt;prefix&gt;.&lt;processId&gt;.subequipment.&lt;subEquipmentId&gt;</code>.
+   * Rules, which may depend on several equipments, stay on the process topic.
+   */
+  EQUIPMENT {
+    @Override
+    String route(final String processTopic, final Tag tag, final int buckets) {
+      if (tag instanceof DataTag) {
+        DataTag dataTag = (DataTag) tag;
+        if (dataTag.getSubEquipmentId() != null) {
+          return processTopic + ".subequipment." + dataTag.getSubEquipmentId();
+        } else if (dataTag.getEquipmentId() != null) {
+          return processTopic + ".equipment." + dataTag.getEquipmentId();
+        }
+      }
+      return processTopic;
+    }
+  },
+
+  /**
+   * The tags of a process are distributed over a fixed number of topics
+   * <code>&lt;prefix&gt;.&lt;processId&gt;.&lt;bucket&gt;</code>, the bucket
+   * being the tag id modulo the number of buckets.
+   */
+  HASH {
+    @Override
+    String route(final String processTopic, final Tag tag, final int buckets) {
+      return processTopic + "." + Math.floorMod(tag.getId(), Math.max(1, buckets));
+    }
+  };
+
+  /**
+   * @param processTopic the topic shared by all tags of the process
+   * @param tag the data or rule tag
+   * @param buckets the number of topics per process for {@link #HASH}
+   * @return the topic of the tag
+   */
+  abstract String route(String processTopic, Tag tag, int buckets);
+}
@@ -0,0 +1,156 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.client.publish;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of the {@link TopicBatchBuffer}.
+ */
+public class TopicBatchBufferTest {
+
+  private ScheduledExecutorService executor;
+
+  private final Map<String, List<String>> published = new ConcurrentHashMap<>();
+
+  @Before
+  public void setUp() {
+    executor = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testLatestUpdatePerTag() {
+    TopicBatchBuffer<String> buffer = new TopicBatchBuffer<>(60000, 100, published::put, executor);
+    buffer.add("topic.1", 1L, "a");
+    buffer.add("topic.1", 2L, "b");
+    buffer.add("topic.1", 1L, "c");
+    buffer.add("topic.2", 3L, "d");
+    assertTrue(published.isEmpty());
+
+    buffer.flushAll();
+
+    assertEquals(Arrays.asList("c", "b"), published.get("topic.1"));
+    assertEquals(Arrays.asList("d"), published.get("topic.2"));
+    assertEquals(4, buffer.getBufferedUpdates());
+    assertEquals(1, buffer.getCoalescedUpdates());
+    assertEquals(2, buffer.getPublishedBatches());
+    assertEquals(2, buffer.getMaxBatchSize());
+    assertEquals(1.5, buffer.getAverageBatchSize(), 0.001);
+
+    // nothing left to publish
+    published.clear();
+    buffer.flushAll();
+    assertTrue(published.isEmpty());
+  }
+
+  @Test
+  public void testFullBatchIsPublishedImmediately() {
+    TopicBatchBuffer<String> buffer = new TopicBatchBuffer<>(60000, 2, published::put, executor);
+    buffer.add("topic.1", 1L, "a");
+    buffer.add("topic.1", 1L, "b");
+    assertTrue(published.isEmpty());
+
+    buffer.add("topic.1", 2L, "c");
+    assertEquals(Arrays.asList("b", "c"), published.get("topic.1"));
+    assertEquals(2, buffer.getLastBatchSize());
+  }
+
+  @Test
+  public void testBatchIsPublishedAfterWindow() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    TopicBatchBuffer<String> buffer = new TopicBatchBuffer<>(10, 100, (topic, batch) -> {
+      published.put(topic, batch);
+      latch.countDown();
+    }, executor);
+    buffer.add("topic.1", 1L, "a");
+    buffer.add("topic.1", 2L, "b");
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("a", "b"), published.get("topic.1"));
+    // the statistics are updated once the listener returned
+    for (int i = 0; i < 500 && buffer.getPublishedBatches() == 0; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, buffer.getPublishedBatches());
+    assertTrue(buffer.getLastLatency() >= 10);
+    assertEquals(buffer.getLastLatency(), buffer.getMaxLatency());
+  }
+
+  @Test
+  public void testBatchesOfTopicArePublishedInOrder() throws Exception {
+    List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch firstBatchEntered = new CountDownLatch(1);
+    CountDownLatch firstBatchReleased = new CountDownLatch(1);
+    TopicBatchBuffer<String> buffer = new TopicBatchBuffer<>(10, 2, (topic, batch) -> {
+      batches.add(batch);
+      firstBatchEntered.countDown();
+      try {
+        firstBatchReleased.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, executor);
+
+    // published by the executor after the window
+    buffer.add("topic.1", 1L, "a");
+    assertTrue(firstBatchEntered.await(5, TimeUnit.SECONDS));
+
+    // full batch, must wait until the first one has been published
+    Thread adder = new Thread(() -> {
+      buffer.add("topic.1", 2L, "b");
+      buffer.add("topic.1", 3L, "c");
+    });
+    adder.start();
+    adder.join(200);
+    assertEquals(1, batches.size());
+
+    firstBatchReleased.countDown();
+    adder.join(5000);
+    assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b", "c")), batches);
+  }
+
+  @Test
+  public void testPublishedSynchronouslyAfterShutdown() {
+    TopicBatchBuffer<String> buffer = new TopicBatchBuffer<>(60000, 100, published::put, executor);
+    executor.shutdown();
+
+    buffer.add("topic.1", 1L, "a");
+
+    assertEquals(Arrays.asList("a"), published.get("topic.1"));
+  }
+}
@@ -0,0 +1,92 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.client.publish;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.client.config.ClientProperties;
+import cern.c2mon.server.common.control.ControlTagCacheObject;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+
+/**
+ * Unit test of the topic routing strategies of the {@link TopicProvider}.
+ */
+public class TopicProviderTest {
+
+  private ClientProperties properties;
+
+  private DataTagCacheObject equipmentTag;
+
+  private DataTagCacheObject subEquipmentTag;
+
+  private RuleTagCacheObject ruleTag;
+
+  @Before
+  public void setUp() {
+    properties = new ClientProperties();
+
+    equipmentTag = new DataTagCacheObject(1001L);
+    equipmentTag.setProcessId(50L);
+    equipmentTag.setEquipmentId(150L);
+
+    subEquipmentTag = new DataTagCacheObject(1002L);
+    subEquipmentTag.setProcessId(50L);
+    subEquipmentTag.setSubEquipmentId(250L);
+
+    ruleTag = new RuleTagCacheObject(1003L);
+    ruleTag.setProcessIds(new HashSet<>(Arrays.asList(60L, 50L)));
+  }
+
+  @Test
+  public void testProcessRouting() {
+    assertEquals("c2mon.client.tag.50", TopicProvider.topicFor(equipmentTag, properties));
+    assertEquals("c2mon.client.tag.50", TopicProvider.topicFor(subEquipmentTag, properties));
+    assertEquals("c2mon.client.tag.50", TopicProvider.topicFor(ruleTag, properties));
+  }
+
+  @Test
+  public void testEquipmentRouting() {
+    properties.getJms().setTagTopicRouting(TopicRouting.EQUIPMENT);
+    assertEquals("c2mon.client.tag.50.equipment.150", TopicProvider.topicFor(equipmentTag, properties));
+    assertEquals("c2mon.client.tag.50.subequipment.250", TopicProvider.topicFor(subEquipmentTag, properties));
+    assertEquals("c2mon.client.tag.50", TopicProvider.topicFor(ruleTag, properties));
+  }
+
+  @Test
+  public void testHashRouting() {
+    properties.getJms().setTagTopicRouting(TopicRouting.HASH);
+    properties.getJms().setTagTopicBuckets(4);
+    assertEquals("c2mon.client.tag.50.1", TopicProvider.topicFor(equipmentTag, properties));
+    assertEquals("c2mon.client.tag.50.2", TopicProvider.topicFor(subEquipmentTag, properties));
+    assertEquals("c2mon.client.tag.50.3", TopicProvider.topicFor(ruleTag, properties));
+  }
+
+  @Test
+  public void testControlTagIsNotRouted() {
+    properties.getJms().setTagTopicRouting(TopicRouting.HASH);
+    ControlTagCacheObject controlTag = new ControlTagCacheObject(1004L);
+    controlTag.setProcessId(50L);
+    assertEquals(properties.getJms().getControlTagTopic(), TopicProvider.topicFor(controlTag, properties));
+  }
+}
@@ -17,7 +17,6 @@
 package cern.c2mon.server.common.alarm;
 
 import java.sql.Timestamp;
-import java.util.LinkedList;
 
 import lombok.Data;
 
@@ -38,7 +37,14 @@ import cern.c2mon.shared.common.Cacheable;
 public class AlarmCacheObject implements Cloneable, Cacheable, Alarm {
 
   /** Serial version UID */
-  private static final long serialVersionUID = 794087757524662419L;
+  private static final long serialVersionUID = -5186380915497155213L;
+
+  /**
+   * Capacity of the oscillation history for the default oscillation
+   * threshold of 6 state changes, plus the current one. Adapted to the
+   * configured threshold on the first oscillation check.
+   */
+  private static final int DEFAULT_OSCILLATION_HISTORY = 7;
 
   /**
    * Internal identifier of the AlarmCacheObject.
@@ -109,7 +115,7 @@ public class AlarmCacheObject implements Cloneable, Cacheable, Alarm {
   private boolean internalActive;
 
   /** Used to keep the n last source timestamps to calculate the oscillation time range */
-  private LinkedList<Long> fifoSourceTimestamps = new LinkedList<>();
+  private TimestampRingBuffer fifoSourceTimestamps = new TimestampRingBuffer(DEFAULT_OSCILLATION_HISTORY);
 
   /** Set to <code>true</code>, if alarm starts oscillating */
   private boolean oscillating;
@@ -157,6 +163,9 @@ public class AlarmCacheObject implements Cloneable, Cacheable, Alarm {
     if (this.sourceTimestamp != null) {
       alarmCacheObject.sourceTimestamp = (Timestamp) this.sourceTimestamp.clone();
     }
+    if (this.fifoSourceTimestamps != null) {
+      alarmCacheObject.fifoSourceTimestamps = this.fifoSourceTimestamps.clone();
+    }
     return alarmCacheObject;
   }
 
@@ -0,0 +1,215 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.alarm;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+/**
+ * Fixed-size FIFO of timestamps (in milliseconds) backed by a primitive
+ * <code>long</code> array. Used by the {@link AlarmCacheObject} to keep the
+ * source timestamps of the last alarm state changes for detecting
+ * oscillations, without boxing and list node allocations on every change.
+ *
+ * <p>Once the capacity is reached, adding a new timestamp overwrites the
+ * oldest one. This class is not thread-safe; it is protected by the lock of
+ * the cache object which holds it.
+ */
+public final class TimestampRingBuffer implements Cloneable, Serializable {
+
+  private static final long serialVersionUID = -2447318237958717146L;
+
+  private long[] timestamps;
+
+  /** Index of the oldest timestamp */
+  private int head;
+
+  private int size;
+
+  /**
+   * @param capacity the maximum number of timestamps kept, at least 1
+   */
+  public TimestampRingBuffer(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+    }
+    this.timestamps = new long[capacity];
+  }
+
+  /**
+   * Appends a timestamp, removing the oldest one if the buffer is full.
+   *
+   * @param timestamp the new timestamp
+   */
+  public void add(final long timestamp) {
+    if (size == timestamps.length) {
+      timestamps[head] = timestamp;
+      head = index(1);
+    } else {
+      timestamps[index(size)] = timestamp;
+      size++;
+    }
+  }
+
+  /**
+   * Inserts a timestamp before the oldest one. If the buffer is full, the
+   * newest timestamp is dropped.
+   *
+   * @param timestamp the timestamp to insert
+   */
+  public void addFirst(final long timestamp) {
+    head = index(timestamps.length - 1);
+    timestamps[head] = timestamp;
+    if (size < timestamps.length) {
+      size++;
+    }
+  }
+
+  /**
+   * @return the oldest timestamp
+   * @throws NoSuchElementException if the buffer is empty
+   */
+  public long getFirst() {
+    return get(0);
+  }
+
+  /**
+   * @return the newest timestamp
+   * @throws NoSuchElementException if the buffer is empty
+   */
+  public long getLast() {
+    return get(size - 1);
+  }
+
+  /**
+   * @param position the position, from 0 for the oldest timestamp
+   * @return the timestamp at the given position
+   * @throws NoSuchElementException if there is no timestamp at this position
+   */
+  public long get(final int position) {
+    if (position < 0 || position >= size) {
+      throw new NoSuchElementException("No timestamp at position " + position + " (size " + size + ")");
+    }
+    return timestamps[index(position)];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int capacity() {
+    return timestamps.length;
+  }
+
+  public void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * @param capacity the capacity of the returned buffer
+   * @return this buffer if it already has the given capacity, otherwise a new
+   *         buffer with the newest timestamps of this one
+   */
+  public TimestampRingBuffer withCapacity(final int capacity) {
+    if (capacity == timestamps.length) {
+      return this;
+    }
+    TimestampRingBuffer buffer = new TimestampRingBuffer(capacity);
+    for (int i = Math.max(0, size - capacity); i < size; i++) {
+      buffer.add(get(i));
+    }
+    return buffer;
+  }
+
+  /**
+   * @return the timestamps, from the oldest to the newest
+   */
+  public long[] toArray() {
+    long[] array = new long[size];
+    for (int i = 0; i < size; i++) {
+      array[i] = timestamps[index(i)];
+    }
+    return array;
+  }
+
+  private int index(final int position) {
+    int index = head + position;
+    return index >= timestamps.length ? index - timestamps.length : index;
+  }
+
+  @Override
+  public TimestampRingBuffer clone() {
+    try {
+      TimestampRingBuffer clone = (TimestampRingBuffer) super.clone();
+      clone.timestamps = timestamps.clone();
+      return clone;
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("Unable to clone the timestamp buffer", e);
+    }
+  }
+
+  /**
+   * Two buffers are equal if they hold the same timestamps in the same
+   * order, regardless of their capacity.
+   */
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof TimestampRingBuffer)) {
+      return false;
+    }
+    TimestampRingBuffer other = (TimestampRingBuffer) obj;
+    if (size != other.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (timestamps[index(i)] != other.timestamps[other.index(i)]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 1;
+    for (int i = 0; i < size; i++) {
+      long timestamp = timestamps[index(i)];
+      result = 31 * result + (int) (timestamp ^ (timestamp >>> 32));
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder str = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        str.append(", ");
+      }
+      str.append(timestamps[index(i)]);
+    }
+    return str.append(']').toString();
+  }
+}
@@ -0,0 +1,207 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe priority queue of deadlines, with at most one deadline per
+ * key, for checking objects only once their deadline has passed instead of
+ * scanning all of them periodically.
+ *
+ * <p>Deadlines are typically postponed on every update of the object, so
+ * postponing only updates the deadline of the queued entry, which is moved
+ * once it reaches the head of the queue. Only bringing a deadline forward
+ * requires a removal from the queue.
+ *
+ * @param <K> the key type
+ */
+public class DeadlineQueue<K> {
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /** Signalled when an earlier deadline is at the head of the queue */
+  private final Condition headChanged = lock.newCondition();
+
+  private final PriorityQueue<Entry<K>> queue = new PriorityQueue<>();
+
+  /** The queued entry of each key */
+  private final Map<K, Entry<K>> entries = new HashMap<>();
+
+  /**
+   * Schedules the deadline of a key, replacing any deadline scheduled
+   * before for this key.
+   *
+   * @param key the key
+   * @param deadline the deadline in milliseconds
+   */
+  public void schedule(final K key, final long deadline) {
+    lock.lock();
+    try {
+      Entry<K> entry = entries.get(key);
+      if (entry != null && deadline >= entry.queueTime) {
+        entry.deadline = deadline;
+        return;
+      }
+      if (entry != null) {
+        queue.remove(entry);
+      }
+      entry = new Entry<>(key, deadline);
+      entries.put(key, entry);
+      queue.add(entry);
+      if (queue.peek() == entry) {
+        headChanged.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param key the key to remove from the queue
+   */
+  public void remove(final K key) {
+    lock.lock();
+    try {
+      Entry<K> entry = entries.remove(key);
+      if (entry != null) {
+        queue.remove(entry);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the next key whose deadline has passed at the given time.
+   *
+   * @param now the current time in milliseconds
+   * @return the key, or <code>null</code> if no deadline has passed
+   */
+  public K poll(final long now) {
+    lock.lock();
+    try {
+      Entry<K> entry = queue.peek();
+      while (entry != null && entry.queueTime <= now) {
+        queue.poll();
+        if (entry.deadline <= now) {
+          entries.remove(entry.key);
+          return entry.key;
+        }
+        // postponed meanwhile
+        Entry<K> postponed = new Entry<>(entry.key, entry.deadline);
+        entries.put(entry.key, postponed);
+        queue.add(postponed);
+        entry = queue.peek();
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the deadline of a key has passed and removes it from the
+   * queue.
+   *
+   * @return the key
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public K take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (true) {
+        long now = System.currentTimeMillis();
+        K key = poll(now);
+        if (key != null) {
+          return key;
+        }
+        Entry<K> head = queue.peek();
+        if (head == null) {
+          headChanged.await();
+        } else {
+          headChanged.await(head.queueTime - now, TimeUnit.MILLISECONDS);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param key the key
+   * @return the deadline of the key, or <code>null</code> if not scheduled
+   */
+  public Long getDeadline(final K key) {
+    lock.lock();
+    try {
+      Entry<K> entry = entries.get(key);
+      return entry == null ? null : entry.deadline;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of scheduled keys
+   */
+  public int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void clear() {
+    lock.lock();
+    try {
+      entries.clear();
+      queue.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static final class Entry<K> implements Comparable<Entry<K>> {
+
+    private final K key;
+
+    /** The position in the queue */
+    private final long queueTime;
+
+    /** The current deadline, later than the queue time if postponed */
+    private long deadline;
+
+    private Entry(final K key, final long deadline) {
+      this.key = key;
+      this.queueTime = deadline;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public int compareTo(final Entry<K> other) {
+      return Long.compare(queueTime, other.queueTime);
+    }
+  }
+}
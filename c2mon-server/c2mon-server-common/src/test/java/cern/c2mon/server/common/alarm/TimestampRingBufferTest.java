@@ -0,0 +1,118 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.alarm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public class TimestampRingBufferTest {
+
+  @Test
+  public void testAddOverwritesOldest() {
+    TimestampRingBuffer buffer = new TimestampRingBuffer(3);
+    assertTrue(buffer.isEmpty());
+    for (long i = 1; i <= 5; i++) {
+      buffer.add(i);
+    }
+    assertEquals(3, buffer.size());
+    assertEquals(3L, buffer.getFirst());
+    assertEquals(5L, buffer.getLast());
+    assertArrayEquals(new long[] {3L, 4L, 5L}, buffer.toArray());
+  }
+
+  @Test
+  public void testAddFirst() {
+    TimestampRingBuffer buffer = new TimestampRingBuffer(3);
+    buffer.add(10L);
+    buffer.addFirst(9L);
+    buffer.addFirst(8L);
+    assertArrayEquals(new long[] {8L, 9L, 10L}, buffer.toArray());
+
+    // the newest timestamp is dropped when full
+    buffer.addFirst(7L);
+    assertArrayEquals(new long[] {7L, 8L, 9L}, buffer.toArray());
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testGetLastOnEmptyBuffer() {
+    TimestampRingBuffer buffer = new TimestampRingBuffer(3);
+    buffer.add(1L);
+    buffer.clear();
+    buffer.getLast();
+  }
+
+  @Test
+  public void testWithCapacityKeepsNewest() {
+    TimestampRingBuffer buffer = new TimestampRingBuffer(4);
+    for (long i = 1; i <= 6; i++) {
+      buffer.add(i);
+    }
+    assertSame(buffer, buffer.withCapacity(4));
+
+    TimestampRingBuffer smaller = buffer.withCapacity(2);
+    assertEquals(2, smaller.capacity());
+    assertArrayEquals(new long[] {5L, 6L}, smaller.toArray());
+
+    TimestampRingBuffer larger = buffer.withCapacity(8);
+    assertEquals(8, larger.capacity());
+    assertArrayEquals(new long[] {3L, 4L, 5L, 6L}, larger.toArray());
+    assertEquals(buffer, larger);
+    assertEquals(buffer.hashCode(), larger.hashCode());
+  }
+
+  @Test
+  public void testCloneIsIndependent() {
+    TimestampRingBuffer buffer = new TimestampRingBuffer(3);
+    buffer.add(1L);
+    TimestampRingBuffer clone = buffer.clone();
+    assertEquals(buffer, clone);
+
+    clone.add(2L);
+    assertEquals(1, buffer.size());
+    assertNotEquals(buffer, clone);
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    TimestampRingBuffer buffer = new TimestampRingBuffer(3);
+    for (long i = 1; i <= 4; i++) {
+      buffer.add(i);
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(buffer);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      TimestampRingBuffer copy = (TimestampRingBuffer) in.readObject();
+      assertEquals(buffer, copy);
+      copy.add(5L);
+      assertArrayEquals(new long[] {3L, 4L, 5L}, copy.toArray());
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ * <p/>
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * <p/>
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * <p/>
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class DeadlineQueueTest {
+
+  private final DeadlineQueue<Long> deadlineQueue = new DeadlineQueue<>();
+
+  @Test
+  public void testPollInDeadlineOrder() {
+    deadlineQueue.schedule(1L, 3000L);
+    deadlineQueue.schedule(2L, 1000L);
+    deadlineQueue.schedule(3L, 2000L);
+    assertEquals(3, deadlineQueue.size());
+
+    assertNull(deadlineQueue.poll(999L));
+    assertEquals(Long.valueOf(2L), deadlineQueue.poll(5000L));
+    assertEquals(Long.valueOf(3L), deadlineQueue.poll(5000L));
+    assertEquals(Long.valueOf(1L), deadlineQueue.poll(5000L));
+    assertNull(deadlineQueue.poll(5000L));
+    assertEquals(0, deadlineQueue.size());
+  }
+
+  @Test
+  public void testPostponeDeadline() {
+    deadlineQueue.schedule(1L, 1000L);
+    deadlineQueue.schedule(2L, 1500L);
+    deadlineQueue.schedule(1L, 2000L);
+    assertEquals(2, deadlineQueue.size());
+    assertEquals(Long.valueOf(2000L), deadlineQueue.getDeadline(1L));
+
+    assertEquals(Long.valueOf(2L), deadlineQueue.poll(1999L));
+    assertNull(deadlineQueue.poll(1999L));
+    assertEquals(1, deadlineQueue.size());
+    assertEquals(Long.valueOf(1L), deadlineQueue.poll(2000L));
+  }
+
+  @Test
+  public void testBringDeadlineForward() {
+    deadlineQueue.schedule(1L, 2000L);
+    deadlineQueue.schedule(1L, 1000L);
+    assertEquals(1, deadlineQueue.size());
+
+    assertEquals(Long.valueOf(1L), deadlineQueue.poll(1000L));
+    assertNull(deadlineQueue.poll(2000L));
+  }
+
+  @Test
+  public void testRemove() {
+    deadlineQueue.schedule(1L, 1000L);
+    deadlineQueue.schedule(2L, 1000L);
+    deadlineQueue.remove(1L);
+    assertNull(deadlineQueue.getDeadline(1L));
+
+    assertEquals(Long.valueOf(2L), deadlineQueue.poll(1000L));
+    assertNull(deadlineQueue.poll(1000L));
+  }
+
+  @Test
+  public void testTakeWaitsForEarlierDeadline() throws Exception {
+    long now = System.currentTimeMillis();
+    deadlineQueue.schedule(1L, now + 60000L);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Long> taken = executor.submit(deadlineQueue::take);
+      Thread.sleep(100L);
+      deadlineQueue.schedule(2L, now + 200L);
+      assertEquals(Long.valueOf(2L), taken.get(5, TimeUnit.SECONDS));
+      assertEquals(1, deadlineQueue.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
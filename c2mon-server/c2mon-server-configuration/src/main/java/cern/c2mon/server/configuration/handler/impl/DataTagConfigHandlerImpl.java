@@ -27,6 +27,7 @@ import org.springframework.transaction.UnexpectedRollbackException;
 import cern.c2mon.server.cache.DataTagCache;
 import cern.c2mon.server.cache.EquipmentFacade;
 import cern.c2mon.server.cache.SubEquipmentFacade;
+import cern.c2mon.server.cache.TagHierarchyIndex;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.datatag.DataTag;
 import cern.c2mon.server.configuration.handler.DataTagConfigHandler;
@@ -74,20 +75,27 @@ public class DataTagConfigHandlerImpl implements DataTagConfigHandler {
   private EquipmentFacade equipmentFacade;
   private SubEquipmentFacade subEquipmentFacade;
 
+  /**
+   * Index of the tag parents, invalidated on every tag change.
+   */
+  private TagHierarchyIndex tagHierarchyIndex;
+
   /**
    * Constructor.
    * @param dataTagCache cache
    * @param equipmentFacade
    * @param subEquipmentFacade
    * @param configurationUpdateImpl
+   * @param tagHierarchyIndex
    */
   @Autowired
   public DataTagConfigHandlerImpl(DataTagCache dataTagCache, EquipmentFacade equipmentFacade, SubEquipmentFacade subEquipmentFacade,
-      ConfigurationUpdateImpl configurationUpdateImpl) {
+      ConfigurationUpdateImpl configurationUpdateImpl, TagHierarchyIndex tagHierarchyIndex) {
     this.dataTagCache = dataTagCache;
     this.equipmentFacade = equipmentFacade;
     this.subEquipmentFacade = subEquipmentFacade;
     this.configurationUpdateImpl = configurationUpdateImpl;
+    this.tagHierarchyIndex = tagHierarchyIndex;
   }
 
   @Override
@@ -108,6 +116,7 @@ public class DataTagConfigHandlerImpl implements DataTagConfigHandler {
       DataTag tagCopy = dataTagCache.getCopy(id);
       ProcessChange change = dataTagConfigTransacted.doRemoveDataTag(id, tagReport);
       dataTagCache.remove(id); //only removed from cache if no exception is thrown
+      tagHierarchyIndex.invalidateTag(id);
 
       return change;
     } catch (CacheElementNotFoundException e) {
@@ -120,6 +129,7 @@ public class DataTagConfigHandlerImpl implements DataTagConfigHandler {
   public ProcessChange updateDataTag(Long id, Properties elementProperties) {
 	  try {
 		  ProcessChange processChange = dataTagConfigTransacted.doUpdateDataTag(id, elementProperties);
+		  tagHierarchyIndex.invalidateTag(id);
 		  if (LOGGER.isTraceEnabled()) {
 		    	LOGGER.trace("createDataTag - Notifying Configuration update listeners");
 		    }
@@ -129,6 +139,7 @@ public class DataTagConfigHandlerImpl implements DataTagConfigHandler {
 		  LOGGER.error("Rolling back update in cache");
 		  dataTagCache.remove(id); //DB transaction is rolled back here: reload the tag
 		  dataTagCache.loadFromDb(id);
+		  tagHierarchyIndex.invalidateTag(id);
 		  throw e;
 	  }
   }
@@ -31,6 +31,7 @@ import cern.c2mon.server.cache.AliveTimerCache;
 import cern.c2mon.server.cache.CommFaultTagCache;
 import cern.c2mon.server.cache.EquipmentCache;
 import cern.c2mon.server.cache.EquipmentFacade;
+import cern.c2mon.server.cache.TagHierarchyIndex;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.equipment.Equipment;
 import cern.c2mon.server.configuration.handler.ControlTagConfigHandler;
@@ -72,6 +73,8 @@ public class EquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandler<E
 
   private EquipmentCache equipmentCache;
 
+  private TagHierarchyIndex tagHierarchyIndex;
+
   /**
    * Autowired constructor.
    */
@@ -79,7 +82,7 @@ public class EquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandler<E
   public EquipmentConfigHandlerImpl(SubEquipmentConfigHandler subEquipmentConfigHandler, DataTagConfigHandler dataTagConfigHandler,
       CommandTagConfigHandler commandTagConfigHandler, EquipmentFacade equipmentFacade, EquipmentCache equipmentCache,
       ControlTagConfigHandler controlTagConfigHandler, EquipmentConfigTransacted equipmentConfigTransacted,
-      AliveTimerCache aliveTimerCache, CommFaultTagCache commFaultTagCache) {
+      AliveTimerCache aliveTimerCache, CommFaultTagCache commFaultTagCache, TagHierarchyIndex tagHierarchyIndex) {
     super(controlTagConfigHandler, equipmentConfigTransacted, equipmentCache, aliveTimerCache, commFaultTagCache, equipmentFacade);
     this.subEquipmentConfigHandler = subEquipmentConfigHandler;
     this.dataTagConfigHandler = dataTagConfigHandler;
@@ -87,6 +90,7 @@ public class EquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandler<E
     this.equipmentFacade = equipmentFacade;
     this.equipmentCache = equipmentCache;
     this.equipmentConfigTransacted = equipmentConfigTransacted;
+    this.tagHierarchyIndex = tagHierarchyIndex;
   }
 
   @Override
@@ -119,6 +123,7 @@ public class EquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandler<E
       equipmentFacade.removeCommFault(equipmentid);
       processConfigHandler.removeEquipmentFromProcess(equipmentid, equipmentCopy.getProcessId());
       equipmentCache.remove(equipmentid);
+      tagHierarchyIndex.invalidateEquipment(equipmentid);
       IChange equipmentUnitRemove = new EquipmentUnitRemove(0L, equipmentid); //id is reset
 
       return new ProcessChange(equipmentCopy.getProcessId(), equipmentUnitRemove);
@@ -143,7 +148,9 @@ public class EquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandler<E
       log.warn("Attempting to change the parent process id of an equipment - this is not currently supported!");
       elementProperties.remove("processId");
     }
-    return commonUpdate(equipmentId, elementProperties);
+    List<ProcessChange> changes = commonUpdate(equipmentId, elementProperties);
+    tagHierarchyIndex.invalidateEquipment(equipmentId);
+    return changes;
   }
 
   /**
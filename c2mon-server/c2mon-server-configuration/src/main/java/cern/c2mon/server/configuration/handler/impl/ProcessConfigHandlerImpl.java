@@ -31,6 +31,7 @@ import org.springframework.transaction.UnexpectedRollbackException;
 
 import cern.c2mon.server.cache.ProcessCache;
 import cern.c2mon.server.cache.ProcessFacade;
+import cern.c2mon.server.cache.TagHierarchyIndex;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.process.Process;
 import cern.c2mon.server.configuration.handler.ControlTagConfigHandler;
@@ -85,12 +86,15 @@ public class ProcessConfigHandlerImpl implements ProcessConfigHandler {
    */
   private JmsContainerManager jmsContainerManager;
 
+  private TagHierarchyIndex tagHierarchyIndex;
+
   @Autowired
   public ProcessConfigHandlerImpl(EquipmentConfigHandler equipmentConfigHandler,
                                   ControlTagConfigHandler controlTagConfigHandler,
                                   ProcessCache processCache,
                                   ProcessFacade processFacade,
                                   JmsContainerManager jmsContainerManager,
+                                  TagHierarchyIndex tagHierarchyIndex,
                                   ConfigurationProperties properties) {
     super();
     this.equipmentConfigHandler = equipmentConfigHandler;
@@ -98,6 +102,7 @@ public class ProcessConfigHandlerImpl implements ProcessConfigHandler {
     this.processCache = processCache;
     this.processFacade = processFacade;
     this.jmsContainerManager = jmsContainerManager;
+    this.tagHierarchyIndex = tagHierarchyIndex;
     this.allowRunningProcessRemoval = properties.isAllowRunningProcessRemoval();
   }
 
@@ -152,6 +157,7 @@ public class ProcessConfigHandlerImpl implements ProcessConfigHandler {
           processFacade.removeAliveTimer(processId);
           jmsContainerManager.unsubscribe(process);
           processCache.remove(processId);
+          tagHierarchyIndex.invalidateProcess(processId);
          }
         return processChange;
       } catch (RuntimeException ex) {
@@ -24,6 +24,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.UnexpectedRollbackException;
 
 import cern.c2mon.server.cache.RuleTagCache;
+import cern.c2mon.server.cache.TagHierarchyIndex;
 import cern.c2mon.server.configuration.handler.RuleTagConfigHandler;
 import cern.c2mon.server.configuration.handler.transacted.RuleTagConfigTransacted;
 import cern.c2mon.server.configuration.impl.ConfigurationUpdateImpl;
@@ -57,29 +58,39 @@ public class RuleTagConfigHandlerImpl implements RuleTagConfigHandler {
 
   private RuleEvaluator ruleEvaluator;
 
+  /**
+   * Index of the tag parents, invalidated on every rule change.
+   */
+  private TagHierarchyIndex tagHierarchyIndex;
+
   /**
    * Default constructor
    *
    * @param ruleTagCache
    * @param ruleEvaluator
    * @param configurationUpdateImpl
+   * @param tagHierarchyIndex
    */
   @Autowired
-  public RuleTagConfigHandlerImpl(final RuleTagCache ruleTagCache, final RuleEvaluator ruleEvaluator, final ConfigurationUpdateImpl configurationUpdateImpl) {
+  public RuleTagConfigHandlerImpl(final RuleTagCache ruleTagCache, final RuleEvaluator ruleEvaluator, final ConfigurationUpdateImpl configurationUpdateImpl,
+      final TagHierarchyIndex tagHierarchyIndex) {
     this.ruleTagCache = ruleTagCache;
     this.ruleEvaluator = ruleEvaluator;
     this.configurationUpdateImpl = configurationUpdateImpl;
+    this.tagHierarchyIndex = tagHierarchyIndex;
   }
 
   @Override
   public void removeRuleTag(final Long id, final ConfigurationElementReport elementReport) {
     ruleTagConfigTransacted.doRemoveRuleTag(id, elementReport);
     ruleTagCache.remove(id); //will be skipped if rollback exception thrown in do method
+    tagHierarchyIndex.invalidateTag(id);
   }
 
   @Override
   public void createRuleTag(ConfigurationElement element) throws IllegalAccessException {
     ruleTagConfigTransacted.doCreateRuleTag(element);
+    tagHierarchyIndex.invalidateTag(element.getEntityId());
     ruleEvaluator.evaluateRule(element.getEntityId());
     if (log.isTraceEnabled()) {
       log.trace("createRuleTag - Notifying Configuration update listeners");
@@ -91,6 +102,7 @@ public class RuleTagConfigHandlerImpl implements RuleTagConfigHandler {
   public void updateRuleTag(Long id, Properties elementProperties) throws IllegalAccessException {
 	  try {
 		  ruleTagConfigTransacted.doUpdateRuleTag(id, elementProperties);
+		  invalidateRuleHierarchy(id);
 		  ruleEvaluator.evaluateRule(id);
 		  if (log.isTraceEnabled()) {
 			  log.trace("updateRuleTag - Notifying Configuration update listeners");
@@ -100,10 +112,26 @@ public class RuleTagConfigHandlerImpl implements RuleTagConfigHandler {
 		  log.error("Rolling back Rule update in cache");
 		  ruleTagCache.remove(id);
 		  ruleTagCache.loadFromDb(id);
+		  invalidateRuleHierarchy(id);
 		  throw e;
 	  }
   }
 
+  /**
+   * Invalidates the indexed parents of the rule and of the rules using it
+   * as input, as their parent ids are recomputed from the rule inputs.
+   *
+   * @param id the id of the updated rule
+   */
+  private void invalidateRuleHierarchy(final Long id) {
+    tagHierarchyIndex.invalidateTag(id);
+    if (ruleTagCache.hasKey(id)) {
+      for (Long parentRuleId : ruleTagCache.getCopy(id).getRuleIds()) {
+        tagHierarchyIndex.invalidateTag(parentRuleId);
+      }
+    }
+  }
+
   @Override
   public void addAlarmToTag(Long tagId, Long alarmId) {
     ruleTagConfigTransacted.addAlarmToTag(tagId, alarmId);
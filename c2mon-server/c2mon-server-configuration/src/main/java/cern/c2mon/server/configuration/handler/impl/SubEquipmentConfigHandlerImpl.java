@@ -31,6 +31,7 @@ import cern.c2mon.server.cache.AliveTimerCache;
 import cern.c2mon.server.cache.CommFaultTagCache;
 import cern.c2mon.server.cache.SubEquipmentCache;
 import cern.c2mon.server.cache.SubEquipmentFacade;
+import cern.c2mon.server.cache.TagHierarchyIndex;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.subequipment.SubEquipment;
 import cern.c2mon.server.configuration.handler.ControlTagConfigHandler;
@@ -61,6 +62,8 @@ public class SubEquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandle
 
   private DataTagConfigHandler dataTagConfigHandler;
 
+  private TagHierarchyIndex tagHierarchyIndex;
+
   /**
    * Autowired constructor.
    */
@@ -71,12 +74,14 @@ public class SubEquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandle
                                        AliveTimerCache aliveTimerCache,
                                        CommFaultTagCache commFaultTagCache,
                                        SubEquipmentConfigTransacted subEquipmentConfigTransacted,
-                                       DataTagConfigHandler dataTagConfigHandler) {
+                                       DataTagConfigHandler dataTagConfigHandler,
+                                       TagHierarchyIndex tagHierarchyIndex) {
     super(controlTagConfigHandler, subEquipmentConfigTransacted, subEquipmentCache, aliveTimerCache, commFaultTagCache, subEquipmentFacade);
     this.subEquipmentCache = subEquipmentCache;
     this.subEquipmentFacade = subEquipmentFacade;
     this.subEquipmentConfigTransacted = subEquipmentConfigTransacted;
     this.dataTagConfigHandler = dataTagConfigHandler;
+    this.tagHierarchyIndex = tagHierarchyIndex;
   }
 
   /**
@@ -106,6 +111,7 @@ public class SubEquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandle
         subEquipmentFacade.removeAliveTimer(subEquipmentId);
         subEquipmentFacade.removeCommFault(subEquipmentId);
         subEquipmentCache.remove(subEquipmentId);
+        tagHierarchyIndex.invalidateSubEquipment(subEquipmentId);
 
         // Remove the SubEquipment from the parent Equipment
         subEquipmentFacade.removeSubEquipmentFromEquipment(subEquipment.getParentId(), subEquipmentId);
@@ -146,7 +152,9 @@ public class SubEquipmentConfigHandlerImpl extends AbstractEquipmentConfigHandle
       elementProperties.remove("equipmentId");
     }
 
-    return commonUpdate(subEquipmentId, elementProperties);
+    List<ProcessChange> changes = commonUpdate(subEquipmentId, elementProperties);
+    tagHierarchyIndex.invalidateSubEquipment(subEquipmentId);
+    return changes;
   }
 
   /**
@@ -42,6 +42,7 @@ import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.ProcessCache;
 import cern.c2mon.server.cache.ProcessFacade;
 import cern.c2mon.server.cache.loading.SequenceDAO;
+import cern.c2mon.server.cache.loading.common.CacheSnapshotStore;
 import cern.c2mon.server.common.config.ServerProperties;
 import cern.c2mon.server.configuration.ConfigProgressMonitor;
 import cern.c2mon.server.configuration.ConfigurationLoader;
@@ -102,6 +103,13 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
 
   private final SequenceDAO sequenceDAO;
 
+  /**
+   * The cache snapshots are deleted and suspended while applying a
+   * configuration, as they would otherwise be loaded with the previous or a
+   * partly applied configuration
+   */
+  private final CacheSnapshotStore cacheSnapshotStore;
+
   private final DataTagConfigHandler dataTagConfigHandler;
 
   private final ControlTagConfigHandler controlTagConfigHandler;
@@ -168,6 +176,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
                                  DeviceConfigHandler deviceConfigHandler,
                                  ConfigurationParser configParser,
                                  SequenceDAO sequenceDAO,
+                                 CacheSnapshotStore cacheSnapshotStore,
                                  ConfigurationProperties properties,
                                  ServerProperties serverProperties) {
     super();
@@ -188,6 +197,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
     this.deviceConfigHandler = deviceConfigHandler;
     this.configParser = configParser;
     this.sequenceDAO = sequenceDAO;
+    this.cacheSnapshotStore = cacheSnapshotStore;
     this.daqConfigEnabled = properties.isDaqConfigEnabled();
     this.reportDirectory = serverProperties.getHome() + "/reports";
   }
@@ -200,6 +210,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
 
     // Try to acquire the configuration lock.
     if (clusterCache.tryWriteLockOnKey(JmsContainerManager.CONFIG_LOCK_KEY, DEFAULT_TIMEOUT)) {
+      cacheSnapshotStore.suspend();
       try {
         configId = sequenceDAO.getNextConfigId();
         List<ConfigurationElement> configurationElements = configParser.parse(configuration);
@@ -212,6 +223,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
         report.setExceptionTrace(ex);
         throw new ConfigurationException(report, ex);
       } finally {
+        cacheSnapshotStore.resume();
         clusterCache.releaseWriteLockOnKey(JmsContainerManager.CONFIG_LOCK_KEY);
         if (report != null) {
           archiveReport(configId.toString(), report.toXML());
@@ -236,6 +248,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
 
     // Try to acquire the configuration lock.
     if (clusterCache.tryWriteLockOnKey(JmsContainerManager.CONFIG_LOCK_KEY, DEFAULT_TIMEOUT)) {
+      cacheSnapshotStore.suspend();
       try {
 
         String configName = configurationDAO.getConfigName(configId);
@@ -270,6 +283,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
           report.setExceptionTrace(ex);
         throw new ConfigurationException(report, ex);
       } finally {
+        cacheSnapshotStore.resume();
         clusterCache.releaseWriteLockOnKey(JmsContainerManager.CONFIG_LOCK_KEY);
         if (report != null) {
           archiveReport(String.valueOf(configId), report.toXML());
@@ -305,7 +319,6 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
                                                  final boolean isDBConfig
   ) {
     ConfigurationReport report = new ConfigurationReport(configId, configName, "");
-
     //map of element reports that need a DAQ child report adding
     Map<Long, ConfigurationElementReport> daqReportPlaceholder = new HashMap<>();
     //map of elements themselves elt_seq_id -> element
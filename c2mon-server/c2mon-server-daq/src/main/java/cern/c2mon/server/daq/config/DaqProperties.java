@@ -75,6 +75,22 @@ public class DaqProperties {
       
       /** Set the TagUpdater's ThreadPoolTaskExecutor keep-alive seconds */
       int keepAliveSeconds = 60;
+
+      /**
+       * Apply the values of incoming updates on partitioned worker threads
+       * (keyed by tag id) instead of on the JMS consumer thread
+       */
+      boolean pipelineEnabled = false;
+
+      /** Number of partitioned worker threads, if the pipeline is enabled */
+      int pipelineThreads = Runtime.getRuntime().availableProcessors();
+
+      /**
+       * Only apply the last value of a tag if it is contained several times
+       * in the same update message (pipeline only). Control tag values are
+       * never coalesced.
+       */
+      boolean coalesceFrameUpdates = true;
     }
 
     /**
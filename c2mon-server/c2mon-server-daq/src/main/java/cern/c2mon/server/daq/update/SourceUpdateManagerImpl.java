@@ -102,6 +102,11 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
 
   private final ServerProperties properties;
 
+  /**
+   * Applies the values on partitioned worker threads, if enabled.
+   */
+  private final SourceUpdatePipeline sourceUpdatePipeline;
+
   /**
    * For management only. Number of JMS threads
    * currently active.
@@ -135,7 +140,8 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
                                  final DataTagValueUpdateConverter dataTagValueUpdateConverter,
                                  final ProcessFacade processFacade,
                                  final ProcessCache processCache,
-                                 final ServerProperties properties) {
+                                 final ServerProperties properties,
+                                 final SourceUpdatePipeline sourceUpdatePipeline) {
     super();
     this.dataTagFacade = dataTagFacade;
     this.controlTagFacade = controlTagFacade;
@@ -144,6 +150,7 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
     this.processFacade = processFacade;
     this.processCache = processCache;
     this.properties = properties;
+    this.sourceUpdatePipeline = sourceUpdatePipeline;
   }
 
   /**
@@ -164,17 +171,16 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
       Collection<SourceDataTagValue> values = dataTagValueUpdate.getValues();
       if (values != null ) {
 
-        for(SourceDataTagValue sourceDataTagValue : values){
-
-          //if the incoming value is a control tag (i.e. alive or commFault)
-          if (sourceDataTagValue.isControlTag()) {
-            processControl(sourceDataTagValue);
-          } else {
-            //else is a normal DataTag update
-            processDataTag(sourceDataTagValue);
+        if (sourceUpdatePipeline.isEnabled()) {
+          //log in file (all values, also the ones coalesced by the pipeline)
+          values.forEach(SourceDataTagValue::log);
+          sourceUpdatePipeline.process(values, this::processValue);
+        } else {
+          for(SourceDataTagValue sourceDataTagValue : values){
+            processValue(sourceDataTagValue);
+            //log in file
+            sourceDataTagValue.log();
           }
-          //log in file
-          sourceDataTagValue.log();
         }
       }
     } finally {
@@ -220,6 +226,21 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
     }
   }
 
+  /**
+   * Dispatches the incoming value to the control tag or data tag processing.
+   *
+   * @param sourceDataTagValue the incoming value
+   */
+  private void processValue(final SourceDataTagValue sourceDataTagValue) {
+    //if the incoming value is a control tag (i.e. alive or commFault)
+    if (sourceDataTagValue.isControlTag()) {
+      processControl(sourceDataTagValue);
+    } else {
+      //else is a normal DataTag update
+      processDataTag(sourceDataTagValue);
+    }
+  }
+
   /**
    * Performs all operations needed on reception of a control tag. Currently very similar to
    * processDataTag method and uses the {@link DataTagFacade} to update the ControlTagCacheObject as it
@@ -278,6 +299,16 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
   private Boolean checkProcessPIK(final DataTagValueUpdate dataTagValueUpdate) {
     Process process;
 
+    // Fast path without locking the process: a matching PIK is already registered in the cache
+    try {
+      Long registeredPIK = this.processCache.get(dataTagValueUpdate.getProcessId()).getProcessPIK();
+      if (registeredPIK != null && registeredPIK.equals(dataTagValueUpdate.getProcessPIK())) {
+        return ACCEPT_UPDATE;
+      }
+    } catch (CacheElementNotFoundException cacheEx) {
+      // handled below under the lock
+    }
+
     processCache.acquireWriteLockOnKey(dataTagValueUpdate.getProcessId());
     try {
       process = this.processCache.get(dataTagValueUpdate.getProcessId());
@@ -0,0 +1,238 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.daq.update;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import cern.c2mon.server.daq.config.DaqProperties;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+
+/**
+ * Applies the values of an incoming DAQ update frame on a fixed set of
+ * partitioned worker threads, instead of processing them one by one on the
+ * JMS container thread.
+ *
+ * <p>Values are assigned to a partition by tag id, and each partition is
+ * served by a single thread. All updates for a given tag are therefore
+ * applied in the order in which they were submitted, whichever JMS consumer
+ * received them. If enabled, repeated values for the same tag within one
+ * frame are coalesced to the last one before dispatching.
+ *
+ * <p>{@link #process(Collection, Consumer)} only returns once the whole frame
+ * has been applied, so that the JMS message is still acknowledged only after
+ * its values are in the cache.
+ */
+@Slf4j
+@Component
+@ManagedResource(objectName = "cern.c2mon:name=sourceUpdatePipeline")
+public class SourceUpdatePipeline {
+
+  private static final String THREAD_NAME_PREFIX = "SourceUpdatePartition-";
+
+  private final DaqProperties properties;
+
+  /**
+   * One single-threaded executor per partition.
+   */
+  private ThreadPoolExecutor[] partitions;
+
+  /** For management only */
+  private final AtomicLong receivedFrames = new AtomicLong(0);
+  private final AtomicLong receivedValues = new AtomicLong(0);
+  private final AtomicLong appliedValues = new AtomicLong(0);
+
+  @Autowired
+  public SourceUpdatePipeline(final DaqProperties properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Starts the partition threads, if the pipeline is enabled.
+   */
+  @PostConstruct
+  public void init() {
+    if (isEnabled()) {
+      int nbPartitions = Math.max(1, properties.getJms().getUpdate().getPipelineThreads());
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(THREAD_NAME_PREFIX);
+      threadFactory.setDaemon(true);
+
+      partitions = new ThreadPoolExecutor[nbPartitions];
+      for (int i = 0; i < nbPartitions; i++) {
+        partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+      }
+      log.info("init - Source update pipeline started with {} partitions", nbPartitions);
+    }
+  }
+
+  /**
+   * Stops the partition threads once all pending values have been applied.
+   */
+  @PreDestroy
+  public void shutdown() {
+    if (partitions != null) {
+      log.info("shutdown - Stopping source update pipeline");
+      for (ThreadPoolExecutor partition : partitions) {
+        partition.shutdown();
+      }
+    }
+  }
+
+  /**
+   * @return true if incoming updates should be processed through this pipeline
+   */
+  public boolean isEnabled() {
+    return properties.getJms().getUpdate().isPipelineEnabled();
+  }
+
+  /**
+   * Applies all values of an incoming frame with the given handler, in
+   * parallel across partitions but in order for each tag. Blocks until all
+   * values have been applied.
+   *
+   * @param values the values of one incoming update frame
+   * @param handler called once for every (coalesced) value
+   * @throws RuntimeException the first exception thrown by the handler, once all partitions are done
+   */
+  public void process(final Collection<SourceDataTagValue> values, final Consumer<SourceDataTagValue> handler) {
+    receivedFrames.incrementAndGet();
+    receivedValues.addAndGet(values.size());
+
+    List<List<SourceDataTagValue>> batches = partition(coalesce(values));
+    List<Future<?>> futures = new ArrayList<>(batches.size());
+    for (int i = 0; i < batches.size(); i++) {
+      final List<SourceDataTagValue> batch = batches.get(i);
+      if (!batch.isEmpty()) {
+        appliedValues.addAndGet(batch.size());
+        futures.add(partitions[i].submit(() -> batch.forEach(handler)));
+      }
+    }
+
+    RuntimeException failure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for source updates to be applied", e);
+      } catch (ExecutionException e) {
+        log.error("Exception caught while applying source updates", e.getCause());
+        if (failure == null) {
+          failure = e.getCause() instanceof RuntimeException
+              ? (RuntimeException) e.getCause()
+              : new IllegalStateException("Failed to apply source updates", e.getCause());
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Keeps only the last value of every tag in the frame, if coalescing is enabled.
+   * All values of control tags (alive, commfault) are kept, as every one of
+   * them matters for the supervision.
+   */
+  private Collection<SourceDataTagValue> coalesce(final Collection<SourceDataTagValue> values) {
+    if (!properties.getJms().getUpdate().isCoalesceFrameUpdates() || values.size() < 2) {
+      return values;
+    }
+    List<SourceDataTagValue> controlValues = new ArrayList<>();
+    Map<Long, SourceDataTagValue> latest = new LinkedHashMap<>(values.size() * 2);
+    for (SourceDataTagValue value : values) {
+      if (value.isControlTag()) {
+        controlValues.add(value);
+      } else {
+        latest.put(value.getId(), value);
+      }
+    }
+    if (controlValues.size() + latest.size() == values.size()) {
+      return values;
+    }
+    controlValues.addAll(latest.values());
+    return controlValues;
+  }
+
+  /**
+   * Groups the values by partition, keeping their original order.
+   */
+  private List<List<SourceDataTagValue>> partition(final Collection<SourceDataTagValue> values) {
+    int nbPartitions = partitions.length;
+    List<List<SourceDataTagValue>> batches = new ArrayList<>(nbPartitions);
+    for (int i = 0; i < nbPartitions; i++) {
+      batches.add(new ArrayList<>());
+    }
+    for (SourceDataTagValue value : values) {
+      batches.get(partitionOf(value.getId(), nbPartitions)).add(value);
+    }
+    return batches;
+  }
+
+  /**
+   * @return the partition index of the given tag id
+   */
+  static int partitionOf(final Long tagId, final int nbPartitions) {
+    return (int) Math.floorMod(tagId.longValue(), (long) nbPartitions);
+  }
+
+  @ManagedAttribute(description = "Number of update frames processed by the pipeline")
+  public long getReceivedFrames() {
+    return receivedFrames.get();
+  }
+
+  @ManagedAttribute(description = "Number of values received by the pipeline")
+  public long getReceivedValues() {
+    return receivedValues.get();
+  }
+
+  @ManagedAttribute(description = "Number of values applied to the cache after coalescing")
+  public long getAppliedValues() {
+    return appliedValues.get();
+  }
+
+  @ManagedAttribute(description = "Number of batches waiting in the partition queues")
+  public int getQueueSize() {
+    int size = 0;
+    if (partitions != null) {
+      for (ThreadPoolExecutor partition : partitions) {
+        size += partition.getQueue().size();
+      }
+    }
+    return size;
+  }
+}
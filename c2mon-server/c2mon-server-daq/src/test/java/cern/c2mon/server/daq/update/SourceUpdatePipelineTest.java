@@ -0,0 +1,119 @@
+package cern.c2mon.server.daq.update;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.daq.config.DaqProperties;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SourceUpdatePipelineTest {
+
+  private SourceUpdatePipeline pipeline;
+
+  private DaqProperties properties;
+
+  @Before
+  public void setUp() {
+    properties = new DaqProperties();
+    properties.getJms().getUpdate().setPipelineEnabled(true);
+    properties.getJms().getUpdate().setPipelineThreads(4);
+    pipeline = new SourceUpdatePipeline(properties);
+    pipeline.init();
+  }
+
+  @After
+  public void tearDown() {
+    pipeline.shutdown();
+  }
+
+  @Test
+  public void testUpdatesAreAppliedInOrderPerTag() {
+    List<SourceDataTagValue> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add(createValue((long) (i % 10), i));
+    }
+    properties.getJms().getUpdate().setCoalesceFrameUpdates(false);
+
+    Map<Long, List<Object>> applied = new ConcurrentHashMap<>();
+    pipeline.process(values, value ->
+        applied.computeIfAbsent(value.getId(), id -> Collections.synchronizedList(new ArrayList<>())).add(value.getValue()));
+
+    assertEquals(10, applied.size());
+    for (List<Object> tagValues : applied.values()) {
+      assertEquals(100, tagValues.size());
+      for (int i = 1; i < tagValues.size(); i++) {
+        assertTrue((Integer) tagValues.get(i - 1) < (Integer) tagValues.get(i));
+      }
+    }
+    assertEquals(1000, pipeline.getAppliedValues());
+  }
+
+  @Test
+  public void testRepeatedUpdatesAreCoalesced() {
+    List<SourceDataTagValue> values = new ArrayList<>();
+    values.add(createValue(1L, 1));
+    values.add(createValue(2L, 2));
+    values.add(createValue(1L, 3));
+
+    Map<Long, Object> applied = new ConcurrentHashMap<>();
+    pipeline.process(values, value -> applied.put(value.getId(), value.getValue()));
+
+    assertEquals(2, applied.size());
+    assertEquals(3, applied.get(1L));
+    assertEquals(2, applied.get(2L));
+    assertEquals(3, pipeline.getReceivedValues());
+    assertEquals(2, pipeline.getAppliedValues());
+  }
+
+  @Test
+  public void testControlTagUpdatesAreNotCoalesced() {
+    List<SourceDataTagValue> values = new ArrayList<>();
+    values.add(createControlValue(1L, 1));
+    values.add(createValue(2L, 2));
+    values.add(createControlValue(1L, 3));
+    values.add(createValue(2L, 4));
+
+    Map<Long, List<Object>> applied = new ConcurrentHashMap<>();
+    pipeline.process(values, value ->
+        applied.computeIfAbsent(value.getId(), id -> Collections.synchronizedList(new ArrayList<>())).add(value.getValue()));
+
+    assertEquals(Arrays.asList(1, 3), applied.get(1L));
+    assertEquals(Collections.singletonList(4), applied.get(2L));
+    assertEquals(3, pipeline.getAppliedValues());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHandlerExceptionIsRethrown() {
+    List<SourceDataTagValue> values = new ArrayList<>();
+    values.add(createValue(1L, 1));
+
+    pipeline.process(values, value -> {
+      throw new IllegalArgumentException("test");
+    });
+  }
+
+  private SourceDataTagValue createValue(final Long id, final Integer value) {
+    SourceDataTagValue sourceValue = new SourceDataTagValue();
+    sourceValue.setId(id);
+    sourceValue.setName("tag" + id);
+    sourceValue.setValue(value);
+    return sourceValue;
+  }
+
+  private SourceDataTagValue createControlValue(final Long id, final Integer value) {
+    SourceDataTagValue sourceValue = createValue(id, value);
+    sourceValue.setControlTag(true);
+    return sourceValue;
+  }
+}
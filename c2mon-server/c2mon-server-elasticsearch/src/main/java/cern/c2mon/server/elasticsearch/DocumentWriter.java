@@ -0,0 +1,117 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.elasticsearch;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cern.c2mon.server.elasticsearch.exception.ProcessingException;
+
+/**
+ * Base class of the writers streaming server objects directly into the JSON
+ * source of Elasticsearch documents, without building an intermediate map.
+ * <p>
+ * Every thread reuses its own {@link JsonGenerator} and output buffer, so
+ * that writing a document only allocates the returned byte array. The field
+ * names are expected to be pre-encoded {@link SerializableString} constants.
+ * Values of arbitrary type, such as metadata, are written with Jackson data
+ * binding as by the map based documents.
+ */
+public abstract class DocumentWriter {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final ThreadLocal<Output> outputs = ThreadLocal.withInitial(Output::new);
+
+  /**
+   * Writes the fields of a document.
+   */
+  @FunctionalInterface
+  protected interface Fields {
+    void write(JsonGenerator generator) throws IOException;
+  }
+
+  /**
+   * Writes a JSON object with the given fields.
+   *
+   * @param fields writes the fields of the object
+   * @return the UTF-8 encoded JSON object
+   */
+  protected byte[] write(Fields fields) {
+    Output output = outputs.get();
+    try {
+      output.buffer.reset();
+      output.generator.writeStartObject();
+      fields.write(output.generator);
+      output.generator.writeEndObject();
+      output.generator.flush();
+      return output.buffer.toByteArray();
+    } catch (IOException | RuntimeException e) {
+      // the generator is left within the object, start over with a new one
+      outputs.remove();
+      throw new ProcessingException("Error serializing document", e);
+    }
+  }
+
+  /**
+   * Writes a field holding a value of any type, converted as by Jackson
+   * data binding.
+   */
+  protected static void writeObjectField(JsonGenerator generator, SerializableString name, Object value) throws IOException {
+    generator.writeFieldName(name);
+    generator.writeObject(value);
+  }
+
+  protected static void writeStringField(JsonGenerator generator, SerializableString name, String value) throws IOException {
+    generator.writeFieldName(name);
+    generator.writeString(value);
+  }
+
+  protected static void writeNumberField(JsonGenerator generator, SerializableString name, long value) throws IOException {
+    generator.writeFieldName(name);
+    generator.writeNumber(value);
+  }
+
+  protected static void writeBooleanField(JsonGenerator generator, SerializableString name, boolean value) throws IOException {
+    generator.writeFieldName(name);
+    generator.writeBoolean(value);
+  }
+
+  /**
+   * Reusable generator of a thread, writing to a reusable buffer.
+   */
+  private static final class Output {
+
+    private final ByteArrayBuilder buffer = new ByteArrayBuilder();
+
+    private final JsonGenerator generator;
+
+    private Output() {
+      try {
+        generator = mapper.getFactory().createGenerator(buffer);
+      } catch (IOException e) {
+        throw new ProcessingException("Error creating JSON generator", e);
+      }
+      // documents are written one after the other as root values
+      generator.setRootValueSeparator(null);
+    }
+  }
+}
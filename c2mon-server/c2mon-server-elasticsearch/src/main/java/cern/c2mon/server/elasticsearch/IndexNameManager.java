@@ -18,9 +18,13 @@ package cern.c2mon.server.elasticsearch;
 
 import java.text.SimpleDateFormat;
 import java.time.Clock;
-import java.time.Instant;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,15 +38,29 @@ import cern.c2mon.server.elasticsearch.tag.config.TagConfigDocument;
 
 /**
  * Manages index name definitions.
+ * <p>
+ * Time series documents are routed to the index of the time bucket (day,
+ * week or month) of their own timestamp, so that late or replayed values end
+ * up in the same index as if they were written on time. The current time is
+ * only used for documents without timestamp. The bucket boundaries and index
+ * names are computed once per bucket and cached.
  */
 @Component
 public class IndexNameManager {
 
+  private static final String TIMESTAMP_PROPERTY = "timestamp";
+
+  /** Maximum number of cached buckets, the cache is cleared when exceeded */
+  private static final int MAX_BUCKETS = 1024;
+
   private Clock clock;
 
   @Getter
   private final ElasticsearchProperties properties;
 
+  /** The cached buckets, replaced when the index type or prefix changes */
+  private volatile BucketCache bucketCache;
+
   /**
    * @param properties of Elasticsearch server the application is communicating with.
    */
@@ -60,8 +78,7 @@ public class IndexNameManager {
    * @return the generated index name
    */
   public String indexFor(TagDocument tag) {
-    String prefix = properties.getIndexPrefix() + "-tag_";
-    return getIndexName(prefix, Instant.now(clock));
+    return getIndexName("-tag_", getTimestamp(tag));
   }
 
   /**
@@ -82,8 +99,7 @@ public class IndexNameManager {
    * @return the generated index name
    */
   public String indexFor(AlarmDocument alarm) {
-    String prefix = properties.getIndexPrefix() + "-alarm_";
-    return getIndexName(prefix, Instant.now(clock));
+    return getIndexName("-alarm_", getTimestamp(alarm));
   }
 
   /**
@@ -94,36 +110,105 @@ public class IndexNameManager {
    * @return the generated index name
    */
   public String indexFor(SupervisionEventDocument supervisionEvent) {
-    String prefix = properties.getIndexPrefix() + "-supervision_";
-    return getIndexName(prefix, Instant.now(clock));
+    return getIndexName("-supervision_", getTimestamp(supervisionEvent));
   }
 
   /**
-   * Generate an index for the given prefix and timestamp, based on the current
+   * @return the timestamp of the document, or the current time if it has none
+   */
+  private long getTimestamp(Map<String, Object> document) {
+    Object timestamp = document.get(TIMESTAMP_PROPERTY);
+    if (timestamp instanceof Number) {
+      return ((Number) timestamp).longValue();
+    }
+    return clock.millis();
+  }
+
+  /**
+   * Generate an index for the given entity and timestamp, based on the current
    * time series indexing strategy.
    *
-   * @param prefix  the index prefix
-   * @param instant the instant which will be used to generate the index
+   * @param entity    the entity part of the index name, e.g. "-tag_"
+   * @param timestamp the time in milliseconds which will be used to generate the index
    * @return the generated index name
    */
-  private String getIndexName(String prefix, Instant instant) {
-    String indexType = properties.getIndexType();
+  private String getIndexName(String entity, long timestamp) {
+    BucketCache cache = bucketCache;
+    if (cache == null || !cache.matches(properties)) {
+      cache = new BucketCache(properties.getIndexType(), properties.getIndexPrefix());
+      bucketCache = cache;
+    }
+
+    Bucket bucket = cache.lastBucket;
+    if (bucket == null || !bucket.contains(timestamp)) {
+      Map.Entry<Long, Bucket> entry = cache.buckets.floorEntry(timestamp);
+      if (entry != null && entry.getValue().contains(timestamp)) {
+        bucket = entry.getValue();
+      } else {
+        bucket = createBucket(cache.indexType.toLowerCase(Locale.getDefault()), cache.indexPrefix, timestamp);
+        if (cache.buckets.size() >= MAX_BUCKETS) {
+          cache.buckets.clear();
+        }
+        cache.buckets.put(bucket.start, bucket);
+      }
+      cache.lastBucket = bucket;
+    }
+    return bucket.getIndexName(entity);
+  }
+
+  /**
+   * Computes the bucket containing the given time, in the default time zone
+   * and locale as used for the index names. A weekly bucket does not span
+   * two years, as the year of the index name is the calendar year.
+   */
+  private static Bucket createBucket(String indexType, String indexPrefix, long timestamp) {
     String dateFormat;
+    Calendar calendar = Calendar.getInstance(Locale.getDefault());
+    calendar.setTimeInMillis(timestamp);
+    calendar.set(Calendar.HOUR_OF_DAY, 0);
+    calendar.set(Calendar.MINUTE, 0);
+    calendar.set(Calendar.SECOND, 0);
+    calendar.set(Calendar.MILLISECOND, 0);
+    long start;
+    long end;
 
-    switch (indexType.toLowerCase(Locale.getDefault())) {
+    switch (indexType) {
       case "d":
         dateFormat = "yyyy-MM-dd";
+        start = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        end = calendar.getTimeInMillis();
         break;
       case "w":
         dateFormat = "yyyy-'W'ww";
+        int daysSinceWeekStart = (calendar.get(Calendar.DAY_OF_WEEK) - calendar.getFirstDayOfWeek() + 7) % 7;
+        calendar.add(Calendar.DAY_OF_MONTH, -daysSinceWeekStart);
+        start = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 7);
+        end = calendar.getTimeInMillis();
+
+        calendar.setTimeInMillis(timestamp);
+        calendar.set(Calendar.DAY_OF_YEAR, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        start = Math.max(start, calendar.getTimeInMillis());
+        calendar.add(Calendar.YEAR, 1);
+        end = Math.min(end, calendar.getTimeInMillis());
         break;
       case "m":
       default:
         dateFormat = "yyyy-MM";
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        start = calendar.getTimeInMillis();
+        calendar.add(Calendar.MONTH, 1);
+        end = calendar.getTimeInMillis();
         break;
     }
 
-    return prefix + new SimpleDateFormat(dateFormat, Locale.getDefault()).format(Date.from(instant));
+    String suffix = new SimpleDateFormat(dateFormat, Locale.getDefault()).format(new Date(start));
+    return new Bucket(indexPrefix, start, end, suffix);
   }
 
   /**
@@ -134,4 +219,65 @@ public class IndexNameManager {
   protected void setClock(Clock clock) {
     this.clock = clock;
   }
+
+  /**
+   * The buckets of an index type and prefix.
+   */
+  private static final class BucketCache {
+
+    private final String indexType;
+
+    private final String indexPrefix;
+
+    /** The buckets by their start time */
+    private final ConcurrentNavigableMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+    /** The bucket of the last routed document, which most documents share */
+    private volatile Bucket lastBucket;
+
+    private BucketCache(String indexType, String indexPrefix) {
+      this.indexType = indexType;
+      this.indexPrefix = indexPrefix;
+    }
+
+    private boolean matches(ElasticsearchProperties properties) {
+      return indexType.equals(properties.getIndexType()) && indexPrefix.equals(properties.getIndexPrefix());
+    }
+  }
+
+  /**
+   * A time bucket [start, end) and the names of its indices.
+   */
+  private static final class Bucket {
+
+    private final String indexPrefix;
+
+    private final long start;
+
+    private final long end;
+
+    private final String suffix;
+
+    /** The index names by entity */
+    private final Map<String, String> indexNames = new ConcurrentHashMap<>();
+
+    private Bucket(String indexPrefix, long start, long end, String suffix) {
+      this.indexPrefix = indexPrefix;
+      this.start = start;
+      this.end = end;
+      this.suffix = suffix;
+    }
+
+    private boolean contains(long timestamp) {
+      return timestamp >= start && timestamp < end;
+    }
+
+    private String getIndexName(String entity) {
+      String indexName = indexNames.get(entity);
+      if (indexName == null) {
+        indexName = indexNames.computeIfAbsent(entity, e -> indexPrefix + e + suffix);
+      }
+      return indexName;
+    }
+  }
 }
@@ -17,6 +17,7 @@
 package cern.c2mon.server.elasticsearch.alarm;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -31,6 +32,10 @@ import cern.c2mon.server.elasticsearch.exception.ProcessingException;
  * Intermediate object (created from {@link Alarm} instances) used for direct
  * serialization to JSON objects suitable for indexing as Elasticsearch
  * documents.
+ * <p>
+ * Documents written by the {@link AlarmValueDocumentWriter} carry their
+ * streamed JSON source instead, and only contain the fields needed to route
+ * them as map entries.
  *
  * @author Alban Marguet
  * @author Justin Lewis Salmon
@@ -39,6 +44,23 @@ public class AlarmDocument extends HashMap<String, Object> implements IFallback
 
   private static final ObjectMapper mapper = new ObjectMapper();
 
+  /** The JSON source written by the {@link AlarmValueDocumentWriter}, null for maps */
+  private byte[] source;
+
+  /**
+   * @param id the alarm id
+   * @param timestamp the alarm timestamp
+   * @param source the JSON source of the document, including all fields
+   * @return a document with the given JSON source
+   */
+  static AlarmDocument fromSource(Long id, long timestamp, byte[] source) {
+    AlarmDocument document = new AlarmDocument();
+    document.put("id", id);
+    document.put("timestamp", timestamp);
+    document.source = source;
+    return document;
+  }
+
   @Override
   public Object put(String key, Object value) {
     if ("timestamp".equals(key) || "sourceTimestamp".equals(key)) {
@@ -63,6 +85,9 @@ public class AlarmDocument extends HashMap<String, Object> implements IFallback
 
   @Override
   public String toString() {
+    if (source != null) {
+      return new String(source, StandardCharsets.UTF_8);
+    }
     try {
       return mapper.writeValueAsString(this);
     } catch (JsonProcessingException e) {
@@ -31,7 +31,7 @@ import cern.c2mon.server.elasticsearch.config.ElasticsearchProperties;
 import cern.c2mon.shared.daq.lifecycle.Lifecycle;
 
 /**
- * Listens for {@link Alarm} updates and converts them to {@link AlarmDocument}
+ * Listens for {@link Alarm} updates and writes them to {@link AlarmDocument}
  * instances before sending them to the {@link IPersistenceManager} responsible
  * for indexing them.
  *
@@ -46,17 +46,17 @@ public class AlarmDocumentListener implements C2monCacheListener<Alarm>, SmartLi
   @Qualifier("alarmDocumentPersistenceManager")
   private final IPersistenceManager<AlarmDocument> persistenceManager;
 
-  private final AlarmValueDocumentConverter converter;
+  private final AlarmValueDocumentWriter writer;
 
   private Lifecycle listenerContainer;
 
   private volatile boolean running = false;
 
   @Autowired
-  public AlarmDocumentListener(ElasticsearchProperties properties, CacheRegistrationService cacheRegistrationService, IPersistenceManager<AlarmDocument> persistenceManager, AlarmValueDocumentConverter converter) {
+  public AlarmDocumentListener(ElasticsearchProperties properties, CacheRegistrationService cacheRegistrationService, IPersistenceManager<AlarmDocument> persistenceManager, AlarmValueDocumentWriter writer) {
     this.properties = properties;
     this.persistenceManager = persistenceManager;
-    this.converter = converter;
+    this.writer = writer;
     if (properties.isEnabled()) {
       listenerContainer = cacheRegistrationService.registerToAlarms(this);
     }
@@ -69,7 +69,7 @@ public class AlarmDocumentListener implements C2monCacheListener<Alarm>, SmartLi
       return;
     }
 
-    persistenceManager.storeData(converter.convert(alarm));
+    persistenceManager.storeData(writer.toDocument(alarm));
   }
 
   @Override
@@ -0,0 +1,63 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.elasticsearch.alarm;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.stereotype.Component;
+
+import cern.c2mon.server.common.alarm.Alarm;
+
+/**
+ * Streams {@link Alarm} instances into the JSON source of alarm documents
+ * with values included, as converted by the {@link AlarmValueDocumentConverter}.
+ */
+@Component
+public class AlarmValueDocumentWriter extends BaseAlarmDocumentWriter {
+
+  private static final SerializedString TAG_ID = new SerializedString("tagId");
+  private static final SerializedString ACTIVE = new SerializedString("active");
+  private static final SerializedString ACTIVE_NUMERIC = new SerializedString("activeNumeric");
+  private static final SerializedString INFO = new SerializedString("info");
+  private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+  private static final SerializedString SOURCE_TIMESTAMP = new SerializedString("sourceTimestamp");
+  private static final SerializedString OSCILLATING = new SerializedString("oscillating");
+
+  /**
+   * Creates the document of the given alarm from its streamed JSON source.
+   *
+   * @param alarm the alarm.
+   * @return the alarm document.
+   */
+  public AlarmDocument toDocument(final Alarm alarm) {
+    return AlarmDocument.fromSource(alarm.getId(), alarm.getTimestamp().getTime(), write(alarm));
+  }
+
+  @Override
+  public void writeFields(final Alarm alarm, final JsonGenerator generator) throws IOException {
+    super.writeFields(alarm, generator);
+    writeObjectField(generator, TAG_ID, alarm.getTagId());
+    writeBooleanField(generator, ACTIVE, alarm.isActive());
+    writeNumberField(generator, ACTIVE_NUMERIC, alarm.isActive() ? 1 : 0);
+    writeStringField(generator, INFO, alarm.getInfo());
+    writeNumberField(generator, TIMESTAMP, alarm.getTimestamp().getTime());
+    writeNumberField(generator, SOURCE_TIMESTAMP, alarm.getSourceTimestamp().getTime());
+    writeBooleanField(generator, OSCILLATING, alarm.isOscillating());
+  }
+}
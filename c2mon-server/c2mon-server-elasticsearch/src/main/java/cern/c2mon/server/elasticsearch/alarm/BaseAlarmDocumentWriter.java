@@ -0,0 +1,63 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.elasticsearch.alarm;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import cern.c2mon.server.common.alarm.Alarm;
+import cern.c2mon.server.elasticsearch.DocumentWriter;
+
+/**
+ * Streams {@link Alarm} instances into the JSON source of alarm documents
+ * excluding values, as converted by the {@link BaseAlarmDocumentConverter}.
+ */
+public class BaseAlarmDocumentWriter extends DocumentWriter {
+
+  private static final SerializedString ID = new SerializedString("id");
+  private static final SerializedString FAULT_FAMILY = new SerializedString("faultFamily");
+  private static final SerializedString FAULT_MEMBER = new SerializedString("faultMember");
+  private static final SerializedString FAULT_CODE = new SerializedString("faultCode");
+  private static final SerializedString METADATA = new SerializedString("metadata");
+
+  /**
+   * Writes the JSON source of the document of the given alarm.
+   *
+   * @param alarm the alarm.
+   * @return the UTF-8 encoded JSON source
+   */
+  public byte[] write(final Alarm alarm) {
+    return write(generator -> writeFields(alarm, generator));
+  }
+
+  /**
+   * Writes the fields of the document of the given alarm, e.g. within the
+   * document of another entity.
+   *
+   * @param alarm the alarm.
+   * @param generator the generator positioned within the alarm object
+   */
+  public void writeFields(final Alarm alarm, final JsonGenerator generator) throws IOException {
+    writeObjectField(generator, ID, alarm.getId());
+    writeStringField(generator, FAULT_FAMILY, alarm.getFaultFamily());
+    writeStringField(generator, FAULT_MEMBER, alarm.getFaultMember());
+    writeNumberField(generator, FAULT_CODE, alarm.getFaultCode());
+    writeObjectField(generator, METADATA, alarm.getMetadata().getMetadata());
+  }
+}
@@ -17,6 +17,7 @@
 package cern.c2mon.server.elasticsearch.supervision;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -30,6 +31,10 @@ import cern.c2mon.shared.client.supervision.SupervisionEvent;
  * Intermediate object (created from {@link SupervisionEvent} instances) used
  * for direct serialization to JSON objects suitable for indexing as
  * Elasticsearch documents.
+ * <p>
+ * Documents written by the {@link SupervisionEventDocumentWriter} carry their
+ * streamed JSON source instead, and only contain the fields needed to route
+ * them as map entries.
  *
  * @author Alban Marguet
  * @author Justin Lewis Salmon
@@ -38,6 +43,25 @@ public class SupervisionEventDocument extends HashMap<String, Object> implements
 
   private static final ObjectMapper mapper = new ObjectMapper();
 
+  /** The JSON source written by the {@link SupervisionEventDocumentWriter}, null for maps */
+  private byte[] source;
+
+  /**
+   * @param id the entity id
+   * @param timestamp the event time, or null if unknown
+   * @param source the JSON source of the document, including all fields
+   * @return a document with the given JSON source
+   */
+  static SupervisionEventDocument fromSource(Long id, Long timestamp, byte[] source) {
+    SupervisionEventDocument document = new SupervisionEventDocument();
+    document.put("id", id);
+    if (timestamp != null) {
+      document.put("timestamp", timestamp);
+    }
+    document.source = source;
+    return document;
+  }
+
   @Override
   public Object put(String key, Object value) {
     if (key.equals("timestamp")) {
@@ -62,6 +86,9 @@ public class SupervisionEventDocument extends HashMap<String, Object> implements
 
   @Override
   public String toString() {
+    if (source != null) {
+      return new String(source, StandardCharsets.UTF_8);
+    }
     try {
       return mapper.writeValueAsString(this);
     } catch (JsonProcessingException e) {
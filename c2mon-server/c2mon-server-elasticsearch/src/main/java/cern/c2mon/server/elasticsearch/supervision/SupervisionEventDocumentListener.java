@@ -34,7 +34,7 @@ import cern.c2mon.shared.client.supervision.SupervisionEvent;
 import cern.c2mon.shared.daq.lifecycle.Lifecycle;
 
 /**
- * Listens for {@link SupervisionEvent} updates and converts them to
+ * Listens for {@link SupervisionEvent} updates and writes them to
  * {@link SupervisionEventDocument} instances before sending them to the
  * {@link IPersistenceManager} responsible for indexing them.
  *
@@ -49,17 +49,17 @@ public class SupervisionEventDocumentListener implements SupervisionListener, Sm
   @Qualifier("supervisionEventDocumentPersistenceManager")
   private final IPersistenceManager<SupervisionEventDocument> persistenceManager;
 
-  private final SupervisionEventDocumentConverter converter;
+  private final SupervisionEventDocumentWriter writer;
 
   private Lifecycle listenerContainer;
 
   private volatile boolean running = false;
 
   @Autowired
-  public SupervisionEventDocumentListener(ElasticsearchProperties properties, SupervisionNotifier supervisionNotifier, IPersistenceManager<SupervisionEventDocument> persistenceManager, SupervisionEventDocumentConverter converter) {
+  public SupervisionEventDocumentListener(ElasticsearchProperties properties, SupervisionNotifier supervisionNotifier, IPersistenceManager<SupervisionEventDocument> persistenceManager, SupervisionEventDocumentWriter writer) {
     this.properties = properties;
     this.persistenceManager = persistenceManager;
-    this.converter = converter;
+    this.writer = writer;
     if (properties.isEnabled()) {
       listenerContainer = supervisionNotifier.registerAsListener(this);
     }
@@ -76,7 +76,7 @@ public class SupervisionEventDocumentListener implements SupervisionListener, Sm
     log.debug("Indexing supervision event {} for entity {} (#{})",
         supervisionEvent.getStatus(), supervisionEvent.getEntity(), supervisionEvent.getEntityId());
 
-    persistenceManager.storeData(converter.convert(supervisionEvent));
+    persistenceManager.storeData(writer.toDocument(supervisionEvent));
   }
 
   @Override
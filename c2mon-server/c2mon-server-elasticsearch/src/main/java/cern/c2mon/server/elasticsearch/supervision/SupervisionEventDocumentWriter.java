@@ -0,0 +1,82 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.elasticsearch.supervision;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.stereotype.Component;
+
+import cern.c2mon.server.elasticsearch.DocumentWriter;
+import cern.c2mon.shared.client.supervision.SupervisionEvent;
+
+/**
+ * Streams {@link SupervisionEvent} instances into the JSON source of
+ * supervision event documents, as converted by the
+ * {@link SupervisionEventDocumentConverter}.
+ */
+@Component
+public class SupervisionEventDocumentWriter extends DocumentWriter {
+
+  private static final SerializedString ID = new SerializedString("id");
+  private static final SerializedString NAME = new SerializedString("name");
+  private static final SerializedString MESSAGE = new SerializedString("message");
+  private static final SerializedString ENTITY = new SerializedString("entity");
+  private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+  private static final SerializedString STATUS = new SerializedString("status");
+
+  /**
+   * Writes the JSON source of the document of the given supervision event.
+   *
+   * @param supervisionEvent the supervision event
+   * @return the UTF-8 encoded JSON source
+   */
+  public byte[] write(final SupervisionEvent supervisionEvent) {
+    return write(generator -> writeFields(supervisionEvent, generator));
+  }
+
+  /**
+   * Creates the document of the given supervision event from its streamed
+   * JSON source.
+   *
+   * @param supervisionEvent the supervision event
+   * @return the supervision event document
+   */
+  public SupervisionEventDocument toDocument(final SupervisionEvent supervisionEvent) {
+    Long timestamp = supervisionEvent.getEventTime() != null ? supervisionEvent.getEventTime().getTime() : null;
+    return SupervisionEventDocument.fromSource(supervisionEvent.getEntityId(), timestamp, write(supervisionEvent));
+  }
+
+  private static void writeFields(final SupervisionEvent supervisionEvent, final JsonGenerator generator) throws IOException {
+    writeObjectField(generator, ID, supervisionEvent.getEntityId());
+    writeStringField(generator, NAME, supervisionEvent.getName());
+    writeStringField(generator, MESSAGE, supervisionEvent.getMessage());
+
+    if (supervisionEvent.getEntity() != null) {
+      writeStringField(generator, ENTITY, supervisionEvent.getEntity().name());
+    }
+
+    if (supervisionEvent.getEventTime() != null) {
+      writeNumberField(generator, TIMESTAMP, supervisionEvent.getEventTime().getTime());
+    }
+
+    if (supervisionEvent.getStatus() != null) {
+      writeStringField(generator, STATUS, supervisionEvent.getStatus().name());
+    }
+  }
+}
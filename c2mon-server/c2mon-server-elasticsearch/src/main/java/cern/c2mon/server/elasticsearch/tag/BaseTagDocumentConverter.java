@@ -23,34 +23,23 @@ import java.util.Optional;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.convert.converter.Converter;
 
-import cern.c2mon.server.cache.EquipmentCache;
-import cern.c2mon.server.cache.ProcessCache;
-import cern.c2mon.server.cache.SubEquipmentCache;
-import cern.c2mon.server.common.commfault.CommFaultTag;
-import cern.c2mon.server.common.equipment.Equipment;
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.cache.tag.TagHierarchy;
 import cern.c2mon.server.common.metadata.Metadata;
-import cern.c2mon.server.common.process.Process;
-import cern.c2mon.server.common.subequipment.SubEquipment;
 import cern.c2mon.server.common.tag.Tag;
 
 /**
  * @author Justin Lewis Salmon
  */
-@Slf4j
 public class BaseTagDocumentConverter<T extends Map<String, Object>> implements Converter<Tag, Optional<T>> {
 
-  private final ProcessCache processCache;
-  private final EquipmentCache equipmentCache;
-  private final SubEquipmentCache subEquipmentCache;
+  private final TagHierarchyIndex tagHierarchyIndex;
   private final Supplier<T> containerSupplier;
 
-  public BaseTagDocumentConverter(final ProcessCache processCache, final EquipmentCache equipmentCache, final SubEquipmentCache subEquipmentCache, final Supplier<T> containerSupplier) {
-    this.processCache = processCache;
-    this.equipmentCache = equipmentCache;
-    this.subEquipmentCache = subEquipmentCache;
+  public BaseTagDocumentConverter(final TagHierarchyIndex tagHierarchyIndex, final Supplier<T> containerSupplier) {
+    this.tagHierarchyIndex = tagHierarchyIndex;
     this.containerSupplier = containerSupplier;
   }
 
@@ -88,35 +77,17 @@ public class BaseTagDocumentConverter<T extends Map<String, Object>> implements
     Map<String, Object> map = new HashMap<>();
 
     map.put("dataType", tag.getDataType());
+    TagHierarchy hierarchy = tagHierarchyIndex.get(tag);
+    putIfNotNull(map, "process", hierarchy.getProcessName());
+    putIfNotNull(map, "equipment", hierarchy.getEquipmentName());
+    putIfNotNull(map, "subEquipment", hierarchy.getSubEquipmentName());
 
+    return map;
+  }
 
-    if (!(tag instanceof CommFaultTag) || !tag.getProcessIds().isEmpty()) {
-      try {
-        Process process = processCache.get(tag.getProcessIds().iterator().next());
-        map.put("process", process.getName());
-      } catch (Exception e) {
-        log.warn("Could not get Process name for tag #{} ({}) from cache. Reason: {}", tag.getId(), tag.getName(), e.getMessage());
-      }
-    }
-
-    if (!tag.getEquipmentIds().isEmpty()) {
-      try {
-        Equipment equipment = equipmentCache.get(tag.getEquipmentIds().iterator().next());
-        map.put("equipment", equipment.getName());
-      } catch (Exception e) {
-        log.warn("Could not get Equipment name for tag #{} ({}) from cache. Reason: {}", tag.getId(), tag.getName(), e.getMessage());
-      }
-    }
-
-    if (!tag.getSubEquipmentIds().isEmpty()) {
-      try {
-        SubEquipment subEquipment = subEquipmentCache.get(tag.getSubEquipmentIds().iterator().next());
-        map.put("subEquipment", subEquipment.getName());
-      } catch (Exception e) {
-        log.warn("Could not get SubEquipment name for tag #{} ({}) from cache. Reason: {}", tag.getId(), tag.getName(), e.getMessage());
-      }
+  private static void putIfNotNull(final Map<String, Object> map, final String key, final Object value) {
+    if (value != null) {
+      map.put(key, value);
     }
-
-    return map;
   }
 }
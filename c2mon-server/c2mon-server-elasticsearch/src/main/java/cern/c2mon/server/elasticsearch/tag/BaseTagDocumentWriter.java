@@ -0,0 +1,104 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.elasticsearch.tag;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.cache.tag.TagHierarchy;
+import cern.c2mon.server.common.metadata.Metadata;
+import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.server.elasticsearch.DocumentWriter;
+
+/**
+ * Streams the fields common to all tag documents, as converted by the
+ * {@link BaseTagDocumentConverter}.
+ */
+public abstract class BaseTagDocumentWriter extends DocumentWriter {
+
+  private static final SerializedString ID = new SerializedString("id");
+  private static final SerializedString NAME = new SerializedString("name");
+  private static final SerializedString DESCRIPTION = new SerializedString("description");
+  private static final SerializedString UNIT = new SerializedString("unit");
+  private static final SerializedString MODE = new SerializedString("mode");
+  private static final SerializedString METADATA = new SerializedString("metadata");
+  private static final SerializedString C2MON = new SerializedString("c2mon");
+  private static final SerializedString DATA_TYPE = new SerializedString("dataType");
+  private static final SerializedString PROCESS = new SerializedString("process");
+  private static final SerializedString EQUIPMENT = new SerializedString("equipment");
+  private static final SerializedString SUB_EQUIPMENT = new SerializedString("subEquipment");
+
+  private final TagHierarchyIndex tagHierarchyIndex;
+
+  protected BaseTagDocumentWriter(final TagHierarchyIndex tagHierarchyIndex) {
+    this.tagHierarchyIndex = tagHierarchyIndex;
+  }
+
+  /**
+   * Writes the fields common to all tag documents, including the "c2mon"
+   * object written by {@link #writeC2monFields(Tag, JsonGenerator)}.
+   */
+  protected void writeTagFields(final Tag tag, final JsonGenerator generator) throws IOException {
+    writeNumberField(generator, ID, tag.getId());
+    writeStringField(generator, NAME, tag.getName());
+    writeStringField(generator, DESCRIPTION, tag.getDescription());
+    writeStringField(generator, UNIT, tag.getUnit());
+    writeNumberField(generator, MODE, tag.getMode());
+
+    generator.writeFieldName(METADATA);
+    writeMetadata(tag.getMetadata(), generator);
+
+    generator.writeFieldName(C2MON);
+    generator.writeStartObject();
+    writeC2monFields(tag, generator);
+    generator.writeEndObject();
+  }
+
+  private static void writeMetadata(final Metadata metadata, final JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    if (metadata != null) {
+      for (Map.Entry<String, Object> entry : metadata.getMetadata().entrySet()) {
+        if (entry.getKey() != null && entry.getValue() != null) {
+          generator.writeFieldName(entry.getKey());
+          generator.writeObject(entry.getValue());
+        }
+      }
+    }
+    generator.writeEndObject();
+  }
+
+  /**
+   * Writes the fields of the "c2mon" object.
+   */
+  protected void writeC2monFields(final Tag tag, final JsonGenerator generator) throws IOException {
+    writeStringField(generator, DATA_TYPE, tag.getDataType());
+    TagHierarchy hierarchy = tagHierarchyIndex.get(tag);
+    writeNameField(generator, PROCESS, hierarchy.getProcessName());
+    writeNameField(generator, EQUIPMENT, hierarchy.getEquipmentName());
+    writeNameField(generator, SUB_EQUIPMENT, hierarchy.getSubEquipmentName());
+  }
+
+  private static void writeNameField(final JsonGenerator generator, final SerializedString field, final String name) throws IOException {
+    if (name != null) {
+      writeStringField(generator, field, name);
+    }
+  }
+}
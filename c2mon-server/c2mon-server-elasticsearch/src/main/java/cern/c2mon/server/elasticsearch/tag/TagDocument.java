@@ -17,6 +17,7 @@
 package cern.c2mon.server.elasticsearch.tag;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -30,6 +31,11 @@ import cern.c2mon.server.elasticsearch.exception.ProcessingException;
  * Intermediate object (created from {@link Tag} instances) used for direct
  * serialization to JSON objects suitable for indexing as Elasticsearch
  * documents.
+ * <p>
+ * Documents written by the {@link TagDocumentWriter} carry their streamed
+ * JSON source instead, and only contain the id and timestamp needed to route
+ * them as map entries. Documents read back from the fallback file are plain
+ * maps again.
  *
  * @author Alban Marguet
  * @author Justin Lewis Salmon
@@ -38,6 +44,23 @@ public class TagDocument extends HashMap<String, Object> implements IFallback {
 
   private static final ObjectMapper mapper = new ObjectMapper();
 
+  /** The JSON source written by the {@link TagDocumentWriter}, null for maps */
+  private byte[] source;
+
+  /**
+   * @param id the tag id
+   * @param timestamp the tag timestamp
+   * @param source the JSON source of the document, including id and timestamp
+   * @return a document with the given JSON source
+   */
+  static TagDocument fromSource(Long id, long timestamp, byte[] source) {
+    TagDocument document = new TagDocument();
+    document.put("id", id);
+    document.put("timestamp", timestamp);
+    document.source = source;
+    return document;
+  }
+
   @Override
   public Object put(String key, Object value) {
     if (key.equals("timestamp")) {
@@ -64,8 +87,25 @@ public class TagDocument extends HashMap<String, Object> implements IFallback {
     }
   }
 
+  /**
+   * @return the UTF-8 encoded JSON source of the document
+   */
+  public byte[] getSource() {
+    if (source != null) {
+      return source;
+    }
+    try {
+      return mapper.writeValueAsBytes(this);
+    } catch (JsonProcessingException e) {
+      throw new ProcessingException("Error serializing document", e);
+    }
+  }
+
   @Override
   public String toString() {
+    if (source != null) {
+      return new String(source, StandardCharsets.UTF_8);
+    }
     try {
       return mapper.writeValueAsString(this);
     } catch (JsonProcessingException e) {
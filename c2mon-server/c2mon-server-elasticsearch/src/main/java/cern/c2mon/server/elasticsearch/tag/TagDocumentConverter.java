@@ -23,9 +23,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import cern.c2mon.server.cache.EquipmentCache;
-import cern.c2mon.server.cache.ProcessCache;
-import cern.c2mon.server.cache.SubEquipmentCache;
+import cern.c2mon.server.cache.TagHierarchyIndex;
 import cern.c2mon.server.common.datatag.DataTag;
 import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.shared.common.datatag.DataTagQuality;
@@ -43,8 +41,8 @@ import cern.c2mon.shared.common.type.TypeConverter;
 public class TagDocumentConverter extends BaseTagDocumentConverter<TagDocument> {
 
   @Autowired
-  public TagDocumentConverter(final ProcessCache processCache, final EquipmentCache equipmentCache, final SubEquipmentCache subEquipmentCache) {
-    super(processCache, equipmentCache, subEquipmentCache, TagDocument::new);
+  public TagDocumentConverter(final TagHierarchyIndex tagHierarchyIndex) {
+    super(tagHierarchyIndex, TagDocument::new);
   }
 
   @Override
@@ -128,7 +126,7 @@ public class TagDocumentConverter extends BaseTagDocumentConverter<TagDocument>
    * @return the result of the accumulated statuses.
    * If no invalid status was found (good quality) the result will be {@code 0}.
    */
-  private int calculateStatus(final Tag tag) {
+  static int calculateStatus(final Tag tag) {
     return Optional.ofNullable(tag.getDataTagQuality())
         .map(DataTagQuality::getInvalidQualityStates)
         .map(Map::keySet)
@@ -148,7 +146,7 @@ public class TagDocumentConverter extends BaseTagDocumentConverter<TagDocument>
    * @return a {@link Collection} of invalid statuses or a {@link Collection}
    * with a single value {@code "OK"}, if no invalid qualities were found
    */
-  private Collection<String> collectStatusInfo(final DataTagQuality dataTagQuality) {
+  static Collection<String> collectStatusInfo(final DataTagQuality dataTagQuality) {
     Map<TagQualityStatus, String> invalidQualityStates = dataTagQuality.getInvalidQualityStates();
 
     if (invalidQualityStates == null) {
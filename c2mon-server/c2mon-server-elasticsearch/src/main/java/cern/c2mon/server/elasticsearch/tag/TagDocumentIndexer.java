@@ -76,7 +76,16 @@ public class TagDocumentIndexer implements IDBPersistenceHandler<TagDocument> {
   public void storeData(List<TagDocument> tags) throws IDBPersistenceException {
     try {
       log.debug("Trying to send a batch of size {}", tags.size());
-      tags.forEach(this::indexTag);
+      // consecutive tags mostly share their index, which is then only resolved once
+      String lastIndex = null;
+      for (TagDocument tag : tags) {
+        String index = indexNameManager.indexFor(tag);
+        if (!index.equals(lastIndex)) {
+          createIndexIfNeeded(index);
+          lastIndex = index;
+        }
+        indexTag(tag, index);
+      }
 
       bulkProcessor.flush();
     } catch (Exception e) {
@@ -85,27 +94,22 @@ public class TagDocumentIndexer implements IDBPersistenceHandler<TagDocument> {
     }
   }
 
-  private void indexTag(TagDocument tag) {
-    String index = getOrCreateIndex(tag);
-
+  private void indexTag(TagDocument tag, String index) {
     log.trace("Indexing tag (#{}, index={}, type={})", tag.getId(), index, ElasticsearchProperties.TYPE);
 
     IndexRequest indexNewTag = new IndexRequest(index, ElasticsearchProperties.TYPE)
-        .source(tag.toString(), XContentType.JSON)
+        .source(tag.getSource(), XContentType.JSON)
         .routing(tag.getId());
 
     bulkProcessor.add(indexNewTag);
   }
 
-  private String getOrCreateIndex(TagDocument tag) {
-    IndexMetadata indexMetadata = IndexMetadata.builder().name(indexNameManager.indexFor(tag)).build();
+  private void createIndexIfNeeded(String index) {
+    IndexMetadata indexMetadata = IndexMetadata.builder().name(index).build();
 
     if (!indexManager.exists(indexMetadata)) {
       indexManager.create(indexMetadata, MappingFactory.createTagMapping());
     }
-
-    return indexMetadata.getName();
-
   }
 
   @Override
@@ -36,7 +36,7 @@ import cern.c2mon.server.elasticsearch.config.ElasticsearchProperties;
 import cern.c2mon.shared.daq.lifecycle.Lifecycle;
 
 /**
- * Listens for {@link Tag} updates and converts them to {@link TagDocument}
+ * Listens for {@link Tag} updates and writes them to {@link TagDocument}
  * instances before sending them to the {@link IPersistenceManager} responsible
  * for indexing them.
  *
@@ -51,7 +51,7 @@ public class TagDocumentListener implements C2monBufferedCacheListener<Tag>, Sma
   @Qualifier("tagDocumentPersistenceManager")
   private final IPersistenceManager<TagDocument> persistenceManager;
 
-  private final TagDocumentConverter converter;
+  private final TagDocumentWriter writer;
 
   private Lifecycle listenerContainer;
 
@@ -61,13 +61,13 @@ public class TagDocumentListener implements C2monBufferedCacheListener<Tag>, Sma
    * @param properties Elasticsearch properties
    * @param cacheRegistrationService to register respective listener
    * @param persistenceManager to store respective data
-   * @param converter to convert the tags
+   * @param writer to write the tags
    */
   @Autowired
-  public TagDocumentListener(ElasticsearchProperties properties, CacheRegistrationService cacheRegistrationService, IPersistenceManager<TagDocument> persistenceManager, TagDocumentConverter converter) {
+  public TagDocumentListener(ElasticsearchProperties properties, CacheRegistrationService cacheRegistrationService, IPersistenceManager<TagDocument> persistenceManager, TagDocumentWriter writer) {
     this.properties = properties;
     this.persistenceManager = persistenceManager;
-    this.converter = converter;
+    this.writer = writer;
 
     if (properties.isEnabled()) {
       listenerContainer = cacheRegistrationService.registerBufferedListenerToTags(this);
@@ -85,7 +85,7 @@ public class TagDocumentListener implements C2monBufferedCacheListener<Tag>, Sma
     log.debug("About to log {} tags", loggables.size());
 
     List<TagDocument> tagDocuments = loggables.stream()
-        .map(tag -> converter.convert(tag))
+        .map(writer::toDocument)
         .filter(Optional::isPresent)
         .map(Optional::get)
         .collect(Collectors.toList());
@@ -0,0 +1,153 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.elasticsearch.tag;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.shared.common.datatag.DataTagQuality;
+import cern.c2mon.shared.common.type.TypeConverter;
+
+/**
+ * Streams {@link Tag} instances directly into the JSON source of tag
+ * documents, with the same content as converted by the
+ * {@link TagDocumentConverter}.
+ */
+@Slf4j
+@Component
+public class TagDocumentWriter extends BaseTagDocumentWriter {
+
+  private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+  private static final SerializedString QUALITY = new SerializedString("quality");
+  private static final SerializedString VALID = new SerializedString("valid");
+  private static final SerializedString STATUS = new SerializedString("status");
+  private static final SerializedString STATUS_INFO = new SerializedString("statusInfo");
+  private static final SerializedString VALUE_DESCRIPTION = new SerializedString("valueDescription");
+  private static final SerializedString VALUE = new SerializedString("value");
+  private static final SerializedString VALUE_LONG = new SerializedString("valueLong");
+  private static final SerializedString VALUE_BOOLEAN = new SerializedString("valueBoolean");
+  private static final SerializedString VALUE_STRING = new SerializedString("valueString");
+  private static final SerializedString VALUE_OBJECT = new SerializedString("valueObject");
+  private static final SerializedString SERVER_TIMESTAMP = new SerializedString("serverTimestamp");
+  private static final SerializedString DAQ_TIMESTAMP = new SerializedString("daqTimestamp");
+  private static final SerializedString SOURCE_TIMESTAMP = new SerializedString("sourceTimestamp");
+
+  @Autowired
+  public TagDocumentWriter(final TagHierarchyIndex tagHierarchyIndex) {
+    super(tagHierarchyIndex);
+  }
+
+  /**
+   * Writes the JSON source of the document of the given tag.
+   *
+   * @param tag the tag to write
+   * @return the UTF-8 encoded JSON source
+   */
+  public byte[] write(final Tag tag) {
+    return write(generator -> writeFields(tag, generator));
+  }
+
+  /**
+   * Creates the document of the given tag from its streamed JSON source.
+   *
+   * @param tag the tag to write
+   * @return the document, or empty if the tag could not be written
+   */
+  public Optional<TagDocument> toDocument(final Tag tag) {
+    try {
+      return Optional.of(TagDocument.fromSource(tag.getId(), tag.getTimestamp().getTime(), write(tag)));
+    } catch (Exception e) {
+      log.error("Error occurred during conversion of Tag #{} ({}) to Elasticsearch document. Unable to store update to Elasticsearch!", tag.getId(), tag.getName(), e);
+    }
+    return Optional.empty();
+  }
+
+  private void writeFields(final Tag tag, final JsonGenerator generator) throws IOException {
+    writeTagFields(tag, generator);
+    writeNumberField(generator, TIMESTAMP, tag.getTimestamp().getTime());
+    writeQuality(tag, generator);
+    writeStringField(generator, VALUE_DESCRIPTION, tag.getValueDescription());
+
+    Object value = tag.getValue();
+    Class<?> clazz = TypeConverter.getType(tag.getDataType());
+    if (clazz == null) {
+      writeObjectField(generator, VALUE_OBJECT, value);
+
+    } else if (Number.class.isAssignableFrom(clazz)) {
+      writeObjectField(generator, VALUE, value);
+
+      if (Long.class.isAssignableFrom(clazz)) {
+        writeObjectField(generator, VALUE_LONG, value);
+      }
+    } else if (Boolean.class.isAssignableFrom(clazz)) {
+      writeObjectField(generator, VALUE_BOOLEAN, value);
+
+      if (value != null) {
+        // as in TagDocumentConverter, any boolean value is stored as 1
+        writeNumberField(generator, VALUE, 1);
+      }
+    } else if (String.class.isAssignableFrom(clazz)) {
+      writeObjectField(generator, VALUE_STRING, value);
+
+    } else {
+      writeObjectField(generator, VALUE_OBJECT, value);
+    }
+  }
+
+  private static void writeQuality(final Tag tag, final JsonGenerator generator) throws IOException {
+    DataTagQuality quality = tag.getDataTagQuality();
+
+    generator.writeFieldName(QUALITY);
+    generator.writeStartObject();
+    writeBooleanField(generator, VALID, quality.isValid());
+    writeNumberField(generator, STATUS, TagDocumentConverter.calculateStatus(tag));
+    generator.writeFieldName(STATUS_INFO);
+    generator.writeStartArray();
+    for (String statusInfo : TagDocumentConverter.collectStatusInfo(quality)) {
+      generator.writeString(statusInfo);
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+  }
+
+  @Override
+  protected void writeC2monFields(final Tag tag, final JsonGenerator generator) throws IOException {
+    super.writeC2monFields(tag, generator);
+    writeNumberField(generator, SERVER_TIMESTAMP, tag.getCacheTimestamp().getTime());
+
+    if (tag instanceof DataTag) {
+      DataTag dataTag = (DataTag) tag;
+
+      if (dataTag.getDaqTimestamp() != null) {
+        writeNumberField(generator, DAQ_TIMESTAMP, dataTag.getDaqTimestamp().getTime());
+      }
+
+      if (dataTag.getSourceTimestamp() != null) {
+        writeNumberField(generator, SOURCE_TIMESTAMP, dataTag.getSourceTimestamp().getTime());
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@
 
 package cern.c2mon.server.elasticsearch.tag.config;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -25,12 +26,33 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import cern.c2mon.server.elasticsearch.exception.ProcessingException;
 
 /**
+ * Tag configuration serialized to JSON objects suitable for indexing as
+ * Elasticsearch documents.
+ * <p>
+ * Documents written by the {@link TagConfigDocumentWriter} carry their
+ * streamed JSON source instead, and only contain the tag id as map entry.
+ *
  * @author Szymon Halastra
  */
 public class TagConfigDocument extends HashMap<String, Object> {
 
   private static final ObjectMapper mapper = new ObjectMapper();
 
+  /** The JSON source written by the {@link TagConfigDocumentWriter}, null for maps */
+  private byte[] source;
+
+  /**
+   * @param id the tag id
+   * @param source the JSON source of the document, including all fields
+   * @return a document with the given JSON source
+   */
+  static TagConfigDocument fromSource(Long id, byte[] source) {
+    TagConfigDocument document = new TagConfigDocument();
+    document.put("id", id);
+    document.source = source;
+    return document;
+  }
+
   @Override
   public Object put(String key, Object value) {
     if (key.equals("timestamp")) {
@@ -49,6 +71,9 @@ public class TagConfigDocument extends HashMap<String, Object> {
 
   @Override
   public String toString() {
+    if (source != null) {
+      return new String(source, StandardCharsets.UTF_8);
+    }
     try {
       return mapper.writeValueAsString(this);
     } catch (JsonProcessingException e) {
@@ -24,9 +24,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import cern.c2mon.server.cache.EquipmentCache;
-import cern.c2mon.server.cache.ProcessCache;
-import cern.c2mon.server.cache.SubEquipmentCache;
+import cern.c2mon.server.cache.TagHierarchyIndex;
 import cern.c2mon.server.common.alarm.Alarm;
 import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.server.elasticsearch.alarm.BaseAlarmDocumentConverter;
@@ -42,8 +40,8 @@ import static java.util.stream.Collectors.toList;
 public class TagConfigDocumentConverter extends BaseTagDocumentConverter<TagConfigDocument> {
 
   @Autowired
-  public TagConfigDocumentConverter(final ProcessCache processCache, final EquipmentCache equipmentCache, final SubEquipmentCache subEquipmentCache) {
-    super(processCache, equipmentCache, subEquipmentCache, TagConfigDocument::new);
+  public TagConfigDocumentConverter(final TagHierarchyIndex tagHierarchyIndex) {
+    super(tagHierarchyIndex, TagConfigDocument::new);
   }
 
   /**
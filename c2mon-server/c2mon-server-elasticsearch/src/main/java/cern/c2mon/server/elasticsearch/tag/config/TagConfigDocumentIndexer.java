@@ -45,7 +45,7 @@ public class TagConfigDocumentIndexer {
   private final String configIndex;
   private final IndexManager indexManager;
   private final TagFacadeGateway tagFacadeGateway;
-  private final TagConfigDocumentConverter converter;
+  private final TagConfigDocumentWriter writer;
 
   /**
    * Tag configuration document constructor
@@ -53,13 +53,13 @@ public class TagConfigDocumentIndexer {
    * @param properties   of Elasticsearch server the application is communicating with.
    * @param indexManager to perform index-related operations.
    * @param tagFacadeGateway to locate correct facade bean for re-index operation
-   * @param converter to convert tags
+   * @param writer to write tags
    */
   @Autowired
-  public TagConfigDocumentIndexer(ElasticsearchProperties properties, IndexManager indexManager, TagFacadeGateway tagFacadeGateway, TagConfigDocumentConverter converter) {
+  public TagConfigDocumentIndexer(ElasticsearchProperties properties, IndexManager indexManager, TagFacadeGateway tagFacadeGateway, TagConfigDocumentWriter writer) {
     this.indexManager = indexManager;
     this.tagFacadeGateway = tagFacadeGateway;
-    this.converter = converter;
+    this.writer = writer;
     this.configIndex = properties.getTagConfigIndex();
   }
 
@@ -122,7 +122,7 @@ public class TagConfigDocumentIndexer {
 
     for (Long id : tagFacadeGateway.getKeys()) {
       Tag tag = tagFacadeGateway.getTag(id);
-      converter.convert(tag, tagFacadeGateway.getAlarms(tag)).ifPresent(this::updateTagConfig);
+      writer.toDocument(tag, tagFacadeGateway.getAlarms(tag)).ifPresent(this::updateTagConfig);
     }
   }
 }
@@ -45,15 +45,15 @@ public class TagConfigDocumentListener implements ConfigurationEventListener {
 
   private final TagConfigDocumentIndexer indexer;
 
-  private final TagConfigDocumentConverter converter;
+  private final TagConfigDocumentWriter writer;
 
   private final TagFacadeGateway tagFacadeGateway;
 
   @Autowired
-  public TagConfigDocumentListener(ElasticsearchProperties properties, TagConfigDocumentIndexer indexer, TagConfigDocumentConverter converter, TagFacadeGateway tagFacadeGateway) {
+  public TagConfigDocumentListener(ElasticsearchProperties properties, TagConfigDocumentIndexer indexer, TagConfigDocumentWriter writer, TagFacadeGateway tagFacadeGateway) {
     this.properties = properties;
     this.indexer = indexer;
-    this.converter = converter;
+    this.writer = writer;
     this.tagFacadeGateway = tagFacadeGateway;
   }
 
@@ -79,10 +79,10 @@ public class TagConfigDocumentListener implements ConfigurationEventListener {
     try {
       switch (action) {
         case CREATE:
-          converter.convert(tag, alarms).ifPresent(indexer::indexTagConfig);
+          writer.toDocument(tag, alarms).ifPresent(indexer::indexTagConfig);
           break;
         case UPDATE:
-          converter.convert(tag, alarms).ifPresent(indexer::updateTagConfig);
+          writer.toDocument(tag, alarms).ifPresent(indexer::updateTagConfig);
           break;
         case REMOVE:
           indexer.removeTagConfigById(tag.getId());
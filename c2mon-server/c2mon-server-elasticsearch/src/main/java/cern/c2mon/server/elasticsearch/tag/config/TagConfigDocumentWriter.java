@@ -0,0 +1,94 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.elasticsearch.tag.config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.common.alarm.Alarm;
+import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.server.elasticsearch.alarm.BaseAlarmDocumentWriter;
+import cern.c2mon.server.elasticsearch.tag.BaseTagDocumentWriter;
+
+/**
+ * Streams {@link Tag} instances and their {@link Alarm}s into the JSON source
+ * of tag config documents, as converted by the {@link TagConfigDocumentConverter}.
+ */
+@Component
+public class TagConfigDocumentWriter extends BaseTagDocumentWriter {
+
+  private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+  private static final SerializedString ALARMS = new SerializedString("alarms");
+  private static final SerializedString LOGGED = new SerializedString("logged");
+
+  private final BaseAlarmDocumentWriter alarmWriter = new BaseAlarmDocumentWriter();
+
+  @Autowired
+  public TagConfigDocumentWriter(final TagHierarchyIndex tagHierarchyIndex) {
+    super(tagHierarchyIndex);
+  }
+
+  /**
+   * Writes the JSON source of the config document of the given tag.
+   *
+   * @param tag    the tag
+   * @param alarms the alarms
+   * @return the UTF-8 encoded JSON source
+   */
+  public byte[] write(final Tag tag, final List<Alarm> alarms) {
+    long timestamp = System.currentTimeMillis();
+    return write(generator -> writeFields(tag, alarms, timestamp, generator));
+  }
+
+  /**
+   * Creates the config document of the given tag from its streamed JSON source.
+   *
+   * @param tag    the tag
+   * @param alarms the alarms
+   * @return the tag config document
+   */
+  public Optional<TagConfigDocument> toDocument(final Tag tag, final List<Alarm> alarms) {
+    return Optional.of(TagConfigDocument.fromSource(tag.getId(), write(tag, alarms)));
+  }
+
+  private void writeFields(final Tag tag, final List<Alarm> alarms, final long timestamp, final JsonGenerator generator) throws IOException {
+    writeTagFields(tag, generator);
+    writeNumberField(generator, TIMESTAMP, timestamp);
+
+    generator.writeFieldName(ALARMS);
+    generator.writeStartArray();
+    for (Alarm alarm : alarms) {
+      generator.writeStartObject();
+      alarmWriter.writeFields(alarm, generator);
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+  }
+
+  @Override
+  protected void writeC2monFields(final Tag tag, final JsonGenerator generator) throws IOException {
+    super.writeC2monFields(tag, generator);
+    writeBooleanField(generator, LOGGED, tag.isLogged());
+  }
+}
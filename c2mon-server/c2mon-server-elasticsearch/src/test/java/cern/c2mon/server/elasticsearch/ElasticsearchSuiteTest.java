@@ -32,6 +32,7 @@ import cern.c2mon.server.elasticsearch.supervision.SupervisionEventDocumentIndex
 import cern.c2mon.server.elasticsearch.supervision.SupervisionEventDocumentTestSuite;
 import cern.c2mon.server.elasticsearch.tag.TagDocumentConverterTestSuite;
 import cern.c2mon.server.elasticsearch.tag.TagDocumentIndexerTestSuite;
+import cern.c2mon.server.elasticsearch.tag.TagDocumentWriterTestSuite;
 import cern.c2mon.server.elasticsearch.tag.config.TagConfigDocumentConverterTestSuite;
 import cern.c2mon.server.elasticsearch.tag.config.TagConfigDocumentIndexerTestSuite;
 import cern.c2mon.server.elasticsearch.util.EmbeddedElasticsearchManager;
@@ -52,6 +53,7 @@ import cern.c2mon.server.elasticsearch.util.EmbeddedElasticsearchManager;
     SupervisionEventDocumentTestSuite.class,
     TagDocumentConverterTestSuite.class,
     TagDocumentIndexerTestSuite.class,
+    TagDocumentWriterTestSuite.class,
     TagConfigDocumentConverterTestSuite.class,
     TagConfigDocumentIndexerTestSuite.class
 })
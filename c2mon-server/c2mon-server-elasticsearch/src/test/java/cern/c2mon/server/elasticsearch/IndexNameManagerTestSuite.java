@@ -16,9 +16,13 @@
  *****************************************************************************/
 package cern.c2mon.server.elasticsearch;
 
+import java.text.SimpleDateFormat;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -79,4 +83,40 @@ public class IndexNameManagerTestSuite {
     String index = indexNameManager.indexFor(document);
     assertEquals("Daily index name should contain day definition", "c2mon-tag_2015-12-01", index);
   }
+
+  @Test
+  public void backfilledDocumentIndex() {
+    indexNameManager.getProperties().setIndexType("M");
+
+    TagDocument document = new TagDocument();
+    document.put(TIMESTAMP_PROPERTY, 1448928000000L - TimeUnit.DAYS.toMillis(20));
+
+    String index = indexNameManager.indexFor(document);
+    assertEquals("Index name should be based on the document timestamp", "c2mon-tag_2015-11", index);
+  }
+
+  @Test
+  public void documentWithoutTimestampIndex() {
+    indexNameManager.getProperties().setIndexType("D");
+
+    String index = indexNameManager.indexFor(new TagDocument());
+    assertEquals("Index name should be based on the current time", "c2mon-tag_2015-12-01", index);
+  }
+
+  @Test
+  public void cachedIndexNames() {
+    String[][] types = {{"D", "yyyy-MM-dd"}, {"W", "yyyy-'W'ww"}, {"M", "yyyy-MM"}};
+    for (String[] type : types) {
+      indexNameManager.getProperties().setIndexType(type[0]);
+      SimpleDateFormat format = new SimpleDateFormat(type[1], Locale.getDefault());
+
+      // two years around a year change, in steps of 5 hours
+      for (long time = 1420070400000L - TimeUnit.DAYS.toMillis(370); time < 1420070400000L + TimeUnit.DAYS.toMillis(370);
+           time += TimeUnit.HOURS.toMillis(5)) {
+        TagDocument document = new TagDocument();
+        document.put(TIMESTAMP_PROPERTY, time);
+        assertEquals("c2mon-tag_" + format.format(new Date(time)), indexNameManager.indexFor(document));
+      }
+    }
+  }
 }
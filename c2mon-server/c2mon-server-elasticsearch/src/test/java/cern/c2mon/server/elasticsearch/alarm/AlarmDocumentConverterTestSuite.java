@@ -16,9 +16,11 @@
  *****************************************************************************/
 package cern.c2mon.server.elasticsearch.alarm;
 
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.Map;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -48,6 +50,8 @@ public class AlarmDocumentConverterTestSuite {
 
   private AlarmValueDocumentConverter converter = new AlarmValueDocumentConverter();
 
+  private AlarmValueDocumentWriter writer = new AlarmValueDocumentWriter();
+
   @Test
   public void toAndFromJson() throws DataFallbackException {
     Alarm alarm = EntityUtils.createAlarm();
@@ -74,6 +78,18 @@ public class AlarmDocumentConverterTestSuite {
     assertEquals(alarm.getMetadata().getMetadata().get("responsiblePerson"), metadata.get("responsiblePerson"));
   }
 
+  @Test
+  public void writtenDocumentMatchesConvertedDocument() throws IOException {
+    Alarm alarm = EntityUtils.createAlarm();
+    ObjectMapper mapper = new ObjectMapper();
+
+    AlarmDocument document = writer.toDocument(alarm);
+
+    assertEquals(mapper.readValue(converter.convert(alarm).toString(), Map.class), mapper.readValue(document.toString(), Map.class));
+    assertEquals(String.valueOf(alarm.getId()), document.getId());
+    assertEquals(alarm.getTimestamp().getTime(), document.get(TIMESTAMP_PROPERTY));
+  }
+
   /**
    * Timestamp should not be 0 but in case it is
    * it should still be a Long not an Integer.
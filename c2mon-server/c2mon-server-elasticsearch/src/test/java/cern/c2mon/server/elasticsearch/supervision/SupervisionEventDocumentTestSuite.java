@@ -16,6 +16,10 @@
  *****************************************************************************/
 package cern.c2mon.server.elasticsearch.supervision;
 
+import java.io.IOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -39,6 +43,8 @@ public class SupervisionEventDocumentTestSuite {
 
   private SupervisionEventDocumentConverter converter = new SupervisionEventDocumentConverter();
 
+  private SupervisionEventDocumentWriter writer = new SupervisionEventDocumentWriter();
+
   @Test
   public void toAndFromJson() {
     SupervisionEvent event = EntityUtils.createSupervisionEvent();
@@ -57,4 +63,16 @@ public class SupervisionEventDocumentTestSuite {
     assertEquals(event.getStatus().name(), document.get("status"));
     assertEquals(event.getMessage(), document.get("message"));
   }
+
+  @Test
+  public void writtenDocumentMatchesConvertedDocument() throws IOException {
+    SupervisionEvent event = EntityUtils.createSupervisionEvent();
+    ObjectMapper mapper = new ObjectMapper();
+
+    SupervisionEventDocument document = writer.toDocument(event);
+
+    assertEquals(mapper.readValue(converter.convert(event).toString(), Map.class), mapper.readValue(document.toString(), Map.class));
+    assertEquals(String.valueOf(event.getEntityId()), document.getId());
+    assertEquals(event.getEventTime().getTime(), document.get("timestamp"));
+  }
 }
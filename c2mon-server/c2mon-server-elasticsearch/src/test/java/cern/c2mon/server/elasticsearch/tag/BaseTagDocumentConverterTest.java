@@ -27,6 +27,10 @@ import org.mockito.runners.MockitoJUnitRunner;
 import cern.c2mon.server.cache.EquipmentCache;
 import cern.c2mon.server.cache.ProcessCache;
 import cern.c2mon.server.cache.SubEquipmentCache;
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.cache.TagLocationService;
+import cern.c2mon.server.cache.config.CacheProperties;
+import cern.c2mon.server.cache.tag.TagHierarchyIndexImpl;
 import cern.c2mon.server.common.datatag.DataTag;
 
 import static org.junit.Assert.assertEquals;
@@ -50,6 +54,16 @@ public class BaseTagDocumentConverterTest {
   @Mock
   protected SubEquipmentCache subEquipmentCache;
 
+  @Mock
+  protected TagLocationService tagLocationService;
+
+  /**
+   * @return a new hierarchy index resolving the tag parents from the cache mocks
+   */
+  protected TagHierarchyIndex createTagHierarchyIndex() {
+    return new TagHierarchyIndexImpl(tagLocationService, processCache, equipmentCache, subEquipmentCache, new CacheProperties());
+  }
+
   protected void assertBaseFieldsMatch(DataTag tag, Map<String, Object> document) {
     assertEquals(tag.getId().intValue(), document.get("id"));
     assertEquals(tag.getName(), document.get("name"));
@@ -22,7 +22,6 @@ import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import cern.c2mon.server.common.datatag.DataTag;
@@ -49,11 +48,12 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class TagDocumentConverterTestSuite extends BaseTagDocumentConverterTest {
 
-  @InjectMocks
   private TagDocumentConverter converter;
 
   @Before
   public void setUp() {
+    converter = new TagDocumentConverter(createTagHierarchyIndex());
+
     ProcessCacheObject process = new ProcessCacheObject(1L);
     process.setName("P_TEST");
 
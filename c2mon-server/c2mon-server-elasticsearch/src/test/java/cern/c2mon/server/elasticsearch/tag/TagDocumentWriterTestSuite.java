@@ -0,0 +1,115 @@
+/******************************************************************************
+ * Copyright (C) 2010-2019 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.elasticsearch.tag;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.equipment.EquipmentCacheObject;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.elasticsearch.util.EntityUtils;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link TagDocumentWriter}, executed by {@link cern.c2mon.server.elasticsearch.ElasticsearchSuiteTest}.
+ *
+ * NOTE: The naming convention (&lt;class name&gt;TestSuite) is used specifically to prevent test execution plugins
+ * (like Surefire) to execute the tests individually.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class TagDocumentWriterTestSuite extends BaseTagDocumentConverterTest {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private TagDocumentWriter writer;
+
+  private TagDocumentConverter converter;
+
+  @Before
+  public void setUp() {
+    TagHierarchyIndex tagHierarchyIndex = createTagHierarchyIndex();
+    writer = new TagDocumentWriter(tagHierarchyIndex);
+    converter = new TagDocumentConverter(tagHierarchyIndex);
+
+    ProcessCacheObject process = new ProcessCacheObject(1L);
+    process.setName("P_TEST");
+
+    EquipmentCacheObject equipment = new EquipmentCacheObject(1L);
+    equipment.setName("E_TEST");
+
+    when(processCache.get(any())).thenReturn(process);
+    when(equipmentCache.get(any())).thenReturn(equipment);
+  }
+
+  @Test
+  public void writtenDocumentMatchesConvertedDocument() throws IOException {
+    DataTagCacheObject tag = (DataTagCacheObject) EntityUtils.createDataTag();
+    tag.setValue(42L);
+    DataTagQualityImpl quality = new DataTagQualityImpl();
+    quality.addInvalidStatus(TagQualityStatus.VALUE_OUT_OF_BOUNDS, "out of bounds");
+    tag.setDataTagQuality(quality);
+
+    assertEquals(readConverted(tag), mapper.readValue(writer.write(tag), Map.class));
+  }
+
+  @Test
+  public void writtenDocumentIsRoutable() {
+    DataTagCacheObject tag = (DataTagCacheObject) EntityUtils.createDataTag();
+
+    TagDocument document = writer.toDocument(tag).orElseThrow(() -> new IllegalArgumentException("TagDocument writing failed"));
+
+    assertEquals(String.valueOf(tag.getId()), document.getId());
+    assertEquals(tag.getTimestamp().getTime(), document.get("timestamp"));
+
+    // fallback files store the written source
+    document = (TagDocument) document.getObject(document.toString());
+    super.assertBaseFieldsMatch(tag, document);
+    assertEquals(tag.getTimestamp().getTime(), document.get("timestamp"));
+  }
+
+  @Test
+  public void writerIsReusableAfterFailure() throws IOException {
+    DataTagCacheObject tag = (DataTagCacheObject) EntityUtils.createDataTag();
+    tag.setDataTagQuality(null);
+    assertFalse(writer.toDocument(tag).isPresent());
+
+    tag = (DataTagCacheObject) EntityUtils.createDataTag();
+    for (int i = 0; i < 3; i++) {
+      tag.setValue((long) i);
+      assertEquals(readConverted(tag), mapper.readValue(writer.write(tag), Map.class));
+    }
+  }
+
+  private Map readConverted(DataTagCacheObject tag) throws IOException {
+    TagDocument document = converter.convert(tag).orElseThrow(() -> new IllegalArgumentException("TagDocument conversion failed"));
+    return mapper.readValue(document.toString(), Map.class);
+  }
+}
@@ -16,12 +16,16 @@
  *****************************************************************************/
 package cern.c2mon.server.elasticsearch.tag.config;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
 
+import cern.c2mon.server.cache.TagHierarchyIndex;
+import cern.c2mon.server.common.alarm.Alarm;
 import cern.c2mon.server.common.datatag.DataTag;
 import cern.c2mon.server.common.equipment.EquipmentCacheObject;
 import cern.c2mon.server.common.process.ProcessCacheObject;
@@ -45,9 +49,17 @@ import static org.mockito.Mockito.when;
  */
 public class TagConfigDocumentConverterTestSuite extends BaseTagDocumentConverterTest {
 
-  @InjectMocks
   private TagConfigDocumentConverter converter;
 
+  private TagConfigDocumentWriter writer;
+
+  @Before
+  public void setUp() {
+    TagHierarchyIndex tagHierarchyIndex = createTagHierarchyIndex();
+    converter = new TagConfigDocumentConverter(tagHierarchyIndex);
+    writer = new TagConfigDocumentWriter(tagHierarchyIndex);
+  }
+
   @Test
   public void toAndFromJson() throws Exception {
     DataTag tag = EntityUtils.createDataTag();
@@ -73,4 +85,24 @@ public class TagConfigDocumentConverterTestSuite extends BaseTagDocumentConverte
     Map<String, Object> c2monMetadata = (Map<String, Object>) document.get("c2mon");
     assertEquals(tag.isLogged(), c2monMetadata.get("logged"));
   }
+
+  @Test
+  public void writtenDocumentMatchesConvertedDocument() throws Exception {
+    DataTag tag = EntityUtils.createDataTag();
+    List<Alarm> alarms = Collections.singletonList(EntityUtils.createAlarm());
+    ObjectMapper mapper = new ObjectMapper();
+
+    TagConfigDocument converted = converter.convert(tag, alarms)
+        .orElseThrow(() -> new Exception("Tag conversion failed"));
+    TagConfigDocument written = writer.toDocument(tag, alarms)
+        .orElseThrow(() -> new Exception("Tag writing failed"));
+
+    Map<String, Object> expected = mapper.readValue(converted.toString(), Map.class);
+    Map<String, Object> actual = mapper.readValue(written.toString(), Map.class);
+    // the documents are created at different times
+    expected.remove("timestamp");
+    actual.remove("timestamp");
+    assertEquals(expected, actual);
+    assertEquals(String.valueOf(tag.getId()), written.getId());
+  }
 }
@@ -30,4 +30,40 @@ public class HistoryProperties {
    */
   private String commandFallbackFile = "/tmp/command-fallback.txt";
 
+  /**
+   * Bulk inserts of the Tag history
+   */
+  private final Bulk bulk = new Bulk();
+
+  @Data
+  public static class Bulk {
+
+    /**
+     * If true, the Tag history is written in chunks of rows committed
+     * together, with multi-row INSERT statements on MySQL and array-bound
+     * JDBC batches on Oracle and HSQLDB
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of rows of the first chunk
+     */
+    private int initialBatchSize = 500;
+
+    /**
+     * Minimum number of rows of a chunk
+     */
+    private int minBatchSize = 50;
+
+    /**
+     * Maximum number of rows of a chunk
+     */
+    private int maxBatchSize = 5000;
+
+    /**
+     * Duration (in milliseconds) of a chunk insert towards which the chunk size
+     * is adapted
+     */
+    private long targetLatency = 200;
+  }
 }
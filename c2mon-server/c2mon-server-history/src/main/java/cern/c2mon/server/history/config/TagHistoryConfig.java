@@ -44,6 +44,6 @@ public class TagHistoryConfig {
   @Bean
   public LoggerDAO<TagRecord> tagLoggerDAO() throws Exception {
     return new LoggerDAO<>(historySqlSessionFactory.getObject(), TagRecordMapper.class.getCanonicalName(),
-    	historyDataSourceProperties.getUrl());
+    	historyDataSourceProperties.getUrl(), properties.getBulk());
   }
 }
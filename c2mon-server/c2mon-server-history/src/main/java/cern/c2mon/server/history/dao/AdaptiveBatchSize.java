@@ -0,0 +1,78 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.history.dao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Number of rows inserted and committed together by the {@link LoggerDAO} in
+ * bulk mode, adapted to the observed insert latency: after every chunk, the
+ * size moves half-way towards the number of rows that would have been
+ * inserted in the target latency at the observed rate per row.
+ */
+final class AdaptiveBatchSize {
+
+  private final int minSize;
+
+  private final int maxSize;
+
+  private final long targetLatencyNanos;
+
+  private volatile int size;
+
+  /**
+   * @param initialSize the size of the first chunk
+   * @param minSize the minimum chunk size
+   * @param maxSize the maximum chunk size
+   * @param targetLatency the target duration of a chunk insert in milliseconds
+   */
+  AdaptiveBatchSize(final int initialSize, final int minSize, final int maxSize, final long targetLatency) {
+    if (minSize < 1 || maxSize < minSize) {
+      throw new IllegalArgumentException("Invalid chunk size range [" + minSize + ", " + maxSize + "]");
+    }
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+    this.size = clamp(initialSize);
+  }
+
+  /**
+   * @return the number of rows of the next chunk
+   */
+  int get() {
+    return size;
+  }
+
+  /**
+   * Adapts the size to the duration of a chunk insert.
+   *
+   * @param rows the number of inserted rows
+   * @param durationNanos the duration of the insert and commit
+   */
+  void update(final int rows, final long durationNanos) {
+    if (rows == 0) {
+      return;
+    }
+    long ideal = durationNanos <= 0 ? maxSize : targetLatencyNanos * rows / durationNanos;
+    int current = size;
+    size = clamp((current + Math.min(ideal, maxSize)) / 2);
+  }
+
+  private int clamp(final long value) {
+    return (int) Math.max(minSize, Math.min(maxSize, value));
+  }
+}
@@ -16,7 +16,11 @@
  *****************************************************************************/
 package cern.c2mon.server.history.dao;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.apache.ibatis.session.ExecutorType;
@@ -24,21 +28,31 @@ import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 
 import cern.c2mon.pmanager.IDBPersistenceHandler;
 import cern.c2mon.pmanager.IFallback;
 import cern.c2mon.pmanager.persistence.exception.IDBPersistenceException;
+import cern.c2mon.server.history.config.HistoryProperties;
+import cern.c2mon.server.history.mapper.BulkLoggerMapper;
 import cern.c2mon.server.history.mapper.LoggerMapper;
 
 /**
  * Common DAO implementation for objects that need storing in a history table using
  * the fallback mechanism.
  *
+ * <p>In bulk mode, the objects are inserted in chunks committed together,
+ * with the multi-row <code>insertLogs</code> statement if the mapper defines
+ * it for the database, and otherwise with <code>insertLog</code> bound as an
+ * array in a JDBC batch. The chunk size is adapted to the insert latency.
+ *
  * @author Mark Brightwell
  *
  * @param <T>
  *          the object that is being logged in the history table
  */
+@ManagedResource
 public class LoggerDAO<T extends IFallback> implements IDBPersistenceHandler<T> {
 
   /**
@@ -72,6 +86,23 @@ public class LoggerDAO<T extends IFallback> implements IDBPersistenceHandler<T>
    */
   private String dbUrl;
 
+  /**
+   * Size of the chunks in bulk mode, null if the bulk mode is disabled
+   */
+  private AdaptiveBatchSize bulkBatchSize;
+
+  private volatile int lastFlushRows = 0;
+  private volatile long lastFlushDuration = 0;
+  private final AtomicLong maxFlushDuration = new AtomicLong();
+  private final LongAdder totalRows = new LongAdder();
+  private final LongAdder failedFlushes = new LongAdder();
+
+  /**
+   * The rows of the last bulk insert, kept for computing their size only when
+   * it is read
+   */
+  private volatile List<T> lastFlushChunk = Collections.emptyList();
+
   /**
    *
    * @param sqlSessionFactory
@@ -96,6 +127,31 @@ public class LoggerDAO<T extends IFallback> implements IDBPersistenceHandler<T>
     // }
   }
 
+  /**
+   * Creates a DAO writing in bulk mode if enabled and supported by the mapper.
+   *
+   * @param sqlSessionFactory
+   * @param mapperInterface
+   *          the name of the mapper interface
+   * @param dbUrl
+   *          only used for logging error messages
+   * @param bulk
+   *          the bulk mode settings
+   * @throws ClassNotFoundException
+   */
+  public LoggerDAO(SqlSessionFactory sqlSessionFactory, String mapperInterface, String dbUrl,
+                   HistoryProperties.Bulk bulk) throws ClassNotFoundException {
+    this(sqlSessionFactory, mapperInterface, dbUrl);
+    if (bulk.isEnabled()) {
+      if (BulkLoggerMapper.class.isAssignableFrom(this.mapperInterface)) {
+        this.bulkBatchSize = new AdaptiveBatchSize(bulk.getInitialBatchSize(), bulk.getMinBatchSize(),
+            bulk.getMaxBatchSize(), bulk.getTargetLatency());
+      } else {
+        LOGGER.warn("Bulk mode is not supported by mapper " + mapperInterface + ", inserting row by row");
+      }
+    }
+  }
+
   /**
    * Inserts into the database a set of rows containing the data coming in
    * several IFallback objects
@@ -110,6 +166,10 @@ public class LoggerDAO<T extends IFallback> implements IDBPersistenceHandler<T>
   @SuppressWarnings("unchecked")
   // add generics to persistence manager
   public final void storeData(final List data) throws IDBPersistenceException {
+    if (bulkBatchSize != null) {
+      storeDataInBulk(data);
+      return;
+    }
     SqlSession session = null;
     int size = data.size();
     int commited = 0;
@@ -166,6 +226,125 @@ public class LoggerDAO<T extends IFallback> implements IDBPersistenceHandler<T>
     }
   }
 
+  /**
+   * Inserts the objects in chunks of the adaptive size, committing every
+   * chunk. If a chunk fails, the exception provides the number of objects
+   * of the previous chunks, so that the failed chunk and the following
+   * objects are written to the fallback file.
+   */
+  @SuppressWarnings("unchecked")
+  private void storeDataInBulk(final List data) throws IDBPersistenceException {
+    SqlSession session = null;
+    int size = data.size();
+    int commited = 0;
+
+    try {
+      boolean multiRow = sqlSessionFactory.getConfiguration().hasStatement(mapperInterface.getName() + ".insertLogs");
+      // without multi-row statement, the batch executor sends all rows of a chunk with the same SQL
+      // as a single array-bound statement
+      session = sqlSessionFactory.openSession(multiRow ? ExecutorType.REUSE : ExecutorType.BATCH, false);
+      LoggerMapper<T> persistenceMapper = session.getMapper(mapperInterface);
+
+      while (commited < size) {
+        int end = Math.min(size, commited + bulkBatchSize.get());
+        List<T> chunk = new ArrayList<>(end - commited);
+        for (int i = commited; i < end; i++) {
+          if (data.get(i) != null) {
+            chunk.add((T) data.get(i));
+          }
+        }
+
+        long start = System.nanoTime();
+        if (!chunk.isEmpty()) {
+          if (multiRow) {
+            ((BulkLoggerMapper<T>) persistenceMapper).insertLogs(chunk);
+          } else {
+            for (T tag : chunk) {
+              persistenceMapper.insertLog(tag);
+            }
+          }
+        }
+        session.commit();
+        long duration = System.nanoTime() - start;
+
+        bulkBatchSize.update(chunk.size(), duration);
+        recordFlush(chunk, duration);
+        commited = end;
+      }
+    } catch (PersistenceException e) {
+      failedFlushes.increment();
+      LOGGER.error("storeData([Collection]) : Error inserting the chunk at row " + commited + " of " + size + " rows", e);
+      try {
+        if (session != null) {
+          session.rollback();
+        }
+      } catch (Exception sql) {
+        LOGGER.error("storeData([Collection]) : Error rolling back transaction.", sql);
+      }
+      throw new IDBPersistenceException(e.getMessage(), commited);
+    } finally {
+      try {
+        if (session != null) {
+          session.close();
+        }
+      } catch (Exception e) {
+        LOGGER.error("storeData([Collection]) : Error closing session.", e);
+      }
+    }
+  }
+
+  private void recordFlush(final List<T> chunk, final long durationNanos) {
+    long duration = durationNanos / 1_000_000;
+    lastFlushRows = chunk.size();
+    lastFlushChunk = chunk;
+    lastFlushDuration = duration;
+    maxFlushDuration.accumulateAndGet(duration, Math::max);
+    totalRows.add(chunk.size());
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("storeData([Collection]) : Inserted " + chunk.size() + " rows in " + duration
+          + " ms, next chunk size " + bulkBatchSize.get());
+    }
+  }
+
+  @ManagedAttribute(description = "Number of rows inserted by the last bulk insert")
+  public int getLastFlushRows() {
+    return lastFlushRows;
+  }
+
+  @ManagedAttribute(description = "Approximate size in bytes of the rows inserted by the last bulk insert")
+  public long getLastFlushBytes() {
+    long bytes = 0;
+    for (T tag : lastFlushChunk) {
+      bytes += tag.toString().length();
+    }
+    return bytes;
+  }
+
+  @ManagedAttribute(description = "Duration in ms of the last bulk insert")
+  public long getLastFlushDuration() {
+    return lastFlushDuration;
+  }
+
+  @ManagedAttribute(description = "Maximum duration in ms of a bulk insert")
+  public long getMaxFlushDuration() {
+    return maxFlushDuration.get();
+  }
+
+  @ManagedAttribute(description = "Total number of rows inserted in bulk mode")
+  public long getTotalRows() {
+    return totalRows.sum();
+  }
+
+  @ManagedAttribute(description = "Number of bulk inserts that failed and were written to the fallback file")
+  public long getFailedFlushes() {
+    return failedFlushes.sum();
+  }
+
+  @ManagedAttribute(description = "Number of rows of the next bulk insert, 0 if the bulk mode is disabled")
+  public int getBulkBatchSize() {
+    return bulkBatchSize == null ? 0 : bulkBatchSize.get();
+  }
+
   @Override
   public String getDBInfo() {
     return "C2MON history account on DB with URL: " + dbUrl;
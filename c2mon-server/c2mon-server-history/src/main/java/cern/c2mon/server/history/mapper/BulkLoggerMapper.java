@@ -0,0 +1,42 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.history.mapper;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+
+import cern.c2mon.pmanager.IFallback;
+
+/**
+ * Mapper interface for objects that can be logged with a single multi-row
+ * insert. The mapper XML may define the <code>insertLogs</code> statement for
+ * some databases only; the {@link cern.c2mon.server.history.dao.LoggerDAO}
+ * uses {@link #insertLog} in JDBC batches on the others.
+ *
+ * @param <T> the class that is to be logged
+ */
+public interface BulkLoggerMapper<T extends IFallback> extends LoggerMapper<T> {
+
+  /**
+   * Inserts all given objects into the table with a single statement.
+   *
+   * @param loggables the objects to log in the DB
+   */
+  void insertLogs(@Param("loggables") List<T> loggables);
+
+}
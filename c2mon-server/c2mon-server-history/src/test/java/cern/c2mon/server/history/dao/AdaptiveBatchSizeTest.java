@@ -0,0 +1,73 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.history.dao;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the chunk size adaptation of the bulk inserts.
+ */
+public class AdaptiveBatchSizeTest {
+
+  @Test
+  public void testGrowsWhenFasterThanTarget() {
+    AdaptiveBatchSize size = new AdaptiveBatchSize(500, 50, 5000, 200);
+    // 500 rows in 50 ms: 2000 rows would take 200 ms
+    size.update(500, TimeUnit.MILLISECONDS.toNanos(50));
+    assertEquals(1250, size.get());
+    for (int i = 0; i < 20; i++) {
+      size.update(size.get(), TimeUnit.MILLISECONDS.toNanos(50) * size.get() / 500);
+    }
+    assertTrue(Math.abs(size.get() - 2000) <= 1);
+  }
+
+  @Test
+  public void testShrinksWhenSlowerThanTarget() {
+    AdaptiveBatchSize size = new AdaptiveBatchSize(500, 50, 5000, 200);
+    size.update(500, TimeUnit.MILLISECONDS.toNanos(1000));
+    assertEquals(300, size.get());
+  }
+
+  @Test
+  public void testStaysWithinBounds() {
+    AdaptiveBatchSize size = new AdaptiveBatchSize(10000, 50, 5000, 200);
+    assertEquals(5000, size.get());
+    size.update(5000, 0);
+    assertEquals(5000, size.get());
+    for (int i = 0; i < 20; i++) {
+      size.update(size.get(), TimeUnit.SECONDS.toNanos(60));
+    }
+    assertEquals(50, size.get());
+  }
+
+  @Test
+  public void testEmptyChunkIsIgnored() {
+    AdaptiveBatchSize size = new AdaptiveBatchSize(500, 50, 5000, 200);
+    size.update(0, TimeUnit.SECONDS.toNanos(10));
+    assertEquals(500, size.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRange() {
+    new AdaptiveBatchSize(500, 100, 50, 200);
+  }
+}
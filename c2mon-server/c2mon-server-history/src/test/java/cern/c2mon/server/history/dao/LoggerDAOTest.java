@@ -0,0 +1,194 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.history.dao;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import cern.c2mon.pmanager.persistence.exception.IDBPersistenceException;
+import cern.c2mon.server.cache.config.CacheModule;
+import cern.c2mon.server.cache.dbaccess.config.CacheDbAccessModule;
+import cern.c2mon.server.cache.loading.config.CacheLoadingModule;
+import cern.c2mon.server.command.config.CommandModule;
+import cern.c2mon.server.common.config.CommonModule;
+import cern.c2mon.server.daq.config.DaqModule;
+import cern.c2mon.server.history.config.HistoryModule;
+import cern.c2mon.server.history.config.HistoryProperties;
+import cern.c2mon.server.history.mapper.TagRecordMapper;
+import cern.c2mon.server.history.structure.TagRecord;
+import cern.c2mon.server.supervision.config.SupervisionModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the bulk mode of the {@link LoggerDAO}: against the HSQLDB history
+ * schema, which uses the array-bound JDBC batch, and with a mocked session
+ * for the multi-row insert.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {
+    CommonModule.class,
+    CacheModule.class,
+    CacheDbAccessModule.class,
+    CacheLoadingModule.class,
+    SupervisionModule.class,
+    CommandModule.class,
+    DaqModule.class,
+    HistoryModule.class
+})
+public class LoggerDAOTest {
+
+  private static final Long ID = 11L;
+
+  private static final Timestamp TAGTIME = new Timestamp(System.currentTimeMillis());
+
+  @Autowired
+  @Qualifier("historySqlSessionFactory")
+  private SqlSessionFactory historySqlSessionFactory;
+
+  @Autowired
+  @Qualifier("historyDataSource")
+  private DataSource historyDataSource;
+
+  @Autowired
+  private TagRecordMapper tagRecordMapper;
+
+  @Before
+  public void beforeTest() {
+    tagRecordMapper.deleteDataTagLog(ID);
+  }
+
+  @After
+  public void afterTest() {
+    tagRecordMapper.deleteDataTagLog(ID);
+  }
+
+  @Test
+  public void testStoreDataInBulkChunks() throws Exception {
+    // HSQLDB uses the Oracle statements, which have no multi-row insert
+    assertFalse(historySqlSessionFactory.getConfiguration().hasStatement(TagRecordMapper.class.getName() + ".insertLogs"));
+    LoggerDAO<TagRecord> loggerDAO = createBulkLoggerDAO(historySqlSessionFactory);
+
+    loggerDAO.storeData(Arrays.asList(createRecord(), createRecord(), createRecord(), createRecord(), createRecord()));
+
+    assertEquals(5, countRows());
+    assertEquals(5, loggerDAO.getTotalRows());
+    assertEquals(1, loggerDAO.getLastFlushRows());
+    assertEquals(0, loggerDAO.getFailedFlushes());
+  }
+
+  @Test
+  public void testCommittedCountWhenChunkFails() throws Exception {
+    LoggerDAO<TagRecord> loggerDAO = createBulkLoggerDAO(historySqlSessionFactory);
+    TagRecord invalidRecord = createRecord();
+    // violates the NOT NULL constraint of the server time
+    invalidRecord.setServerTimestamp(null);
+
+    try {
+      loggerDAO.storeData(Arrays.asList(createRecord(), createRecord(), createRecord(), invalidRecord, createRecord()));
+      fail("IDBPersistenceException expected");
+    } catch (IDBPersistenceException e) {
+      // the first chunk is committed, the failed chunk is rolled back
+      assertEquals(2, e.getCommited());
+    }
+
+    assertEquals(2, countRows());
+    assertEquals(2, loggerDAO.getTotalRows());
+    assertEquals(1, loggerDAO.getFailedFlushes());
+  }
+
+  @Test
+  public void testStoreDataInBulkWithMultiRowInsert() throws Exception {
+    SqlSessionFactory sessionFactory = EasyMock.createMock(SqlSessionFactory.class);
+    Configuration configuration = EasyMock.createMock(Configuration.class);
+    SqlSession session = EasyMock.createMock(SqlSession.class);
+    TagRecordMapper mapper = EasyMock.createStrictMock(TagRecordMapper.class);
+    List<TagRecord> records = Arrays.asList(createRecord(), createRecord(), createRecord(), createRecord());
+
+    EasyMock.expect(sessionFactory.getConfiguration()).andReturn(configuration);
+    EasyMock.expect(configuration.hasStatement(TagRecordMapper.class.getName() + ".insertLogs")).andReturn(true);
+    EasyMock.expect(sessionFactory.openSession(ExecutorType.REUSE, false)).andReturn(session);
+    EasyMock.expect(session.getMapper(TagRecordMapper.class)).andReturn(mapper);
+    mapper.insertLogs(records.subList(0, 2));
+    mapper.insertLogs(records.subList(2, 4));
+    EasyMock.expectLastCall().andThrow(new PersistenceException("chunk failed"));
+    session.commit();
+    session.rollback();
+    session.close();
+    EasyMock.replay(sessionFactory, configuration, session, mapper);
+
+    LoggerDAO<TagRecord> loggerDAO = createBulkLoggerDAO(sessionFactory);
+    try {
+      loggerDAO.storeData(new ArrayList<>(records));
+      fail("IDBPersistenceException expected");
+    } catch (IDBPersistenceException e) {
+      assertEquals(2, e.getCommited());
+    }
+
+    EasyMock.verify(sessionFactory, configuration, session, mapper);
+  }
+
+  /**
+   * @return a DAO inserting chunks of 2 rows
+   */
+  private static LoggerDAO<TagRecord> createBulkLoggerDAO(final SqlSessionFactory sessionFactory) throws ClassNotFoundException {
+    HistoryProperties.Bulk bulk = new HistoryProperties.Bulk();
+    bulk.setEnabled(true);
+    bulk.setInitialBatchSize(2);
+    bulk.setMinBatchSize(2);
+    bulk.setMaxBatchSize(2);
+    return new LoggerDAO<>(sessionFactory, TagRecordMapper.class.getCanonicalName(), "test", bulk);
+  }
+
+  private static TagRecord createRecord() {
+    TagRecord tag = new TagRecord();
+    tag.setTagId(ID);
+    tag.setTagDataType("Integer");
+    tag.setSourceTimestamp(TAGTIME);
+    tag.setDaqTimestamp(TAGTIME);
+    tag.setServerTimestamp(TAGTIME);
+    tag.setTagValue("25");
+    tag.setTagValueDesc("Tag value description");
+    return tag;
+  }
+
+  private int countRows() {
+    return new JdbcTemplate(historyDataSource).queryForObject("SELECT COUNT(*) FROM SHORTTERMLOG WHERE TAGID = ?", Integer.class, ID);
+  }
+}
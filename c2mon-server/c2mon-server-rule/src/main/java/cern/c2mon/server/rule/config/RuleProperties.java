@@ -14,4 +14,35 @@ public class RuleProperties {
    * Number of threads that the rule evaluation engine will use
    */
   private int numEvaluationThreads = 1;
+
+  /**
+   * Settings of the buffer coalescing successive results of the same rule
+   */
+  private final Buffer buffer = new Buffer();
+
+  @Data
+  public static class Buffer {
+
+    /**
+     * Interval in milliseconds at which the buffered rule results are checked
+     */
+    private int flushInterval = 75;
+
+    /**
+     * Maximum number of check cycles a rule result may be held back while the
+     * rule keeps being updated
+     */
+    private int maxCyclesWait = 6;
+
+    /**
+     * Number of buffered rules above which all buffered results are written
+     * to the cache immediately
+     */
+    private int maxPendingRules = 10000;
+
+    /**
+     * Number of independently locked buffer partitions
+     */
+    private int shards = 16;
+  }
 }
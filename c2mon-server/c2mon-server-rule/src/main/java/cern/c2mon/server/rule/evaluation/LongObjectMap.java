@@ -0,0 +1,146 @@
+/******************************************************************************
+ * Copyright (C) 2010-2020 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.rule.evaluation;
+
+/**
+ * Minimal open-addressing hash map with primitive <code>long</code> keys,
+ * which avoids boxing the rule ids and allocating an entry object per
+ * mapping. Uses linear probing and backward-shift deletion.
+ *
+ * <p>Not thread-safe: instances are guarded by the lock of the
+ * {@link RuleUpdateBuffer} shard owning them.
+ *
+ * @param <V> the value type
+ */
+final class LongObjectMap<V> {
+
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private long[] keys;
+
+  private Object[] values;
+
+  private int mask;
+
+  private int size;
+
+  /**
+   * @param expectedSize number of mappings the map should hold without resizing
+   */
+  LongObjectMap(final int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(final long key) {
+    for (int i = indexOf(key); values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return (V) values[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param value must not be <code>null</code>
+   * @return the previous value, or <code>null</code>
+   */
+  @SuppressWarnings("unchecked")
+  V put(final long key, final V value) {
+    int i = indexOf(key);
+    for (; values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        V previous = (V) values[i];
+        values[i] = value;
+        return previous;
+      }
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size > keys.length * LOAD_FACTOR) {
+      resize(keys.length << 1);
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  V remove(final long key) {
+    for (int i = indexOf(key); values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        V previous = (V) values[i];
+        shiftBack(i);
+        size--;
+        return previous;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Closes the gap left at the given slot by moving back the following
+   * entries of the same probe sequence.
+   */
+  private void shiftBack(int gap) {
+    for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+      int home = indexOf(keys[i]);
+      // move the entry if its home slot is not within (gap, i]
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        keys[gap] = keys[i];
+        values[gap] = values[i];
+        gap = i;
+      }
+    }
+    values[gap] = null;
+  }
+
+  private void resize(final int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        int j = indexOf(oldKeys[i]);
+        while (values[j] != null) {
+          j = (j + 1) & mask;
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  private int indexOf(final long key) {
+    return mix(key) & mask;
+  }
+
+  /**
+   * Spreads sequential ids over the table (Fibonacci hashing).
+   */
+  static int mix(final long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
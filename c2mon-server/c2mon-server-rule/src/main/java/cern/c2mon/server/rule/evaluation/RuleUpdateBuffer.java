@@ -18,14 +18,28 @@ package cern.c2mon.server.rule.evaluation;
 
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.cache.RuleTagFacade;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.rule.config.RuleProperties;
 import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
 
 /**
@@ -35,64 +49,105 @@ import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
  * in this cases like a time-deadband which sends only the latest value after it did
  * not receive any further evaluations after the last cacheUpdate intervals.
  *
+ * <p>The buffer is split into independently locked shards (selected by rule id),
+ * so that the rule evaluation threads do not contend on a single lock. Results are
+ * written to the cache by a single flusher thread, either every
+ * <code>c2mon.server.rule.buffer.flushInterval</code> milliseconds or as soon as
+ * more than <code>c2mon.server.rule.buffer.maxPendingRules</code> rules are
+ * buffered.
+ *
  * In C2MON, instantiated as a Spring singleton using annotations.
  *
  * @author Matthias Braeger
  */
 @Slf4j
 @Service
+@ManagedResource(objectName = "cern.c2mon:name=ruleUpdateBuffer")
 public final class RuleUpdateBuffer {
-  
-  /** The initial buffer size */
-  private static final int INITIAL_BUFFER_SIZE = 1000;
-  
-  /** The schedule interval for the <code>CacheUpdaterTask</code> */
-  private static final int BUFFER_TIMER_MILLIS = 75; // we chose this value due to the JMS message delivering delay
-  
-  /** 
-   * The maximum amount of check cycles that the cache updater shall 
+
+  /** The initial buffer size of each shard */
+  private static final int INITIAL_SHARD_SIZE = 64;
+
+  /** Reference to the rule tag facade, used to update the cache */
+  private final RuleTagFacade ruleTagFacade;
+
+  /**
+   * The maximum amount of check cycles that the cache updater shall
    * wait before forcing a cache update for a particular rule.
    */
-  private static final int MAX_CYCLES_WAIT = 6; // 6 * 75 = 450 ms <== max delay
-  
-  /** thread synchronization object */
-  private static final Object BUFFER_LOCK = new Object();
-  
+  private final int maxCyclesWait;
+
+  /** Number of buffered rules triggering an immediate flush */
+  private final int maxPendingRules;
+
+  /** The buffer partitions, each one guarded by its own monitor */
+  private final Shard[] shards;
+
+  /** Single thread writing the buffered results to the cache */
+  private final ScheduledExecutorService flusher;
+
+  /** Number of rules currently buffered */
+  private final AtomicInteger pendingRules = new AtomicInteger(0);
+
+  /** Set while a size-triggered flush is waiting to be executed */
+  private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+  /** For management only */
+  private final LongAdder receivedUpdates = new LongAdder();
+  private final AtomicLong flushedUpdates = new AtomicLong(0);
+  private final AtomicLong sizeTriggeredFlushes = new AtomicLong(0);
+  private final AtomicLong totalLatency = new AtomicLong(0);
+  private volatile long lastLatency = 0;
+  private volatile long maxLatency = 0;
+
   /**
-   * Reference to the local home interface of the
-   * <code>DataTagFacade</code> session bean.
-   */
-  private static RuleTagFacade ruleTagFacade;
-  
-  /** The internal buffer used for the */
-  protected static final Map<Long, RuleBufferObject> RULE_OBJECT_BUF = new Hashtable<Long, RuleBufferObject>(INITIAL_BUFFER_SIZE);
-  
-  /** 
-   * Map containing the flags which indicates that an update was received
-   * within the last cache updater cycle.
+   * Constructor
    */
-  private static final Map<Long, Boolean> UPDATE_RECEIVED_FLAGS  = new Hashtable<Long, Boolean>(INITIAL_BUFFER_SIZE);
-  
+  @Autowired
+  public RuleUpdateBuffer(final RuleTagFacade ruleTagFacade, final RuleProperties properties) {
+    this.ruleTagFacade = ruleTagFacade;
+    RuleProperties.Buffer bufferProperties = properties.getBuffer();
+    this.maxCyclesWait = bufferProperties.getMaxCyclesWait();
+    this.maxPendingRules = bufferProperties.getMaxPendingRules();
+
+    int nbShards = Integer.highestOneBit(Math.max(1, bufferProperties.getShards() - 1)) << 1;
+    this.shards = new Shard[nbShards];
+    for (int i = 0; i < nbShards; i++) {
+      shards[i] = new Shard();
+    }
+
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "RuleUpdater");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long interval = bufferProperties.getFlushInterval();
+    flusher.scheduleWithFixedDelay(() -> {
+      if (pendingRules.get() > 0) {
+        flush(false);
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
   /**
-   * The counters for checking the cycles that a specific rule is already been buffered.
-   * When the counter exceeds the MAX_CYCLES_WAIT the <code>CacheUpdaterTask</code> forces
-   * a cache update.
+   * Constructor using the default buffer settings
    */
-  private static final Map<Long, Integer> CYCLE_COUNTERS = new Hashtable<Long, Integer>(INITIAL_BUFFER_SIZE);
-  
-  /** Timer instance that schedules the <code>CacheUpdaterTask</code> */
-  private final Timer timer;
-  
-  /** will be set to true, once the timer is running */ 
-  private static boolean isCacheUpdaterRunning = false;
-  
+  protected RuleUpdateBuffer(final RuleTagFacade ruleTagFacade) {
+    this(ruleTagFacade, new RuleProperties());
+  }
+
   /**
-   * Constructor 
+   * Stops the flusher thread and writes all remaining results to the cache.
    */
-  @Autowired
-  protected RuleUpdateBuffer(RuleTagFacade ruleTagFacade) {
-    this.timer = new Timer("RuleUpdater");
-    RuleUpdateBuffer.ruleTagFacade = ruleTagFacade;
+  @PreDestroy
+  public void shutdown() {
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush(true);
   }
 
   /**
@@ -103,21 +158,22 @@ public final class RuleUpdateBuffer {
    * @param pTimestamp the timestamp of the rule evaluation.
    */
   public void update(final Long pId, final Object pValue, final String pValueDesc, final Timestamp pTimestamp) {
-    final RuleBufferObject bufferObj;
-    
-    log.trace(pId + " entering update()");
-    synchronized (BUFFER_LOCK) {
-      if (!RULE_OBJECT_BUF.containsKey(pId)) {
-        bufferObj = new RuleBufferObject(pId, pValue, pValueDesc, pTimestamp);
-        RULE_OBJECT_BUF.put(pId, bufferObj);
-      }
-      else {
-        bufferObj = (RuleBufferObject) RULE_OBJECT_BUF.get(pId);
+    final Shard shard = shardOf(pId);
+    boolean created = false;
+
+    log.trace("{} entering update()", pId);
+    synchronized (shard) {
+      RuleBufferObject bufferObj = shard.buffer.get(pId);
+      if (bufferObj == null) {
+        shard.add(new RuleBufferObject(pId, pValue, pValueDesc, pTimestamp));
+        created = true;
+      } else {
         bufferObj.update(pValue, pValueDesc, pTimestamp);
+        bufferObj.updateReceived = true;
       }
-      scheduleCacheUpdaterTask(pId);
     }
-    log.trace(pId + " leaving update()");
+    registerUpdate(created);
+    log.trace("{} leaving update()", pId);
   }
 
   /**
@@ -128,23 +184,24 @@ public final class RuleUpdateBuffer {
    * @param pTimestamp the timestamp of the rule evaluation
    */
   public void invalidate(final Long pId, final TagQualityStatus pReason, final String pDescription, final Timestamp pTimestamp) {
-    final RuleBufferObject bufferObj;
-    
-    log.trace(pId + " entering invalidate()");
-    synchronized (BUFFER_LOCK) {
-      if (!RULE_OBJECT_BUF.containsKey(pId)) {
-        bufferObj = new RuleBufferObject(pId, null, pReason, pDescription, null, pTimestamp);
-        RULE_OBJECT_BUF.put(pId, bufferObj);
-      }
-      else {
-        bufferObj = (RuleBufferObject) RULE_OBJECT_BUF.get(pId);
+    final Shard shard = shardOf(pId);
+    boolean created = false;
+
+    log.trace("{} entering invalidate()", pId);
+    synchronized (shard) {
+      RuleBufferObject bufferObj = shard.buffer.get(pId);
+      if (bufferObj == null) {
+        shard.add(new RuleBufferObject(pId, null, pReason, pDescription, null, pTimestamp));
+        created = true;
+      } else {
         bufferObj.invalidate(pReason, pDescription, pTimestamp);
+        bufferObj.updateReceived = true;
       }
-      scheduleCacheUpdaterTask(pId);
     }
-    log.trace(pId + " leaving invalidate()");
+    registerUpdate(created);
+    log.trace("{} leaving invalidate()", pId);
   }
-  
+
   /**
    * Updates the internal rule buffer with an invalidation message
    * @param pId rule data tag id
@@ -154,78 +211,251 @@ public final class RuleUpdateBuffer {
    * @param pTimestamp the timestamp of the rule evaluation
    */
   public void invalidate(final Long pId, final Object value, final TagQualityStatus pReason, final String pDescription, final Timestamp pTimestamp) {
-    final RuleBufferObject bufferObj;
-    
-    log.trace(pId + " entering invalidate()");
-    synchronized (BUFFER_LOCK) {
-      if (!RULE_OBJECT_BUF.containsKey(pId)) {
+    final Shard shard = shardOf(pId);
+    boolean created = false;
+
+    log.trace("{} entering invalidate()", pId);
+    synchronized (shard) {
+      RuleBufferObject bufferObj = shard.buffer.get(pId);
+      if (bufferObj == null) {
         bufferObj = new RuleBufferObject(pId, null, pReason, pDescription, null, pTimestamp);
-        RULE_OBJECT_BUF.put(pId, bufferObj);
+        shard.add(bufferObj);
+        created = true;
       } else {
-        bufferObj = (RuleBufferObject) RULE_OBJECT_BUF.get(pId);
         bufferObj.invalidate(pReason, pDescription, pTimestamp);
+        bufferObj.updateReceived = true;
       }
-      
+
       bufferObj.value = value;
-      
-      scheduleCacheUpdaterTask(pId);
     }
-    log.trace(pId + " leaving invalidate()");
+    registerUpdate(created);
+    log.trace("{} leaving invalidate()", pId);
   }
 
   /**
-   * Registers an update for the given rule id and triggers
-   * the start of the <code>CacheUpdaterTask</code>, if not
-   * yet done.
-   * @param pId the rule process id that has been updated. 
+   * @return the result currently buffered for the given rule, or <code>null</code>
    */
-  private void scheduleCacheUpdaterTask(final Long pId) {
-    UPDATE_RECEIVED_FLAGS.put(pId, Boolean.TRUE);
-    if (!isCacheUpdaterRunning) {
+  RuleBufferObject getBufferedUpdate(final Long pId) {
+    final Shard shard = shardOf(pId);
+    synchronized (shard) {
+      return shard.buffer.get(pId);
+    }
+  }
+
+  private Shard shardOf(final Long pId) {
+    return shards[LongObjectMap.mix(pId) & (shards.length - 1)];
+  }
+
+  /**
+   * Counts the update and requests an immediate flush, if too many
+   * rules are buffered.
+   * @param created true, if the update created a new buffer entry
+   */
+  private void registerUpdate(final boolean created) {
+    receivedUpdates.increment();
+    if (created && pendingRules.incrementAndGet() > maxPendingRules && flushRequested.compareAndSet(false, true)) {
+      try {
+        flusher.execute(() -> {
+          flushRequested.set(false);
+          sizeTriggeredFlushes.incrementAndGet();
+          flush(true);
+        });
+      } catch (RejectedExecutionException e) {
+        log.debug("registerUpdate() - Flusher is stopped, the buffer will be flushed on shutdown.");
+      }
+    }
+  }
+
+  /**
+   * Takes the rules to update out of the buffer and writes them to the cache.
+   * Only called by the flusher thread (or on shutdown).
+   * @param force if true, all buffered rules are written, otherwise only the
+   *              ones that were not updated during the last cycle or that
+   *              already waited for <code>maxCyclesWait</code> cycles.
+   */
+  private void flush(final boolean force) {
+    //keep logic in try clause as exception would cancel the scheduled task
+    try {
+      List<RuleBufferObject> rulesToUpdate = new ArrayList<>();
+      for (Shard shard : shards) {
+        synchronized (shard) {
+          shard.drain(force, maxCyclesWait, rulesToUpdate);
+        }
+      }
+
+      if (!rulesToUpdate.isEmpty()) {
+        pendingRules.addAndGet(-rulesToUpdate.size());
+        for (RuleBufferObject rbo : rulesToUpdate) {
+          updateCache(rbo);
+          recordLatency(rbo);
+        }
+        flushedUpdates.addAndGet(rulesToUpdate.size());
+      }
+    } catch (Exception ex) {
+      log.error("Exception caught during rule update - should not be ignored!", ex);
+    }
+  }
+
+  /**
+   * Writes a buffered rule result to the cache.
+   */
+  private void updateCache(final RuleBufferObject rbo) {
+    if (rbo.qualityCollection == null || rbo.qualityCollection.isEmpty()) {
+      log.trace("flush() - updating cache for rule id " + rbo.id
+          + ": value=" + rbo.value
+          + ", description=" + rbo.valueDesc
+          + ", timestamp=" + rbo.timestamp);
+      try {
+        ruleTagFacade.updateAndValidate(rbo.id, rbo.value, rbo.valueDesc, rbo.timestamp);
+      } catch (CacheElementNotFoundException cacheEx) {
+        log.warn("Unable to update rule (can happen during rule reconfiguration)", cacheEx);
+      } catch (Exception exception) {
+        log.warn("Unexpected error during rule evaluation", exception);
+      }
+    } else {
+      log.trace("flush() - invalidating cache for rule id " + rbo.id
+          + ": reasons=" + rbo.qualityCollection
+          + ", descriptions=" + rbo.qualityDescriptions
+          + ", timestamp=" + rbo.timestamp);
       try {
-        log.trace(pId + " scheduleCacheUpdaterTask() - Initialize new cache updater task");
-        timer.schedule(new CacheUpdaterTask(), BUFFER_TIMER_MILLIS, BUFFER_TIMER_MILLIS);
-        isCacheUpdaterRunning = true;
-      } catch (IllegalStateException ise) {
-        log.error(pId + "scheduleCacheUpdaterTask() - Catched illegal state exception", ise);
-      }      
+        ruleTagFacade.setQuality(rbo.id, rbo.qualityCollection, null, rbo.qualityDescriptions, rbo.timestamp);
+      } catch (CacheElementNotFoundException cacheEx) {
+        log.warn("Unable to update rule as could not be located in cache (normal during rule reconfiguration)", cacheEx);
+      }
     }
   }
-  
+
+  /**
+   * Records the time from the first buffered result of a rule until its cache update.
+   */
+  private void recordLatency(final RuleBufferObject rbo) {
+    long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - rbo.bufferedNanos);
+    totalLatency.addAndGet(latency);
+    lastLatency = latency;
+    if (latency > maxLatency) {
+      maxLatency = latency;
+    }
+  }
+
+  @ManagedAttribute(description = "Number of rule results received by the buffer")
+  public long getReceivedUpdates() {
+    return receivedUpdates.sum();
+  }
+
+  @ManagedAttribute(description = "Number of rule results written to the cache")
+  public long getFlushedUpdates() {
+    return flushedUpdates.get();
+  }
+
+  @ManagedAttribute(description = "Number of received rule results per cache update")
+  public double getCoalescingRatio() {
+    long flushed = flushedUpdates.get();
+    return flushed == 0 ? 0 : (double) receivedUpdates.sum() / flushed;
+  }
+
+  @ManagedAttribute(description = "Number of rules currently buffered")
+  public int getPendingRules() {
+    return pendingRules.get();
+  }
+
+  @ManagedAttribute(description = "Number of flushes triggered by the maximum number of buffered rules")
+  public long getSizeTriggeredFlushes() {
+    return sizeTriggeredFlushes.get();
+  }
+
+  @ManagedAttribute(description = "Average time in ms between the first buffered result of a rule and its cache update")
+  public long getAverageLatency() {
+    long flushed = flushedUpdates.get();
+    return flushed == 0 ? 0 : totalLatency.get() / flushed;
+  }
+
+  @ManagedAttribute(description = "Last time in ms between the first buffered result of a rule and its cache update")
+  public long getLastLatency() {
+    return lastLatency;
+  }
+
+  @ManagedAttribute(description = "Maximum time in ms between the first buffered result of a rule and its cache update")
+  public long getMaxLatency() {
+    return maxLatency;
+  }
+
+  @ManagedOperation(description = "Resets the maximum latency")
+  public void resetMaxLatency() {
+    maxLatency = 0;
+  }
+
+  /**
+   * A partition of the buffer. All access must be synchronized on the shard.
+   */
+  private static final class Shard {
+
+    /** The buffered rule results, by rule id */
+    private final LongObjectMap<RuleBufferObject> buffer = new LongObjectMap<>(INITIAL_SHARD_SIZE);
+
+    /** The same buffered results, for iterating during the flush */
+    private final List<RuleBufferObject> pending = new ArrayList<>(INITIAL_SHARD_SIZE);
+
+    private void add(final RuleBufferObject bufferObj) {
+      buffer.put(bufferObj.id, bufferObj);
+      pending.add(bufferObj);
+    }
+
+    /**
+     * Moves the rules that shall be written to the cache into the given list.
+     */
+    private void drain(final boolean force, final int maxCyclesWait, final List<RuleBufferObject> rulesToUpdate) {
+      int kept = 0;
+      for (int i = 0; i < pending.size(); i++) {
+        RuleBufferObject rbo = pending.get(i);
+        boolean forceCacheUpdate = rbo.cycles >= maxCyclesWait;
+
+        if (!force && rbo.updateReceived && !forceCacheUpdate) {
+          // Reset the flag in order indicate a cache update at the next check
+          rbo.updateReceived = false;
+          rbo.cycles++;
+          pending.set(kept++, rbo);
+        } else {
+          // No recent update of that rule, or it was updated more than maxCyclesWait cycles in a row
+          if (forceCacheUpdate) {
+            log.debug("flush() - Forcing a cache update for rule {} since it was already delayed by {} cycles.", rbo.id, maxCyclesWait);
+          }
+          buffer.remove(rbo.id);
+          rulesToUpdate.add(rbo);
+        }
+      }
+      pending.subList(kept, pending.size()).clear();
+    }
+  }
+
   /**
    * Inner class which is used to store the rule update
    * information for the cache of the given rule data tag.
    *
    * @author Matthias Braeger
    */
-  @Getter
   protected static final class RuleBufferObject {
     /** Rule data tag id */
-    private Long id = null;
+    private final long id;
     /** rule result object */
+    @Getter
     private Object value = null;
-    /** quality flag */
-    private HashSet<TagQualityStatus> qualityCollection = new HashSet<TagQualityStatus>();
-    /** quality flag description */
-    private HashMap<TagQualityStatus, String> qualityDescriptions = new HashMap<TagQualityStatus, String>();
+    /** quality flags, created on first invalidation */
+    private Set<TagQualityStatus> qualityCollection = null;
+    /** quality flag descriptions, created on first invalidation */
+    private Map<TagQualityStatus, String> qualityDescriptions = null;
     /** value description */
-    private String valueDesc = null; 
+    @Getter
+    private String valueDesc = null;
     /** rule evaluation timestamp */
+    @Getter
     private Timestamp timestamp = null;
 
-    /**
-     * Copy Constructor
-     * @param rbo The object to be copied
-     */
-    @SuppressWarnings("unchecked")
-    private RuleBufferObject(final RuleBufferObject rbo) {
-      this.id = rbo.id;
-      this.value = rbo.value;
-      this.qualityCollection = (HashSet<TagQualityStatus>) rbo.qualityCollection.clone();
-      this.qualityDescriptions = (HashMap<TagQualityStatus, String>) rbo.qualityDescriptions.clone();
-      this.valueDesc = rbo.valueDesc;     
-      this.timestamp = new Timestamp(rbo.timestamp.getTime());
-    }
+    /** true, if an update was received since the last flush cycle */
+    private boolean updateReceived = true;
+    /** number of flush cycles this result has been held back */
+    private int cycles = 0;
+    /** time at which this object was put into the buffer */
+    private final long bufferedNanos = System.nanoTime();
 
     /**
      * Constructor
@@ -242,21 +472,42 @@ public final class RuleUpdateBuffer {
      * Constructor
      * @param pId rule data tag id
      * @param pValue rule result
-     * @param pQuality error quality flag
+     * @param pStatus error quality flag
+     * @param pQualityDesc error description
      * @param pValueDesc description
      * @param pTimestamp rule evaluation timestamp
      */
     private RuleBufferObject(final Long pId, final Object pValue, final TagQualityStatus pStatus, final String pQualityDesc, final String pValueDesc, final Timestamp pTimestamp) {
-        this.id = pId;
-        this.value = pValue;
-        if (pStatus != null) {
-          this.qualityCollection.add(pStatus);
-          if (pQualityDesc != null) {
-            this.qualityDescriptions.put(pStatus, pQualityDesc);
-          }          
-        }        
-        this.valueDesc = pValueDesc;
-        this.timestamp = pTimestamp;
+      this.id = pId;
+      this.value = pValue;
+      if (pStatus != null) {
+        addQuality(pStatus, pQualityDesc);
+      }
+      this.valueDesc = pValueDesc;
+      this.timestamp = pTimestamp;
+    }
+
+    public Long getId() {
+      return id;
+    }
+
+    public Set<TagQualityStatus> getQualityCollection() {
+      return qualityCollection == null ? Collections.emptySet() : qualityCollection;
+    }
+
+    public Map<TagQualityStatus, String> getQualityDescriptions() {
+      return qualityDescriptions == null ? Collections.emptyMap() : qualityDescriptions;
+    }
+
+    private void addQuality(final TagQualityStatus pStatus, final String pDescription) {
+      if (qualityCollection == null) {
+        qualityCollection = EnumSet.noneOf(TagQualityStatus.class);
+        qualityDescriptions = new EnumMap<>(TagQualityStatus.class);
+      }
+      qualityCollection.add(pStatus);
+      if (pDescription != null) {
+        qualityDescriptions.put(pStatus, pDescription);
+      }
     }
 
     /**
@@ -268,16 +519,16 @@ public final class RuleUpdateBuffer {
      */
     private boolean update(final Object pValue, final String pValueDesc, final Timestamp pTimestamp) {
       boolean retval = false;
-      synchronized (BUFFER_LOCK) {
-        if (this.timestamp.before(pTimestamp) || this.timestamp.equals(pTimestamp)) {
-          this.value = pValue;
+      if (!pTimestamp.before(this.timestamp)) {
+        this.value = pValue;
+        if (qualityCollection != null) {
           this.qualityCollection.clear();
           this.qualityDescriptions.clear();
-          this.valueDesc = pValueDesc;
-          this.timestamp = pTimestamp;
-          retval = true;
         }
-      }      
+        this.valueDesc = pValueDesc;
+        this.timestamp = pTimestamp;
+        retval = true;
+      }
       return retval;
     }
 
@@ -293,115 +544,12 @@ public final class RuleUpdateBuffer {
         throw new IllegalArgumentException("invalidate(..) method called with null TagQualityStatus argument.");
       }
       boolean retval = false;
-      if (this.timestamp.before(pTimestamp) || this.timestamp.equals(pTimestamp)) {
-        this.qualityCollection.add(pQuality);
-        this.qualityDescriptions.put(pQuality, pDescription);        
+      if (!pTimestamp.before(this.timestamp)) {
+        addQuality(pQuality, pDescription);
         this.timestamp = pTimestamp;
         retval = true;
-      }      
+      }
       return retval;
     }
   } // end of RuleBufferObject class
-
-  /**
-   * This class extends the Java <code>TimerTask</code> and
-   * takes care of updating the oc4j cache via the <code>DataTagFacadeBean</code>.
-   *
-   * @author Matthias Braeger
-   */
-  private static class CacheUpdaterTask extends TimerTask {
-    /**
-     * This method is executed when it gets triggered
-     * by its <code>Timer</code> instance. It then takes
-     * care of the cache update for all rules that haven't 
-     * been updated since the last check.
-     */
-    public void run() {
-      //keep logic in try clause as exception will kill the timer thread here
-      try {        
-        Collection<RuleBufferObject> rulesToUpdate = null;
-  
-        // create first a copy of all rule objects that needs to be updated
-        synchronized (BUFFER_LOCK) {
-          rulesToUpdate = new ArrayList<RuleBufferObject>(); // List of rules where the cache shall be updated
-          Integer actCounter = null; // actual cycle counter
-          boolean hasJustBeenUpdated = false; // flag indicating, if the actual rule was updated since the last check
-          boolean forceCacheUpdate = false; // true, if a cache update shall be forced due to an exceed of the MAX_CYCLE_WAIT
-          for (Long actTagId : UPDATE_RECEIVED_FLAGS.keySet()) {
-            hasJustBeenUpdated = ((Boolean) UPDATE_RECEIVED_FLAGS.get(actTagId)).booleanValue();
-            actCounter = (Integer) CYCLE_COUNTERS.get(actTagId);
-            forceCacheUpdate = (actCounter != null && actCounter.intValue() >= MAX_CYCLES_WAIT);
-              
-            if (!hasJustBeenUpdated || forceCacheUpdate) {
-              // False ==> then we update the cache since there was no recent update of that rule
-              // OR we the buffer was updated more than MAX_CYCLES_WAIT cycle in a row ==> force update 
-              RuleBufferObject rbo = new RuleBufferObject((RuleBufferObject) RULE_OBJECT_BUF.get(actTagId));
-              rulesToUpdate.add(rbo);
-              if (forceCacheUpdate) {
-                log.debug("CacheUpdaterTask() - Forcing a cache update for rule "
-                    + actTagId + " since it was already delayed by "
-                    + MAX_CYCLES_WAIT * BUFFER_TIMER_MILLIS + " ms.");
-              }
-            }
-            else {
-              // Set the flag to FALSE in order indicate a cache update at the next check
-              UPDATE_RECEIVED_FLAGS.put(actTagId, Boolean.FALSE);
-              if (actCounter == null) {
-                CYCLE_COUNTERS.put(actTagId, new Integer(1));
-              }
-              else { // Increasing the counter
-                CYCLE_COUNTERS.put(actTagId, new Integer(actCounter.intValue() + 1));
-              }
-            }
-          }
-          
-          // Cleaning the buffer from all objects that are going to be put into the cache.
-          Long actTagId;
-          for (RuleBufferObject rbo : rulesToUpdate) {
-            actTagId = rbo.id;
-            UPDATE_RECEIVED_FLAGS.remove(actTagId);
-            RULE_OBJECT_BUF.remove(actTagId);
-            CYCLE_COUNTERS.remove(actTagId);
-          }
-          
-          if (UPDATE_RECEIVED_FLAGS.size() == 0) {
-            log.trace("CacheUpdaterTask() - Canceling next cache updater check, because there are no more updates registered.");
-            this.cancel();
-            isCacheUpdaterRunning = false;
-          }
-        } // end of synchronization
-        
-        if (rulesToUpdate.size() > 0) {
-          // Updating the cache
-          for (RuleBufferObject rbo : rulesToUpdate) {
-            if (rbo.qualityCollection.isEmpty()) {
-              log.trace("CacheUpdaterTask() - updating cache for rule id " + rbo.id
-                  + ": value=" + rbo.value
-                  + ", description=" + rbo.valueDesc
-                  + ", timestamp=" + rbo.timestamp);
-              try {
-                ruleTagFacade.updateAndValidate(rbo.id, rbo.value, rbo.valueDesc, rbo.timestamp);            
-              } catch (CacheElementNotFoundException cacheEx) {
-                log.warn("Unable to update rule (can happen during rule reconfiguration)", cacheEx);
-              } catch (Exception exception) {
-                log.warn("Unexpected error during rule evaluation", exception);
-              }
-            } else {
-              log.trace("CacheUpdaterTask() - invalidating cache for rule id " + rbo.id
-                  + ": reasons=" + rbo.qualityCollection
-                  + ", descriptions=" + rbo.qualityDescriptions
-                  + ", timestamp=" + rbo.timestamp);
-              try {                
-                ruleTagFacade.setQuality(rbo.id, rbo.qualityCollection, null, rbo.qualityDescriptions, rbo.timestamp);
-              } catch (CacheElementNotFoundException cacheEx) {
-                log.warn("Unable to update rule as could not be located in cache (normal during rule reconfiguration)", cacheEx);
-              }                          
-            }
-          } // end for                    
-        }      
-      } catch (Exception ex) {
-        log.error("Exception caught during rule update - should not be ignored!", ex);
-      }
-    }
-  } // end of CacheUpdaterTask class
 }
@@ -83,7 +83,7 @@ public class RuleEvaluatorImplTest {
     
     ruleEvaluator.evaluateRule(ruleId);
     
-    RuleBufferObject result = RuleUpdateBuffer.RULE_OBJECT_BUF.get(ruleId);
+    RuleBufferObject result = ruleUpdateBuffer.getBufferedUpdate(ruleId);
     Assert.assertNotNull(result);
     Assert.assertEquals("null value", result.getQualityDescriptions().values().iterator().next());
     EasyMock.verify(ruleTagCache, tagLocationService);
@@ -17,9 +17,15 @@
 package cern.c2mon.server.rule.evaluation;
 
 import java.sql.Timestamp;
+import java.util.Collections;
 
+import org.easymock.EasyMock;
+import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
 
+import cern.c2mon.server.cache.RuleTagFacade;
+import cern.c2mon.server.rule.config.RuleProperties;
 import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
 
 import static org.junit.Assert.*;
@@ -39,14 +45,123 @@ public class RuleUpdateBufferTest {
   
   /** Singleton instance */
   private RuleUpdateBuffer rub = null;
+
+  private RuleTagFacade ruleTagFacade;
+
+  private RuleProperties properties;
   
   
   /**
    * It is called before running any of the tests defined on this class
    */
   @Before
-  protected final void setUp() {
-    //rub = RuleUpdateBuffer.getInstance();
+  public final void setUp() {
+    ruleTagFacade = EasyMock.createMock(RuleTagFacade.class);
+    properties = new RuleProperties();
+    // only flushed on shutdown, unless configured otherwise by the test
+    properties.getBuffer().setFlushInterval(60000);
+  }
+
+  @After
+  public final void tearDown() {
+    if (rub != null) {
+      rub.shutdown();
+    }
+  }
+
+  @Test
+  public void testSuccessiveUpdatesAreCoalesced() {
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    ruleTagFacade.updateAndValidate(1L, "test 9", "testUpdate 9", timestamp);
+    ruleTagFacade.updateAndValidate(2L, "test 9", "testUpdate 9", timestamp);
+    EasyMock.replay(ruleTagFacade);
+
+    rub = new RuleUpdateBuffer(ruleTagFacade, properties);
+    for (int i = 0; i < 10; i++) {
+      rub.update(1L, "test " + i, "testUpdate " + i, timestamp);
+      rub.update(2L, "test " + i, "testUpdate " + i, timestamp);
+    }
+    assertEquals(2, rub.getPendingRules());
+    rub.shutdown();
+
+    EasyMock.verify(ruleTagFacade);
+    assertEquals(20, rub.getReceivedUpdates());
+    assertEquals(2, rub.getFlushedUpdates());
+    assertEquals(10.0, rub.getCoalescingRatio(), 0.0);
+    assertEquals(0, rub.getPendingRules());
+  }
+
+  @Test
+  public void testOlderUpdateIsIgnored() {
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    ruleTagFacade.updateAndValidate(1L, "new", "new", timestamp);
+    EasyMock.replay(ruleTagFacade);
+
+    rub = new RuleUpdateBuffer(ruleTagFacade, properties);
+    rub.update(1L, "new", "new", timestamp);
+    rub.update(1L, "old", "old", new Timestamp(timestamp.getTime() - 1));
+    rub.shutdown();
+
+    EasyMock.verify(ruleTagFacade);
+  }
+
+  @Test
+  public void testInvalidationAndRevalidation() {
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    ruleTagFacade.setQuality(EasyMock.eq(1L), EasyMock.eq(Collections.singleton(TagQualityStatus.UNKNOWN_REASON)),
+        EasyMock.isNull(), EasyMock.eq(Collections.singletonMap(TagQualityStatus.UNKNOWN_REASON, "error")),
+        EasyMock.eq(timestamp));
+    ruleTagFacade.updateAndValidate(2L, true, "Rule result", timestamp);
+    EasyMock.replay(ruleTagFacade);
+
+    rub = new RuleUpdateBuffer(ruleTagFacade, properties);
+    rub.update(1L, true, "Rule result", timestamp);
+    rub.invalidate(1L, false, TagQualityStatus.UNKNOWN_REASON, "error", timestamp);
+    assertEquals(false, rub.getBufferedUpdate(1L).getValue());
+
+    rub.invalidate(2L, TagQualityStatus.UNDEFINED_TAG, "error", timestamp);
+    rub.update(2L, true, "Rule result", timestamp);
+    assertTrue(rub.getBufferedUpdate(2L).getQualityCollection().isEmpty());
+    rub.shutdown();
+
+    EasyMock.verify(ruleTagFacade);
+  }
+
+  @Test
+  public void testFlushIsTriggeredBySize() throws InterruptedException {
+    RuleTagFacade niceFacade = EasyMock.createNiceMock(RuleTagFacade.class);
+    EasyMock.replay(niceFacade);
+    properties.getBuffer().setMaxPendingRules(2);
+
+    rub = new RuleUpdateBuffer(niceFacade, properties);
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    for (long id = 1; id <= 3; id++) {
+      rub.update(id, id, "Rule result", timestamp);
+    }
+    for (int i = 0; i < 100 && rub.getFlushedUpdates() < 3; i++) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(3, rub.getFlushedUpdates());
+    assertEquals(1, rub.getSizeTriggeredFlushes());
+    assertNull(rub.getBufferedUpdate(1L));
+  }
+
+  @Test
+  public void testQuietRuleIsFlushedByTimer() throws InterruptedException {
+    RuleTagFacade niceFacade = EasyMock.createNiceMock(RuleTagFacade.class);
+    EasyMock.replay(niceFacade);
+    properties.getBuffer().setFlushInterval(10);
+
+    rub = new RuleUpdateBuffer(niceFacade, properties);
+    rub.update(1L, 1, "Rule result", new Timestamp(System.currentTimeMillis()));
+    for (int i = 0; i < 100 && rub.getFlushedUpdates() < 1; i++) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(1, rub.getFlushedUpdates());
+    assertEquals(0, rub.getSizeTriggeredFlushes());
+    assertTrue(rub.getMaxLatency() >= 10);
   }
   
   
@@ -19,37 +19,52 @@ package cern.c2mon.server.supervision.alive;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicInteger;
-
-import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.cache.AliveTimerCache;
 import cern.c2mon.server.cache.AliveTimerFacade;
-import cern.c2mon.server.cache.ClusterCache;
+import cern.c2mon.server.cache.alive.AliveTimerExpiryIndex;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.alive.AliveTimer;
 import cern.c2mon.server.common.config.ServerConstants;
 import cern.c2mon.server.supervision.SupervisionManager;
 
 /**
- * Timer that regularly checks all the active alive timers monitoring
- * the connections to the DAQs, Equipment and SubEquipment.
+ * Checks the active alive timers monitoring the connections to the DAQs,
+ * Equipment and SubEquipment once they expire.
  *
  * <p>Notice that an alive timer is considered expired when alive-interval
  *  + alive-interval/3 milliseconds have expired since the last alive
  *  message arrived, where alive-interval is specific to the AliveTimer
  *  object (see <code>hasExpired</code> in {@link AliveTimerFacade}).
  *
+ * <p>The {@link AliveTimerFacade} schedules the expiry of every started or
+ * updated alive timer in the {@link AliveTimerExpiryIndex}. The checker
+ * thread waits for the next expiry and only checks the corresponding alive
+ * timer against the cache, without copying it. A timer updated meanwhile
+ * (e.g. by another server) is rescheduled. The delay between the expiry
+ * and its detection is exposed over JMX.
+ *
+ * <p>Timers started by another server of the cluster do not go through the
+ * local facade. All alive timers are therefore scanned once a minute under
+ * their read lock: the active timers missing from the index are added to it,
+ * and the stopped ones are counted.
+ *
  * @author Mark Brightwell
  *
  */
 @Service
-public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
+@ManagedResource(objectName = "cern.c2mon:name=aliveTimerChecker")
+public class AliveTimerChecker implements SmartLifecycle {
 
   /**
    * Log4j Logger for this class.
@@ -62,31 +77,16 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   private static final Logger SMS_LOGGER = LoggerFactory.getLogger("AdminSmsLogger");
 
   /**
-   * Cluster cache key to ensure that a server does not try to access
-   * LAST_ALIVE_TIMER_CHECK_LONG during instantiation if it already exists. This
-   * is because a cache loading blockage can happen if a server holds
-   * LAST_ALIVE_TIMER_CHECK_LONG while another server starts up. See
-   * https://issues.cern.ch/browse/TIMS-1037.
-   */
-  private static final String LAST_ALIVE_TIMER_CHECK_INITIALISATION_KEY = "c2mon.supervision.AliveTimerChecker.lastAliveTimerCheckInitialisationKey";
-
-  /**
-   * Cluster cache key for retrieving the time of last check
-   * of the alives. Across server cluster it assures that
-   * the alive check only takes place on a single server.
+   * How often all alive timers are scanned, to index the
+   * timers started by other servers and to count the
+   * stopped ones.
    */
-  private static final String LAST_ALIVE_TIMER_CHECK_LONG = "c2mon.supervision.AliveTimerChecker.lastAliveTimerCheck";
+  private static final int SCAN_INTERVAL = 60000;
 
   /**
-   * How often the timer checks whether the alive
-   * timer have expired.
-   */
-  private static final int SCAN_INTERVAL = 10000;
-
-  /**
-   * The time the server waits before doing first
-   * checks at start up (this gives time for incoming
-   * alives to be processed).
+   * The time the server waits before expiring the
+   * timers found active at start up (this gives time
+   * for incoming alives to be processed).
    */
   private static final int INITIAL_SCAN_DELAY = 120000;
 
@@ -100,6 +100,11 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
    */
   private Timer timer;
 
+  /**
+   * Thread waiting for the alive timer expiries.
+   */
+  private Thread checkerThread;
+
   /**
    * Reference to alive timer facade.
    */
@@ -115,6 +120,11 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
    */
   private SupervisionManager supervisionManager;
 
+  /**
+   * Reference to the expiry index of the active alive timers.
+   */
+  private final AliveTimerExpiryIndex expiryIndex;
+
   /**
    * Threshold of DAQ/Equipment/SubEqu. down when warning is sent to admin.
    */
@@ -130,46 +140,35 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
    */
   private AtomicInteger warningSwitchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
 
-  /** Reference to the clusterCache to share values accross teh cluster nodes */
-  private final ClusterCache clusterCache;
+  private static final int SWITCH_OFF_COUNTDOWN = 10; //10mins
 
-  private static final int SWITCH_OFF_COUNTDOWN = 60; //10mins
+  private final AtomicLong checkedTimers = new AtomicLong();
+
+  private final AtomicLong expiredTimers = new AtomicLong();
+
+  private volatile long lastDetectionLag;
+
+  private final AtomicLong maxDetectionLag = new AtomicLong();
+
+  private volatile int aliveDownCount;
 
   /**
    * Constructor.
    * @param cache the alive timer cache
    * @param aliveTimerFacade the alive timer facade bean
    * @param supervisionManager the supervision manager bean
-   * @param clusterCache Reference to the clusterCache to share values accross teh cluster nodes
+   * @param expiryIndex the expiry index of the active alive timers
    */
   @Autowired
   public AliveTimerChecker(final AliveTimerCache cache,
                            final AliveTimerFacade aliveTimerFacade,
                            final SupervisionManager supervisionManager,
-                           final ClusterCache clusterCache) {
+                           final AliveTimerExpiryIndex expiryIndex) {
     super();
     this.aliveTimerCache = cache;
     this.aliveTimerFacade = aliveTimerFacade;
     this.supervisionManager = supervisionManager;
-    this.clusterCache = clusterCache;
-  }
-
-  /**
-   * Initialises the clustered values
-   */
-  @PostConstruct
-  public void init() {
-    LOGGER.trace("Initialising AliveTimerChecker...");
-    clusterCache.acquireWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_INITIALISATION_KEY);
-    try {
-      if (!clusterCache.hasKey(LAST_ALIVE_TIMER_CHECK_INITIALISATION_KEY)) {
-        clusterCache.put(LAST_ALIVE_TIMER_CHECK_INITIALISATION_KEY, true);
-        clusterCache.put(LAST_ALIVE_TIMER_CHECK_LONG, Long.valueOf(0L));
-      }
-    } finally {
-      clusterCache.releaseWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_INITIALISATION_KEY);
-    }
-    LOGGER.trace("Initialisation complete.");
+    this.expiryIndex = expiryIndex;
   }
 
   /**
@@ -178,9 +177,18 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   @Override
   public synchronized void start() {
     LOGGER.info("Starting the C2MON alive timer mechanism.");
-    timer = new Timer("AliveChecker");
-    timer.schedule(this, INITIAL_SCAN_DELAY, SCAN_INTERVAL);
+    indexActiveTimers(System.currentTimeMillis() + INITIAL_SCAN_DELAY);
     running = true;
+    checkerThread = new Thread(this::checkExpiries, "AliveChecker");
+    checkerThread.setDaemon(true);
+    checkerThread.start();
+    timer = new Timer("AliveTimerScanner", true);
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        scanAliveTimers();
+      }
+    }, INITIAL_SCAN_DELAY, SCAN_INTERVAL);
   }
 
   /**
@@ -192,67 +200,132 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   @Override
   public synchronized void stop() {
     LOGGER.info("Stopping the C2MON alive timer mechanism.");
-    timer.cancel();
     running = false;
+    checkerThread.interrupt();
+    timer.cancel();
   }
 
   /**
-   * Run method of the AliveTimerManager thread.
+   * Adds the alive timers active in the cache but missing from the expiry
+   * index (e.g. started by another server), with an expiry not before the
+   * given time. The timers already in the index keep their expiry.
+   *
+   * @param earliestExpiry the earliest time at which the timers may expire
+   * @return the number of stopped alive timers
    */
-  @Override
-  public void run() {
-    clusterCache.acquireWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_LONG);
+  int indexActiveTimers(final long earliestExpiry) {
+    int indexed = 0;
+    int stopped = 0;
     try {
-      Long lastCheck = (Long) clusterCache.getCopy(LAST_ALIVE_TIMER_CHECK_LONG);
-      if (System.currentTimeMillis() - lastCheck.longValue() < 9000) { //results in check on a single server
-        LOGGER.debug("Skipping alive check as already performed.");
-      } else {
-        if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug("run() : checking alive timers ... ");
-        }
-        short aliveDownCount = 0;
+      for (Long currentId : aliveTimerCache.getKeys()) {
+        aliveTimerCache.acquireReadLockOnKey(currentId);
         try {
-          for (Long currentId : aliveTimerCache.getKeys()) {
-            AliveTimer aliveTimerCopy = null;
-            boolean aliveExpiration = false;
-            aliveTimerCopy = aliveTimerCache.getCopy(currentId);
-
-            if (aliveTimerCopy.isActive()) {
-              if (aliveTimerFacade.hasExpired(currentId)) {
-                aliveTimerFacade.stop(currentId);
-                aliveExpiration = true;
-                aliveDownCount++;
-              }
-            } else {
-              aliveDownCount++;
-            }
-
-            if (aliveExpiration) {
-              onAliveTimerExpiration(currentId);
-            }
-
-          }
-          if (!alarmActive && aliveDownCount > WARNING_THRESHOLD) {
-            alarmActive = true;
-            SMS_LOGGER.warn("Over " + WARNING_THRESHOLD + " DAQ/Equipment are currently down.");
-          } else if (alarmActive && warningSwitchOffCountDown.decrementAndGet() == 0) {
-            SMS_LOGGER.warn("DAQ/Equipment status back to normal (" + aliveDownCount + " detected as down)");
-            alarmActive = false;
-            warningSwitchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
+          AliveTimer aliveTimer = aliveTimerCache.get(currentId);
+          if (!aliveTimer.isActive()) {
+            stopped++;
+          } else if (expiryIndex.getDeadline(currentId) == null) {
+            expiryIndex.schedule(currentId, Math.max(AliveTimerExpiryIndex.getExpiryTime(aliveTimer) + 1, earliestExpiry));
+            indexed++;
           }
         } catch (CacheElementNotFoundException cacheEx) {
-          LOGGER.warn("Failed to locate alive timer in cache on expiration check (may happen exceptionally if just removed).", cacheEx);
-        } catch (Exception e) {
-          LOGGER.error("Unexpected exception when checking the alive timers", e);
+          LOGGER.debug("Alive timer {} removed while indexing the alive timers", currentId);
+        } finally {
+          aliveTimerCache.releaseReadLockOnKey(currentId);
         }
-        lastCheck = Long.valueOf(System.currentTimeMillis());
-        clusterCache.put(LAST_ALIVE_TIMER_CHECK_LONG, lastCheck);
-        if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug("run() : finished checking alive timers ... ");
-        }
-      } // end of else block
+      }
+    } catch (Exception e) {
+      LOGGER.error("Unexpected exception when indexing the alive timers", e);
+    }
+    LOGGER.debug("Indexed {} active alive timers", indexed);
+    return stopped;
+  }
+
+  private void checkExpiries() {
+    while (running) {
+      try {
+        checkAliveTimer(expiryIndex.take(), System.currentTimeMillis());
+      } catch (InterruptedException e) {
+        LOGGER.debug("Alive timer checker interrupted");
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        LOGGER.error("Unexpected exception when checking the alive timers", e);
+      }
+    }
+  }
+
+  /**
+   * Checks all alive timers whose expiry has passed at the given time.
+   *
+   * @param now the current time in milliseconds
+   * @return the number of checked alive timers
+   */
+  int checkExpiries(final long now) {
+    int checked = 0;
+    for (Long aliveTimerId = expiryIndex.poll(now); aliveTimerId != null; aliveTimerId = expiryIndex.poll(now)) {
+      checkAliveTimer(aliveTimerId, now);
+      checked++;
+    }
+    return checked;
+  }
+
+  /**
+   * Stops the alive timer and notifies the supervision manager if expired,
+   * otherwise reschedules it. The timer is checked and stopped under its
+   * cache lock, so that an expiration is only notified once.
+   */
+  private void checkAliveTimer(final Long aliveTimerId, final long now) {
+    checkedTimers.incrementAndGet();
+    long expiryTime;
+    aliveTimerCache.acquireWriteLockOnKey(aliveTimerId);
+    try {
+      AliveTimer aliveTimer = aliveTimerCache.get(aliveTimerId);
+      if (!aliveTimer.isActive()) {
+        return;
+      }
+      expiryTime = AliveTimerExpiryIndex.getExpiryTime(aliveTimer);
+      if (now <= expiryTime) {
+        expiryIndex.schedule(aliveTimerId, expiryTime + 1);
+        return;
+      }
+      aliveTimerFacade.stop(aliveTimerId);
+    } catch (CacheElementNotFoundException cacheEx) {
+      LOGGER.debug("Failed to locate alive timer {} in cache on expiration check (may happen if just removed).", aliveTimerId);
+      return;
     } finally {
-      clusterCache.releaseWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_LONG);
+      aliveTimerCache.releaseWriteLockOnKey(aliveTimerId);
+    }
+
+    recordDetectionLag(now - expiryTime);
+    onAliveTimerExpiration(aliveTimerId);
+  }
+
+  private void recordDetectionLag(final long detectionLag) {
+    expiredTimers.incrementAndGet();
+    lastDetectionLag = detectionLag;
+    maxDetectionLag.accumulateAndGet(detectionLag, Math::max);
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Alive timer expiration detected after " + detectionLag + " ms");
+    }
+  }
+
+  /**
+   * Indexes the active alive timers missing from the expiry index and warns
+   * the administrators if too many DAQ/Equipment are down.
+   */
+  private void scanAliveTimers() {
+    try {
+      aliveDownCount = indexActiveTimers(System.currentTimeMillis());
+      if (!alarmActive && aliveDownCount > WARNING_THRESHOLD) {
+        alarmActive = true;
+        SMS_LOGGER.warn("Over " + WARNING_THRESHOLD + " DAQ/Equipment are currently down.");
+      } else if (alarmActive && warningSwitchOffCountDown.decrementAndGet() == 0) {
+        SMS_LOGGER.warn("DAQ/Equipment status back to normal (" + aliveDownCount + " detected as down)");
+        alarmActive = false;
+        warningSwitchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Unexpected exception when counting the stopped alive timers", e);
     }
   }
 
@@ -265,6 +338,41 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
     supervisionManager.onAliveTimerExpiration(aliveTimerId);
   }
 
+  @ManagedAttribute(description = "Number of alive timers with a scheduled expiry")
+  public int getScheduledTimers() {
+    return expiryIndex.size();
+  }
+
+  @ManagedAttribute(description = "Number of alive timers checked on expiry")
+  public long getCheckedTimers() {
+    return checkedTimers.get();
+  }
+
+  @ManagedAttribute(description = "Number of expired alive timers")
+  public long getExpiredTimers() {
+    return expiredTimers.get();
+  }
+
+  @ManagedAttribute(description = "Time in ms between the expiry of the last expired alive timer and its detection")
+  public long getLastDetectionLag() {
+    return lastDetectionLag;
+  }
+
+  @ManagedAttribute(description = "Maximum time in ms between the expiry of an alive timer and its detection")
+  public long getMaxDetectionLag() {
+    return maxDetectionLag.get();
+  }
+
+  @ManagedAttribute(description = "Number of stopped alive timers at the last count")
+  public int getAliveDownCount() {
+    return aliveDownCount;
+  }
+
+  @ManagedOperation(description = "Resets the maximum detection lag")
+  public void resetMaxDetectionLag() {
+    maxDetectionLag.set(0);
+  }
+
   @Override
   public boolean isAutoStartup() {
     return true;
@@ -1,5 +1,6 @@
 package cern.c2mon.server.supervision.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -11,5 +12,6 @@ import org.springframework.context.annotation.Import;
 @Import({
   SupervisionCacheConfig.class
 })
+@EnableConfigurationProperties(SupervisionProperties.class)
 @ComponentScan("cern.c2mon.server.supervision")
 public class SupervisionModule {}
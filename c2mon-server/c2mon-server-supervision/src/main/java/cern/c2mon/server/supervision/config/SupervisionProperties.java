@@ -0,0 +1,39 @@
+package cern.c2mon.server.supervision.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "c2mon.server.supervision")
+public class SupervisionProperties {
+
+  /**
+   * Settings of the notification of the tags (and dependent rules) affected
+   * by a process, equipment or sub-equipment status change
+   */
+  private final Notification notification = new Notification();
+
+  @Data
+  public static class Notification {
+
+    /**
+     * Number of threads notifying the affected tags in parallel. If set to 1,
+     * the tags are notified on the thread handling the supervision event
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of tags notified as one task. Supervision events affecting less
+     * tags are notified on the thread handling the event
+     */
+    private int partitionSize = 500;
+
+    /**
+     * If true, the tags and rules depending on an equipment or sub-equipment
+     * are kept in an index, which is invalidated by the local configuration
+     * events. The index is never used in "multi" cache mode, as it does not
+     * see the configuration changes done by the other servers
+     */
+    private boolean dependencyIndex = true;
+  }
+}
@@ -0,0 +1,254 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.supervision.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import cern.c2mon.server.cache.EquipmentFacade;
+import cern.c2mon.server.cache.SubEquipmentFacade;
+import cern.c2mon.server.cache.TagLocationService;
+import cern.c2mon.server.cache.config.CacheProperties;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.common.alarm.Alarm;
+import cern.c2mon.server.common.listener.ConfigurationEventListener;
+import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.server.supervision.config.SupervisionProperties;
+import cern.c2mon.shared.client.configuration.ConfigConstants.Action;
+
+/**
+ * Index of the tags attached to an equipment or sub-equipment, and of all
+ * rules depending (also indirectly) on these tags. Used by the
+ * {@link SupervisionTagNotifier} to find the tags affected by a supervision
+ * event without querying the data tag cache and walking the rule tree for
+ * every event.
+ *
+ * <p>The dependencies of an equipment are computed on first request, reading
+ * the rule ids from the cache objects under their read lock (no copies).
+ * All entries are invalidated when a tag is created, updated or removed, as
+ * well as after the completion of the configuration transaction, so that
+ * the index never outlives a configuration change.
+ *
+ * <p>Only the configuration events of the local server are seen. In "multi"
+ * cache mode, or if c2mon.server.supervision.notification.dependencyIndex is
+ * false, the dependencies are therefore computed for every request and never
+ * stored.
+ */
+@Slf4j
+@Component
+public class SupervisionDependencyIndex implements ConfigurationEventListener {
+
+  private final EquipmentFacade equipmentFacade;
+
+  private final SubEquipmentFacade subEquipmentFacade;
+
+  private final TagLocationService tagLocationService;
+
+  /**
+   * False if the computed dependencies must not be stored
+   */
+  private final boolean enabled;
+
+  private final ConcurrentMap<Long, Dependencies> equipmentDependencies = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Long, Dependencies> subEquipmentDependencies = new ConcurrentHashMap<>();
+
+  /**
+   * Incremented on every invalidation. An entry is only stored if no
+   * invalidation occurred while it was computed.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  @Autowired
+  public SupervisionDependencyIndex(final EquipmentFacade equipmentFacade,
+                                    final SubEquipmentFacade subEquipmentFacade,
+                                    final TagLocationService tagLocationService,
+                                    final CacheProperties cacheProperties,
+                                    final SupervisionProperties supervisionProperties) {
+    this.equipmentFacade = equipmentFacade;
+    this.subEquipmentFacade = subEquipmentFacade;
+    this.tagLocationService = tagLocationService;
+    this.enabled = supervisionProperties.getNotification().isDependencyIndex()
+        && !cacheProperties.getMode().equalsIgnoreCase("multi");
+    if (!enabled) {
+      log.info("Supervision dependency index disabled - the dependencies are computed for every supervision event");
+    }
+  }
+
+  /**
+   * @param equipmentId the equipment id
+   * @return the data tags of the equipment and their dependent rules
+   * @throws CacheElementNotFoundException if the equipment tags cannot be retrieved
+   */
+  public Dependencies getEquipmentDependencies(final Long equipmentId) {
+    Dependencies dependencies = equipmentDependencies.get(equipmentId);
+    if (dependencies == null) {
+      long currentGeneration = generation.get();
+      dependencies = computeDependencies(equipmentFacade.getDataTagIds(equipmentId));
+      store(equipmentDependencies, equipmentId, dependencies, currentGeneration);
+    }
+    return dependencies;
+  }
+
+  /**
+   * @param subEquipmentId the sub-equipment id
+   * @return the data tags of the sub-equipment and their dependent rules
+   * @throws CacheElementNotFoundException if the sub-equipment tags cannot be retrieved
+   */
+  public Dependencies getSubEquipmentDependencies(final Long subEquipmentId) {
+    Dependencies dependencies = subEquipmentDependencies.get(subEquipmentId);
+    if (dependencies == null) {
+      long currentGeneration = generation.get();
+      dependencies = computeDependencies(subEquipmentFacade.getDataTagIds(subEquipmentId));
+      store(subEquipmentDependencies, subEquipmentId, dependencies, currentGeneration);
+    }
+    return dependencies;
+  }
+
+  private void store(final ConcurrentMap<Long, Dependencies> map, final Long id, final Dependencies dependencies,
+                     final long computedGeneration) {
+    if (!enabled) {
+      return;
+    }
+    map.put(id, dependencies);
+    if (generation.get() != computedGeneration) {
+      // invalidated meanwhile, the entry may already be outdated
+      map.remove(id, dependencies);
+    }
+  }
+
+  /**
+   * Collects all rules depending on the given tags, each rule only once.
+   */
+  private Dependencies computeDependencies(final Collection<Long> tagIds) {
+    Set<Long> ruleIds = new LinkedHashSet<>();
+    Deque<Long> toVisit = new ArrayDeque<>(tagIds);
+    while (!toVisit.isEmpty()) {
+      for (Long ruleId : getRuleIds(toVisit.poll())) {
+        if (ruleIds.add(ruleId)) {
+          toVisit.add(ruleId);
+        }
+      }
+    }
+    return new Dependencies(toArray(tagIds), toArray(ruleIds));
+  }
+
+  /**
+   * Reads the ids of the rules directly depending on a tag, without copying
+   * the cache object.
+   */
+  private Collection<Long> getRuleIds(final Long tagId) {
+    try {
+      tagLocationService.acquireReadLockOnKey(tagId);
+      try {
+        return new ArrayList<>(tagLocationService.get(tagId).getRuleIds());
+      } finally {
+        tagLocationService.releaseReadLockOnKey(tagId);
+      }
+    } catch (CacheElementNotFoundException e) {
+      log.warn("Unable to locate Tag/Rule #{} while indexing supervision dependencies", tagId);
+      return new ArrayList<>();
+    }
+  }
+
+  private static long[] toArray(final Collection<Long> ids) {
+    long[] array = new long[ids.size()];
+    int i = 0;
+    for (Long id : ids) {
+      array[i++] = id;
+    }
+    return array;
+  }
+
+  /**
+   * Removes all entries of the index.
+   */
+  public void invalidate() {
+    generation.incrementAndGet();
+    equipmentDependencies.clear();
+    subEquipmentDependencies.clear();
+  }
+
+  @Override
+  public void onConfigurationEvent(final Tag tag, final Action action) {
+    invalidate();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      // the tag is only put into the cache after the event
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion(int status) {
+          invalidate();
+        }
+      });
+    }
+  }
+
+  @Override
+  public void onConfigurationEvent(final Alarm alarm, final Action action) {
+    // alarms are not part of the supervision dependencies
+  }
+
+  /**
+   * @return the number of equipments and sub-equipments currently indexed
+   */
+  public int size() {
+    return equipmentDependencies.size() + subEquipmentDependencies.size();
+  }
+
+  /**
+   * The data tags attached to an equipment or sub-equipment and the rules
+   * depending on them.
+   */
+  public static final class Dependencies {
+
+    private final long[] tagIds;
+
+    private final long[] ruleIds;
+
+    Dependencies(final long[] tagIds, final long[] ruleIds) {
+      this.tagIds = tagIds;
+      this.ruleIds = ruleIds;
+    }
+
+    /**
+     * @return the data tag ids; must not be modified
+     */
+    public long[] getTagIds() {
+      return tagIds;
+    }
+
+    /**
+     * @return the ids of the dependent rules, without duplicates; must not be modified
+     */
+    public long[] getRuleIds() {
+      return ruleIds;
+    }
+  }
+}
@@ -18,16 +18,29 @@ package cern.c2mon.server.supervision.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.cache.*;
@@ -40,6 +53,8 @@ import cern.c2mon.server.common.rule.RuleTag;
 import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.server.supervision.SupervisionListener;
 import cern.c2mon.server.supervision.SupervisionNotifier;
+import cern.c2mon.server.supervision.config.SupervisionProperties;
+import cern.c2mon.server.supervision.impl.SupervisionDependencyIndex.Dependencies;
 import cern.c2mon.shared.client.supervision.SupervisionEvent;
 import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionStatus;
 import cern.c2mon.shared.daq.lifecycle.Lifecycle;
@@ -50,14 +65,15 @@ import cern.c2mon.shared.daq.lifecycle.Lifecycle;
  *
  * <p>Only passes on DOWN/STOPPED and RUNNING notifications (start-up ignored).
  *
- * <p>Only a tag lock is held during the notification procedure. The process and
- * equipment locks are accessed when getting copies of the Equipment/Tag lists
- * and when checking the Process/Equipment status'. Tag lock is held while performing
- * the invalidation AND notifying the listeners: this is REQUIRED to prevent successive
- * supervision changes from overtaking each other (the process state is appended while
- * this lock is held). Notice that as a result, there is no guarantee the listener
- * will be notified of all status changes if there are successive change close together
- * (in this case the listener may receive 2 notifications with the latest status only).
+ * <p>The affected tags and their dependent rules are taken from the
+ * {@link SupervisionDependencyIndex}; every rule is notified once per event, even if
+ * it depends on several affected tags. Large events are split into partitions of
+ * tags which are notified in parallel (see <code>c2mon.server.supervision.notification.*</code>);
+ * the event is only completed once all partitions are done. The supervision state
+ * appended to a tag is always the latest one from the event caches: there is no
+ * guarantee the listener will be notified of all status changes if there are successive
+ * changes close together (in this case the listener may receive 2 notifications with
+ * the latest status only).
  *
  * <p>Timestamps are not changed when supervision
  * status is added to Tag object: as a result, listeners can filter out supervision
@@ -72,6 +88,7 @@ import cern.c2mon.shared.daq.lifecycle.Lifecycle;
  *
  */
 @Service
+@ManagedResource(objectName = "cern.c2mon:name=supervisionTagNotifier")
 public class SupervisionTagNotifier implements SupervisionListener, SmartLifecycle {
 
   /**
@@ -140,6 +157,30 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
   /** For distributed locking on the cluster */
   private final ClusterCache clusterCache;
 
+  /**
+   * Tags and rules affected by an equipment or sub-equipment event.
+   */
+  private final SupervisionDependencyIndex dependencyIndex;
+
+  /**
+   * Notifies the partitions of large events in parallel; null if
+   * all notifications are done on the supervision event thread.
+   */
+  private final ThreadPoolExecutor notificationExecutor;
+
+  /** Number of tags notified as one task */
+  private final int partitionSize;
+
+  /**
+   * Statistics for JMX.
+   */
+  private final AtomicLong notifiedEvents = new AtomicLong();
+  private final AtomicLong notifiedTags = new AtomicLong();
+  private volatile long lastEventDuration;
+  private volatile long maxEventDuration;
+  private volatile int lastEventTags;
+  private volatile int lastEventRules;
+
   /**
    * Constructor.
    * @param supervisionNotifier notifier bean
@@ -160,6 +201,8 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
    * @param subEquipmentEventCache
    *        Reference to a {@link C2monCache} instance for managing sub equipment supervision events
    *        also across multiple servers
+   * @param dependencyIndex index of the tags and rules affected by supervision events
+   * @param properties supervision settings
    */
   @Autowired
   public SupervisionTagNotifier(final SupervisionNotifier supervisionNotifier,
@@ -171,7 +214,9 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
                                 final SubEquipmentFacade subEquipmentFacade,
                                 @Qualifier("processEventCache") final C2monCache<Long, SupervisionEvent> processEventCache,
                                 @Qualifier("equipmentEventCache") final C2monCache<Long, SupervisionEvent> equipmentEventCache,
-                                @Qualifier("subEquipmentEventCache") final C2monCache<Long, SupervisionEvent> subEquipmentEventCache) {
+                                @Qualifier("subEquipmentEventCache") final C2monCache<Long, SupervisionEvent> subEquipmentEventCache,
+                                final SupervisionDependencyIndex dependencyIndex,
+                                final SupervisionProperties properties) {
     super();
     this.supervisionNotifier = supervisionNotifier;
     this.tagLocationService = tagLocationService;
@@ -189,6 +234,19 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
     this.dataTagCache = cacheProvider.getDataTagCache();
     this.ruleTagCache = cacheProvider.getRuleTagCache();
     this.clusterCache = cacheProvider.getClusterCache();
+
+    this.dependencyIndex = dependencyIndex;
+    SupervisionProperties.Notification notification = properties.getNotification();
+    this.partitionSize = Math.max(1, notification.getPartitionSize());
+    if (notification.getThreads() > 1) {
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("SupervisionNotification-");
+      threadFactory.setDaemon(true);
+      notificationExecutor = new ThreadPoolExecutor(notification.getThreads(), notification.getThreads(),
+          60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+      notificationExecutor.allowCoreThreadTimeOut(true);
+    } else {
+      notificationExecutor = null;
+    }
   }
 
   /**
@@ -268,14 +326,22 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
   }
 
   /**
-   * Notifies all equipments under this process. Will use event in local map.
+   * Notifies all equipments under this process, notifying rules shared by
+   * several equipments only once.
    * @param processId process id
    */
   private void notifyProcessTags(final Long processId) {
     Process process = processCache.getCopy(processId);
+    List<Dependencies> dependencies = new ArrayList<>();
     for (Long equipmentId : process.getEquipmentIds()) { //no lock required as get copy
-      notifyEquipmentTags(equipmentId);
+      try {
+        dependencies.add(dependencyIndex.getEquipmentDependencies(equipmentId));
+      } catch (CacheElementNotFoundException cacheEx) {
+        LOGGER.warn("Unable to locate Equipment element during Tag supervision "
+            + "change callback (so no invalidation callbacks performed for associated Tags)", cacheEx);
+      }
     }
+    notifyTags("process", processId, dependencies);
   }
 
   /**
@@ -284,17 +350,7 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
    */
   private void notifyEquipmentTags(final Long equipementId) {
     try {
-      //local map so as not to notify rules twice; lock on map when modifying
-      Map<Long, Boolean> notifiedRules = new HashMap<>();
-      Collection<Long> tagIds = equipmentFacade.getDataTagIds(equipementId);
-      for (Long id : tagIds) {
-       try {
-         callCacheNotification(id, notifiedRules); //recursively notifies all dependent rules also, once only
-       } catch (CacheElementNotFoundException cacheEx) {
-         LOGGER.warn("Unable to locate Tag/Rule cache element during Tag supervision " //TODO ask DAQ refresh
-             + "change callback (some Tags/Rules may have been omitted)", cacheEx);
-       }
-      }
+      notifyTags("equipment", equipementId, Collections.singletonList(dependencyIndex.getEquipmentDependencies(equipementId)));
     } catch (CacheElementNotFoundException cacheEx) {
       LOGGER.warn("Unable to locate Equipment element during Tag supervision "
           + "change callback (so no invalidation callbacks performed for associated Tags)", cacheEx);
@@ -308,17 +364,7 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
    */
   private void notifySubEquipmentTags(final Long subEquipmentId) {
     try {
-      //local map so as not to notify rules twice; lock on map when modifying
-      Map<Long, Boolean> notifiedRules = new HashMap<>();
-      Collection<Long> tagIds = subEquipmentFacade.getDataTagIds(subEquipmentId);
-      for (Long id : tagIds) {
-       try {
-         callCacheNotification(id, notifiedRules); //recursively notifies all dependent rules also, once only
-       } catch (CacheElementNotFoundException cacheEx) {
-         LOGGER.warn("Unable to locate Tag/Rule cache element during Tag supervision " //TODO ask DAQ refresh
-             + "change callback (some Tags/Rules may have been omitted)", cacheEx);
-       }
-      }
+      notifyTags("subequipment", subEquipmentId, Collections.singletonList(dependencyIndex.getSubEquipmentDependencies(subEquipmentId)));
     } catch (CacheElementNotFoundException cacheEx) {
       LOGGER.warn("Unable to locate SubEquipment element during Tag supervision "
           + "change callback (so no invalidation callbacks performed for associated Tags)", cacheEx);
@@ -326,58 +372,191 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
   }
 
   /**
-   * Private recursive method for calling all listeners; recursive calls for
-   * calling the notification for all dependent rules also.
-   * @param id tag id
-   * @param notifiedRules map for preventing multiple notifications for rules
+   * Notifies the given tags and dependent rules, each rule only once. If there are
+   * more than {@link #partitionSize} of them, they are notified in parallel partitions.
+   *
+   * @param entity the supervised entity, for logging
+   * @param entityId the id of the supervised entity
+   * @param dependencies the affected tags and rules
    */
-  private void callCacheNotification(final Long id, final Map<Long, Boolean> notifiedRules) {
-    synchronized (notifiedRules) {
-      Tag tagCopy = tagLocationService.getCopy(id);
-      if (!notifiedRules.containsKey(tagCopy.getId())) {
-        LOGGER.trace("Performing supervision notification for tag " + id);
-        boolean dirtyTagContext = false;
-
-        for (Long procId : tagCopy.getProcessIds()) {
-          if (processEventCache.hasKey(procId)) { //null never override a value, so if statement ok out of lock
-            supervisionAppender.addSupervisionQuality(tagCopy, processEventCache.getCopy(procId));
-            dirtyTagContext = true;
-          }
-        }
-        for (Long eqId : tagCopy.getEquipmentIds()) {
-          if (equipmentEventCache.hasKey(eqId)) {
-            supervisionAppender.addSupervisionQuality(tagCopy, equipmentEventCache.getCopy(eqId));
-            dirtyTagContext = true;
-          }
-        }
-        for (Long subEqId : tagCopy.getSubEquipmentIds()) {
-          if (subEquipmentEventCache.hasKey(subEqId)) {
-            supervisionAppender.addSupervisionQuality(tagCopy, subEquipmentEventCache.getCopy(subEqId));
-            dirtyTagContext = true;
-          }
+  private void notifyTags(final String entity, final Long entityId, final Collection<Dependencies> dependencies) {
+    long start = System.currentTimeMillis();
+    //shared by all partitions so as not to notify rules twice
+    Set<Long> notifiedRules = ConcurrentHashMap.newKeySet();
+    int tagCount = 0;
+    List<Long> ruleIds = new ArrayList<>();
+    for (Dependencies dependency : dependencies) {
+      tagCount += dependency.getTagIds().length;
+      for (long ruleId : dependency.getRuleIds()) {
+        if (notifiedRules.add(ruleId)) {
+          ruleIds.add(ruleId);
         }
+      }
+    }
+    //data tags first, followed by the rules
+    long[] allIds = new long[tagCount + ruleIds.size()];
+    int nbIds = 0;
+    for (Dependencies dependency : dependencies) {
+      long[] tagIds = dependency.getTagIds();
+      System.arraycopy(tagIds, 0, allIds, nbIds, tagIds.length);
+      nbIds += tagIds.length;
+    }
+    for (Long ruleId : ruleIds) {
+      allIds[nbIds++] = ruleId;
+    }
 
-        if (dirtyTagContext) {
-          if (tagCopy instanceof DataTag) {
-            dataTagCache.notifyListenersOfSupervisionChange((DataTag) tagCopy);
-          } else if (tagCopy instanceof RuleTag) {
-            ruleTagCache.notifyListenersOfSupervisionChange((RuleTag) tagCopy);
-          } else {
-            throw new IllegalArgumentException("Unexpected call with Tag parameter that is neither DataTag or RuleTag; "
-                + "type is " + tagCopy.getClass().getSimpleName());
-          }
-        }
+    if (notificationExecutor == null || allIds.length <= partitionSize) {
+      notifyPartition(allIds, 0, allIds.length, notifiedRules);
+    } else {
+      List<Future<?>> partitions = new ArrayList<>();
+      for (int from = 0; from < allIds.length; from += partitionSize) {
+        final int partitionStart = from;
+        final int partitionEnd = Math.min(from + partitionSize, allIds.length);
+        partitions.add(notificationExecutor.submit(() -> notifyPartition(allIds, partitionStart, partitionEnd, notifiedRules)));
       }
+      awaitPartitions(partitions);
+    }
+
+    long duration = System.currentTimeMillis() - start;
+    notifiedEvents.incrementAndGet();
+    notifiedTags.addAndGet(allIds.length);
+    lastEventDuration = duration;
+    lastEventTags = tagCount;
+    lastEventRules = notifiedRules.size();
+    if (duration > maxEventDuration) {
+      maxEventDuration = duration;
+    }
+    LOGGER.debug("Supervision event for {} #{} notified {} tags and {} rules in {} ms",
+        entity, entityId, tagCount, notifiedRules.size(), duration);
+  }
 
-      Collection<Long> ruleIds;
-      ruleIds = new ArrayList<>(tagCopy.getRuleIds());
-      for (Long ruleId : ruleIds) {
+  private void awaitPartitions(final List<Future<?>> partitions) {
+    for (Future<?> partition : partitions) {
+      try {
+        partition.get();
+      } catch (InterruptedException e) {
+        LOGGER.warn("Interrupted while waiting for the Tag supervision notifications to complete");
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        LOGGER.error("Exception caught while notifying Tags of a supervision change", e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Notifies the tags with the ids in the given range of the array.
+   */
+  private void notifyPartition(final long[] ids, final int from, final int to, final Set<Long> notifiedRules) {
+    for (int i = from; i < to; i++) {
+      try {
+        callCacheNotification(ids[i], notifiedRules);
+      } catch (CacheElementNotFoundException cacheEx) {
+        LOGGER.warn("Unable to locate Tag/Rule cache element during Tag supervision " //TODO ask DAQ refresh
+            + "change callback (some Tags/Rules may have been omitted)", cacheEx);
+      }
+    }
+  }
+
+  /**
+   * Notifies the listeners of a tag with its supervision status appended. Dependent
+   * rules are notified by the caller, except for rules added since the
+   * dependencies were indexed, which are notified recursively.
+   * @param id tag id
+   * @param notifiedRules rules already notified or scheduled for notification
+   */
+  private void callCacheNotification(final Long id, final Set<Long> notifiedRules) {
+    Tag tagCopy = tagLocationService.getCopy(id);
+    LOGGER.trace("Performing supervision notification for tag " + id);
+    boolean dirtyTagContext = false;
+
+    for (Long procId : tagCopy.getProcessIds()) {
+      if (processEventCache.hasKey(procId)) { //null never override a value, so if statement ok out of lock
+        supervisionAppender.addSupervisionQuality(tagCopy, processEventCache.getCopy(procId));
+        dirtyTagContext = true;
+      }
+    }
+    for (Long eqId : tagCopy.getEquipmentIds()) {
+      if (equipmentEventCache.hasKey(eqId)) {
+        supervisionAppender.addSupervisionQuality(tagCopy, equipmentEventCache.getCopy(eqId));
+        dirtyTagContext = true;
+      }
+    }
+    for (Long subEqId : tagCopy.getSubEquipmentIds()) {
+      if (subEquipmentEventCache.hasKey(subEqId)) {
+        supervisionAppender.addSupervisionQuality(tagCopy, subEquipmentEventCache.getCopy(subEqId));
+        dirtyTagContext = true;
+      }
+    }
+
+    if (dirtyTagContext) {
+      if (tagCopy instanceof DataTag) {
+        dataTagCache.notifyListenersOfSupervisionChange((DataTag) tagCopy);
+      } else if (tagCopy instanceof RuleTag) {
+        ruleTagCache.notifyListenersOfSupervisionChange((RuleTag) tagCopy);
+      } else {
+        throw new IllegalArgumentException("Unexpected call with Tag parameter that is neither DataTag or RuleTag; "
+            + "type is " + tagCopy.getClass().getSimpleName());
+      }
+    }
+
+    for (Long ruleId : tagCopy.getRuleIds()) {
+      if (notifiedRules.add(ruleId)) {
         callCacheNotification(ruleId, notifiedRules);
-        notifiedRules.put(ruleId, true);
       }
     }
   }
 
+  @ManagedAttribute(description = "Number of supervision events notified to the Tags")
+  public long getNotifiedEvents() {
+    return notifiedEvents.get();
+  }
+
+  @ManagedAttribute(description = "Number of Tag and Rule notifications for supervision events")
+  public long getNotifiedTags() {
+    return notifiedTags.get();
+  }
+
+  @ManagedAttribute(description = "Time in ms to notify the Tags and Rules of the last supervision event")
+  public long getLastEventDuration() {
+    return lastEventDuration;
+  }
+
+  @ManagedAttribute(description = "Maximum time in ms to notify the Tags and Rules of a supervision event")
+  public long getMaxEventDuration() {
+    return maxEventDuration;
+  }
+
+  @ManagedAttribute(description = "Number of Tags notified for the last supervision event")
+  public int getLastEventTags() {
+    return lastEventTags;
+  }
+
+  @ManagedAttribute(description = "Number of Rules notified for the last supervision event")
+  public int getLastEventRules() {
+    return lastEventRules;
+  }
+
+  @ManagedAttribute(description = "Number of equipments and sub-equipments with indexed Tag dependencies")
+  public int getIndexedEquipments() {
+    return dependencyIndex.size();
+  }
+
+  @ManagedOperation(description = "Resets the maximum notification time")
+  public void resetMaxEventDuration() {
+    maxEventDuration = 0;
+  }
+
+  /**
+   * Stops the notification threads.
+   */
+  @PreDestroy
+  public void shutdown() {
+    if (notificationExecutor != null) {
+      notificationExecutor.shutdown();
+    }
+  }
+
   @Override
   public boolean isAutoStartup() {
     return true;
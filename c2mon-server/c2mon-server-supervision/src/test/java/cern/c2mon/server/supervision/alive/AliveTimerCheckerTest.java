@@ -0,0 +1,160 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.supervision.alive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.AliveTimerCache;
+import cern.c2mon.server.cache.AliveTimerFacade;
+import cern.c2mon.server.cache.alive.AliveTimerExpiryIndex;
+import cern.c2mon.server.common.alive.AliveTimer;
+import cern.c2mon.server.common.alive.AliveTimerCacheObject;
+import cern.c2mon.server.supervision.SupervisionManager;
+
+/**
+ * Unit test of the expiry driven {@link AliveTimerChecker}.
+ */
+public class AliveTimerCheckerTest {
+
+  private static final long NOW = 1000000L;
+
+  private AliveTimerCache aliveTimerCache;
+
+  private AliveTimerFacade aliveTimerFacade;
+
+  private SupervisionManager supervisionManager;
+
+  private AliveTimerExpiryIndex expiryIndex;
+
+  private AliveTimerChecker aliveTimerChecker;
+
+  private AliveTimerCacheObject aliveTimer;
+
+  @Before
+  public void setUp() {
+    aliveTimerCache = EasyMock.createNiceMock(AliveTimerCache.class);
+    aliveTimerFacade = EasyMock.createStrictMock(AliveTimerFacade.class);
+    supervisionManager = EasyMock.createStrictMock(SupervisionManager.class);
+    expiryIndex = new AliveTimerExpiryIndex();
+    aliveTimerChecker = new AliveTimerChecker(aliveTimerCache, aliveTimerFacade, supervisionManager, expiryIndex);
+
+    aliveTimer = new AliveTimerCacheObject(1221L, 100L, "P_TEST", 1220L, AliveTimer.ALIVE_TYPE_PROCESS, 30000);
+    aliveTimer.setActive(true);
+    aliveTimer.setLastUpdate(NOW - 60000L);
+    EasyMock.expect(aliveTimerCache.get(aliveTimer.getId())).andReturn(aliveTimer).anyTimes();
+  }
+
+  @Test
+  public void testExpiredTimerIsStopped() {
+    expiryIndex.update(aliveTimer);
+    long expiryTime = AliveTimerExpiryIndex.getExpiryTime(aliveTimer);
+    assertEquals(NOW - 20000L, expiryTime);
+
+    aliveTimerFacade.stop(aliveTimer.getId());
+    supervisionManager.onAliveTimerExpiration(aliveTimer.getId());
+    EasyMock.replay(aliveTimerCache, aliveTimerFacade, supervisionManager);
+
+    assertEquals(0, aliveTimerChecker.checkExpiries(expiryTime));
+    assertEquals(1, aliveTimerChecker.checkExpiries(NOW));
+
+    EasyMock.verify(aliveTimerCache, aliveTimerFacade, supervisionManager);
+    assertEquals(1, aliveTimerChecker.getExpiredTimers());
+    assertEquals(20000L, aliveTimerChecker.getLastDetectionLag());
+    assertEquals(20000L, aliveTimerChecker.getMaxDetectionLag());
+    assertEquals(0, expiryIndex.size());
+  }
+
+  @Test
+  public void testUpdatedTimerIsRescheduled() {
+    expiryIndex.update(aliveTimer);
+    // updated on another server, without going through the local index
+    aliveTimer.setLastUpdate(NOW - 10000L);
+    EasyMock.replay(aliveTimerCache, aliveTimerFacade, supervisionManager);
+
+    assertEquals(1, aliveTimerChecker.checkExpiries(NOW));
+
+    EasyMock.verify(aliveTimerCache, aliveTimerFacade, supervisionManager);
+    assertEquals(0, aliveTimerChecker.getExpiredTimers());
+    assertEquals(Long.valueOf(NOW + 30001L), expiryIndex.getDeadline(aliveTimer.getId()));
+  }
+
+  @Test
+  public void testStoppedTimerIsIgnored() {
+    expiryIndex.update(aliveTimer);
+    aliveTimer.setActive(false);
+    EasyMock.replay(aliveTimerCache, aliveTimerFacade, supervisionManager);
+
+    assertEquals(1, aliveTimerChecker.checkExpiries(NOW));
+
+    EasyMock.verify(aliveTimerCache, aliveTimerFacade, supervisionManager);
+    assertEquals(0, expiryIndex.size());
+
+    // stopping a timer removes it from the index
+    aliveTimer.setActive(true);
+    expiryIndex.update(aliveTimer);
+    aliveTimer.setActive(false);
+    expiryIndex.update(aliveTimer);
+    assertEquals(0, expiryIndex.size());
+  }
+
+  @Test
+  public void testIndexActiveTimersWithInitialDelay() {
+    AliveTimerCacheObject stoppedTimer = new AliveTimerCacheObject(1231L, 200L, "E_TEST", 1230L, AliveTimer.ALIVE_TYPE_EQUIPMENT, 30000);
+    EasyMock.expect(aliveTimerCache.getKeys()).andReturn(Arrays.asList(aliveTimer.getId(), stoppedTimer.getId()));
+    EasyMock.expect(aliveTimerCache.get(stoppedTimer.getId())).andReturn(stoppedTimer);
+    EasyMock.replay(aliveTimerCache, aliveTimerFacade, supervisionManager);
+
+    assertEquals(1, aliveTimerChecker.indexActiveTimers(NOW + 120000L));
+
+    EasyMock.verify(aliveTimerCache, aliveTimerFacade, supervisionManager);
+    assertEquals(1, expiryIndex.size());
+    assertEquals(Long.valueOf(NOW + 120000L), expiryIndex.getDeadline(aliveTimer.getId()));
+    assertNull(expiryIndex.getDeadline(stoppedTimer.getId()));
+  }
+
+  @Test
+  public void testTimerStartedOnAnotherServerIsIndexed() {
+    // activated directly in the cache, without going through the local index
+    AliveTimerCacheObject scheduledTimer = new AliveTimerCacheObject(1241L, 300L, "E_TEST2", 1240L, AliveTimer.ALIVE_TYPE_EQUIPMENT, 30000);
+    scheduledTimer.setActive(true);
+    scheduledTimer.setLastUpdate(NOW);
+    expiryIndex.update(scheduledTimer);
+    EasyMock.expect(aliveTimerCache.getKeys()).andReturn(Arrays.asList(aliveTimer.getId(), scheduledTimer.getId()));
+    EasyMock.expect(aliveTimerCache.get(scheduledTimer.getId())).andReturn(scheduledTimer).anyTimes();
+    aliveTimerFacade.stop(aliveTimer.getId());
+    supervisionManager.onAliveTimerExpiration(aliveTimer.getId());
+    EasyMock.replay(aliveTimerCache, aliveTimerFacade, supervisionManager);
+
+    assertEquals(0, aliveTimerChecker.indexActiveTimers(NOW));
+    assertEquals(Long.valueOf(NOW - 19999L), expiryIndex.getDeadline(aliveTimer.getId()));
+    // timers already in the index keep their expiry
+    assertEquals(Long.valueOf(NOW + 40001L), expiryIndex.getDeadline(scheduledTimer.getId()));
+
+    assertEquals(1, aliveTimerChecker.checkExpiries(NOW));
+
+    EasyMock.verify(aliveTimerCache, aliveTimerFacade, supervisionManager);
+    assertEquals(1, aliveTimerChecker.getExpiredTimers());
+    assertEquals(1, expiryIndex.size());
+  }
+}
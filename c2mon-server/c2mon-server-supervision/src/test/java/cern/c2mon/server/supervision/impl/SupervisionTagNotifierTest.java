@@ -19,12 +19,16 @@ package cern.c2mon.server.supervision.impl;
 import java.sql.Timestamp;
 import java.util.*;
 
+import static org.junit.Assert.*;
+
 import cern.c2mon.server.cache.config.CacheModule;
+import cern.c2mon.server.cache.config.CacheProperties;
 import cern.c2mon.server.cache.dbaccess.config.CacheDbAccessModule;
 import cern.c2mon.server.common.config.CommonModule;
 import cern.c2mon.server.supervision.config.SupervisionModule;
 import org.easymock.EasyMock;
 import org.easymock.IMocksControl;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -42,9 +46,12 @@ import cern.c2mon.server.common.equipment.EquipmentCacheObject;
 import cern.c2mon.server.common.process.ProcessCacheObject;
 import cern.c2mon.server.common.rule.RuleTagCacheObject;
 import cern.c2mon.server.common.subequipment.SubEquipmentCacheObject;
+import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.server.supervision.SupervisionNotifier;
+import cern.c2mon.server.supervision.config.SupervisionProperties;
 import cern.c2mon.shared.client.supervision.SupervisionEvent;
 import cern.c2mon.shared.client.supervision.SupervisionEventImpl;
+import cern.c2mon.shared.client.configuration.ConfigConstants.Action;
 import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionEntity;
 import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionStatus;
 
@@ -68,6 +75,8 @@ public class SupervisionTagNotifierTest {
    */
   private SupervisionTagNotifier supervisionTagNotifier;
 
+  private SupervisionDependencyIndex dependencyIndex;
+
   /**
    * Mocks
    */
@@ -128,20 +137,10 @@ public class SupervisionTagNotifierTest {
     supervisionAppender = mockControl.createMock(SupervisionAppender.class);
     processFacade = mockControl.createMock(ProcessFacade.class);
 
-    EasyMock.expect(cacheProvider.getProcessCache()).andReturn(processCache);
-    EasyMock.expect(cacheProvider.getEquipmentCache()).andReturn(equipmentCache);
-    EasyMock.expect(cacheProvider.getSubEquipmentCache()).andReturn(subEquipmentCache);
-    EasyMock.expect(cacheProvider.getDataTagCache()).andReturn(dataTagCache);
-    EasyMock.expect(cacheProvider.getRuleTagCache()).andReturn(ruleTagCache);
-    EasyMock.expect(cacheProvider.getClusterCache()).andReturn(clusterCache);
+    dependencyIndex = new SupervisionDependencyIndex(equipmentFacade, subEquipmentFacade, tagLocationService,
+        new CacheProperties(), new SupervisionProperties());
+    supervisionTagNotifier = createSupervisionTagNotifier(new SupervisionProperties());
 
-    EasyMock.replay(cacheProvider);
-
-    supervisionTagNotifier = new SupervisionTagNotifier(supervisionNotifier, cacheProvider,
-                                                   tagLocationService, supervisionAppender, processFacade,
-                                                   equipmentFacade, subEquipmentFacade, processEventCache, equipmentEventCache, subEquipmentEventCache);
-
-    EasyMock.reset(cacheProvider);
     process = new ProcessCacheObject(10L);
     process.setEquipmentIds(new ArrayList<Long>(Arrays.asList(30L)));
     equipment = new EquipmentCacheObject(30L);
@@ -193,6 +192,43 @@ public class SupervisionTagNotifierTest {
     ruleTag5.setProcessIds(procIds);
   }
 
+  @After
+  public void tearDown() {
+    supervisionTagNotifier.shutdown();
+  }
+
+  private SupervisionTagNotifier createSupervisionTagNotifier(SupervisionProperties properties) {
+    EasyMock.expect(cacheProvider.getProcessCache()).andReturn(processCache);
+    EasyMock.expect(cacheProvider.getEquipmentCache()).andReturn(equipmentCache);
+    EasyMock.expect(cacheProvider.getSubEquipmentCache()).andReturn(subEquipmentCache);
+    EasyMock.expect(cacheProvider.getDataTagCache()).andReturn(dataTagCache);
+    EasyMock.expect(cacheProvider.getRuleTagCache()).andReturn(ruleTagCache);
+    EasyMock.expect(cacheProvider.getClusterCache()).andReturn(clusterCache);
+
+    EasyMock.replay(cacheProvider);
+
+    SupervisionTagNotifier notifier = new SupervisionTagNotifier(supervisionNotifier, cacheProvider,
+                                                   tagLocationService, supervisionAppender, processFacade,
+                                                   equipmentFacade, subEquipmentFacade, processEventCache, equipmentEventCache, subEquipmentEventCache,
+                                                   dependencyIndex, properties);
+
+    EasyMock.reset(cacheProvider);
+    return notifier;
+  }
+
+  /**
+   * Expects the dependency index to read the rule ids of the given tags from the cache.
+   */
+  private void expectIndexing(Tag... tags) {
+    tagLocationService.acquireReadLockOnKey(EasyMock.anyLong());
+    EasyMock.expectLastCall().anyTimes();
+    tagLocationService.releaseReadLockOnKey(EasyMock.anyLong());
+    EasyMock.expectLastCall().anyTimes();
+    for (Tag tag : tags) {
+      EasyMock.expect(tagLocationService.get(tag.getId())).andReturn(tag);
+    }
+  }
+
   /**
    * Test init call.
    */
@@ -217,9 +253,10 @@ public class SupervisionTagNotifierTest {
     EasyMock.expect(processCache.getCopy(10L)).andReturn(process);
     //EasyMock.expect(equipmentFacade.getProcessForAbstractEquipment(30L)).andReturn(process);
     EasyMock.expect(equipmentFacade.getDataTagIds(30L)).andReturn(Arrays.asList(100L, 101L));
+    expectIndexing(dataTag, dataTag2, ruleTag, ruleTag2, ruleTag3);
     EasyMock.expect(tagLocationService.getCopy(100L)).andReturn(dataTag);
     EasyMock.expect(tagLocationService.getCopy(101L)).andReturn(dataTag2);
-    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag).times(2);
+    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag); //only once although used by 2 different tags
     EasyMock.expect(tagLocationService.getCopy(201L)).andReturn(ruleTag2);
     EasyMock.expect(tagLocationService.getCopy(202L)).andReturn(ruleTag3);
     supervisionAppender.addSupervisionQuality(dataTag, event);
@@ -250,9 +287,10 @@ public class SupervisionTagNotifierTest {
     mockControl.reset();
     //EasyMock.expect(equipmentFacade.getProcessForAbstractEquipment(30L)).andReturn(process);
     EasyMock.expect(equipmentFacade.getDataTagIds(30L)).andReturn(Arrays.asList(100L, 101L));
+    expectIndexing(dataTag, dataTag2, ruleTag, ruleTag2, ruleTag3);
     EasyMock.expect(tagLocationService.getCopy(100L)).andReturn(dataTag);
     EasyMock.expect(tagLocationService.getCopy(101L)).andReturn(dataTag2);
-    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag).times(2);
+    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag); //only once although used by 2 different tags
     EasyMock.expect(tagLocationService.getCopy(201L)).andReturn(ruleTag2);
     EasyMock.expect(tagLocationService.getCopy(202L)).andReturn(ruleTag3);
     supervisionAppender.addSupervisionQuality(dataTag,event);
@@ -280,10 +318,11 @@ public class SupervisionTagNotifierTest {
         "test message");
     mockControl.reset();
     EasyMock.expect(subEquipmentFacade.getDataTagIds(50L)).andReturn(Arrays.asList(102L, 103L));
+    expectIndexing(dataTag3, dataTag4, ruleTag4, ruleTag5);
     EasyMock.expect(tagLocationService.getCopy(102L)).andReturn(dataTag3);
     EasyMock.expect(tagLocationService.getCopy(103L)).andReturn(dataTag4);
-    EasyMock.expect(tagLocationService.getCopy(203L)).andReturn(ruleTag4).times(2);
-    EasyMock.expect(tagLocationService.getCopy(204L)).andReturn(ruleTag5).times(2);
+    EasyMock.expect(tagLocationService.getCopy(203L)).andReturn(ruleTag4);
+    EasyMock.expect(tagLocationService.getCopy(204L)).andReturn(ruleTag5);
     supervisionAppender.addSupervisionQuality(dataTag3, event);
     dataTagCache.notifyListenersOfSupervisionChange(dataTag3);
     supervisionAppender.addSupervisionQuality(dataTag4, event);
@@ -299,4 +338,99 @@ public class SupervisionTagNotifierTest {
 
     mockControl.verify();
   }
+
+  /**
+   * Tests the notification of an equipment event in parallel partitions:
+   * every tag and every rule must be notified exactly once.
+   */
+  @Test
+  @DirtiesContext
+  public void testNotifyEquipmentEventInPartitions() {
+    supervisionTagNotifier.shutdown();
+    SupervisionProperties properties = new SupervisionProperties();
+    properties.getNotification().setThreads(4);
+    properties.getNotification().setPartitionSize(1);
+    supervisionTagNotifier = createSupervisionTagNotifier(properties);
+
+    SupervisionEvent event = new SupervisionEventImpl(SupervisionEntity.EQUIPMENT, 30L, "E_TEST", SupervisionStatus.DOWN, new Timestamp(System.currentTimeMillis()), "test message");
+    mockControl.reset();
+    EasyMock.expect(equipmentFacade.getDataTagIds(30L)).andReturn(Arrays.asList(100L, 101L));
+    expectIndexing(dataTag, dataTag2, ruleTag, ruleTag2, ruleTag3);
+    EasyMock.expect(tagLocationService.getCopy(100L)).andReturn(dataTag);
+    EasyMock.expect(tagLocationService.getCopy(101L)).andReturn(dataTag2);
+    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag);
+    EasyMock.expect(tagLocationService.getCopy(201L)).andReturn(ruleTag2);
+    EasyMock.expect(tagLocationService.getCopy(202L)).andReturn(ruleTag3);
+    supervisionAppender.addSupervisionQuality(dataTag, event);
+    dataTagCache.notifyListenersOfSupervisionChange(dataTag);
+    supervisionAppender.addSupervisionQuality(dataTag2, event);
+    dataTagCache.notifyListenersOfSupervisionChange(dataTag2);
+    supervisionAppender.addSupervisionQuality(ruleTag, event);
+    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag);
+    supervisionAppender.addSupervisionQuality(ruleTag2, event);
+    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag2);
+    supervisionAppender.addSupervisionQuality(ruleTag3, event);
+    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag3);
+
+    mockControl.replay();
+
+    supervisionTagNotifier.notifySupervisionEvent(event);
+
+    mockControl.verify();
+    assertEquals(2, supervisionTagNotifier.getLastEventTags());
+    assertEquals(3, supervisionTagNotifier.getLastEventRules());
+    assertEquals(1, supervisionTagNotifier.getNotifiedEvents());
+  }
+
+  /**
+   * The dependencies of an equipment are only indexed once, until a tag is reconfigured.
+   */
+  @Test
+  @DirtiesContext
+  public void testDependencyIndexInvalidation() {
+    mockControl.reset();
+    EasyMock.expect(equipmentFacade.getDataTagIds(30L)).andReturn(Arrays.asList(100L, 101L)).times(2);
+    expectIndexing(dataTag, dataTag2, ruleTag, ruleTag2, ruleTag3);
+    expectIndexing(dataTag, dataTag2, ruleTag, ruleTag2, ruleTag3);
+
+    mockControl.replay();
+
+    SupervisionDependencyIndex.Dependencies dependencies = dependencyIndex.getEquipmentDependencies(30L);
+    assertArrayEquals(new long[] {100L, 101L}, dependencies.getTagIds());
+    assertArrayEquals(new long[] {200L, 201L, 202L}, dependencies.getRuleIds());
+    assertSame(dependencies, dependencyIndex.getEquipmentDependencies(30L));
+
+    dependencyIndex.onConfigurationEvent(dataTag, Action.UPDATE);
+    assertEquals(0, dependencyIndex.size());
+    assertNotSame(dependencies, dependencyIndex.getEquipmentDependencies(30L));
+
+    mockControl.verify();
+  }
+
+  /**
+   * In "multi" mode the configuration changes of the other servers are not
+   * seen, so the dependencies are computed again for every request.
+   */
+  @Test
+  @DirtiesContext
+  public void testDependencyIndexDisabledInMultiMode() {
+    CacheProperties cacheProperties = new CacheProperties();
+    cacheProperties.setMode("multi");
+    dependencyIndex = new SupervisionDependencyIndex(equipmentFacade, subEquipmentFacade, tagLocationService,
+        cacheProperties, new SupervisionProperties());
+
+    mockControl.reset();
+    EasyMock.expect(equipmentFacade.getDataTagIds(30L)).andReturn(Arrays.asList(100L, 101L)).times(2);
+    expectIndexing(dataTag, dataTag2, ruleTag, ruleTag2, ruleTag3);
+    expectIndexing(dataTag, dataTag2, ruleTag, ruleTag2, ruleTag3);
+
+    mockControl.replay();
+
+    SupervisionDependencyIndex.Dependencies dependencies = dependencyIndex.getEquipmentDependencies(30L);
+    assertArrayEquals(new long[] {200L, 201L, 202L}, dependencies.getRuleIds());
+    assertEquals(0, dependencyIndex.size());
+    assertNotSame(dependencies, dependencyIndex.getEquipmentDependencies(30L));
+
+    mockControl.verify();
+  }
 }
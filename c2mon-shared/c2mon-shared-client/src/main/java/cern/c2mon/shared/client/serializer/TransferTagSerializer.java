@@ -72,6 +72,24 @@ public class TransferTagSerializer {
     return result;
   }
 
+  /**
+   * Converts a collection of TagValues into a json array. Jackson is used to do this.
+   * @param tagUpdates The tags which need to be serialized into a json string.
+   * @param <T>
+   * @return The json String
+   */
+  public static <T extends TagValueUpdate> String toCollectionJson(Collection<T> tagUpdates){
+    String result = null;
+
+    try {
+      result = mapper.writeValueAsString(tagUpdates);
+    } catch (JsonProcessingException e) {
+      log.error("Serializing of tagUpdates failed: " + e.getMessage());
+    }
+
+    return result;
+  }
+
   /**
    *
    * @param tagUpdateJson Converts the json String into a TagValueUpdate instance. By doing this the embedded Tag value will be casted into the given
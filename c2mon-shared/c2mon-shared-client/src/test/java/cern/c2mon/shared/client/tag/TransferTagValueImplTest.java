@@ -17,6 +17,11 @@
 package cern.c2mon.shared.client.tag;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.core.type.TypeReference;
 
 import org.junit.Test;
 
@@ -312,4 +317,20 @@ public class TransferTagValueImplTest {
     assertEquals(Long.valueOf("1843809447020"), receivedTag.getValue());
   }
 
+  @Test
+  public void testCollectionJsonMsg() {
+    TransferTagValueImpl floatTag = createTagForValue(Float.valueOf(3.5f));
+    TransferTagValueImpl stringTag = createTagForValue("test");
+    stringTag.setValueClassName(String.class.getName());
+
+    String jacksonString = TransferTagSerializer.toCollectionJson(Arrays.asList(floatTag, stringTag));
+    assertTrue(jacksonString.startsWith("["));
+
+    Collection<TransferTagValueImpl> receivedTags =
+        TransferTagSerializer.fromCollectionJson(jacksonString, new TypeReference<Collection<TransferTagValueImpl>>() { });
+    assertEquals(2, receivedTags.size());
+    Iterator<TransferTagValueImpl> iterator = receivedTags.iterator();
+    assertEquals(Float.valueOf(3.5f), iterator.next().getValue());
+    assertEquals("test", iterator.next().getValue());
+  }
 }
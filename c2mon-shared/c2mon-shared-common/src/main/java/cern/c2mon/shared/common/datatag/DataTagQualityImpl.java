@@ -16,13 +16,21 @@
  *****************************************************************************/
 package cern.c2mon.shared.common.datatag;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.fasterxml.jackson.annotation.JsonSetter;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.ElementMap;
+import org.simpleframework.xml.core.Commit;
+import org.simpleframework.xml.core.Complete;
 import org.simpleframework.xml.core.Persist;
 
 import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
@@ -32,22 +40,58 @@ import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
  * DataTagQuality object provides is whether a tag's value is valid (<code>isValid()</code>) or not. In addition to
  * that, more fine grain information about the reason for invalidity (e.g. an acquisition error, a range-check failure
  * etc.) is available.
- * 
+ *
+ * <p>The set invalidation states are kept in a bitmask of {@link TagQualityStatus} ordinals. Descriptions are only
+ * stored for states with a non-empty description, in an array which is replaced on every change (so that clones can
+ * share it), and are interned. A valid quality therefore holds no other object. The JSON and XML representations
+ * still contain the <code>invalidQualityStates</code> map.
+ *
+ * <p>All modifications are synchronized on the quality object, as they update the bitmask and the description array
+ * together. Read accesses are not locked.
+ *
  * @author Matthias Braeger
  */
 
 public final class DataTagQualityImpl implements DataTagQuality {
 
-    private static final long serialVersionUID = 7317518750573239551L;
+    private static final long serialVersionUID = -3383427441297562164L;
+
+    /** The serialized form is written by {@link #writeObject(ObjectOutputStream)} */
+    private static final ObjectStreamField[] serialPersistentFields = new ObjectStreamField[0];
 
     /** Standard description for a valid tag */
     private static final transient String VALID_DESCR = "OK";
 
+    /** All quality states, by ordinal */
+    private static final TagQualityStatus[] STATES = TagQualityStatus.values();
+
+    /** Bitmask of the states affecting the accessibility of the tag */
+    private static final int INACCESSIBLE_MASK = mask(TagQualityStatus.PROCESS_DOWN) | mask(TagQualityStatus.EQUIPMENT_DOWN)
+        | mask(TagQualityStatus.SUBEQUIPMENT_DOWN) | mask(TagQualityStatus.INACCESSIBLE)
+        | mask(TagQualityStatus.SERVER_HEARTBEAT_EXPIRED) | mask(TagQualityStatus.JMS_CONNECTION_DOWN);
+
+    /** Above this number of distinct descriptions, new descriptions are no longer interned */
+    private static final int MAX_INTERNED_DESCRIPTIONS = 10000;
+
+    /** Shared instances of the quality descriptions */
+    private static final ConcurrentHashMap<String, String> INTERNED_DESCRIPTIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Bitmask of the set invalidation states, by {@link TagQualityStatus} ordinal.
+     */
+    private volatile int invalidStates;
+
+    /**
+     * Non-empty descriptions of the set invalidation states, by {@link TagQualityStatus} ordinal; null if there are
+     * none. Never modified once assigned.
+     */
+    private volatile String[] descriptions;
+
     /**
-     * Contains the list of set invalidation states and the optional textual description.
+     * Only used for XML serialization. Contains the set invalidation states and their textual description.
      */
-    @ElementMap(required = false)
-    private ConcurrentHashMap<TagQualityStatus, String> invalidQualityStates = new ConcurrentHashMap<>();
+    @ElementMap(name = "invalidQualityStates", required = false)
+    private Map<TagQualityStatus, String> xmlQualityStates;
 
     /**
      * Only used for XML serialization. The result of the isValid method is stored here.
@@ -55,6 +99,12 @@ public final class DataTagQualityImpl implements DataTagQuality {
     @Element(required = false)
     private boolean isValid;
 
+    static {
+        if (STATES.length > Integer.SIZE) {
+            throw new ExceptionInInitializerError("Too many TagQualityStatus values for the quality bitmask");
+        }
+    }
+
     /**
      * Default constructor Creates a DataQuality object representing an UNINITIALISED tag
      */
@@ -92,9 +142,13 @@ public final class DataTagQualityImpl implements DataTagQuality {
      */
     public DataTagQualityImpl(final DataTagQuality oldQualityTag) throws NullPointerException {
         if (oldQualityTag != null) {
-            if (oldQualityTag.isValid()) {
-                validate();
-            } else {
+            if (oldQualityTag instanceof DataTagQualityImpl) {
+                DataTagQualityImpl old = (DataTagQualityImpl) oldQualityTag;
+                synchronized (old) {
+                    descriptions = old.descriptions;
+                    invalidStates = old.invalidStates;
+                }
+            } else if (!oldQualityTag.isValid()) {
                 Map<TagQualityStatus, String> oldQualityStates = oldQualityTag.getInvalidQualityStates();
                 for (Entry<TagQualityStatus, String> entry : oldQualityStates.entrySet()) {
                     addInvalidStatus(entry.getKey(), entry.getValue());
@@ -105,6 +159,70 @@ public final class DataTagQualityImpl implements DataTagQuality {
         }
     }
 
+    private static int mask(final TagQualityStatus status) {
+        return 1 << status.ordinal();
+    }
+
+    /**
+     * @return the shared instance of the description, or null for an empty description
+     */
+    private static String intern(final String description) {
+        if (description == null || description.isEmpty()) {
+            return null;
+        }
+        String interned = INTERNED_DESCRIPTIONS.get(description);
+        if (interned == null) {
+            if (INTERNED_DESCRIPTIONS.size() >= MAX_INTERNED_DESCRIPTIONS) {
+                return description;
+            }
+            interned = INTERNED_DESCRIPTIONS.putIfAbsent(description, description);
+            if (interned == null) {
+                interned = description;
+            }
+        }
+        return interned;
+    }
+
+    /**
+     * @return the description of a set status, never null
+     */
+    private String descriptionOf(final TagQualityStatus status) {
+        String[] currentDescriptions = descriptions;
+        if (currentDescriptions == null || currentDescriptions[status.ordinal()] == null) {
+            return "";
+        }
+        return currentDescriptions[status.ordinal()];
+    }
+
+    /**
+     * Replaces the description of a status, copying the description array. Must be called while holding the lock on
+     * this object.
+     * @param description the interned description, or null
+     */
+    private void setDescription(final TagQualityStatus status, final String description) {
+        String[] currentDescriptions = descriptions;
+        if (currentDescriptions == null) {
+            if (description != null) {
+                String[] newDescriptions = new String[STATES.length];
+                newDescriptions[status.ordinal()] = description;
+                descriptions = newDescriptions;
+            }
+        } else if (currentDescriptions[status.ordinal()] != description) {
+            String[] newDescriptions = currentDescriptions.clone();
+            newDescriptions[status.ordinal()] = description;
+            descriptions = isEmpty(newDescriptions) ? null : newDescriptions;
+        }
+    }
+
+    private static boolean isEmpty(final String[] array) {
+        for (String element : array) {
+            if (element != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Only used for serialization. The persist method is invoked before the serialization of the object. This allows
      * the object to prepare in some implementation specific way for the serialization process.
@@ -112,13 +230,65 @@ public final class DataTagQualityImpl implements DataTagQuality {
     @Persist
     private void prepare() {
         isValid = isValid();
+        xmlQualityStates = getInvalidQualityStates();
+    }
+
+    /**
+     * Only used for XML serialization, invoked after the serialization of the object.
+     */
+    @Complete
+    private void complete() {
+        xmlQualityStates = null;
+    }
+
+    /**
+     * Only used for XML deserialization, applies the deserialized invalidation states.
+     */
+    @Commit
+    private void commit() {
+        if (xmlQualityStates != null) {
+            setInvalidStates(xmlQualityStates);
+            xmlQualityStates = null;
+        }
+    }
+
+    /**
+     * Only used for JSON deserialization.
+     */
+    @JsonSetter("invalidQualityStates")
+    private void setInvalidQualityStates(final Map<TagQualityStatus, String> qualityStates) {
+        setInvalidStates(qualityStates);
+    }
+
+    /**
+     * Writes the number of set states, followed by each state and its description (or null).
+     */
+    private synchronized void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int currentStates = invalidStates;
+        String[] currentDescriptions = descriptions;
+        out.writeByte(Integer.bitCount(currentStates));
+        for (TagQualityStatus status : STATES) {
+            if ((currentStates & mask(status)) != 0) {
+                out.writeObject(status);
+                out.writeObject(currentDescriptions == null ? null : currentDescriptions[status.ordinal()]);
+            }
+        }
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int nbStates = in.readByte();
+        for (int i = 0; i < nbStates; i++) {
+            TagQualityStatus status = (TagQualityStatus) in.readObject();
+            addInvalidStatus(status, (String) in.readObject());
+        }
     }
 
     @Override
-    public DataTagQuality clone() throws CloneNotSupportedException {
-        DataTagQualityImpl clone = (DataTagQualityImpl) super.clone();
-        clone.invalidQualityStates = new ConcurrentHashMap<>(invalidQualityStates);
-        return clone;
+    public synchronized DataTagQuality clone() throws CloneNotSupportedException {
+        // the description array is never modified, so it can be shared
+        return (DataTagQualityImpl) super.clone();
     }
 
     /**
@@ -126,12 +296,12 @@ public final class DataTagQualityImpl implements DataTagQuality {
      */
     @Override
     public boolean isValid() {
-        return invalidQualityStates.isEmpty();
+        return invalidStates == 0;
     }
 
     @Override
     public boolean isInvalidStatusSet(final TagQualityStatus status) {
-        return invalidQualityStates.containsKey(status);
+        return status != null && (invalidStates & mask(status)) != 0;
     }
 
     @Override
@@ -143,13 +313,13 @@ public final class DataTagQualityImpl implements DataTagQuality {
             nonNullQualityDescription = qualityDescription;
         }
         
-        return invalidQualityStates.containsKey(status)
-                    && nonNullQualityDescription.equalsIgnoreCase(invalidQualityStates.get(status));
+        return isInvalidStatusSet(status)
+                    && nonNullQualityDescription.equalsIgnoreCase(descriptionOf(status));
     }
 
     @Override
     public boolean isExistingTag() {
-      return !invalidQualityStates.containsKey(TagQualityStatus.UNDEFINED_TAG);
+      return !isInvalidStatusSet(TagQualityStatus.UNDEFINED_TAG);
     }
 
     /**
@@ -157,37 +327,30 @@ public final class DataTagQualityImpl implements DataTagQuality {
      */
     @Override
     public boolean isInitialised() {
-      return !invalidQualityStates.containsKey(TagQualityStatus.UNINITIALISED);
+      return !isInvalidStatusSet(TagQualityStatus.UNINITIALISED);
     }
 
     @Override
     public boolean isAccessible() {
-      boolean accessible = true;
-      if (invalidQualityStates.containsKey(TagQualityStatus.PROCESS_DOWN)
-          || invalidQualityStates.containsKey(TagQualityStatus.EQUIPMENT_DOWN)
-          || invalidQualityStates.containsKey(TagQualityStatus.SUBEQUIPMENT_DOWN)
-          || invalidQualityStates.containsKey(TagQualityStatus.INACCESSIBLE)
-          || invalidQualityStates.containsKey(TagQualityStatus.SERVER_HEARTBEAT_EXPIRED)
-          || invalidQualityStates.containsKey(TagQualityStatus.JMS_CONNECTION_DOWN)) {
-        accessible = false;
-      }
-
-      return accessible;
+      return (invalidStates & INACCESSIBLE_MASK) == 0;
     }
 
     /**
      * Resets all the error conditions.
      */
     @Override
-    public void validate() {
-      invalidQualityStates.clear();
+    public synchronized void validate() {
+      invalidStates = 0;
+      descriptions = null;
     }
 
     @Override
-    public void setInvalidStates(final Map<TagQualityStatus, String> qualityStates) {
-      invalidQualityStates.clear();
+    public synchronized void setInvalidStates(final Map<TagQualityStatus, String> qualityStates) {
+      validate();
       if (qualityStates != null) {
-        invalidQualityStates.putAll(qualityStates);
+        for (Entry<TagQualityStatus, String> entry : qualityStates.entrySet()) {
+          addInvalidStatus(entry.getKey(), entry.getValue());
+        }
       }
     }
 
@@ -197,7 +360,7 @@ public final class DataTagQualityImpl implements DataTagQuality {
     }
 
     @Override
-    public boolean setInvalidStatus(final TagQualityStatus status, final String description) {
+    public synchronized boolean setInvalidStatus(final TagQualityStatus status, final String description) {
         if (status != null) {
             validate();
             return addInvalidStatus(status, description);
@@ -209,18 +372,21 @@ public final class DataTagQualityImpl implements DataTagQuality {
     @Override
     public String getDescription() {
       String description = "";
-      if (invalidQualityStates.isEmpty()) {
+      int currentStates = invalidStates;
+      if (currentStates == 0) {
         description = VALID_DESCR;
       } else {
         int severity = 999; // initialized with lowest severity
 
-        for (TagQualityStatus status : invalidQualityStates.keySet()) {
-
+        for (TagQualityStatus status : STATES) {
+          if ((currentStates & mask(status)) == 0) {
+            continue;
+          }
           if (status.getSeverity() < severity) {
-            description = invalidQualityStates.get(status).trim();
+            description = descriptionOf(status).trim();
             severity = status.getSeverity();
           } else if (status.getSeverity() == severity) {
-            description += "; " + invalidQualityStates.get(status).trim();
+            description += "; " + descriptionOf(status).trim();
           }
         }
       }
@@ -234,13 +400,10 @@ public final class DataTagQualityImpl implements DataTagQuality {
     }
 
     @Override
-    public boolean addInvalidStatus(final TagQualityStatus statusToAdd, final String description) {
+    public synchronized boolean addInvalidStatus(final TagQualityStatus statusToAdd, final String description) {
       if (statusToAdd != null) {
-        if (description != null) {
-          invalidQualityStates.put(statusToAdd, description);
-        } else {
-          invalidQualityStates.put(statusToAdd, "");
-        }
+        setDescription(statusToAdd, intern(description));
+        invalidStates |= mask(statusToAdd);
         return true;
       }
 
@@ -249,13 +412,21 @@ public final class DataTagQualityImpl implements DataTagQuality {
 
     @Override
     public Map<TagQualityStatus, String> getInvalidQualityStates() {
-        return new HashMap<TagQualityStatus, String>(invalidQualityStates);
+        int currentStates = invalidStates;
+        Map<TagQualityStatus, String> qualityStates = new HashMap<>();
+        for (TagQualityStatus status : STATES) {
+          if ((currentStates & mask(status)) != 0) {
+            qualityStates.put(status, descriptionOf(status));
+          }
+        }
+        return qualityStates;
     }
 
     @Override
-    public void removeInvalidStatus(final TagQualityStatus statusToRemove) {
+    public synchronized void removeInvalidStatus(final TagQualityStatus statusToRemove) {
       if (statusToRemove != null) {
-        invalidQualityStates.remove(statusToRemove);
+        invalidStates &= ~mask(statusToRemove);
+        setDescription(statusToRemove, null);
       }
     }
 
@@ -270,12 +441,16 @@ public final class DataTagQualityImpl implements DataTagQuality {
     public String toString() {
         StringBuilder qualityStatusStr = new StringBuilder();
         final String separator = "+";
+        int currentStates = invalidStates;
 
-        if (invalidQualityStates.isEmpty()) {
+        if (currentStates == 0) {
           qualityStatusStr.append(VALID_DESCR);
         } else {
           boolean firstInsert = true;
-          for (TagQualityStatus status : invalidQualityStates.keySet()) {
+          for (TagQualityStatus status : STATES) {
+            if ((currentStates & mask(status)) == 0) {
+              continue;
+            }
             if (!firstInsert) {
               qualityStatusStr.append(separator);
             }
@@ -296,7 +471,8 @@ public final class DataTagQualityImpl implements DataTagQuality {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((invalidQualityStates == null) ? 0 : invalidQualityStates.hashCode());
+        result = prime * result + invalidStates;
+        result = prime * result + Arrays.hashCode(descriptions);
         return result;
     }
 
@@ -317,13 +493,7 @@ public final class DataTagQualityImpl implements DataTagQuality {
             return false;
         }
         DataTagQualityImpl otherTagQuality = (DataTagQualityImpl) obj;
-        if (invalidQualityStates == null) {
-            if (otherTagQuality.invalidQualityStates != null) {
-                return false;
-            }
-        } else if (!invalidQualityStates.equals(otherTagQuality.invalidQualityStates)) {
-            return false;
-        }
-        return true;
+        return invalidStates == otherTagQuality.invalidStates
+            && Arrays.equals(descriptions, otherTagQuality.descriptions);
     }
 }
@@ -0,0 +1,259 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.common.type;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches for the {@link TypeConverter}: the classes resolved from data type
+ * names, and the converter of every pair of source and target class.
+ *
+ * <p>The conversions between the boxed numeric types, <code>Boolean</code> and
+ * <code>String</code> and to the primitive numeric types have specialised
+ * converters, with the same results and error messages as the generic
+ * conversion of {@link TypeConverter}. All other pairs use the generic
+ * conversion.
+ */
+final class ConverterRegistry {
+
+  private static final String JAVA_LANG_PREFIX = "java.lang.";
+
+  /** Unknown type names are only remembered up to this number of entries */
+  private static final int MAX_UNKNOWN_TYPES = 1000;
+
+  /**
+   * Converts a value into the target type of the converter.
+   */
+  interface Converter {
+
+    /**
+     * @param value the value to convert, not null
+     * @return the converted value
+     * @throws ClassCastException if the value cannot be converted
+     */
+    Object convert(Object value);
+  }
+
+  /** Classes by data type name, empty for unknown names */
+  private static final Map<String, Optional<Class<?>>> TYPES = new ConcurrentHashMap<>();
+
+  private static int unknownTypes = 0;
+
+  /** Converters by source class, per target class */
+  private static final ClassValue<Map<Class<?>, Converter>> CONVERTERS = new ClassValue<Map<Class<?>, Converter>>() {
+    @Override
+    protected Map<Class<?>, Converter> computeValue(final Class<?> targetType) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
+  /**
+   * Hidden default constructor
+   */
+  private ConverterRegistry() {
+    // Do nothing
+  }
+
+  /**
+   * @param typeName a simple class name within the java.lang.* package or the
+   *                 fully qualified class name, not null
+   * @return the class for the given name if known, {@literal null} otherwise
+   */
+  static Class<?> getType(final String typeName) {
+    Optional<Class<?>> type = TYPES.get(typeName);
+    if (type == null) {
+      type = loadType(typeName);
+      if (type.isPresent()) {
+        TYPES.put(typeName, type);
+      } else {
+        synchronized (TYPES) {
+          if (unknownTypes < MAX_UNKNOWN_TYPES) {
+            unknownTypes++;
+            TYPES.put(typeName, type);
+          }
+        }
+      }
+    }
+    return type.orElse(null);
+  }
+
+  private static Optional<Class<?>> loadType(final String typeName) {
+    String fullPath = typeName.contains(".") ? typeName : JAVA_LANG_PREFIX + typeName;
+    try {
+      return Optional.of(Class.forName(fullPath));
+    } catch (ClassNotFoundException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @param sourceType the class of the values to convert
+   * @param targetType the class to convert to
+   * @return the converter of the given classes
+   */
+  static Converter getConverter(final Class<?> sourceType, final Class<?> targetType) {
+    Map<Class<?>, Converter> converters = CONVERTERS.get(targetType);
+    Converter converter = converters.get(sourceType);
+    if (converter == null) {
+      converter = converters.computeIfAbsent(sourceType, s -> createConverter(s, targetType));
+    }
+    return converter;
+  }
+
+  private static Converter createConverter(final Class<?> sourceType, final Class<?> targetType) {
+    if (targetType.isAssignableFrom(sourceType)) {
+      return value -> value;
+    }
+    if (targetType == String.class) {
+      return Object::toString;
+    }
+
+    Converter converter = null;
+    if (Number.class.isAssignableFrom(sourceType)) {
+      converter = fromNumber(targetType);
+    } else if (sourceType == String.class) {
+      converter = fromString(targetType);
+    } else if (sourceType == Boolean.class) {
+      converter = fromBoolean(targetType);
+    }
+    if (converter != null) {
+      return converter;
+    }
+    return value -> TypeConverter.convert(value, targetType);
+  }
+
+  private static Converter fromNumber(final Class<?> targetType) {
+    if (targetType == Integer.class || targetType == Short.class || targetType == Byte.class
+        || targetType == Long.class || targetType == Float.class || targetType == Double.class
+        || targetType == Boolean.class) {
+      return value -> fromDouble(((Number) value).doubleValue(), value, targetType);
+    }
+    if (targetType == double.class) {
+      return value -> ((Number) value).doubleValue();
+    } else if (targetType == float.class) {
+      return value -> ((Number) value).floatValue();
+    } else if (targetType == int.class) {
+      return value -> ((Number) value).intValue();
+    } else if (targetType == long.class) {
+      return value -> ((Number) value).longValue();
+    } else if (targetType == short.class) {
+      return value -> ((Number) value).shortValue();
+    } else if (targetType == byte.class) {
+      return value -> ((Number) value).byteValue();
+    }
+    return null;
+  }
+
+  /**
+   * Strings representing a number are converted like numbers. Otherwise
+   * "true" and "false" are converted to 1 and 0 (ignoring case, and for the
+   * numeric types also surrounding white spaces).
+   */
+  private static Converter fromString(final Class<?> targetType) {
+    if (targetType == Boolean.class) {
+      return value -> {
+        String string = (String) value;
+        if (string.equalsIgnoreCase("true")) {
+          return Boolean.TRUE;
+        } else if (string.equalsIgnoreCase("false")) {
+          return Boolean.FALSE;
+        }
+        double number = parseDouble(string, "Boolean", "");
+        return fromDouble(number, number, targetType);
+      };
+    }
+    if (targetType == Integer.class || targetType == Short.class || targetType == Byte.class
+        || targetType == Long.class || targetType == Float.class || targetType == Double.class) {
+      return value -> {
+        String string = (String) value;
+        String trimmed = string.trim();
+        if (trimmed.equalsIgnoreCase("false")) {
+          return fromDouble(0d, string, targetType);
+        } else if (trimmed.equalsIgnoreCase("true")) {
+          return fromDouble(1d, string, targetType);
+        }
+        return fromDouble(parseDouble(string, targetType.getSimpleName(), "."), string, targetType);
+      };
+    }
+    return null;
+  }
+
+  private static Converter fromBoolean(final Class<?> targetType) {
+    if (targetType == Integer.class || targetType == Short.class || targetType == Byte.class
+        || targetType == Long.class || targetType == Float.class || targetType == Double.class) {
+      return value -> fromDouble(Boolean.TRUE.equals(value) ? 1d : 0d, value, targetType);
+    }
+    return null;
+  }
+
+  private static double parseDouble(final String value, final String targetName, final String suffix) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new ClassCastException("Cannot convert String value \"" + value + "\" to " + targetName + suffix);
+    }
+  }
+
+  /**
+   * Converts a numeric value into one of the boxed numeric types or
+   * <code>Boolean</code>, rounding it for the integral types.
+   *
+   * @param number the numeric value
+   * @param value the original value, for error messages
+   * @param targetType the boxed target type
+   * @return the converted value
+   */
+  private static Object fromDouble(final double number, final Object value, final Class<?> targetType) {
+    if (targetType == Double.class) {
+      return Double.valueOf(number);
+    } else if (targetType == Float.class) {
+      if (number > Float.MAX_VALUE || number < -Float.MAX_VALUE) {
+        throw new ClassCastException("Numeric value " + number + " to big to be converted to Float.");
+      }
+      return Float.valueOf((float) number);
+    } else if (targetType == Long.class) {
+      return Long.valueOf(Math.round(number));
+    } else if (targetType == Boolean.class) {
+      if (number == 1.0d) {
+        return Boolean.TRUE;
+      } else if (number == 0.0d) {
+        return Boolean.FALSE;
+      }
+      throw new ClassCastException("Cannot convert numeric value " + value + " to Boolean");
+    }
+
+    long x = Math.round(number);
+    if (targetType == Integer.class) {
+      if (x > Integer.MAX_VALUE || x < Integer.MIN_VALUE) {
+        throw new ClassCastException("Numeric value " + x + " to big to be converted to Integer.");
+      }
+      return Integer.valueOf((int) x);
+    } else if (targetType == Short.class) {
+      if (x > Short.MAX_VALUE || x < Short.MIN_VALUE) {
+        throw new ClassCastException("Numeric value " + x + " to big to be converted to Short.");
+      }
+      return Short.valueOf((short) x);
+    } else {
+      if (x > Byte.MAX_VALUE || x < Byte.MIN_VALUE) {
+        throw new ClassCastException("Numeric value " + x + " to big to be converted to Byte.");
+      }
+      return Byte.valueOf((byte) x);
+    }
+  }
+}
@@ -95,6 +95,19 @@ public final class TypeConverter  {
       return null;
     }
 
+    return ConverterRegistry.getConverter(pValue.getClass(), pTargetType).convert(pValue);
+  }
+
+  /**
+   * Generic conversion of a value into the specified class type, used by the
+   * {@link ConverterRegistry} for all pairs of types without specialised
+   * converter.
+   * @param pValue The object to be casted, not null
+   * @param pTargetType the resulting class cast type, not null
+   * @return The resulting cast object.
+   * @throws ClassCastException In case of a cast exception
+   */
+  static Object convert(final Object pValue, final Class< ? > pTargetType) throws ClassCastException {
     Class< ? > inputType = pValue.getClass();
     Object inputValue = pValue;
 
@@ -591,20 +604,15 @@ public final class TypeConverter  {
   /**
    * @param typeName a simple class name within the java.lang.* package or the
    *                 fully qualified class name
-   * @return the class for the given name if known, {@literal null} otherwise
+   * @return the class for the given name if known, {@literal null} otherwise.
+   *         The classes are resolved once per name.
    */
   public static Class<?> getType(String typeName) {
     if (typeName == null) {
       return null;
     }
 
-    String fullPath = typeName.contains(".") ? typeName : JAVA_LANG_PREFIX + typeName;
-
-    try {
-      return Class.forName(fullPath);
-    } catch (ClassNotFoundException e) {
-      return null;
-    }
+    return ConverterRegistry.getType(typeName);
   }
 
   /**
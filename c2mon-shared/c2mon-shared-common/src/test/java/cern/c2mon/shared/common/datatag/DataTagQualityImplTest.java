@@ -17,6 +17,20 @@
 package cern.c2mon.shared.common.datatag;
 
 import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 
 import cern.c2mon.shared.common.datatag.util.TagQualityStatus;
@@ -391,4 +405,87 @@ public class DataTagQualityImplTest {
     assertTrue(quality.isInvalidStatusSetWithSameDescription(TagQualityStatus.EQUIPMENT_DOWN, null));    
   }
   
+  @Test
+  public void testJacksonSerializationDeserialization() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    DataTagQuality invalidTagQuality = new DataTagQualityImpl(TagQualityStatus.EQUIPMENT_DOWN, "Equipment down");
+    invalidTagQuality.addInvalidStatus(TagQualityStatus.VALUE_EXPIRED);
+    DataTagQuality deserializedQuality = mapper.readValue(mapper.writeValueAsString(invalidTagQuality), DataTagQualityImpl.class);
+    assertEquals(invalidTagQuality, deserializedQuality);
+    assertEquals("Equipment down", deserializedQuality.getInvalidQualityStates().get(TagQualityStatus.EQUIPMENT_DOWN));
+    assertEquals("", deserializedQuality.getInvalidQualityStates().get(TagQualityStatus.VALUE_EXPIRED));
+
+    // format written by earlier versions
+    String json = "{\"invalidQualityStates\":{},\"valid\":true,\"description\":\"OK\",\"existingTag\":true,"
+        + "\"initialised\":true,\"accessible\":true}";
+    assertTrue(mapper.readValue(json, DataTagQualityImpl.class).isValid());
+  }
+
+  @Test
+  public void testJavaSerialization() throws Exception {
+    DataTagQuality invalidTagQuality = new DataTagQualityImpl(TagQualityStatus.PROCESS_DOWN, "DAQ process is down");
+    invalidTagQuality.addInvalidStatus(TagQualityStatus.INACCESSIBLE);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(invalidTagQuality);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      DataTagQuality deserializedQuality = (DataTagQuality) in.readObject();
+      assertEquals(invalidTagQuality, deserializedQuality);
+      assertEquals(invalidTagQuality.hashCode(), deserializedQuality.hashCode());
+      assertEquals("DAQ process is down", deserializedQuality.getDescription());
+    }
+  }
+
+  @Test
+  public void testCloneIsIndependent() throws CloneNotSupportedException {
+    DataTagQuality tagQuality = new DataTagQualityImpl(TagQualityStatus.EQUIPMENT_DOWN, "Equipment is down");
+    DataTagQuality tagQualityCopy = tagQuality.clone();
+
+    tagQualityCopy.addInvalidStatus(TagQualityStatus.EQUIPMENT_DOWN, "Equipment is still down");
+    tagQualityCopy.addInvalidStatus(TagQualityStatus.VALUE_EXPIRED);
+    assertEquals("Equipment is down", tagQuality.getDescription());
+    assertFalse(tagQuality.isInvalidStatusSet(TagQualityStatus.VALUE_EXPIRED));
+
+    tagQualityCopy.validate();
+    assertTrue(tagQualityCopy.isValid());
+    assertFalse(tagQuality.isValid());
+  }
+
+  @Test
+  public void testConcurrentModificationsAreNotLost() throws Exception {
+    final DataTagQualityImpl tagQuality = new DataTagQualityImpl(TagQualityStatus.UNINITIALISED);
+    final TagQualityStatus[] states = {TagQualityStatus.EQUIPMENT_DOWN, TagQualityStatus.VALUE_EXPIRED,
+        TagQualityStatus.INACCESSIBLE, TagQualityStatus.VALUE_OUT_OF_BOUNDS};
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(states.length);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final TagQualityStatus status : states) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < 10000; i++) {
+            tagQuality.addInvalidStatus(status, status.name() + " " + (i % 2));
+            tagQuality.removeInvalidStatus(status);
+          }
+          tagQuality.addInvalidStatus(status, status.name());
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(states.length + 1, tagQuality.getInvalidQualityStates().size());
+    for (TagQualityStatus status : states) {
+      assertTrue(tagQuality.isInvalidStatusSetWithSameDescription(status, status.name()));
+    }
+  }
 }
@@ -830,6 +830,44 @@ public class TypeConverterTest {
     castTest(new Exception("test"), Short.class);
   }
 
+  @Test
+  public void testSpecialisedConvertersMatchGenericConversion() {
+    Object[] values = {Integer.valueOf(1), Integer.valueOf(-7), Long.valueOf(1L << 40), Short.valueOf((short) 0),
+        Byte.valueOf((byte) 1), Float.valueOf(2.5f), Double.valueOf(300.6), Double.valueOf(Double.NaN),
+        Double.valueOf(Double.MAX_VALUE), Boolean.TRUE, Boolean.FALSE, "1", "0", " 42 ", "2.5", "1e3", "true",
+        " FALSE ", "True", "abc", "", "NaN", "70000"};
+    Class<?>[] types = {Integer.class, Short.class, Byte.class, Long.class, Float.class, Double.class, Boolean.class,
+        String.class, int.class, long.class, short.class, byte.class, float.class, double.class};
+
+    for (Object value : values) {
+      for (Class<?> type : types) {
+        Object expected;
+        try {
+          expected = TypeConverter.convert(value, type);
+        } catch (ClassCastException e) {
+          expected = e.getMessage();
+        }
+        Object result;
+        try {
+          result = TypeConverter.castToType(value, type);
+        } catch (ClassCastException e) {
+          result = e.getMessage();
+        }
+        assertEquals("Converting " + value + " of type " + value.getClass().getSimpleName() + " to " + type.getSimpleName(),
+            expected, result);
+      }
+    }
+  }
+
+  @Test
+  public void testGetTypeIsCached() {
+    assertEquals(Integer.class, TypeConverter.getType("Integer"));
+    assertEquals(Integer.class, TypeConverter.getType("java.lang.Integer"));
+    assertNull(TypeConverter.getType("UnknownType"));
+    assertNull(TypeConverter.getType("UnknownType"));
+    assertEquals(TypeConverter.getType("Double"), TypeConverter.getType("Double"));
+  }
+
   private static void castTest(final Object pValue, final Class<?> pTargetClass) {
     castTest(pValue, pTargetClass, null);
   }
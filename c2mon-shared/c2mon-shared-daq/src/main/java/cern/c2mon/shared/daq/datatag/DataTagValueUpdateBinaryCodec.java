@@ -0,0 +1,400 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.daq.datatag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+import cern.c2mon.shared.common.datatag.util.SourceDataTagQualityCode;
+
+/**
+ * Compact binary encoding of {@link DataTagValueUpdate} messages, used as an
+ * alternative to the JSON representation for high-rate DAQs.
+ *
+ * <p>Layout (version 1):
+ * <pre>
+ * version    : byte
+ * header     : byte flags (has process id, has PIK), followed by the present ids as varints
+ * count      : varint
+ * values     : count times
+ *   id                 : varint
+ *   name               : string
+ *   flags              : byte (control tag, simulated, guaranteed delivery,
+ *                        has timestamp, has DAQ timestamp, has quality)
+ *   timestamp          : 8 byte long (if present)
+ *   daqTimestamp       : 8 byte long (if present)
+ *   quality code       : {@link SourceDataTagQualityCode#getQualityCode()} as varint,
+ *                        followed by the description string (if present)
+ *   value              : type tag byte, followed by the typed value
+ *   valueDescription   : string
+ *   priority           : varint
+ *   timeToLive         : varint
+ * </pre>
+ * Strings are encoded as varint length + 1 (0 for null), followed by the UTF-8
+ * bytes. Signed numbers are zig-zag encoded. Values of any type not covered by
+ * a type tag are embedded as JSON, so that they are decoded exactly as with the
+ * JSON message format.
+ */
+public final class DataTagValueUpdateBinaryCodec {
+
+  /**
+   * Version of the binary format, written as first byte of every message.
+   */
+  public static final byte FORMAT_VERSION = 1;
+
+  private static final int FLAG_PROCESS_ID = 1;
+  private static final int FLAG_PROCESS_PIK = 1 << 1;
+
+  private static final int FLAG_CONTROL_TAG = 1;
+  private static final int FLAG_SIMULATED = 1 << 1;
+  private static final int FLAG_GUARANTEED_DELIVERY = 1 << 2;
+  private static final int FLAG_TIMESTAMP = 1 << 3;
+  private static final int FLAG_DAQ_TIMESTAMP = 1 << 4;
+  private static final int FLAG_QUALITY = 1 << 5;
+
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_BYTE = 2;
+  private static final byte TYPE_SHORT = 3;
+  private static final byte TYPE_INTEGER = 4;
+  private static final byte TYPE_LONG = 5;
+  private static final byte TYPE_FLOAT = 6;
+  private static final byte TYPE_DOUBLE = 7;
+  private static final byte TYPE_STRING = 8;
+  private static final byte TYPE_JSON = 9;
+
+  /**
+   * Only used for values which have no dedicated type tag.
+   */
+  private final ObjectMapper mapper;
+
+  /**
+   * @param mapper the JSON mapper used for values of other types than
+   *               primitives wrappers and Strings
+   */
+  public DataTagValueUpdateBinaryCodec(final ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * Encodes the update in the binary format.
+   *
+   * @param update the update to encode
+   * @return the encoded message body
+   * @throws IOException if a value cannot be encoded
+   */
+  public byte[] encode(final DataTagValueUpdate update) throws IOException {
+    int count = update.getValues() == null ? 0 : update.getValues().size();
+    Output out = new Output(32 + count * 64);
+
+    out.write(FORMAT_VERSION);
+    int headerFlags = (update.getProcessId() != null ? FLAG_PROCESS_ID : 0)
+        | (update.getProcessPIK() != null ? FLAG_PROCESS_PIK : 0);
+    out.write(headerFlags);
+    if (update.getProcessId() != null) {
+      out.writeVarLong(update.getProcessId());
+    }
+    if (update.getProcessPIK() != null) {
+      out.writeVarLong(update.getProcessPIK());
+    }
+
+    out.writeVarLong(count);
+    if (count > 0) {
+      for (SourceDataTagValue value : update.getValues()) {
+        encodeValue(value, out);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private void encodeValue(final SourceDataTagValue value, final Output out) throws IOException {
+    if (value.getId() == null) {
+      throw new IOException("Cannot encode a value without tag id (" + value.getName() + ")");
+    }
+    out.writeVarLong(value.getId());
+    out.writeString(value.getName());
+
+    SourceDataTagQuality quality = value.getQuality();
+    int flags = (value.isControlTag() ? FLAG_CONTROL_TAG : 0)
+        | (value.isSimulated() ? FLAG_SIMULATED : 0)
+        | (value.isGuaranteedDelivery() ? FLAG_GUARANTEED_DELIVERY : 0)
+        | (value.getTimestamp() != null ? FLAG_TIMESTAMP : 0)
+        | (value.getDaqTimestamp() != null ? FLAG_DAQ_TIMESTAMP : 0)
+        | (quality != null && quality.getQualityCode() != null ? FLAG_QUALITY : 0);
+    out.write(flags);
+
+    if (value.getTimestamp() != null) {
+      out.writeLong(value.getTimestamp().getTime());
+    }
+    if (value.getDaqTimestamp() != null) {
+      out.writeLong(value.getDaqTimestamp().getTime());
+    }
+    if ((flags & FLAG_QUALITY) != 0) {
+      out.writeVarLong(quality.getQualityCode().getQualityCode());
+      out.writeString(quality.getDescription());
+    }
+
+    encodeTypedValue(value.getValue(), out);
+    out.writeString(value.getValueDescription());
+    out.writeVarLong(zigZag(value.getPriority()));
+    out.writeVarLong(zigZag(value.getTimeToLive()));
+  }
+
+  private void encodeTypedValue(final Object value, final Output out) throws IOException {
+    if (value == null) {
+      out.write(TYPE_NULL);
+    } else if (value instanceof Boolean) {
+      out.write(TYPE_BOOLEAN);
+      out.write((Boolean) value ? 1 : 0);
+    } else if (value instanceof Integer) {
+      out.write(TYPE_INTEGER);
+      out.writeVarLong(zigZag((Integer) value));
+    } else if (value instanceof Long) {
+      out.write(TYPE_LONG);
+      out.writeVarLong(zigZag((Long) value));
+    } else if (value instanceof Float) {
+      out.write(TYPE_FLOAT);
+      out.writeInt(Float.floatToIntBits((Float) value));
+    } else if (value instanceof Double) {
+      out.write(TYPE_DOUBLE);
+      out.writeLong(Double.doubleToLongBits((Double) value));
+    } else if (value instanceof String) {
+      out.write(TYPE_STRING);
+      out.writeString((String) value);
+    } else if (value instanceof Short) {
+      out.write(TYPE_SHORT);
+      out.writeVarLong(zigZag((Short) value));
+    } else if (value instanceof Byte) {
+      out.write(TYPE_BYTE);
+      out.write((Byte) value);
+    } else {
+      out.write(TYPE_JSON);
+      out.writeString(mapper.writeValueAsString(value));
+    }
+  }
+
+  /**
+   * Decodes a message encoded with {@link #encode(DataTagValueUpdate)}.
+   *
+   * @param bytes the message body
+   * @return the decoded update
+   * @throws IOException if the message is truncated or encoded with an unsupported format version
+   */
+  public DataTagValueUpdate decode(final byte[] bytes) throws IOException {
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    try {
+      byte version = in.get();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported binary update format version " + version + " (supported: " + FORMAT_VERSION + ")");
+      }
+
+      int headerFlags = in.get();
+      Long processId = (headerFlags & FLAG_PROCESS_ID) != 0 ? readVarLong(in) : null;
+      Long processPIK = (headerFlags & FLAG_PROCESS_PIK) != 0 ? readVarLong(in) : null;
+
+      int count = (int) readVarLong(in);
+      ArrayList<SourceDataTagValue> values = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        values.add(decodeValue(in));
+      }
+
+      DataTagValueUpdate update = new DataTagValueUpdate(processId, processPIK);
+      update.setValues(values);
+      return update;
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Binary update message is corrupted or truncated", e);
+    }
+  }
+
+  private SourceDataTagValue decodeValue(final ByteBuffer in) throws IOException {
+    SourceDataTagValue value = new SourceDataTagValue();
+    value.setId(readVarLong(in));
+    value.setName(readString(in));
+
+    int flags = in.get();
+    value.setControlTag((flags & FLAG_CONTROL_TAG) != 0);
+    value.setSimulated((flags & FLAG_SIMULATED) != 0);
+    value.setGuaranteedDelivery((flags & FLAG_GUARANTEED_DELIVERY) != 0);
+
+    if ((flags & FLAG_TIMESTAMP) != 0) {
+      value.setTimestamp(new Timestamp(in.getLong()));
+    }
+    if ((flags & FLAG_DAQ_TIMESTAMP) != 0) {
+      value.setDaqTimestamp(new Timestamp(in.getLong()));
+    }
+    if ((flags & FLAG_QUALITY) != 0) {
+      value.setQuality(new SourceDataTagQuality(toQualityCode(readVarLong(in)), readString(in)));
+    }
+
+    value.setValue(decodeTypedValue(in));
+    value.setValueDescription(readString(in));
+    value.setPriority((int) unZigZag(readVarLong(in)));
+    value.setTimeToLive(unZigZag(readVarLong(in)));
+    return value;
+  }
+
+  private Object decodeTypedValue(final ByteBuffer in) throws IOException {
+    byte type = in.get();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_BOOLEAN:
+        return in.get() != 0;
+      case TYPE_BYTE:
+        return in.get();
+      case TYPE_SHORT:
+        return (short) unZigZag(readVarLong(in));
+      case TYPE_INTEGER:
+        return (int) unZigZag(readVarLong(in));
+      case TYPE_LONG:
+        return unZigZag(readVarLong(in));
+      case TYPE_FLOAT:
+        return Float.intBitsToFloat(in.getInt());
+      case TYPE_DOUBLE:
+        return Double.longBitsToDouble(in.getLong());
+      case TYPE_STRING:
+        return readString(in);
+      case TYPE_JSON:
+        return mapper.readValue(readString(in), Object.class);
+      default:
+        throw new IOException("Unknown value type " + type + " in binary update message");
+    }
+  }
+
+  private static long zigZag(final long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(final long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * @return the quality code with the given stable code number, or
+   *         {@link SourceDataTagQualityCode#UNKNOWN} if sent by a newer version
+   */
+  @SuppressWarnings("deprecation")
+  private static SourceDataTagQualityCode toQualityCode(final long code) {
+    return code < Short.MIN_VALUE || code > Short.MAX_VALUE
+        ? SourceDataTagQualityCode.UNKNOWN : SourceDataTagQualityCode.getEnum((short) code);
+  }
+
+  private static long readVarLong(final ByteBuffer in) throws IOException {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.get();
+      result |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("Malformed varint in binary update message");
+  }
+
+  private static String readString(final ByteBuffer in) throws IOException {
+    int length = (int) readVarLong(in);
+    if (length == 0) {
+      return null;
+    }
+    length--;
+    if (length > in.remaining()) {
+      throw new IOException("String length exceeds the size of the binary update message");
+    }
+    String result = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return result;
+  }
+
+  /**
+   * Growable output buffer, avoiding the synchronization of {@link ByteArrayOutputStream#write(int)}.
+   */
+  private static final class Output {
+
+    private byte[] buffer;
+
+    private int size;
+
+    Output(final int initialCapacity) {
+      buffer = new byte[initialCapacity];
+    }
+
+    void write(final int b) {
+      ensureCapacity(1);
+      buffer[size++] = (byte) b;
+    }
+
+    void writeInt(final int value) {
+      ensureCapacity(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buffer[size++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeLong(final long value) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[size++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeVarLong(final long value) {
+      ensureCapacity(10);
+      long remaining = value;
+      while ((remaining & ~0x7FL) != 0) {
+        buffer[size++] = (byte) ((remaining & 0x7F) | 0x80);
+        remaining >>>= 7;
+      }
+      buffer[size++] = (byte) remaining;
+    }
+
+    void writeString(final String value) {
+      if (value == null) {
+        writeVarLong(0);
+        return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(bytes.length + 1L);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, size, bytes.length);
+      size += bytes.length;
+    }
+
+    private void ensureCapacity(final int additional) {
+      if (size + additional > buffer.length) {
+        byte[] grown = new byte[Math.max(buffer.length * 2, size + additional)];
+        System.arraycopy(buffer, 0, grown, 0, size);
+        buffer = grown;
+      }
+    }
+
+    byte[] toByteArray() {
+      byte[] result = new byte[size];
+      System.arraycopy(buffer, 0, result, 0, size);
+      return result;
+    }
+  }
+}
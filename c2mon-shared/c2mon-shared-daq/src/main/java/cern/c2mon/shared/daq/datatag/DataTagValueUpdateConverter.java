@@ -25,6 +25,7 @@ import org.springframework.jms.support.converter.MessageConversionException;
 import org.springframework.jms.support.converter.MessageConverter;
 
 import javax.annotation.PostConstruct;
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
@@ -35,17 +36,50 @@ import java.io.IOException;
  * Converter class used to convert between JSON messages and
  * {@link DataTagValueUpdate} instances.
  *
+ * <p>Incoming updates are accepted in both formats: JSON as {@link TextMessage}
+ * and the compact binary format of {@link DataTagValueUpdateBinaryCodec} as
+ * {@link BytesMessage}. Outgoing updates are encoded in JSON, unless the
+ * converter was created for binary encoding.
+ *
  * @author Mark Brightwell
  */
 @Slf4j
 public class DataTagValueUpdateConverter implements MessageConverter {
 
+  /**
+   * JMS property set on every outgoing update, indicating its encoding.
+   */
+  public static final String CONTENT_TYPE_PROPERTY = "c2monContentType";
+
+  /** Value of {@link #CONTENT_TYPE_PROPERTY} for JSON encoded updates */
+  public static final String CONTENT_TYPE_JSON = "json";
+
+  /** Value of {@link #CONTENT_TYPE_PROPERTY} for binary encoded updates */
+  public static final String CONTENT_TYPE_BINARY = "binary";
+
   private ObjectMapper mapper;
 
+  private final DataTagValueUpdateBinaryCodec binaryCodec;
+
+  /**
+   * If true, outgoing updates are sent in the binary format.
+   */
+  private final boolean binaryEncoding;
+
   public DataTagValueUpdateConverter() {
+    this(false);
+  }
+
+  /**
+   * @param binaryEncoding if true, {@link #toMessage(Object, Session)} creates
+   *                       binary {@link BytesMessage}s instead of JSON text messages
+   */
+  public DataTagValueUpdateConverter(final boolean binaryEncoding) {
     this.mapper = new ObjectMapper();
     mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     mapper.enable(DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY);
+    this.binaryCodec = new DataTagValueUpdateBinaryCodec(mapper);
+    this.binaryEncoding = binaryEncoding;
   }
 
   /**
@@ -62,13 +96,19 @@ public class DataTagValueUpdateConverter implements MessageConverter {
       throw new MessageConversionException("Message must not be null!");
     }
 
+    if (message instanceof BytesMessage) {
+      return fromBytesMessage((BytesMessage) message);
+    }
+
     if (!(message instanceof TextMessage)) {
-      throw new MessageConversionException("Message must be an instance of TextMessage!");
+      throw new MessageConversionException("Message must be an instance of TextMessage or BytesMessage!");
     }
 
     try {
       String json = ((TextMessage) message).getText();
-      log.trace("Update received from DAQ:\n" + json);
+      if (log.isTraceEnabled()) {
+        log.trace("Update received from DAQ:\n" + json);
+      }
 
       return mapper.readValue(json, DataTagValueUpdate.class);
     } catch (IOException | RuntimeException e) {
@@ -77,6 +117,24 @@ public class DataTagValueUpdateConverter implements MessageConverter {
     }
   }
 
+  /**
+   * Decodes an update sent in the binary format.
+   */
+  private DataTagValueUpdate fromBytesMessage(final BytesMessage message) throws JMSException {
+    byte[] bytes = new byte[(int) message.getBodyLength()];
+    message.readBytes(bytes);
+    try {
+      DataTagValueUpdate update = binaryCodec.decode(bytes);
+      if (log.isTraceEnabled()) {
+        log.trace("Binary update received from DAQ for process #" + update.getProcessId() + " with " + update.getValues().size() + " values");
+      }
+      return update;
+    } catch (IOException | RuntimeException e) {
+      log.error("Exception caught while decoding incoming binary update", e);
+      throw new MessageConversionException("Exception caught while decoding incoming binary update of " + bytes.length + " bytes", e);
+    }
+  }
+
   /**
    * Converts a {@link DataTagValueUpdate} to a JMS {@link Message}
    *
@@ -88,9 +146,25 @@ public class DataTagValueUpdateConverter implements MessageConverter {
    */
   @Override
   public Message toMessage(final Object tag, final Session session) throws JMSException {
+    if (binaryEncoding && tag instanceof DataTagValueUpdate) {
+      try {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(binaryCodec.encode((DataTagValueUpdate) tag));
+        message.setStringProperty(CONTENT_TYPE_PROPERTY, CONTENT_TYPE_BINARY);
+        return message;
+
+      } catch (IOException e) {
+        log.error("Exception caught in binary encoding of update", e);
+        throw new MessageConversionException("Exception caught in converting dataTagValueUpdate to binary message: "
+            + e.getMessage(), e);
+      }
+    }
+
     try {
       String json = mapper.writeValueAsString(tag);
-      return session.createTextMessage(json);
+      TextMessage message = session.createTextMessage(json);
+      message.setStringProperty(CONTENT_TYPE_PROPERTY, CONTENT_TYPE_JSON);
+      return message;
 
     } catch (JsonProcessingException e) {
       log.error("Exception caught on update reception", e.getMessage());
@@ -99,4 +173,3 @@ public class DataTagValueUpdateConverter implements MessageConverter {
     }
   }
 }
-
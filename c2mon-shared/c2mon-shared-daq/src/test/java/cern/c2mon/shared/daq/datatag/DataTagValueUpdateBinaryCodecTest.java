@@ -0,0 +1,141 @@
+package cern.c2mon.shared.daq.datatag;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+import cern.c2mon.shared.common.datatag.util.SourceDataTagQualityCode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DataTagValueUpdateBinaryCodecTest {
+
+  private DataTagValueUpdateBinaryCodec codec;
+
+  private ObjectMapper mapper;
+
+  @Before
+  public void setUp() {
+    mapper = new ObjectMapper();
+    mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    mapper.enable(DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY);
+    codec = new DataTagValueUpdateBinaryCodec(mapper);
+  }
+
+  @Test
+  public void testEncodeDecodeAllFields() throws IOException {
+    SourceDataTagValue original = SourceDataTagValue.builder()
+        .id(123456L)
+        .name("test/tag")
+        .controlTag(true)
+        .value(42.5f)
+        .valueDescription("description")
+        .quality(new SourceDataTagQuality(SourceDataTagQualityCode.OUT_OF_BOUNDS, "out of range"))
+        .timestamp(new Timestamp(1500000000123L))
+        .daqTimestamp(new Timestamp(1500000000456L))
+        .priority(7)
+        .guaranteedDelivery(true)
+        .timeToLive(666)
+        .simulated(true)
+        .build();
+    DataTagValueUpdate update = new DataTagValueUpdate(10L, 4711L);
+    update.addValue(original);
+
+    DataTagValueUpdate decoded = codec.decode(codec.encode(update));
+
+    assertEquals(Long.valueOf(10L), decoded.getProcessId());
+    assertEquals(Long.valueOf(4711L), decoded.getProcessPIK());
+    assertEquals(1, decoded.getValues().size());
+    assertEquals(original, decoded.getValues().iterator().next());
+  }
+
+  @Test
+  public void testEncodeDecodeQualityCodes() throws IOException {
+    DataTagValueUpdate update = new DataTagValueUpdate(1L);
+    for (SourceDataTagQualityCode code : SourceDataTagQualityCode.values()) {
+      SourceDataTagValue value = new SourceDataTagValue((long) code.getQualityCode(), code.name(), false);
+      value.setQuality(new SourceDataTagQuality(code, code.getDescription()));
+      update.addValue(value);
+    }
+
+    Iterator<SourceDataTagValue> it = codec.decode(codec.encode(update)).getValues().iterator();
+    for (SourceDataTagQualityCode code : SourceDataTagQualityCode.values()) {
+      assertEquals(code, it.next().getQuality().getQualityCode());
+    }
+  }
+
+  @Test
+  public void testEncodeDecodeValueTypes() throws IOException {
+    Object[] values = new Object[] {null, true, (byte) 3, (short) -12, -1, Long.MAX_VALUE, 1.5f, -2.25d, "DOWN", "été"};
+    DataTagValueUpdate update = new DataTagValueUpdate(1L);
+    for (int i = 0; i < values.length; i++) {
+      SourceDataTagValue value = new SourceDataTagValue((long) i, "tag" + i, false);
+      value.setValue(values[i]);
+      update.addValue(value);
+    }
+
+    DataTagValueUpdate decoded = codec.decode(codec.encode(update));
+
+    assertNull(decoded.getProcessPIK());
+    Iterator<SourceDataTagValue> it = decoded.getValues().iterator();
+    for (Object value : values) {
+      assertEquals(value, it.next().getValue());
+    }
+  }
+
+  @Test
+  public void testArrayValuesAreDecodedAsWithJson() throws IOException {
+    Integer[] array = new Integer[] {1, 2, 3};
+    SourceDataTagValue value = new SourceDataTagValue(1L, "array", false);
+    value.setValue(array);
+    DataTagValueUpdate update = new DataTagValueUpdate(1L);
+    update.addValue(value);
+
+    Object decoded = codec.decode(codec.encode(update)).getValues().iterator().next().getValue();
+
+    assertArrayEquals(array, (Object[]) decoded);
+  }
+
+  @Test
+  public void testBinaryIsSmallerThanJson() throws IOException {
+    DataTagValueUpdate update = new DataTagValueUpdate(1L, 2L);
+    for (long i = 0; i < 100; i++) {
+      SourceDataTagValue value = new SourceDataTagValue(100000L + i, "device/property/tag" + i, false);
+      value.setValue((double) i);
+      value.setTimestamp(new Timestamp(System.currentTimeMillis()));
+      update.addValue(value);
+    }
+
+    int binarySize = codec.encode(update).length;
+    int jsonSize = mapper.writeValueAsBytes(update).length;
+
+    assertTrue("binary: " + binarySize + ", json: " + jsonSize, binarySize * 2 < jsonSize);
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnsupportedVersionIsRejected() throws IOException {
+    byte[] bytes = codec.encode(new DataTagValueUpdate(1L));
+    bytes[0] = DataTagValueUpdateBinaryCodec.FORMAT_VERSION + 1;
+    codec.decode(bytes);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedMessageIsRejected() throws IOException {
+    DataTagValueUpdate update = new DataTagValueUpdate(1L);
+    update.addValue(new SourceDataTagValue(1L, "tag", false));
+    byte[] bytes = codec.encode(update);
+    codec.decode(Arrays.copyOf(bytes, bytes.length - 2));
+  }
+}
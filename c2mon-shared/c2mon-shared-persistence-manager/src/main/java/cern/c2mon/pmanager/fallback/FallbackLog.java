@@ -0,0 +1,853 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.pmanager.fallback;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.c2mon.pmanager.IFallback;
+import cern.c2mon.pmanager.fallback.exception.DataFallbackException;
+import cern.c2mon.pmanager.fallback.manager.FallbackObjectContainer;
+
+/**
+ * Append-only log storing the {@link IFallback} objects that could not be
+ * committed to the DB, until they are read back by the recovery thread.
+ *
+ * <p>The log is split into segment files named
+ * <code>&lt;fallback file&gt;.&lt;sequence&gt;.seg</code>, next to the
+ * configured fallback file. Every record is framed by its length and a CRC32
+ * checksum, followed by the UTF-8 encoded string representation of the
+ * object. When a segment reaches the configured size, a new segment is
+ * started and a small index file (<code>.idx</code>) is written with the
+ * number of records of the sealed segment and the offset of every
+ * {@value #INDEX_INTERVAL}th record.
+ *
+ * <p>The position up to which the records were committed to the DB is
+ * checkpointed in a cursor file (<code>&lt;fallback file&gt;.cursor</code>),
+ * so that reading resumes there after a restart without scanning the log.
+ * Fully consumed segments are deleted. Appending and reading back use
+ * separate file channels and may run concurrently: the reader only sees the
+ * records whose append completed.
+ *
+ * <p>A line-based fallback file left by a previous version at the configured
+ * path is imported into the log at startup.
+ */
+public class FallbackLog {
+
+  /** Logger for the fallback related messages */
+  private static final Logger LOG = LoggerFactory.getLogger("HistoryFallbackLogger");
+
+  /** Length of the record header: payload length and checksum */
+  private static final int HEADER_LENGTH = 8;
+
+  /** Every record with a multiple of this number is in the offset index */
+  static final int INDEX_INTERVAL = 1024;
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private static final String INDEX_SUFFIX = ".idx";
+
+  private static final int READ_BUFFER_SIZE = 256 * 1024;
+
+  /** The configured fallback file, used as name prefix of the log files */
+  private final File dataFile;
+
+  private final Path directory;
+
+  /** Maximum size of a segment in bytes, unless it holds a single bigger record */
+  private final long segmentSize;
+
+  private final Path cursorFile;
+
+  /** The segments by sequence number */
+  private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+  /** The segment receiving the appended records, null if the log could not be opened */
+  private Segment activeSegment;
+
+  private FileChannel writeChannel;
+
+  private ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+
+  /** Number of records in the log, including the consumed records of the first segment */
+  private long numberOfRecords;
+
+  /** Committed position: all records before it are stored in the DB */
+  private Position checkpoint;
+
+  /** Number of records before the checkpoint in the log */
+  private long consumedRecords;
+
+  /** Position of the next record to read back, only accessed by the reading thread */
+  private Position readPosition;
+
+  /** Number of records read since the checkpoint */
+  private int readSinceCheckpoint;
+
+  private FileChannel readChannel;
+
+  private long readChannelSequence = -1;
+
+  private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+  /** Log offset of the first byte in the read buffer */
+  private long readBufferOffset = -1;
+
+  /**
+   * Opens the fallback log, importing the content of a line-based fallback
+   * file at the given path.
+   *
+   * @param fallbackPath path of the fallback file
+   * @param segmentSize maximum size of a segment file in bytes
+   */
+  public FallbackLog(final String fallbackPath, final long segmentSize) {
+    this.dataFile = new File(fallbackPath);
+    this.directory = dataFile.getAbsoluteFile().getParentFile().toPath();
+    this.segmentSize = segmentSize;
+    this.cursorFile = directory.resolve(dataFile.getName() + ".cursor");
+    try {
+      open();
+      importLineBasedFile();
+      LOG.info("FallbackLog() - The fallback log " + dataFile.getName() + " contains "
+          + getPendingRecords() + " records to commit in " + segments.size() + " segment(s)");
+    } catch (IOException | DataFallbackException e) {
+      LOG.error("FallbackLog() - Error while opening the fallback log " + dataFile.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * @return the configured fallback file, which is the name prefix of the
+   *         log files
+   */
+  public final File getDataFile() {
+    return dataFile;
+  }
+
+  /**
+   * @return the number of records in the log, including the already
+   *         committed records which are not yet deleted
+   */
+  public final synchronized long getNumberOfRecords() {
+    return numberOfRecords;
+  }
+
+  /**
+   * @return the number of records that still have to be committed to the DB
+   */
+  public final synchronized long getPendingRecords() {
+    return numberOfRecords - consumedRecords;
+  }
+
+  /**
+   * @return true if all records of the log have been committed to the DB
+   */
+  public final boolean isEmpty() {
+    return getPendingRecords() == 0;
+  }
+
+  /**
+   * Appends the given objects to the log.
+   *
+   * @param objects the objects to append
+   * @throws DataFallbackException if the objects cannot be written
+   */
+  public final synchronized void append(final List<? extends IFallback> objects) throws DataFallbackException {
+    try {
+      if (activeSegment == null) {
+        open();
+      }
+      int bufferedRecords = 0;
+      long[] offsets = new long[Math.min(objects.size(), 1024)];
+      writeBuffer.clear();
+
+      for (IFallback object : objects) {
+        byte[] payload = object.toString().getBytes(StandardCharsets.UTF_8);
+        int recordLength = HEADER_LENGTH + payload.length;
+
+        if (activeSegment.records + bufferedRecords > 0
+            && activeSegment.length + writeBuffer.position() + recordLength > segmentSize) {
+          flush(offsets, bufferedRecords);
+          bufferedRecords = 0;
+          roll();
+        }
+        if (writeBuffer.remaining() < recordLength) {
+          flush(offsets, bufferedRecords);
+          bufferedRecords = 0;
+          if (writeBuffer.capacity() < recordLength) {
+            writeBuffer = ByteBuffer.allocate(recordLength);
+          }
+        }
+
+        if (bufferedRecords == offsets.length) {
+          offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[bufferedRecords++] = activeSegment.length + writeBuffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        writeBuffer.putInt(payload.length);
+        writeBuffer.putInt((int) crc.getValue());
+        writeBuffer.put(payload);
+      }
+      flush(offsets, bufferedRecords);
+    } catch (IOException e) {
+      throw new DataFallbackException("append() : An error has ocurred while trying to write in the "
+          + dataFile.getName() + " fallback log " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Writes the buffered records at the end of the active segment, and makes
+   * them visible to the reader.
+   */
+  private void flush(final long[] offsets, final int bufferedRecords) throws IOException {
+    writeBuffer.flip();
+    long position = activeSegment.length;
+    while (writeBuffer.hasRemaining()) {
+      position += writeChannel.write(writeBuffer, position);
+    }
+    for (int i = 0; i < bufferedRecords; i++) {
+      activeSegment.addRecord(offsets[i]);
+    }
+    activeSegment.length = position;
+    numberOfRecords += bufferedRecords;
+    writeBuffer.clear();
+  }
+
+  /**
+   * Seals the active segment by writing its index, and starts a new segment.
+   */
+  private void roll() throws IOException {
+    writeChannel.close();
+    activeSegment.writeIndex();
+    activeSegment = new Segment(activeSegment.sequence + 1);
+    segments.put(activeSegment.sequence, activeSegment);
+    writeChannel = FileChannel.open(activeSegment.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    writeChannel.truncate(0);
+  }
+
+  /**
+   * Reads back the next records of the log, from the position of the
+   * previous read.
+   *
+   * @param maxRecords the maximum number of records to read
+   * @param fallbackObj the IFallback implementation parsing the records
+   * @return the read objects and the number of read records, including the
+   *         records which could not be parsed
+   * @throws DataFallbackException if the log cannot be read
+   */
+  public final FallbackObjectContainer read(final int maxRecords, final IFallback fallbackObj)
+      throws DataFallbackException {
+    List<IFallback> objects = new ArrayList<>();
+    int readRecords = 0;
+    try {
+      while (readRecords < maxRecords) {
+        Segment segment;
+        long end;
+        boolean sealed;
+        synchronized (this) {
+          if (readPosition == null) {
+            break;
+          }
+          segment = segments.get(readPosition.sequence);
+          end = segment.length;
+          sealed = segment != activeSegment;
+          if (readPosition.offset >= end) {
+            Map.Entry<Long, Segment> next = segments.higherEntry(readPosition.sequence);
+            if (!sealed || next == null) {
+              break;
+            }
+            readPosition = new Position(next.getKey(), 0, 0);
+            continue;
+          }
+        }
+
+        ByteBuffer record = readRecord(segment, readPosition.offset, end);
+        int length = record.remaining();
+        String line = new String(record.array(), record.arrayOffset() + record.position(), length, StandardCharsets.UTF_8);
+        try {
+          objects.add(fallbackObj.getObject(line));
+        } catch (DataFallbackException e) {
+          LOG.error("read() - " + e.getMessage() + "" + line);
+        }
+        readPosition = new Position(readPosition.sequence, readPosition.offset + HEADER_LENGTH + length,
+            readPosition.record + 1);
+        readRecords++;
+        readSinceCheckpoint++;
+      }
+    } catch (IOException e) {
+      throw new DataFallbackException("read() : Unable to read the " + dataFile.getName() + " fallback log "
+          + e.getMessage(), e);
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("read() - " + objects.size() + " records have been read from the fallback log");
+    }
+    return new FallbackObjectContainer(objects, readRecords);
+  }
+
+  /**
+   * @return the payload of the record at the given offset of the segment
+   */
+  private ByteBuffer readRecord(final Segment segment, final long offset, final long end) throws IOException {
+    if (readChannelSequence != segment.sequence) {
+      closeReadChannel();
+      readChannel = FileChannel.open(segment.file, StandardOpenOption.READ);
+      readChannelSequence = segment.sequence;
+    }
+    fill(offset, HEADER_LENGTH, end);
+    int start = (int) (offset - readBufferOffset);
+    int length = readBuffer.getInt(start);
+    int checksum = readBuffer.getInt(start + 4);
+    if (length < 0 || offset + HEADER_LENGTH + length > end) {
+      throw new IOException("Invalid record length " + length + " at offset " + offset + " of " + segment.file);
+    }
+    fill(offset, HEADER_LENGTH + length, end);
+    start = (int) (offset - readBufferOffset);
+
+    ByteBuffer payload = readBuffer.duplicate();
+    payload.limit(start + HEADER_LENGTH + length);
+    payload.position(start + HEADER_LENGTH);
+    CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+    if ((int) crc.getValue() != checksum) {
+      throw new IOException("Checksum mismatch of the record at offset " + offset + " of " + segment.file);
+    }
+    return payload;
+  }
+
+  /**
+   * Ensures that the read buffer contains the given range of the segment of
+   * the read channel, reading ahead up to the buffer size.
+   */
+  private void fill(final long offset, final int length, final long end) throws IOException {
+    if (readBufferOffset >= 0 && offset >= readBufferOffset && offset + length <= readBufferOffset + readBuffer.limit()) {
+      return;
+    }
+    if (readBuffer.capacity() < length) {
+      readBuffer = ByteBuffer.allocate(length);
+    }
+    readBuffer.clear();
+    readBuffer.limit((int) Math.min(readBuffer.capacity(), end - offset));
+    long position = offset;
+    while (readBuffer.hasRemaining()) {
+      int read = readChannel.read(readBuffer, position);
+      if (read < 0) {
+        break;
+      }
+      position += read;
+    }
+    readBuffer.flip();
+    readBufferOffset = offset;
+    if (readBuffer.limit() < length) {
+      throw new IOException("Unexpected end of the fallback log segment at offset " + offset);
+    }
+  }
+
+  /**
+   * Moves the checkpoint forward by the given number of records, persists it
+   * in the cursor file and deletes the fully consumed segments. If the whole
+   * log is consumed, it is reset to a new empty segment.
+   *
+   * @param committedRecords number of records after the checkpoint that
+   *                         were committed to the DB
+   * @throws DataFallbackException if the checkpoint cannot be stored
+   */
+  public final synchronized void commit(final int committedRecords) throws DataFallbackException {
+    try {
+      Position position = committedRecords == readSinceCheckpoint ? readPosition : advance(checkpoint, committedRecords);
+      consumedRecords += committedRecords;
+      checkpoint = position;
+      readPosition = position;
+      readSinceCheckpoint = 0;
+
+      if (numberOfRecords == consumedRecords && activeSegment.length > 0) {
+        reset();
+      } else {
+        writeCursor();
+        while (segments.firstKey() < checkpoint.sequence) {
+          Segment segment = segments.remove(segments.firstKey());
+          numberOfRecords -= segment.records;
+          consumedRecords -= segment.records;
+          segment.delete();
+        }
+      }
+    } catch (IOException e) {
+      throw new DataFallbackException("commit() : Unable to update the cursor of the " + dataFile.getName()
+          + " fallback log " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Moves the read position back to the given number of records after the
+   * checkpoint, so that the records read after it are read again.
+   *
+   * @param committedRecords number of records after the checkpoint that
+   *                         were committed to the DB
+   * @throws DataFallbackException if the log cannot be read
+   */
+  public final synchronized void rewind(final int committedRecords) throws DataFallbackException {
+    try {
+      readPosition = advance(checkpoint, committedRecords);
+      readSinceCheckpoint = committedRecords;
+    } catch (IOException e) {
+      throw new DataFallbackException("rewind() : Unable to read the " + dataFile.getName() + " fallback log "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return the position the given number of records after the given
+   *         position, using the offset index of the segments
+   */
+  private Position advance(final Position from, final int records) throws IOException {
+    long sequence = from.sequence;
+    long record = (long) from.record + records;
+    Segment segment = segments.get(sequence);
+    while (record >= segment.records && segment != activeSegment) {
+      record -= segment.records;
+      segment = segments.higherEntry(sequence).getValue();
+      sequence = segment.sequence;
+    }
+    int target = (int) Math.min(record, segment.records);
+    return new Position(sequence, segment.offsetOf(target), target);
+  }
+
+  /**
+   * Deletes all segments and starts a new empty segment. The cursor is
+   * moved to the new segment first, so that the deleted records are never
+   * read again.
+   */
+  private void reset() throws IOException {
+    long sequence = activeSegment.sequence + 1;
+    checkpoint = new Position(sequence, 0, 0);
+    writeCursor();
+    closeReadChannel();
+    writeChannel.close();
+    for (Segment segment : segments.values()) {
+      segment.delete();
+    }
+    segments.clear();
+    activeSegment = new Segment(sequence);
+    segments.put(sequence, activeSegment);
+    writeChannel = FileChannel.open(activeSegment.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    writeChannel.truncate(0);
+    numberOfRecords = 0;
+    consumedRecords = 0;
+    readPosition = checkpoint;
+    LOG.info("reset() - All records of the fallback log " + dataFile.getName() + " have been committed");
+  }
+
+  /**
+   * Writes the checkpoint to the cursor file, replacing it atomically.
+   */
+  private void writeCursor() throws IOException {
+    ByteBuffer cursor = ByteBuffer.allocate(28);
+    cursor.putLong(checkpoint.sequence).putLong(checkpoint.offset).putInt(checkpoint.record);
+    CRC32 crc = new CRC32();
+    crc.update(cursor.array(), 0, 20);
+    cursor.putLong(crc.getValue());
+    Path tempFile = directory.resolve(cursorFile.getFileName() + ".tmp");
+    Files.write(tempFile, cursor.array());
+    Files.move(tempFile, cursorFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * @return the checkpoint stored in the cursor file, or null if there is no
+   *         valid cursor file
+   */
+  private Position readCursor() throws IOException {
+    if (!Files.exists(cursorFile)) {
+      return null;
+    }
+    ByteBuffer cursor = ByteBuffer.wrap(Files.readAllBytes(cursorFile));
+    if (cursor.capacity() != 28) {
+      LOG.warn("readCursor() - Ignoring the invalid cursor file " + cursorFile);
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(cursor.array(), 0, 20);
+    if (cursor.getLong(20) != crc.getValue()) {
+      LOG.warn("readCursor() - Ignoring the corrupt cursor file " + cursorFile);
+      return null;
+    }
+    return new Position(cursor.getLong(0), cursor.getLong(8), cursor.getInt(16));
+  }
+
+  /**
+   * Loads the segments and the cursor from the disk.
+   */
+  private void open() throws IOException {
+    Files.createDirectories(directory);
+    segments.clear();
+    numberOfRecords = 0;
+    String prefix = dataFile.getName() + ".";
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, dataFile.getName() + ".*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        try {
+          long sequence = Long.parseLong(name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length()));
+          segments.put(sequence, new Segment(sequence));
+        } catch (NumberFormatException e) {
+          LOG.warn("open() - Ignoring the file " + file + " in the fallback directory");
+        }
+      }
+    }
+
+    Position cursor = readCursor();
+    if (cursor != null) {
+      // segments before the cursor are consumed
+      for (Segment segment : new ArrayList<>(segments.headMap(cursor.sequence).values())) {
+        segments.remove(segment.sequence);
+        segment.delete();
+      }
+    }
+    if (segments.isEmpty()) {
+      long sequence = cursor == null ? 1 : cursor.sequence;
+      segments.put(sequence, new Segment(sequence));
+    }
+    for (Segment segment : segments.values()) {
+      if (segment.sequence == segments.lastKey() || !segment.readIndex()) {
+        segment.scan();
+      }
+      numberOfRecords += segment.records;
+    }
+
+    Segment last = segments.lastEntry().getValue();
+    writeChannel = FileChannel.open(last.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    activeSegment = last;
+
+    Segment first = segments.firstEntry().getValue();
+    if (cursor == null || cursor.sequence != first.sequence || cursor.record > first.records
+        || first.offsetOf(cursor.record) != cursor.offset) {
+      if (cursor != null) {
+        LOG.warn("open() - The cursor of the fallback log does not match its segments, reading from the start");
+      }
+      cursor = new Position(first.sequence, 0, 0);
+    }
+    checkpoint = cursor;
+    readPosition = cursor;
+    readSinceCheckpoint = 0;
+    consumedRecords = cursor.record;
+  }
+
+  /**
+   * Imports the records of a line-based fallback file written by a previous
+   * version, skipping the lines already committed according to its counter
+   * file, and deletes both files.
+   */
+  private void importLineBasedFile() throws IOException, DataFallbackException {
+    File counterFile = new File(dataFile.getAbsoluteFile().getParentFile(), ".Counter" + dataFile.getName());
+    if (dataFile.length() > 0) {
+      int committedLines = 0;
+      if (counterFile.exists()) {
+        try (BufferedReader counter = Files.newBufferedReader(counterFile.toPath(), StandardCharsets.UTF_8)) {
+          String line = counter.readLine();
+          committedLines = line == null ? 0 : Integer.parseInt(line.trim());
+        } catch (NumberFormatException e) {
+          LOG.warn("importLineBasedFile() - Invalid counter file " + counterFile + ", importing all lines");
+        }
+      }
+
+      List<IFallback> lines = new ArrayList<>();
+      int lineNumber = 0;
+      try (BufferedReader reader = Files.newBufferedReader(dataFile.toPath(), StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (lineNumber++ >= committedLines) {
+            lines.add(new Line(line));
+            if (lines.size() == INDEX_INTERVAL) {
+              append(lines);
+              lines.clear();
+            }
+          }
+        }
+      }
+      append(lines);
+      LOG.info("importLineBasedFile() - Imported " + Math.max(0, lineNumber - committedLines) + " lines of "
+          + dataFile.getAbsolutePath() + " into the fallback log");
+    }
+    Files.deleteIfExists(dataFile.toPath());
+    Files.deleteIfExists(counterFile.toPath());
+  }
+
+  private void closeReadChannel() throws IOException {
+    if (readChannel != null) {
+      readChannel.close();
+      readChannel = null;
+      readChannelSequence = -1;
+      readBufferOffset = -1;
+    }
+  }
+
+  /**
+   * Closes the files of the log.
+   */
+  public final synchronized void close() {
+    try {
+      closeReadChannel();
+      if (writeChannel != null) {
+        writeChannel.close();
+      }
+    } catch (IOException e) {
+      LOG.error("close() - The fallback log files could not be closed", e);
+    }
+  }
+
+  /**
+   * Position of a record in the log.
+   */
+  private static final class Position {
+
+    private final long sequence;
+
+    private final long offset;
+
+    /** Number of the record within the segment */
+    private final int record;
+
+    private Position(final long sequence, final long offset, final int record) {
+      this.sequence = sequence;
+      this.offset = offset;
+      this.record = record;
+    }
+  }
+
+  /**
+   * A string record of an imported line-based fallback file.
+   */
+  private static final class Line implements IFallback {
+
+    private final String line;
+
+    private Line(final String line) {
+      this.line = line;
+    }
+
+    @Override
+    public String toString() {
+      return line;
+    }
+
+    @Override
+    public IFallback getObject(final String line) {
+      return new Line(line);
+    }
+
+    @Override
+    public String getId() {
+      return null;
+    }
+  }
+
+  /**
+   * A segment file with its offset index.
+   */
+  private final class Segment {
+
+    private final long sequence;
+
+    private final Path file;
+
+    private final Path indexFile;
+
+    /** Length of the complete records of the segment */
+    private long length;
+
+    private int records;
+
+    /** Offsets of every INDEX_INTERVAL-th record */
+    private long[] index = new long[16];
+
+    private Segment(final long sequence) {
+      this.sequence = sequence;
+      String name = String.format("%s.%010d", dataFile.getName(), sequence);
+      this.file = directory.resolve(name + SEGMENT_SUFFIX);
+      this.indexFile = directory.resolve(name + INDEX_SUFFIX);
+    }
+
+    private void addRecord(final long offset) {
+      if (records % INDEX_INTERVAL == 0) {
+        int slot = records / INDEX_INTERVAL;
+        if (slot == index.length) {
+          index = Arrays.copyOf(index, index.length * 2);
+        }
+        index[slot] = offset;
+      }
+      records++;
+    }
+
+    /**
+     * @return the offset of the given record, or the segment length for the
+     *         record after the last one
+     */
+    private long offsetOf(final int record) throws IOException {
+      if (record >= records) {
+        return length;
+      }
+      long offset = index[record / INDEX_INTERVAL];
+      int toSkip = record % INDEX_INTERVAL;
+      if (toSkip > 0) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          ByteBuffer header = ByteBuffer.allocate(4);
+          for (int i = 0; i < toSkip; i++) {
+            header.clear();
+            channel.read(header, offset);
+            offset += HEADER_LENGTH + header.getInt(0);
+          }
+        }
+      }
+      return offset;
+    }
+
+    /**
+     * Rebuilds the offset index by reading all records, and truncates an
+     * incomplete or corrupt record at the end of the segment.
+     */
+    private void scan() throws IOException {
+      records = 0;
+      length = 0;
+      if (!Files.exists(file)) {
+        return;
+      }
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        buffer.limit(0);
+        CRC32 crc = new CRC32();
+
+        while (length < size) {
+          if (buffer.remaining() < HEADER_LENGTH && !refill(channel, buffer, length, HEADER_LENGTH)) {
+            break;
+          }
+          int recordLength = buffer.getInt(buffer.position());
+          int checksum = buffer.getInt(buffer.position() + 4);
+          if (recordLength < 0 || length + HEADER_LENGTH + recordLength > size) {
+            break;
+          }
+          if (buffer.remaining() < HEADER_LENGTH + recordLength) {
+            if (buffer.capacity() < HEADER_LENGTH + recordLength) {
+              buffer = ByteBuffer.allocate(HEADER_LENGTH + recordLength);
+            }
+            if (!refill(channel, buffer, length, HEADER_LENGTH + recordLength)) {
+              break;
+            }
+          }
+          ByteBuffer payload = buffer.duplicate();
+          payload.position(buffer.position() + HEADER_LENGTH);
+          payload.limit(buffer.position() + HEADER_LENGTH + recordLength);
+          crc.reset();
+          crc.update(payload);
+          if ((int) crc.getValue() != checksum) {
+            break;
+          }
+          addRecord(length);
+          length += HEADER_LENGTH + recordLength;
+          buffer.position(buffer.position() + HEADER_LENGTH + recordLength);
+        }
+
+        if (length < size) {
+          LOG.warn("scan() - Truncating " + (size - length) + " bytes of an incomplete record at the end of "
+              + file);
+          channel.truncate(length);
+        }
+      }
+    }
+
+    private boolean refill(final FileChannel channel, final ByteBuffer buffer, final long offset, final int minimum)
+        throws IOException {
+      buffer.clear();
+      long position = offset;
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+          break;
+        }
+        position += read;
+      }
+      buffer.flip();
+      return buffer.remaining() >= minimum;
+    }
+
+    /**
+     * Writes the record count and the offset index of a sealed segment.
+     */
+    private void writeIndex() throws IOException {
+      int slots = (records + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+      ByteBuffer buffer = ByteBuffer.allocate(8 + 4 + slots * 8 + 8);
+      buffer.putLong(length).putInt(records);
+      for (int i = 0; i < slots; i++) {
+        buffer.putLong(index[i]);
+      }
+      CRC32 crc = new CRC32();
+      crc.update(buffer.array(), 0, buffer.position());
+      buffer.putLong(crc.getValue());
+      Files.write(indexFile, buffer.array());
+    }
+
+    /**
+     * @return true if the index file of the segment was loaded
+     */
+    private boolean readIndex() throws IOException {
+      if (!Files.exists(indexFile)) {
+        return false;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+      if (buffer.capacity() < 20) {
+        return false;
+      }
+      CRC32 crc = new CRC32();
+      crc.update(buffer.array(), 0, buffer.capacity() - 8);
+      long storedLength = buffer.getLong(0);
+      int storedRecords = buffer.getInt(8);
+      int slots = (storedRecords + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+      if (buffer.getLong(buffer.capacity() - 8) != crc.getValue() || buffer.capacity() != 20 + slots * 8
+          || storedLength != Files.size(file)) {
+        LOG.warn("readIndex() - Ignoring the invalid index file " + indexFile);
+        return false;
+      }
+      length = storedLength;
+      records = storedRecords;
+      index = new long[Math.max(16, slots)];
+      for (int i = 0; i < slots; i++) {
+        index[i] = buffer.getLong(12 + i * 8);
+      }
+      return true;
+    }
+
+    private void delete() throws IOException {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(indexFile);
+    }
+  }
+}
@@ -16,13 +16,14 @@
  *****************************************************************************/
 package cern.c2mon.pmanager.fallback.manager;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import cern.c2mon.pmanager.IFallback;
-import cern.c2mon.pmanager.fallback.FallbackFileController;
+import cern.c2mon.pmanager.fallback.FallbackLog;
 import cern.c2mon.pmanager.fallback.FallbackProperties;
 import cern.c2mon.pmanager.fallback.exception.DataFallbackException;
 import cern.c2mon.pmanager.fallback.exception.SystemDiskSpaceException;
@@ -30,7 +31,7 @@ import cern.c2mon.pmanager.fallback.util.SystemResourcesParameters;
 
 /**
  * This class is a helper that allows to encapsulate the mechanism that is being
- * used as a fallback, in this case a logfile. It works as a facade, making
+ * used as a fallback, in this case a {@link FallbackLog}. It works as a facade, making
  * totally independent the application logic from the final log system that is
  * used.
  *
@@ -42,17 +43,17 @@ public class FallbackFileManager {
     /** Log4j Logger for tags that cannot be logged to the database (emergency) */
     public static final Logger LOG = LoggerFactory.getLogger("HistoryFallbackLogger");
 
-    /** FallbackFileController instance */
-    private final FallbackFileController fFileController;
+    /** FallbackLog instance */
+    private final FallbackLog fallbackLog;
 
     /**
      * Indicates which type of IFallback objects will be handled by this class
-     * and by its FallbackFileController instance
+     * and by its FallbackLog instance
      */
     private final IFallback fallbackObj;
 
     /**
-     * It indicates the number of lines in the fallback file for which, when
+     * It indicates the number of records in the fallback log for which, when
      * reached, the free disk space in the system will be checked
      */
     private int nextCheckFallbackData = 0;
@@ -76,7 +77,8 @@ public class FallbackFileManager {
      * Public constructor
      *
      * @param fallbackFile
-     *            The absolute path for the fallback file
+     *            The absolute path for the fallback file, which is the name
+     *            prefix of the fallback log segment files
      * @param fallbackObj
      *            IFallback object used for knowing with which concrete
      *            implementation of the interface deals each instance of this
@@ -84,7 +86,8 @@ public class FallbackFileManager {
      *
      */
     public FallbackFileManager(final String fallbackFile, final IFallback fallbackObj) {
-        this.fFileController = new FallbackFileController(fallbackFile);
+        this.fallbackLog = new FallbackLog(fallbackFile,
+                FallbackProperties.getInstance().getSegmentSize() * 1024L * 1024L);
         this.fallbackObj = fallbackObj;
     }
 
@@ -97,21 +100,8 @@ public class FallbackFileManager {
      *             An exception is thrown in case something wrongs happens while
      *             writing in the file
      */
-    public final void fallback(final List data) throws DataFallbackException {
-
-        // If the file is empty we close the reading descriptor since it means
-        // that a new file is going to be created
-        if (isFallbackFileEmpty())
-            fFileController.closeFallbackInputStream();
-        // open the fallback log file output stream
-        fFileController.openFallbackOutputStream();
-        final int size = data.size();
-        // Iterate through all the datatags and logged all the info that
-        // contains into the fallback log file
-        for (int i = 0; i != size; i++) {
-            fFileController.writeLine((IFallback) data.get(i));
-        }
-        fFileController.setNumberOfLines(fFileController.getNumberOfLines() + size);
+    public final void fallback(final List<? extends IFallback> data) throws DataFallbackException {
+        fallbackLog.append(data);
     }
 
     /**
@@ -124,25 +114,12 @@ public class FallbackFileManager {
      *             writing the object
      */
     public final void fallback(final IFallback fallbackObj) throws DataFallbackException {
-
-        try {
-            // If the file is empty we close the reading descriptor since it
-            // means that
-            // a new file is going to be created
-            if (isFallbackFileEmpty())
-                fFileController.closeFallbackInputStream();
-            // open the fallback log file output stream
-            fFileController.openFallbackOutputStream();
-            fFileController.writeLine(fallbackObj);
-            fFileController.setNumberOfLines(fFileController.getNumberOfLines() + 1);
-        } catch (DataFallbackException e) {
-            throw new DataFallbackException(e.getMessage());
-        }
+        fallbackLog.append(Collections.singletonList(fallbackObj));
     }
 
     /**
-     * Checks the free disc space every time a determined number of lines are
-     * written to the file
+     * Checks the free disc space every time a determined number of records
+     * are written to the fallback log
      *
      * @param minimumFreeSpace
      *            The minimum disk space that has to be free for continue
@@ -158,12 +135,12 @@ public class FallbackFileManager {
         final FallbackProperties fProperties = FallbackProperties.getInstance();
         boolean checkDone = false;
 
-        if (fFileController.getNumberOfLines() > nextCheckFallbackData) {
+        if (fallbackLog.getNumberOfRecords() > nextCheckFallbackData) {
             checkDone = true;
             if (LOG.isDebugEnabled())
                 LOG
-                        .debug("isDiskSpaceCheckDone() : Doing the check since the number of lines are "
-                                + fFileController.getNumberOfLines()
+                        .debug("isDiskSpaceCheckDone() : Doing the check since the number of records is "
+                                + fallbackLog.getNumberOfRecords()
                                 + " and the current value for nextcheck is "
                                 + nextCheckFallbackData);
             long freeSpace = SystemResourcesParameters.getFreeSpace();
@@ -172,7 +149,7 @@ public class FallbackFileManager {
                 throw new SystemDiskSpaceException("Reached the limit of free space of "
                         + minimumFreeSpace + ", current free space is " + freeSpace);
             } else {
-                nextCheckFallbackData = fFileController.getNumberOfLines()
+                nextCheckFallbackData = (int) fallbackLog.getNumberOfRecords()
                         + fProperties.getFreeSpaceCheckFrequency();
                 if (LOG.isDebugEnabled())
                     LOG.debug("isDiskSpaceCheckDone() : New value of nextCheckDataTags is "
@@ -186,82 +163,52 @@ public class FallbackFileManager {
      * It retrieves an instance of the object in charge of dealing with the
      * fallback mechanism
      *
-     * @return A DataTagFallback object
+     * @return The FallbackLog object
      */
-    public final FallbackFileController getFallbackFileController() {
-        return this.fFileController;
+    public final FallbackLog getFallbackLog() {
+        return this.fallbackLog;
     }
 
     /**
-     * Reads a number of lines from the fallback mechanism
+     * Reads a number of records from the fallback mechanism, while new
+     * records may still be appended
      *
      * @param numberOfLines
-     *            Number of lines to be read
-     * @return Number of lines that have been read
+     *            Number of records to be read
+     * @return The read objects and the number of records that have been read
      * @throws DataFallbackException
      *             An exception is thrown if something wrongs happens while
      *             reading the file
      */
     public final FallbackObjectContainer readDataBack(final int numberOfLines) throws DataFallbackException {
-        // close the outputstream if it was still opened
-        fFileController.closeFallbackOutputStream();
-        fFileController.openFallbackInputStream();
-        // read from the fallback log mechanism the indicated number of lines
-        final FallbackObjectContainer data = fFileController.readLines(numberOfLines, fallbackObj);
-        // dtFallback.closeFallbackInputStream();
-        return data;
+        return fallbackLog.read(numberOfLines, fallbackObj);
     }
 
     /**
      * It calls the remove functionality from the fallback log mechanism. It
-     * updates the counter indicating the number of lines that have been already
-     * processed from the file. When all the datatags contained in the file has
-     * been committed to the DB all the contents of the fallback file are
-     * completely removed
+     * moves the checkpoint of the fallback log after the records that have
+     * been committed to the DB, and deletes the segment files whose records
+     * have all been committed
      *
      * @param numberOfLines
-     *            Number of lines that has been already processed from the log
-     *            file
-     * @return A boolean that indicates whether the lines were successfully
+     *            Number of records that has been already processed from the
+     *            fallback log
+     * @return A boolean that indicates whether the records were successfully
      *         removed or not
      *
      */
     public final boolean removeReadData(final int numberOfLines) {
-
-        boolean removed = true;
-
-        // Update the number of already committed datatags
-        fFileController.setReadBackLines(numberOfLines + fFileController.getReadBackLines());
-        // Virtually remove those datatags from the file
         try {
-            fFileController.updateNumberOfProcessedLines();
+            fallbackLog.commit(numberOfLines);
         } catch (DataFallbackException e) {
-            removed = false;
+            LOG.error("Exception caught while attempting to remove records from the fallback log", e);
+            return false;
         }
-        try {
-            // Physically remove all the contents from the file once all the
-            // datatags have been committed to the DB
-            if (LOG.isDebugEnabled()) {
-                LOG
-                        .debug("removeReadData : Checking if the file can be removed the number of read lines is: "
-                                + fFileController.getReadBackLines()
-                                + " and the file's lines is "
-                                + fFileController.getNumberOfLines());
-            }
-            if (fFileController.getReadBackLines() == fFileController.getNumberOfLines()) {
-                // Close the reading descriptor
-                fFileController.closeFallbackInputStream();
-                fFileController.clearFileContents();
-                fFileController.setReadBackLines(0);
-                fFileController.setNumberOfLines(0);
-                // We also set the number for doing the disc file check to zero
-                resetNextDiscSpaceCheck();
-            }
-        } catch (DataFallbackException e) {
-            removed = false;
-            LOG.error("Exception caught while attempting to remove lines from the Fallback file", e);
+        if (fallbackLog.getNumberOfRecords() == 0) {
+            // We also set the number for doing the disc file check to zero
+            resetNextDiscSpaceCheck();
         }
-        return removed;
+        return true;
     }
 
     /**
@@ -272,34 +219,34 @@ public class FallbackFileManager {
     }
 
     /**
-     * Places the file descriptor in the line indicated as parameter
+     * Places the read position of the fallback log after the records already
+     * committed, so that the records read after them are read again
      *
      * @param lastCommited
-     *            Number of lines already processed
+     *            Number of records already processed
      * @throws DataFallbackException
      *             An exception is thrown if something went wrong while reading
-     *             the lines from the file
+     *             the records from the fallback log
      */
     public final void goToLastProcessedLine(final int lastCommited)
             throws DataFallbackException {
-        fFileController.closeFallbackInputStream();
-        int readLines = fFileController.getReadBackLines();
-        fFileController.goToLine(readLines + lastCommited);
+        fallbackLog.rewind(lastCommited);
     }
 
     /**
-     * It checks whether the file is empty (true) or not (false)
+     * It checks whether the fallback log has records that still have to be
+     * committed (false) or not (true)
      *
      * @return The value indicating the status of the log
      */
     public final boolean isFallbackFileEmpty() {
-        return !((fFileController.getNumberOfLines()) > 0);
+        return fallbackLog.isEmpty();
     }
 
     /**
      * It releases the object memory
      */
     public final void finalize() {
-        this.fFileController.finalize();
+        this.fallbackLog.close();
     }
 }
@@ -252,7 +252,7 @@ public class PersistenceManager<T extends IFallback> implements IPersistenceMana
       commitedTags = e.getCommited();
       if (size > commitedTags) {
         List<T> temp = data.subList(commitedTags, size);
-        synchronized (fallbackManager.getFallbackFileController()) {
+        synchronized (fallbackManager) {
           if (!writeToFallback(temp)) {
             for (int i = 0; i < temp.size(); i++) {
               fallbackObj = temp.get(i);
@@ -293,7 +293,7 @@ public class PersistenceManager<T extends IFallback> implements IPersistenceMana
       alarmSender.dbUnavailable(DOWN, null, dbHandler.getDBInfo());
     } catch (IDBPersistenceException e) {
       dbConnectionUp = false;
-      synchronized (fallbackManager.getFallbackFileController()) {
+      synchronized (fallbackManager) {
         List<T> temp = new ArrayList<>();
         temp.add(object);
         if (!writeToFallback(temp)) {
@@ -329,18 +329,18 @@ public class PersistenceManager<T extends IFallback> implements IPersistenceMana
       // There is still free disc space, so we TERMINATE the alarm if it
       // has been sent and reactivate the email sender
       if (checked) {
-        alarmSender.diskFull(DOWN, fallbackManager.getFallbackFileController()
+        alarmSender.diskFull(DOWN, fallbackManager.getFallbackLog()
             .getDataFile().getParentFile().getAbsolutePath());
       }
       // Start writing to the fallback file since there is still free disc
       // space
       try {
         FALLBACK_LOG.info("Writing " + temp.size() + " dataTags to the fallback file "
-            + fallbackManager.getFallbackFileController().getDataFile().getAbsolutePath());
+            + fallbackManager.getFallbackLog().getDataFile().getAbsolutePath());
         fallbackManager.fallback(temp);
         // Check if the writing problem with the fallback file has been
         // fixed
-        alarmSender.fileNotReachable(DOWN, fallbackManager.getFallbackFileController()
+        alarmSender.fileNotReachable(DOWN, fallbackManager.getFallbackLog()
             .getDataFile());
 
       } catch (DataFallbackException ex) {
@@ -354,7 +354,7 @@ public class PersistenceManager<T extends IFallback> implements IPersistenceMana
         // datatags to the DB cannot either being logged into the
         // fallback log file
         alarmSender.fileNotReachable(ACTIVATED, fallbackManager
-            .getFallbackFileController().getDataFile());
+            .getFallbackLog().getDataFile());
         // Since there was a problem with the fallback mechanism (and
         // there is enough disk space),
         // we want to log the dataTags into one of the log4j log files
@@ -363,7 +363,7 @@ public class PersistenceManager<T extends IFallback> implements IPersistenceMana
 
     } catch (SystemDiskSpaceException e) {
       // Minimum free disc space reached
-      alarmSender.diskFull(ACTIVATED, fallbackManager.getFallbackFileController()
+      alarmSender.diskFull(ACTIVATED, fallbackManager.getFallbackLog()
           .getDataFile().getParentFile().getAbsolutePath());
     } catch (Exception e) {
       FALLBACK_LOG.error("RuntimeException: " + e.getMessage(), e);
@@ -122,26 +122,26 @@ public class DataRecoveryThread implements Runnable, FallbackAlarmsInterface {
         stopped = false;
         if (FALLBACK_LOG.isDebugEnabled())
             FALLBACK_LOG.debug("Thread of instance " + this.hashCode() + " beginning");
-        synchronized (persistenceManager.getFallbackManager().getFallbackFileController()) {
-            while (!persistenceManager.getFallbackManager().isFallbackFileEmpty() && committed
-                    && isRunning()) {
-                int numberOfTags;
-                // The data from the log file will be read from the file and
-                // committed in the database in bunches of a defined size
-                numberOfTags = commitFallbackData();
-                if (numberOfTags > 0) {
-                    // Remove the dataTags that have been committed back from
-                    // the fallback file
-                    removeReadData(numberOfTags);
-                }
-                if (numberOfTags == 0) {
-                    committed = false;
-                }
-                try {
-                    Thread.sleep(persistenceManager.getSleepTime());
-                } catch (InterruptedException e) {
-                    FALLBACK_LOG.error("An error occurred while trying to make the thread to sleep");
-                }
+        // The fallback log is not locked while reading it back, so that new
+        // records can still be appended meanwhile
+        while (!persistenceManager.getFallbackManager().isFallbackFileEmpty() && committed
+                && isRunning()) {
+            int numberOfTags;
+            // The data from the log file will be read from the file and
+            // committed in the database in bunches of a defined size
+            numberOfTags = commitFallbackData();
+            if (numberOfTags > 0) {
+                // Remove the dataTags that have been committed back from
+                // the fallback file
+                removeReadData(numberOfTags);
+            }
+            if (numberOfTags == 0) {
+                committed = false;
+            }
+            try {
+                Thread.sleep(persistenceManager.getSleepTime());
+            } catch (InterruptedException e) {
+                FALLBACK_LOG.error("An error occurred while trying to make the thread to sleep");
             }
         }
         /*
@@ -230,14 +230,14 @@ public class DataRecoveryThread implements Runnable, FallbackAlarmsInterface {
         if (!persistenceManager.getFallbackManager().removeReadData(size)) {
             persistenceManager.getAlarmSender().fileNotReachable(
                     ACTIVATED,
-                    persistenceManager.getFallbackManager().getFallbackFileController()
+                    persistenceManager.getFallbackManager().getFallbackLog()
                             .getDataFile());
             FALLBACK_LOG
                     .error("commitFallbackCommandLogs() - CommandTags cannot be removed from the fallback log file");
         } else {
             persistenceManager.getAlarmSender().fileNotReachable(
                     DOWN,
-                    persistenceManager.getFallbackManager().getFallbackFileController()
+                    persistenceManager.getFallbackManager().getFallbackLog()
                             .getDataFile());
         }
 
@@ -0,0 +1,235 @@
+/******************************************************************************
+ * Copyright (C) 2010-2018 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+
+package cern.c2mon.pmanager.fallback;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.pmanager.IFallback;
+import cern.c2mon.pmanager.fallback.manager.FallbackObjectContainer;
+import cern.c2mon.pmanager.mock.FallbackImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * JUnit test for the FallbackLog class
+ */
+public class FallbackLogTest {
+
+  private Path directory;
+
+  private String fallbackPath;
+
+  private FallbackLog fallbackLog;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("c2mon-fallback-test");
+    fallbackPath = directory.resolve("DataTagFallback.log").toString();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (fallbackLog != null) {
+      fallbackLog.close();
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void testAppendReadAndCommit() throws Exception {
+    fallbackLog = new FallbackLog(fallbackPath, 1024 * 1024);
+    assertTrue(fallbackLog.isEmpty());
+
+    fallbackLog.append(records(0, 10));
+    assertEquals(10, fallbackLog.getNumberOfRecords());
+    assertFalse(fallbackLog.isEmpty());
+
+    FallbackObjectContainer container = fallbackLog.read(4, new FallbackImpl());
+    assertEquals(4, container.getReadLines());
+    assertRecords(container, 0, 4);
+    fallbackLog.commit(4);
+    assertEquals(6, fallbackLog.getPendingRecords());
+
+    container = fallbackLog.read(100, new FallbackImpl());
+    assertRecords(container, 4, 10);
+    fallbackLog.commit(6);
+    assertTrue(fallbackLog.isEmpty());
+    assertEquals(0, fallbackLog.getNumberOfRecords());
+    assertEquals(0, fallbackLog.read(100, new FallbackImpl()).getReadLines());
+
+    fallbackLog.append(records(10, 12));
+    assertRecords(fallbackLog.read(100, new FallbackImpl()), 10, 12);
+  }
+
+  @Test
+  public void testSegmentsAreRolledAndDeleted() throws Exception {
+    fallbackLog = new FallbackLog(fallbackPath, 1024);
+    fallbackLog.append(records(0, 2000));
+    assertTrue(countSegments() > 10);
+
+    assertRecords(fallbackLog.read(1500, new FallbackImpl()), 0, 1500);
+    fallbackLog.commit(1500);
+    assertEquals(500, fallbackLog.getPendingRecords());
+    assertTrue(fallbackLog.getNumberOfRecords() < 2000);
+
+    assertRecords(fallbackLog.read(1000, new FallbackImpl()), 1500, 2000);
+    fallbackLog.commit(500);
+    assertTrue(fallbackLog.isEmpty());
+    assertEquals(1, countSegments());
+  }
+
+  @Test
+  public void testResumeFromCursor() throws Exception {
+    fallbackLog = new FallbackLog(fallbackPath, 4096);
+    fallbackLog.append(records(0, 3000));
+    fallbackLog.read(1234, new FallbackImpl());
+    fallbackLog.commit(1234);
+    fallbackLog.read(100, new FallbackImpl());
+    fallbackLog.close();
+
+    fallbackLog = new FallbackLog(fallbackPath, 4096);
+    assertEquals(3000 - 1234, fallbackLog.getPendingRecords());
+    assertRecords(fallbackLog.read(5000, new FallbackImpl()), 1234, 3000);
+  }
+
+  @Test
+  public void testRewind() throws Exception {
+    fallbackLog = new FallbackLog(fallbackPath, 4096);
+    fallbackLog.append(records(0, 3000));
+    fallbackLog.read(2000, new FallbackImpl());
+    fallbackLog.rewind(1100);
+    fallbackLog.commit(1100);
+    assertRecords(fallbackLog.read(10, new FallbackImpl()), 1100, 1110);
+  }
+
+  @Test
+  public void testTornRecordIsTruncated() throws Exception {
+    fallbackLog = new FallbackLog(fallbackPath, 1024 * 1024);
+    fallbackLog.append(records(0, 5));
+    fallbackLog.close();
+    Path segment = listSegments().get(0);
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    fallbackLog = new FallbackLog(fallbackPath, 1024 * 1024);
+    assertEquals(4, fallbackLog.getNumberOfRecords());
+    fallbackLog.append(records(5, 6));
+    FallbackObjectContainer container = fallbackLog.read(100, new FallbackImpl());
+    assertEquals(5, container.getReadLines());
+    assertEquals("record5", container.getObjects().get(4).toString());
+  }
+
+  @Test
+  public void testLineBasedFileIsImported() throws Exception {
+    Files.write(new File(fallbackPath).toPath(), Arrays.asList("record0", "record1", "record2", "record3"),
+        StandardCharsets.UTF_8);
+    Files.write(directory.resolve(".CounterDataTagFallback.log"), "1".getBytes(StandardCharsets.UTF_8));
+
+    fallbackLog = new FallbackLog(fallbackPath, 1024 * 1024);
+    assertEquals(3, fallbackLog.getPendingRecords());
+    assertRecords(fallbackLog.read(100, new FallbackImpl()), 1, 4);
+    assertFalse(new File(fallbackPath).exists());
+    assertFalse(Files.exists(directory.resolve(".CounterDataTagFallback.log")));
+  }
+
+  @Test
+  public void testAppendWhileReading() throws Exception {
+    fallbackLog = new FallbackLog(fallbackPath, 16 * 1024);
+    fallbackLog.append(records(0, 1000));
+
+    AtomicReference<Exception> error = new AtomicReference<>();
+    Thread writer = new Thread(() -> {
+      try {
+        for (int i = 1000; i < 5000; i += 100) {
+          fallbackLog.append(records(i, i + 100));
+        }
+      } catch (Exception e) {
+        error.set(e);
+      }
+    });
+    writer.start();
+
+    int next = 0;
+    while (next < 5000) {
+      FallbackObjectContainer container = fallbackLog.read(250, new FallbackImpl());
+      assertRecords(container, next, next + container.getReadLines());
+      fallbackLog.commit(container.getReadLines());
+      next += container.getReadLines();
+      if (container.getReadLines() == 0) {
+        writer.join(10);
+      }
+    }
+    writer.join();
+    assertNull(error.get());
+    assertTrue(fallbackLog.isEmpty());
+  }
+
+  private static List<IFallback> records(final int from, final int to) {
+    List<IFallback> records = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      FallbackImpl record = new FallbackImpl();
+      record.setObjectData("record" + i);
+      records.add(record);
+    }
+    return records;
+  }
+
+  private static void assertRecords(final FallbackObjectContainer container, final int from, final int to) {
+    assertEquals(to - from, container.getObjects().size());
+    for (int i = from; i < to; i++) {
+      assertEquals("record" + i, container.getObjects().get(i - from).toString());
+    }
+  }
+
+  private List<Path> listSegments() throws IOException {
+    List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.seg")) {
+      for (Path file : files) {
+        segments.add(file);
+      }
+    }
+    return segments;
+  }
+
+  private int countSegments() throws IOException {
+    return listSegments().size();
+  }
+}
@@ -57,11 +57,11 @@ public class PersistenceManagerTest {
    */
   @Test
   public final void testStoreObjectData() {
-    int lines = persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines();
+    long lines = persistenceManager.getFallbackManager().getFallbackLog().getNumberOfRecords();
 
     IFallback fallback = new FallbackImpl();
     persistenceManager.storeData(fallback);
-    assertEquals(lines, persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines());
+    assertEquals(lines, persistenceManager.getFallbackManager().getFallbackLog().getNumberOfRecords());
   }
 
   /**
@@ -69,13 +69,13 @@ public class PersistenceManagerTest {
    */
   @Test
   public final void testStoreListData() {
-    int lines = persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines();
+    long lines = persistenceManager.getFallbackManager().getFallbackLog().getNumberOfRecords();
     List<IFallback> data = new ArrayList<>();
     for (int i = 0; i < 4; i++) {
       data.add(new FallbackImpl());
     }
     persistenceManager.storeData(data);
-    assertEquals(lines, persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines());
+    assertEquals(lines, persistenceManager.getFallbackManager().getFallbackLog().getNumberOfRecords());
   }
 
   /**
@@ -84,11 +84,11 @@ public class PersistenceManagerTest {
   @Test
   public final void testStoreObjectConnectionFails() {
     FallbackImpl fallback = new FallbackImpl();
-    int lines = persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines();
+    long lines = persistenceManager.getFallbackManager().getFallbackLog().getNumberOfRecords();
 
     fallback.setObjectData(FallbackImpl.ERROR);
     persistenceManager.storeData(fallback);
-    assertEquals(1, persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines() - lines);
+    assertEquals(1, persistenceManager.getFallbackManager().getFallbackLog().getNumberOfRecords() - lines);
   }
 
   /**
@@ -97,7 +97,7 @@ public class PersistenceManagerTest {
   @Test
   public final void testStoreListDataConnectionFails() {
     List<IFallback> data = new ArrayList<>();
-    int lines = persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines();
+    long lines = persistenceManager.getFallbackManager().getFallbackLog().getNumberOfRecords();
     for (int i = 0; i < 4; i++) {
       data.add(new FallbackImpl());
     }
@@ -105,6 +105,6 @@ public class PersistenceManagerTest {
     fallback.setObjectData(FallbackImpl.ERROR);
     data.add(fallback);
     persistenceManager.storeData(data);
-    assertEquals(5, persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines() - lines);
+    assertEquals(5, persistenceManager.getFallbackManager().getFallbackLog().getNumberOfRecords() - lines);
   }
 }
@@ -22,8 +22,10 @@ import java.util.Map;
 import java.util.Set;
 
 import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.parser.CompiledRule;
 import cern.c2mon.shared.rule.parser.InvalidExpressionParser;
 import cern.c2mon.shared.rule.parser.Parser;
+import cern.c2mon.shared.rule.parser.RuleCompiler;
 import cern.c2mon.shared.rule.parser.RuleConstant;
 
 public class SimpleRuleExpression extends RuleExpression implements Cloneable {
@@ -35,6 +37,11 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
      */
     private Object[] tokens = null;
 
+    /**
+     * The tokens compiled by the {@link RuleCompiler}, created with the first evaluation.
+     */
+    private transient volatile CompiledRule compiledRule = null;
+
     public SimpleRuleExpression(final String pExpression) throws RuleFormatException {
         super(pExpression, RuleType.Simple);
         this.tokens = tokenize(pExpression);
@@ -472,6 +479,14 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
     private Object handleRuleWithNoInvalidTags(final Map<Long, RuleInputValue> pInputParams)
         throws RuleEvaluationException {
 
+      final CompiledRule compiled = getCompiledRule();
+      if (compiled != null) {
+        final Object result = compiled.evaluate(pInputParams);
+        if (result != null) {
+          return result;
+        }
+      }
+
       final Object[] valueTokens = splitToTokens(pInputParams);
       final Object result = Parser.getInstance().eval(valueTokens); // => evaluate the expression as normal
       return result;
@@ -507,12 +522,36 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
     private Object tryToIgnoreInvalidTags(final Map<Long, RuleInputValue> pInputParams) 
         throws RuleEvaluationException {
       
+      final CompiledRule compiled = getCompiledRule();
+      if (compiled != null) {
+        final Object result = compiled.evaluateAllowingInvalidTags(pInputParams);
+        if (result != null) {
+          return result;
+        }
+      }
+
       final Object[] valueTokens = splitToTokensAndAllowInvalidTags(pInputParams);
       final Object result = InvalidExpressionParser.getInstance().eval(valueTokens);
       
       return result;
     }
     
+    /**
+     * @return The compiled form of this expression, or null if compilation is
+     * disabled or the expression can only be evaluated by the {@link Parser}.
+     */
+    private CompiledRule getCompiledRule() {
+      if (!RuleCompiler.isEnabled()) {
+        return null;
+      }
+      CompiledRule compiled = this.compiledRule;
+      if (compiled == null) {
+        compiled = RuleCompiler.compile(this.tokens);
+        this.compiledRule = compiled;
+      }
+      return compiled.isCompiled() ? compiled : null;
+    }
+
     @Override
     public Set<Long> getInputTagIds() {
         Set<Long> ids = new LinkedHashSet<Long>();
@@ -0,0 +1,129 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.parser;
+
+import java.util.Map;
+
+import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.RuleEvaluationException;
+
+/**
+ * A rule expression compiled by the {@link RuleCompiler}.
+ * <p>
+ * Evaluating a compiled rule gives the same results and errors as splitting
+ * the rule into value tokens and passing them to the {@link Parser}
+ * (respectively the {@link InvalidExpressionParser}), but without allocating
+ * any token arrays. Instances are immutable and thread-safe.
+ */
+public final class CompiledRule {
+
+  /** Placeholder for expressions which can only be evaluated by the {@link Parser} */
+  public static final CompiledRule NOT_COMPILABLE = new CompiledRule(null, new Long[0]);
+
+  private final RuleNode root;
+
+  /** The input tag ids in the order of their first appearance in the expression */
+  private final Long[] inputTagIds;
+
+  CompiledRule(final RuleNode root, final Long[] inputTagIds) {
+    this.root = root;
+    this.inputTagIds = inputTagIds;
+  }
+
+  /**
+   * @return false for {@link #NOT_COMPILABLE}
+   */
+  public boolean isCompiled() {
+    return root != null;
+  }
+
+  /**
+   * Evaluates the rule with the {@link Parser}.
+   *
+   * @param inputs Map of value objects related to the input tag ids
+   * @return the result, or <code>null</code> if the input values require the
+   *         evaluation through the {@link Parser}
+   * @throws RuleEvaluationException in case an input tag is missing or its value is null
+   */
+  public Object evaluate(final Map<Long, RuleInputValue> inputs) throws RuleEvaluationException {
+    return evaluate(inputs, Parser.getInstance(), false);
+  }
+
+  /**
+   * Evaluates the rule with the {@link InvalidExpressionParser}. Invalid
+   * input tags are replaced by {@link RuleConstant#INTERNAL_INVALID}.
+   *
+   * @param inputs Map of value objects related to the input tag ids
+   * @return the result, or <code>null</code> if the input values require the
+   *         evaluation through the {@link InvalidExpressionParser}
+   * @throws RuleEvaluationException in case an input tag is missing or the value of a valid one is null
+   */
+  public Object evaluateAllowingInvalidTags(final Map<Long, RuleInputValue> inputs) throws RuleEvaluationException {
+    return evaluate(inputs, InvalidExpressionParser.getInstance(), true);
+  }
+
+  private Object evaluate(final Map<Long, RuleInputValue> inputs, final AbstractParser parser, final boolean allowInvalid)
+      throws RuleEvaluationException {
+    if (!isCompiled()) {
+      return null;
+    }
+
+    // Same checks and error messages as when splitting the rule into value tokens
+    for (Long tagId : inputTagIds) {
+      RuleInputValue input = inputs.get(tagId);
+      if (input == null) {
+        throw new RuleEvaluationException("Cannot evaluate rule: input tag missing " + tagId);
+      }
+      if (allowInvalid && !input.isValid()) {
+        continue;
+      }
+      Object value = input.getValue();
+      if (value == null) {
+        throw new RuleEvaluationException("Cannot evaluate rule: tag " + input.getId() + " is null.");
+      }
+      if (isStructuralToken(value)) {
+        return null;
+      }
+    }
+
+    return root.eval(inputs, parser, allowInvalid);
+  }
+
+  /**
+   * The parser does not distinguish string values from the rule syntax. Strings
+   * which look like parentheses or unary operators therefore change the way
+   * the parser reads the expression, which the compiled rule cannot reproduce.
+   *
+   * @return true if the given input value is such a string
+   */
+  private static boolean isStructuralToken(final Object value) {
+    if (value instanceof String) {
+      String str = (String) value;
+      if (str.isEmpty()) {
+        return true;
+      }
+      char first = str.charAt(0);
+      return first == '(' || first == ')' || str.equals("!") || str.equals("-");
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return isCompiled() ? root.toString() : "NOT_COMPILABLE";
+  }
+}
@@ -0,0 +1,168 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.parser;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.shared.rule.RuleInputTagId;
+
+/**
+ * Compiles the tokens of a rule expression once into a syntax tree, which
+ * can then be evaluated any number of times without splitting the token
+ * array again.
+ * <p>
+ * The tree is built by applying exactly the same decomposition as
+ * {@link AbstractParser#eval(Object[])}: the leftmost operand, the operator
+ * following it and everything on its right. Compiled rules therefore keep
+ * the evaluation order of the parser, including the right-to-left grouping
+ * of operators without precedence.
+ * <p>
+ * Expressions which the parser cannot evaluate in any case (e.g. unbalanced
+ * parentheses or unknown operators) are not compiled, so that their evaluation
+ * keeps failing with the same error as before.
+ * <p>
+ * Compilation can be switched off with the system property
+ * <code>c2mon.rule.compiled=false</code>.
+ *
+ * @see CompiledRule
+ */
+@Slf4j
+public final class RuleCompiler {
+
+  /** System property to enable or disable the evaluation of compiled rules */
+  public static final String ENABLED_PROPERTY = "c2mon.rule.compiled";
+
+  private static volatile boolean enabled = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+  private RuleCompiler() {
+  }
+
+  /**
+   * @return true if rule expressions shall be evaluated through their compiled form
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Enables or disables the evaluation of compiled rules at runtime.
+   * If disabled, all rules are evaluated by the {@link Parser}.
+   *
+   * @param enabled true to use compiled rules
+   */
+  public static void setEnabled(final boolean enabled) {
+    RuleCompiler.enabled = enabled;
+  }
+
+  /**
+   * @param tokens the tokens of the rule expression, with {@link RuleInputTagId} for the input tags
+   * @return the compiled rule, or {@link CompiledRule#NOT_COMPILABLE} if the expression
+   *         cannot be evaluated without going through the {@link Parser}
+   */
+  public static CompiledRule compile(final Object[] tokens) {
+    try {
+      Set<Long> inputTagIds = new LinkedHashSet<>();
+      RuleNode root = compile(tokens, inputTagIds);
+      return new CompiledRule(root, inputTagIds.toArray(new Long[0]));
+    } catch (Exception e) {
+      log.debug("Rule expression {} is not compiled and will be interpreted: {}", Arrays.toString(tokens), e.getMessage());
+      return CompiledRule.NOT_COMPILABLE;
+    }
+  }
+
+  /**
+   * Mirrors {@link AbstractParser#eval(Object[])} on the rule tokens.
+   */
+  private static RuleNode compile(final Object[] token, final Set<Long> inputTagIds) {
+    AbstractParser parser = Parser.getInstance();
+
+    if (!parser.isParenthesisBalanced(token)) {
+      throw new IllegalArgumentException("Parenthesis not balanced!");
+    }
+
+    if (token.length == 1) {
+      return operand(token[0], inputTagIds);
+    }
+
+    Object[] x = parser.extractExpressionFromTheLeft(token);
+
+    // "(" expression ")"
+    if (isToken(token[0], "(") && isToken(token[token.length - 1], ")") && x.length == token.length - 2) {
+      return compile(x, inputTagIds);
+    }
+
+    // unary operators "!" and "-"
+    if (x.length == token.length) {
+      Object[] x2 = Arrays.copyOfRange(x, 1, x.length);
+      if (isToken(x[0], "!")) {
+        return new RuleNode.Not(compile(x2, inputTagIds));
+      } else if (isToken(x[0], "-")) {
+        return new RuleNode.Negate(compile(x2, inputTagIds));
+      }
+      throw new IllegalArgumentException("Cannot handle unary operator " + x[0]);
+    }
+
+    int operatorIndex = isToken(token[0], "(") ? x.length + 2 : x.length;
+    if (operatorIndex >= token.length || !(token[operatorIndex] instanceof String)) {
+      throw new IllegalArgumentException("No operator found after " + Arrays.toString(x));
+    }
+    Operator operator = Operator.fromString((String) token[operatorIndex]);
+    if (operator == null) {
+      throw new IllegalArgumentException("Unknown operator " + token[operatorIndex]);
+    }
+    Object[] y = Arrays.copyOfRange(token, operatorIndex + 1, token.length);
+
+    return fold(new RuleNode.Binary(operator, compile(x, inputTagIds), compile(y, inputTagIds)));
+  }
+
+  private static RuleNode operand(final Object token, final Set<Long> inputTagIds) {
+    if (token instanceof RuleInputTagId) {
+      Long tagId = ((RuleInputTagId) token).getId();
+      inputTagIds.add(tagId);
+      return new RuleNode.Input(tagId);
+    }
+    return new RuleNode.Constant(token);
+  }
+
+  /**
+   * Pre-calculates binary expressions on two numeric or boolean constants.
+   * String constants are left alone, as they might be INVALID keywords
+   * which are treated differently by the {@link InvalidExpressionParser}.
+   */
+  private static RuleNode fold(final RuleNode.Binary node) {
+    if (node.left instanceof RuleNode.Constant && node.right instanceof RuleNode.Constant) {
+      Object x = ((RuleNode.Constant) node.left).value;
+      Object y = ((RuleNode.Constant) node.right).value;
+      if (!(x instanceof String) && !(y instanceof String)) {
+        try {
+          return new RuleNode.Constant(Parser.getInstance().calculateExpr(x, y, node.operator));
+        } catch (Exception e) {
+          // keep the error for evaluation time
+        }
+      }
+    }
+    return node;
+  }
+
+  private static boolean isToken(final Object token, final String value) {
+    return token instanceof String && token.equals(value);
+  }
+}
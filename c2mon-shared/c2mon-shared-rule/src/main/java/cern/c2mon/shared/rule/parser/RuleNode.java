@@ -0,0 +1,177 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.parser;
+
+import java.util.Map;
+
+import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.RuleEvaluationException;
+
+/**
+ * Node of the syntax tree built by the {@link RuleCompiler}.
+ * <p>
+ * Every node evaluates to the same object as the {@link AbstractParser#eval(Object[])}
+ * call on the corresponding part of the token array. The nodes are immutable
+ * and can be shared between threads.
+ *
+ * @see CompiledRule
+ */
+abstract class RuleNode {
+
+  /**
+   * @param inputs the rule input values, which have already been checked by {@link CompiledRule}
+   * @param parser the parser used to calculate binary expressions
+   * @param allowInvalid if true, invalid inputs evaluate to {@link RuleConstant#INTERNAL_INVALID}
+   * @return the result of this part of the expression
+   */
+  abstract Object eval(Map<Long, RuleInputValue> inputs, AbstractParser parser, boolean allowInvalid)
+      throws RuleEvaluationException;
+
+  /**
+   * A constant of the rule text: number, boolean, string or {@link RuleConstant#INVALID_KEYWORD}.
+   */
+  static final class Constant extends RuleNode {
+
+    final Object value;
+
+    Constant(final Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object eval(final Map<Long, RuleInputValue> inputs, final AbstractParser parser, final boolean allowInvalid) {
+      return value;
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(value);
+    }
+  }
+
+  /**
+   * The value of an input tag.
+   */
+  static final class Input extends RuleNode {
+
+    /** Kept boxed to avoid boxing on every map lookup */
+    final Long tagId;
+
+    Input(final Long tagId) {
+      this.tagId = tagId;
+    }
+
+    @Override
+    Object eval(final Map<Long, RuleInputValue> inputs, final AbstractParser parser, final boolean allowInvalid) {
+      RuleInputValue input = inputs.get(tagId);
+      if (allowInvalid && !input.isValid()) {
+        return RuleConstant.INTERNAL_INVALID.toString();
+      }
+      return input.getValue();
+    }
+
+    @Override
+    public String toString() {
+      return "#" + tagId;
+    }
+  }
+
+  /**
+   * Unary "!". As for the parser, anything but {@link Boolean#TRUE} negates to true.
+   */
+  static final class Not extends RuleNode {
+
+    final RuleNode operand;
+
+    Not(final RuleNode operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object eval(final Map<Long, RuleInputValue> inputs, final AbstractParser parser, final boolean allowInvalid)
+        throws RuleEvaluationException {
+      return operand.eval(inputs, parser, allowInvalid).equals(Boolean.TRUE) ? Boolean.FALSE : Boolean.TRUE;
+    }
+
+    @Override
+    public String toString() {
+      return "!(" + operand + ")";
+    }
+  }
+
+  /**
+   * Unary "-".
+   */
+  static final class Negate extends RuleNode {
+
+    final RuleNode operand;
+
+    Negate(final RuleNode operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object eval(final Map<Long, RuleInputValue> inputs, final AbstractParser parser, final boolean allowInvalid)
+        throws RuleEvaluationException {
+      return Double.valueOf(-((Number) operand.eval(inputs, parser, allowInvalid)).doubleValue());
+    }
+
+    @Override
+    public String toString() {
+      return "-(" + operand + ")";
+    }
+  }
+
+  /**
+   * Binary expression x OPERATOR y. Both operands are always evaluated,
+   * the operation itself is delegated to {@link AbstractParser#calculateExpr(Object, Object, Operator)}.
+   */
+  static final class Binary extends RuleNode {
+
+    final Operator operator;
+
+    final RuleNode left;
+
+    final RuleNode right;
+
+    Binary(final Operator operator, final RuleNode left, final RuleNode right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object eval(final Map<Long, RuleInputValue> inputs, final AbstractParser parser, final boolean allowInvalid)
+        throws RuleEvaluationException {
+      Object x = left.eval(inputs, parser, allowInvalid);
+      Object y = right.eval(inputs, parser, allowInvalid);
+      try {
+        return parser.calculateExpr(x, y, operator);
+      } catch (ClassCastException cce) {
+        throw cce;
+      } catch (Exception e) {
+        // same as AbstractParser.eval()
+        throw new RuntimeException("Unexpected error during rule evaluation.", e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "(" + left + " " + operator + " " + right + ")";
+    }
+  }
+}
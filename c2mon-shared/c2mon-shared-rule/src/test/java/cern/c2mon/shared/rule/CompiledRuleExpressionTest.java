@@ -0,0 +1,156 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.parser.CompiledRule;
+import cern.c2mon.shared.rule.parser.RuleCompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Makes sure that compiled rules give the same results as the {@link cern.c2mon.shared.rule.parser.Parser}.
+ */
+public class CompiledRuleExpressionTest {
+
+  private static final String[] RULES = {
+      "(#1 > 500) | (#2 = true)",
+      "#1 + #3 * 2 - 1",
+      "1 - 2 - 3",
+      "!(#2) & (#4 = \"ON\")",
+      "-(#1) < #3",
+      "(#1 && 6) || 1",
+      "#1 / 0 > 1000",
+      "#4 != \"OFF\" & #1 >= #3",
+      "#2 = $INVALID",
+      "(#2 | #5) & true",
+      "(2 + 3) * 4",
+      "#4 + 1",
+      "#1 > 1)",
+      "- 2 + 3"
+  };
+
+  @After
+  public void tearDown() {
+    RuleCompiler.setEnabled(true);
+  }
+
+  @Test
+  public void testCompiledRulesGiveSameResults() throws RuleFormatException {
+    Map<Long, RuleInputValue> inputs = new HashMap<>();
+    inputs.put(1L, input(1L, 700, true));
+    inputs.put(2L, input(2L, Boolean.FALSE, true));
+    inputs.put(3L, input(3L, 2.5f, true));
+    inputs.put(4L, input(4L, "ON", true));
+    inputs.put(5L, input(5L, Boolean.TRUE, false));
+
+    for (String rule : RULES) {
+      RuleExpression expression = RuleExpression.createExpression(rule);
+      assertEquals(rule, evaluate(expression, inputs, false), evaluate(expression, inputs, true));
+
+      // with invalid input
+      inputs.put(2L, input(2L, Boolean.FALSE, false));
+      assertEquals(rule, evaluate(expression, inputs, false), evaluate(expression, inputs, true));
+      inputs.put(2L, input(2L, Boolean.FALSE, true));
+    }
+  }
+
+  @Test
+  public void testMissingAndNullInputs() throws RuleFormatException {
+    RuleExpression expression = RuleExpression.createExpression("#1 + #2 > 3");
+    Map<Long, RuleInputValue> inputs = new HashMap<>();
+    inputs.put(1L, input(1L, null, true));
+
+    assertEquals(evaluate(expression, inputs, false), evaluate(expression, inputs, true));
+    assertTrue(evaluate(expression, inputs, true).contains("is null"));
+
+    inputs.put(1L, input(1L, 1, true));
+    assertEquals(evaluate(expression, inputs, false), evaluate(expression, inputs, true));
+    assertTrue(evaluate(expression, inputs, true).contains("input tag missing 2"));
+  }
+
+  @Test
+  public void testStringInputsLookingLikeSyntaxAreInterpreted() throws RuleFormatException {
+    RuleExpression expression = RuleExpression.createExpression("#1 = \"A\"");
+    Map<Long, RuleInputValue> inputs = new HashMap<>();
+    inputs.put(1L, input(1L, "(", true));
+
+    assertEquals(evaluate(expression, inputs, false), evaluate(expression, inputs, true));
+  }
+
+  @Test
+  public void testCompilation() throws RuleFormatException {
+    CompiledRule compiled = RuleCompiler.compile(SimpleRuleExpression.tokenize("(#1 > 500) | (6 = 2 * 3)"));
+    assertTrue(compiled.isCompiled());
+    // constant sub-expressions are folded
+    assertEquals("((#1 > 500.0) | true)", compiled.toString());
+
+    assertFalse(RuleCompiler.compile(SimpleRuleExpression.tokenize("(#1 > 500")).isCompiled());
+    assertFalse(RuleCompiler.compile(SimpleRuleExpression.tokenize("- 2 + 3")).isCompiled());
+  }
+
+  @Test
+  public void testNotCompilableRuleReturnsNull() throws RuleEvaluationException {
+    assertNull(CompiledRule.NOT_COMPILABLE.evaluate(new HashMap<>()));
+  }
+
+  private static String evaluate(final RuleExpression expression, final Map<Long, RuleInputValue> inputs, final boolean compiled) {
+    RuleCompiler.setEnabled(compiled);
+    String result;
+    try {
+      Object value = expression.evaluate(inputs);
+      result = value.getClass().getSimpleName() + ":" + value;
+    } catch (Exception e) {
+      result = e.getClass().getSimpleName() + (e instanceof ClassCastException ? "" : ":" + e.getMessage());
+    }
+    try {
+      Object value = expression.forceEvaluate(inputs);
+      result += " / " + (value == null ? null : value.getClass().getSimpleName() + ":" + value);
+    } catch (Exception e) {
+      result += " / " + e.getClass().getSimpleName();
+    }
+    return result;
+  }
+
+  private static RuleInputValue input(final Long id, final Object value, final boolean valid) {
+    return new RuleInputValue() {
+      @Override
+      public Long getId() {
+        return id;
+      }
+
+      @Override
+      public Object getValue() {
+        return value;
+      }
+
+      @Override
+      public boolean isValid() {
+        return valid;
+      }
+    };
+  }
+}